@@ -0,0 +1,113 @@
+package org.example.crawl;
+
+import org.apache.commons.io.FileUtils;
+import org.example.harness.SyntheticSite;
+import org.example.http.HttpTransport;
+import org.example.read.HTTPPageReader;
+import org.example.write.BlockingFileWriter;
+import org.example.write.FileWriter;
+import org.example.write.NoneBlockingFileWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of complete crawls of a local site, from the index through every page and asset: reading,
+ * extraction, scheduling and writing together, the way {@code doWork} runs them. Every invocation is a fresh crawl of
+ * the whole site, results are URLs crawled per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CrawlBenchmark {
+
+    // Constants
+    private static final int PAGES = 200;
+    private static final int URLS = 1 + 2 * PAGES;
+    private static final String OUTPUT_DIRECTORY = "target/jmh-crawl";
+
+    // The writer: "blocking" or "nonBlocking", as selected by the -a option
+    @Param({"blocking", "nonBlocking"})
+    public String writer;
+
+    // The number of worker threads
+    @Param({"8"})
+    public int threads;
+
+    // Member variables
+    private SyntheticSite site;
+    private HttpTransport transport;
+
+    /**
+     * Starts a local site of {@value #PAGES} pages with ten links, two duplicate links and five 16 KB assets each.
+     *
+     * @throws IOException If the site cannot be started.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        site = new SyntheticSite(PAGES, 10);
+        site.setAssets(5, 16 * 1024);
+        site.setDuplicateLinks(2);
+        site.start();
+        transport = new HttpTransport(HttpClient.Version.HTTP_1_1, Duration.ofSeconds(5), Duration.ofSeconds(30),
+                false, 16, 256);
+    }
+
+    /**
+     * Stops the local site and deletes the crawled data.
+     *
+     * @throws IOException If the data cannot be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        site.close();
+        FileUtils.deleteDirectory(new File(OUTPUT_DIRECTORY));
+        for (String suffix : new String[]{".journal", ".meta", ".errors", ".frontier"}) {
+            FileUtils.deleteQuietly(new File(OUTPUT_DIRECTORY + suffix));
+        }
+    }
+
+    /**
+     * Crawls the whole site.
+     *
+     * @return The number of URLs crawled.
+     * @throws IOException If the starting URL is invalid.
+     */
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int crawl() throws IOException {
+        FileWriter fileWriter = writer.equals("nonBlocking")
+                ? new NoneBlockingFileWriter(transport) : new BlockingFileWriter(transport);
+        Crawler crawler = new Crawler(new HTTPPageReader(transport), fileWriter, threads, OUTPUT_DIRECTORY,
+                new URL(site.getBaseUrl() + "index.html"));
+        crawler.setRetryPolicy(RetryPolicy.NONE);
+        Progress progress = crawler.startAsync(StartMode.FRESH, null).join();
+
+        // A crawl that misses URLs is not comparable to the others
+        if (progress.getPersisted() != site.getUrlCount()) {
+            throw new IllegalStateException("Crawled " + progress.getPersisted() + " of " + site.getUrlCount()
+                    + " URLs, " + progress.getFailed() + " failed");
+        }
+        return progress.getPersisted();
+    }
+}
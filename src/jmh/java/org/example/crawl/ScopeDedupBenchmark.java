@@ -0,0 +1,149 @@
+package org.example.crawl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the crawler does with every URL it extracts before a job is scheduled: the scope check, canonicalization
+ * and the lookup in the visited set. The URLs are a realistic mix of new URLs, duplicates
+ * that only differ by case, fragment or dot segments, and URLs outside the domain. Results are per URL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScopeDedupBenchmark {
+
+    // Constants
+    private static final String BASE_PREFIX = "https://books.toscrape.com/";
+    private static final int URLS = 10_000;
+
+    // Member variables
+    private final String[] urls = new String[URLS];
+    private final UrlScope scope = new UrlScope("https", List.of("books.toscrape.com"), List.of("/"),
+            List.of("/catalogue/category/books_*", "*.pdf$"), Collections.emptyList());
+
+    /**
+     * Generates the extracted URLs: per four URLs one new page, two duplicates of it and one URL outside the domain.
+     */
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < URLS; i += 4) {
+            String path = "catalogue/book_" + i + "/index.html";
+            urls[i] = BASE_PREFIX + path;
+            urls[i + 1] = "HTTPS://Books.ToScrape.com/" + path + "#reviews";
+            urls[i + 2] = BASE_PREFIX + "catalogue/category/../book_" + i + "/index.html";
+            urls[i + 3] = "https://www.example.com/" + path;
+        }
+    }
+
+    /**
+     * Filters, canonicalizes and deduplicates all URLs the way the crawler submits them.
+     *
+     * @param visited The visited set.
+     * @return The number of new URLs in the domain.
+     * @throws URISyntaxException If a URL is invalid, never for the generated URLs.
+     */
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int scopeAndDedup(Visited visited) throws URISyntaxException {
+        int scheduled = 0;
+        for (String url : urls) {
+            if (scope.contains(url) && visited.set.add(UrlCanonicalizer.canonicalize(new URI(url)).toString())) {
+                scheduled++;
+            }
+        }
+        return scheduled;
+    }
+
+    /**
+     * Checks the scope of all URLs, which allocates nothing, against the single prefix comparison it replaced.
+     *
+     * @return The number of URLs in scope.
+     */
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int scopeCheck() {
+        int inScope = 0;
+        for (String url : urls) {
+            if (scope.contains(url)) {
+                inScope++;
+            }
+        }
+        return inScope;
+    }
+
+    /**
+     * Checks all URLs against the base URL with a single case-insensitive prefix comparison, as a baseline.
+     *
+     * @return The number of URLs with the prefix.
+     */
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int prefixCheck() {
+        int inScope = 0;
+        for (String url : urls) {
+            if (url.regionMatches(true, 0, BASE_PREFIX, 0, BASE_PREFIX.length())) {
+                inScope++;
+            }
+        }
+        return inScope;
+    }
+
+    /**
+     * Canonicalizes all URLs without the scope check and the visited set, to separate the cost of the URI parsing.
+     *
+     * @return The summed length of the canonical URLs.
+     * @throws URISyntaxException If a URL is invalid, never for the generated URLs.
+     */
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int canonicalize() throws URISyntaxException {
+        int length = 0;
+        for (String url : urls) {
+            length += UrlCanonicalizer.canonicalize(new URI(url)).toString().length();
+        }
+        return length;
+    }
+
+    /**
+     * The visited set, empty at the start of every invocation so that the first URL of every page is new.
+     */
+    @State(Scope.Thread)
+    public static class Visited {
+
+        // The visited set: "exact" or "compact", as selected by visitedSet.type
+        @Param({"exact", "compact"})
+        public String type;
+
+        // Member variables
+        private VisitedSet set;
+
+        /**
+         * Creates an empty visited set.
+         */
+        @Setup(Level.Invocation)
+        public void clear() {
+            set = type.equals("compact") ? new CompactVisitedSet(4 * 1024 * 1024) : new ConcurrentVisitedSet();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.extract;
+
+import org.apache.commons.io.IOUtils;
+import org.example.harness.SyntheticSite;
+import org.example.crawl.Crawler;
+import org.example.misc.Pair;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the link extraction of a page: the original four selects over a parsed document, the single pass DOM
+ * extractor and the streaming extractor. Each benchmark extracts the resources and links in the domain, the way the
+ * crawler does it, from the index page fixture or from a generated page with many more links and resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LinkExtractionBenchmark {
+
+    // Constants
+    private static final String BASE_URI = "https://books.toscrape.com/index.html";
+    private static final String BASE_PREFIX = "https://books.toscrape.com/";
+
+    // The benchmarked page: the index page fixture, or a generated page with 100 links and 20 resources per copy
+    @Param({"index", "synthetic"})
+    public String source;
+
+    // The number of copies of the index page, or of the links and resources of the generated page
+    @Param({"1", "50"})
+    public int copies;
+
+    // Member variables
+    private byte[] page;
+    private final LinkExtractor dom = new DomLinkExtractor(Crawler.RESOURCE_MAPPING, Crawler.LINK_MAPPING);
+    private final LinkExtractor streaming =
+            new StreamingLinkExtractor(Crawler.RESOURCE_MAPPING, Crawler.LINK_MAPPING);
+
+    /**
+     * Loads the index page and repeats it to the benchmarked size, or generates the page.
+     *
+     * @throws IOException If the index page cannot be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        if (source.equals("synthetic")) {
+            SyntheticSite site = new SyntheticSite(10_000, copies * 100);
+            site.setAssets(copies * 20, 0);
+            site.setDuplicateLinks(copies * 25);
+            page = site.page(0).getBytes(StandardCharsets.UTF_8);
+            return;
+        }
+        try (InputStream input = LinkExtractionBenchmark.class.getClassLoader().getResourceAsStream("index.html")) {
+            String index = IOUtils.toString(input, StandardCharsets.UTF_8);
+            page = index.repeat(copies).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Extracts the links the way the crawler did before the single pass extraction, as the baseline.
+     *
+     * @return The number of resources and links found.
+     * @throws IOException If the page cannot be parsed.
+     */
+    @Benchmark
+    public int legacy() throws IOException {
+        Document document = Jsoup.parse(new ByteArrayInputStream(page), null, BASE_URI);
+        Set<String> resources = extractResourceUrls(document, Crawler.RESOURCE_MAPPING);
+        Set<String> links = extractResourceUrls(document, Crawler.LINK_MAPPING);
+        return resources.size() + links.size();
+    }
+
+    /**
+     * Extracts the links with the single pass DOM extractor.
+     *
+     * @return The number of resources and links found.
+     * @throws IOException If the page cannot be parsed.
+     */
+    @Benchmark
+    public int singlePass() throws IOException {
+        return extract(dom);
+    }
+
+    /**
+     * Extracts the links with the streaming extractor.
+     *
+     * @return The number of resources and links found.
+     * @throws IOException If the page cannot be read.
+     */
+    @Benchmark
+    public int streaming() throws IOException {
+        return extract(streaming);
+    }
+
+    /**
+     * Extracts the resources and links in the domain the way the crawler does it.
+     *
+     * @param extractor The extractor.
+     * @return The number of resources and links found.
+     * @throws IOException If the page cannot be read.
+     */
+    private int extract(LinkExtractor extractor) throws IOException {
+        Set<String> resources = new LinkedHashSet<>();
+        Set<String> links = new LinkedHashSet<>();
+        extractor.extract(new ByteArrayInputStream(page), null, BASE_URI, (type, url) -> {
+            if (url.regionMatches(true, 0, BASE_PREFIX, 0, BASE_PREFIX.length())) {
+                (type == LinkType.RESOURCE ? resources : links).add(url);
+            }
+        });
+        return resources.size() + links.size();
+    }
+
+    /**
+     * The original extraction: one select per query, merged into a set.
+     *
+     * @param document            The document to extract resources from.
+     * @param queryAttributePairs Pairs of CSS queries and attribute keys.
+     * @return The URLs in the domain.
+     */
+    private static Set<String> extractResourceUrls(Document document, Set<Pair<String, String>> queryAttributePairs) {
+        return queryAttributePairs.stream()
+                .map(pair -> extractUrlsInDomain(document, pair.getFirst(), pair.getSecond()))
+                .flatMap(Collection::stream)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * The original filter: every URL is lower cased before the prefix check.
+     *
+     * @param document     The document to extract URLs from.
+     * @param cssQuery     The CSS query to select elements.
+     * @param attributeKey The attribute key containing the URL.
+     * @return The URLs in the domain.
+     */
+    private static Set<String> extractUrlsInDomain(Document document, String cssQuery, String attributeKey) {
+        return document.select(cssQuery)
+                .stream()
+                .map(link -> link.absUrl(attributeKey))
+                .filter(url -> url.toLowerCase().startsWith(BASE_PREFIX))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.write;
+
+import org.apache.commons.io.FileUtils;
+import org.example.harness.SyntheticSite;
+import org.example.http.HttpTransport;
+import org.example.store.Validators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the synchronous writer, which holds a thread for every download, with the asynchronous writer, which
+ * streams downloads into their files without holding a thread. Both download a batch of assets at the same time from
+ * a local site, so the results show the cost of the writers rather than of the network. Results are per download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileWriterBenchmark {
+
+    // Constants
+    private static final int BATCH = 16;
+    private static final Path OUTPUT = Paths.get("target", "jmh-writer");
+
+    // The size of every download in bytes
+    @Param({"16384", "1048576"})
+    public int size;
+
+    // Member variables
+    private SyntheticSite site;
+    private ExecutorService workers;
+    private BlockingFileWriter blocking;
+    private NoneBlockingFileWriter nonBlocking;
+
+    /**
+     * Starts the local site and creates the writers on a shared transport, with as many connections as downloads.
+     *
+     * @throws IOException If the site cannot be started.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        site = new SyntheticSite(BATCH, 1);
+        site.setAssets(1, size);
+        site.start();
+        workers = Executors.newFixedThreadPool(BATCH);
+        HttpTransport transport = new HttpTransport(HttpClient.Version.HTTP_1_1, BATCH, Duration.ofSeconds(5),
+                Duration.ofSeconds(30));
+        blocking = new BlockingFileWriter(transport);
+        nonBlocking = new NoneBlockingFileWriter(transport, BATCH);
+    }
+
+    /**
+     * Stops the local site and deletes the downloads.
+     *
+     * @throws IOException If the downloads cannot be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        workers.shutdownNow();
+        site.close();
+        FileUtils.deleteDirectory(OUTPUT.toFile());
+    }
+
+    /**
+     * Downloads a batch with the synchronous writer, one worker thread per download.
+     *
+     * @return The number of bytes written.
+     * @throws Exception If a download fails.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long blocking() throws Exception {
+        List<Future<Validators>> downloads = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            URI uri = assetOf(i);
+            Path path = OUTPUT.resolve("blocking" + i);
+            downloads.add(workers.submit(() -> blocking.write(uri, path, null)));
+        }
+        long written = 0;
+        for (Future<Validators> download : downloads) {
+            written += download.get().getContentLength();
+        }
+        return written;
+    }
+
+    /**
+     * Downloads a batch with the asynchronous writer from the calling thread.
+     *
+     * @return The number of bytes written.
+     * @throws ExecutionException   If a download fails.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long nonBlocking() throws ExecutionException, InterruptedException {
+        List<CompletableFuture<Validators>> downloads = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            downloads.add(nonBlocking.writeAsync(assetOf(i), OUTPUT.resolve("nonBlocking" + i), null));
+        }
+        long written = 0;
+        for (CompletableFuture<Validators> download : downloads) {
+            written += download.get().getContentLength();
+        }
+        return written;
+    }
+
+    /**
+     * Gets the URI of an asset of the local site.
+     *
+     * @param number The number of the asset.
+     * @return The URI.
+     */
+    private URI assetOf(int number) {
+        return URI.create(site.getBaseUrl() + "static/asset" + number + ".png");
+    }
+}
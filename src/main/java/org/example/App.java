@@ -5,14 +5,36 @@
 package org.example;
 
 import org.apache.commons.cli.*;
+import org.example.crawl.CompactVisitedSet;
+import org.example.crawl.ConcurrentVisitedSet;
+import org.example.crawl.CrawlExecutor;
 import org.example.crawl.Crawler;
+import org.example.crawl.ExtendedExecutor;
+import org.example.crawl.Progress;
+import org.example.crawl.RetryPolicy;
+import org.example.crawl.StartMode;
+import org.example.crawl.VirtualThreadExecutor;
+import org.example.crawl.VisitedSet;
+import org.example.extract.DomLinkExtractor;
+import org.example.extract.LinkExtractor;
+import org.example.extract.StreamingLinkExtractor;
+import org.example.http.HttpTransport;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Phase;
 import org.example.misc.AppConfig;
 import org.example.read.HTTPPageReader;
+import org.example.robots.RobotsCache;
+import org.example.store.ContentStore;
+import org.example.write.ArchiveFileWriter;
+import org.example.write.DedupFileWriter;
 import org.example.write.NoneBlockingFileWriter;
 import org.example.write.FileWriter;
 import org.example.write.BlockingFileWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class App {
 
@@ -42,20 +64,54 @@ public class App {
         options.addOption(Option.builder("a").required(false)
                 .desc("Downloads files asynchronously if set. Use for slow network connections. " +
                         "Can negatively affect performance if the connection times are fast.").build());
+        options.addOption(Option.builder("v").longOpt("virtual").required(false)
+                .desc("Runs every job on its own virtual thread (requires Java 21). The number given with -t then " +
+                        "caps the number of jobs in flight.").build());
+        options.addOption(Option.builder("r").longOpt("resume").required(false)
+                .desc("Resumes an interrupted crawl from its journal instead of starting from scratch.").build());
+        options.addOption(Option.builder("i").longOpt("incremental").required(false)
+                .desc("Re-crawls into the existing output directory, only transferring content that has changed " +
+                        "since the previous crawl.").build());
 
         CommandLineParser parser = new DefaultParser();
         HelpFormatter helper = new HelpFormatter();
 
         //  best guess...
         int threads = Runtime.getRuntime().availableProcessors() * 2;
-        FileWriter writer = new BlockingFileWriter();
+
+        // One transport, and thereby one connection pool, for the reader and the writer
+        HttpTransport transport = HttpTransport.getDefault();
+        FileWriter writer = new BlockingFileWriter(transport);
 
         try {
             CommandLine cmd = parser.parse(options, args);
 
             // Set writer to asynchronous if the -a option is present
-            if (cmd.hasOption("a")) {
-                writer = new NoneBlockingFileWriter();
+            boolean async = cmd.hasOption("a");
+            if (async) {
+                writer = new NoneBlockingFileWriter(transport);
+            }
+
+            // Append everything to segment files if archiving is enabled, otherwise store identical content only once
+            // if content-addressed storage is enabled
+            ArchiveFileWriter archive = null;
+            ContentStore store = null;
+            if (AppConfig.isArchiveEnabled()) {
+                archive = new ArchiveFileWriter(transport, Paths.get(OUTPUT_DIRECTORY),
+                        AppConfig.getArchiveSegmentSize());
+                writer = archive;
+            } else if (AppConfig.isDedupEnabled()) {
+                store = new ContentStore(Paths.get(OUTPUT_DIRECTORY + ".blobs"));
+                writer = new DedupFileWriter(transport, store);
+            }
+
+            // Virtual threads are cheap, so the default is a cap on jobs in flight rather than a pool size
+            boolean virtual = cmd.hasOption("v");
+            if (virtual) {
+                if (!VirtualThreadExecutor.isSupported()) {
+                    throw new ParseException("Virtual threads require Java 21 or later");
+                }
+                threads = AppConfig.getVirtualThreadsMaxInFlight();
             }
 
             // Override the number of threads if the -t option is present
@@ -72,20 +128,80 @@ public class App {
 //            System.out.println("Just exit for now " + App.OUTPUT_DIRECTORY);
 //            System.exit(0);
 
+            if (threads < 1) {
+                throw new ParseException("The number of threads must be greater than zero");
+            }
+            CrawlExecutor executor = virtual ? new VirtualThreadExecutor(threads) : new ExtendedExecutor(threads);
+
             // Initialize and start the web crawler
-            Crawler crawler =
-                    new Crawler(new HTTPPageReader(), writer, threads, OUTPUT_DIRECTORY, SOURCE_URL);
-            System.out.println("Starting file download from " + SOURCE_URL + " using " + threads + " thread(s) and a " +
-                    (writer instanceof NoneBlockingFileWriter ? "asynchronous writer " : "synchronous writer "));
-            crawler.start(progress -> {
-                if (progress.getException() != null) {
-                    throw progress.getException();
+            VisitedSet visited = createVisitedSet();
+            Crawler crawler = new Crawler(new HTTPPageReader(transport), writer, executor, OUTPUT_DIRECTORY,
+                    SOURCE_URL, visited);
+            crawler.setLinkExtractor(createLinkExtractor());
+            if (AppConfig.isRobotsEnabled()) {
+                crawler.setRobots(RobotsCache.fromConfig(transport, RetryPolicy.fromConfig()));
+            }
+
+            // Record the time to first byte of every request, and expose the metrics over JMX
+            transport.setMetrics(crawler.getMetrics());
+            crawler.getMetrics().register();
+            System.out.println("Starting file download from " + SOURCE_URL + " using " + threads +
+                    (virtual ? " virtual thread(s) in flight and a " : " thread(s) and a ") +
+                    (archive != null ? "archive writer " : store != null ? "deduplicating writer "
+                            : async ? "asynchronous writer " : "synchronous writer "));
+            StartMode mode = cmd.hasOption("r") ? StartMode.RESUME
+                    : cmd.hasOption("i") ? StartMode.INCREMENTAL : StartMode.FRESH;
+            // Failed jobs do not end the crawl, they are retried or listed in the error report
+            AtomicReference<Progress> last = new AtomicReference<>();
+            AtomicBoolean overflowing = new AtomicBoolean();
+            crawler.start(mode, progress -> {
+                last.set(progress);
+                if (visited.getOverflows() > 0 && overflowing.compareAndSet(false, true)) {
+                    System.out.println("\nThe visited set is full, new URLs may be dropped from now on. Raise "
+                            + "visitedSet.memoryBudget or use the exact visited set");
                 }
-                System.out.print("Completed " + progress.getPersisted() + " | Scheduled " +
-                        progress.getScheduled() + " | Elapsed " + progress.getElapsedTimeInSeconds() + "(s)  "
-                        + "                            \r");
+                System.out.print("Completed " + progress.getPersisted() + " | Unchanged " +
+                        progress.getUnchanged() + " | Scheduled " +
+                        progress.getScheduled() + " | Duplicates " + progress.getVisitedHits() + " ("
+                        + Math.round(progress.getVisitedHitRate() * 100) + "%) | Skipped "
+                        + progress.getSkipped() + " | Retried " + progress.getRetried() + " | Failed "
+                        + progress.getFailed() + " | Connections "
+                        + transport.getGlobalLimiter().getInFlight() + " | In "
+                        + String.format("%.1f", progress.getMetrics().getBytesInPerSecond() / 1_000_000)
+                        + " MB/s | Elapsed "
+                        + progress.getElapsedTimeInSeconds() + "(s)                            \r");
             });
             System.out.println("\nDownload complete");
+            crawler.getMetrics().unregister();
+            if (last.get() != null && last.get().getFailed() > 0) {
+                System.out.println(last.get().getFailed() + " job(s) failed, see " + OUTPUT_DIRECTORY + ".errors");
+            }
+            if (visited.getOverflows() > 0) {
+                System.out.println(visited.getOverflows() + " visited set lookup(s) overflowed, some URLs may not "
+                        + "have been crawled");
+            }
+            if (last.get() != null) {
+                // Show where the time went
+                for (Phase phase : Phase.values()) {
+                    LatencyHistogram.Snapshot latency = last.get().getMetrics().getLatency(phase);
+                    System.out.println(String.format("%-8s %8d x  p50 %8.1f ms  p99 %8.1f ms  max %8.1f ms", phase,
+                            latency.getCount(), latency.getP50Millis(), latency.getP99Millis(),
+                            latency.getMaxMillis()));
+                }
+
+                // Show which stage bounds the crawl
+                last.get().getMetrics().getStages().forEach((stage, stats) -> System.out.println(String.format(
+                        "%-8s %3d thread(s)  %5.1f%% busy  %8d task(s)  waited for %d ms", stage, stats.getThreads(),
+                        stats.getUtilization() * 100, stats.getTasks(), stats.getBlockedMillis())));
+            }
+            if (archive != null) {
+                archive.close();
+            }
+            if (store != null) {
+                store.close();
+                System.out.println("Stored " + store.getStored() + " distinct content(s), deduplicated "
+                        + store.getDeduplicated());
+            }
 
         } catch (ParseException e) {
             System.out.println(e.getMessage());
@@ -94,8 +210,41 @@ public class App {
         } catch (Exception e) {
             System.out.println("There was an exception");
             System.out.println(e.getCause().getMessage());
-            System.out.println("Execution will be terminated. Try again with fewer threads and synchronous download");
+            System.out.println("Execution will be terminated. Concurrency adapts to each server on its own, lower "
+                    + "http.maxConnectionsPerHost to be gentler on the server");
             System.exit(0);
         }
     }
+
+    /**
+     * Creates the visited set selected in the configuration.
+     *
+     * @return The visited set.
+     */
+    public static VisitedSet createVisitedSet() {
+        switch (AppConfig.getVisitedSetType()) {
+            case "exact":
+                return new ConcurrentVisitedSet();
+            case "compact":
+                return new CompactVisitedSet(AppConfig.getVisitedSetMemoryBudget());
+            default:
+                throw new IllegalStateException("Unexpected visited set type " + AppConfig.getVisitedSetType());
+        }
+    }
+
+    /**
+     * Creates the link extractor selected in the configuration.
+     *
+     * @return The link extractor.
+     */
+    public static LinkExtractor createLinkExtractor() {
+        switch (AppConfig.getExtractionMode()) {
+            case "dom":
+                return new DomLinkExtractor(Crawler.RESOURCE_MAPPING, Crawler.LINK_MAPPING);
+            case "streaming":
+                return new StreamingLinkExtractor(Crawler.RESOURCE_MAPPING, Crawler.LINK_MAPPING);
+            default:
+                throw new IllegalStateException("Unexpected extraction mode " + AppConfig.getExtractionMode());
+        }
+    }
 }
@@ -0,0 +1,141 @@
+package org.example.crawl;
+
+import org.example.misc.AppConfig;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A circuit breaker per host. After a number of consecutive transient failures the circuit of the host opens, and its
+ * jobs are held back instead of adding load to a server that is down or overloaded. Once the open duration has passed
+ * a single job is let through as a probe: if it succeeds the circuit closes, if it fails the circuit opens again.
+ */
+public class CircuitBreaker {
+
+    // Member variables
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a CircuitBreaker.
+     *
+     * @param failureThreshold The number of consecutive transient failures that open the circuit of a host.
+     * @param openDuration     How long the circuit stays open before a probe is let through.
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold < 1) throw new IllegalArgumentException("The failure threshold must be greater than zero");
+        if (openDuration == null) throw new IllegalArgumentException("Parameter openDuration is null");
+
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+    }
+
+    /**
+     * Creates the circuit breaker configured in the application configuration.
+     *
+     * @return The circuit breaker.
+     */
+    public static CircuitBreaker fromConfig() {
+        return new CircuitBreaker(AppConfig.getCircuitBreakerFailureThreshold(),
+                AppConfig.getCircuitBreakerOpenDuration());
+    }
+
+    /**
+     * Checks whether a job for the URI may run now. If the circuit of its host is open, the job should be held back
+     * for the returned time. If it has been open long enough, the first caller gets to run its job as the probe.
+     *
+     * @param uri The URI of the job.
+     * @return Zero if the job may run, otherwise the time in milliseconds to hold it back.
+     */
+    public long delayOf(URI uri) {
+        Circuit circuit = circuits.get(hostOf(uri));
+        return circuit == null ? 0 : circuit.delay(System.currentTimeMillis());
+    }
+
+    /**
+     * Records that the host of the URI answered, which closes its circuit.
+     *
+     * @param uri The URI of the job.
+     */
+    public void recordSuccess(URI uri) {
+        Circuit circuit = circuits.get(hostOf(uri));
+        if (circuit != null) {
+            circuit.success();
+        }
+    }
+
+    /**
+     * Records a transient failure of a request to the host of the URI, which opens its circuit once the threshold of
+     * consecutive failures is reached, or right away if the failed request was the probe.
+     *
+     * @param uri The URI of the job.
+     */
+    public void recordFailure(URI uri) {
+        circuits.computeIfAbsent(hostOf(uri), key -> new Circuit()).failure(System.currentTimeMillis());
+    }
+
+    /**
+     * Derives the key that circuits are kept by, the scheme, host and port of the URI.
+     *
+     * @param uri The URI.
+     * @return The host key.
+     */
+    private static String hostOf(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    /**
+     * The circuit of a single host.
+     */
+    private final class Circuit {
+
+        // Member variables
+        private int failures;
+        private long openUntil;
+        private boolean probing;
+
+        /**
+         * Checks whether a job may run, letting the first job through as the probe once the circuit may be retried.
+         *
+         * @param now The current time in milliseconds.
+         * @return Zero if the job may run, otherwise the time in milliseconds to hold it back.
+         */
+        private synchronized long delay(long now) {
+            if (failures < failureThreshold) {
+                return 0;
+            }
+            if (now < openUntil) {
+                return openUntil - now;
+            }
+
+            // Hold back the other jobs for another open duration, by which the probe has normally completed
+            probing = true;
+            openUntil = now + openMillis;
+            return 0;
+        }
+
+        /**
+         * Closes the circuit.
+         */
+        private synchronized void success() {
+            failures = 0;
+            probing = false;
+        }
+
+        /**
+         * Counts a failure, and opens the circuit at the threshold or when the probe failed.
+         *
+         * @param now The current time in milliseconds.
+         */
+        private synchronized void failure(long now) {
+            failures++;
+            if (failures == failureThreshold || probing) {
+                probing = false;
+                openUntil = now + openMillis;
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.example.crawl;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A memory-bounded, lock-free {@link VisitedSet} for very large crawls. Instead of the URLs themselves it keeps a
+ * 32-bit fingerprint per URL in a primitive open-addressing table, backed by a Bloom filter. Both live in arrays
+ * allocated up front, so the heap footprint is flat and holds no objects per URL for the garbage collector to trace.
+ * <p>
+ * The table is indexed by the upper half of a 64-bit hash of the URL and stores the lower half, so two URLs are only
+ * mistaken for each other if their fingerprints match within the same run of probed slots, which happens for about
+ * two in a billion lookups of new URLs. The table holds {@link #getCapacity()} URLs, about one per 7 bytes of the
+ * budget. While it has room every lookup is answered by the table alone. The Bloom filter is only filled along, and
+ * consulted once the table is full: a negative answer then still proves a URL is new, but a positive one the table
+ * cannot confirm may be a new URL that is dropped. Such lookups are counted as {@link #getOverflows() overflows}, the
+ * budget must be sized for the crawl to avoid them.
+ */
+public class CompactVisitedSet implements VisitedSet {
+
+    // Constants
+    private static final int EMPTY = 0;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final double BLOOM_SHARE = 0.25;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Member variables
+    private final AtomicIntegerArray fingerprints;
+    private final AtomicLongArray bloom;
+    private final long bloomBits;
+    private final int hashFunctions;
+    private final long capacity;
+    private final AtomicLong size = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * Constructs a CompactVisitedSet that uses at most the specified number of bytes, a quarter of which is given to
+     * the Bloom filter and the rest to the fingerprint table.
+     *
+     * @param memoryBudgetInBytes The memory budget in bytes.
+     */
+    public CompactVisitedSet(long memoryBudgetInBytes) {
+        if (memoryBudgetInBytes < 1024) {
+            throw new IllegalArgumentException("The memory budget must be at least 1024 bytes");
+        }
+
+        // Java arrays are indexed by int, which caps the Bloom filter at 16 GB and the table at 8 GB
+        long bloomWords = Math.min(Integer.MAX_VALUE, (long) (memoryBudgetInBytes * BLOOM_SHARE) / Long.BYTES);
+        long slots = Math.min(Integer.MAX_VALUE, (memoryBudgetInBytes - bloomWords * Long.BYTES) / Integer.BYTES);
+
+        this.bloom = new AtomicLongArray((int) bloomWords);
+        this.bloomBits = bloomWords * Long.SIZE;
+        this.fingerprints = new AtomicIntegerArray((int) slots);
+        this.capacity = (long) (slots * MAX_LOAD_FACTOR);
+
+        // Optimal number of hash functions for the expected number of elements, k = (m / n) * ln 2
+        this.hashFunctions = (int) Math.max(1, Math.min(8, Math.round((double) bloomBits / capacity * Math.log(2))));
+    }
+
+    /**
+     * Marks the URL as visited.
+     *
+     * @param canonicalUrl The canonical form of the URL.
+     * @return True if the URL was not visited before, false if it is a duplicate.
+     */
+    @Override
+    public boolean add(String canonicalUrl) {
+        long hash = hash(canonicalUrl);
+
+        boolean added;
+        if (size.get() < capacity) {
+            // The table has room and answers alone, inserting the fingerprint if it is not there
+            added = insert(hash);
+        } else if (!mightContain(hash)) {
+            // A negative Bloom answer proves the URL is new, even though the table cannot record it anymore
+            added = true;
+        } else {
+            // The table is full, a positive Bloom answer it does not confirm may be a new URL that is dropped
+            added = false;
+            if (!contains(hash)) {
+                overflows.increment();
+            }
+        }
+
+        if (added) {
+            setBloomBits(hash);
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return added;
+    }
+
+    /**
+     * Inserts the fingerprint of the hash into the open-addressing table using linear probing. Slots are claimed with
+     * a compare-and-set, so two threads adding the same URL concurrently cannot both succeed.
+     *
+     * @param hash The hash of the URL.
+     * @return True if the fingerprint was inserted, false if it was already present.
+     */
+    private boolean insert(long hash) {
+        int fingerprint = fingerprintOf(hash);
+        int length = fingerprints.length();
+        int slot = reduce(hash, length);
+
+        for (int probes = 0; probes < length; probes++) {
+            int current = fingerprints.get(slot);
+            if (current == fingerprint) {
+                return false;
+            }
+            if (current == EMPTY) {
+                if (fingerprints.compareAndSet(slot, EMPTY, fingerprint)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+                // Another thread claimed the slot, check it again as it may hold the same fingerprint
+                continue;
+            }
+            slot = slot + 1 == length ? 0 : slot + 1;
+        }
+        throw new IllegalStateException("The visited set table is full");
+    }
+
+    /**
+     * Checks whether the fingerprint of the hash is in the open-addressing table.
+     *
+     * @param hash The hash of the URL.
+     * @return True if the fingerprint is present, false otherwise.
+     */
+    private boolean contains(long hash) {
+        int fingerprint = fingerprintOf(hash);
+        int length = fingerprints.length();
+        int slot = reduce(hash, length);
+
+        for (int probes = 0; probes < length; probes++) {
+            int current = fingerprints.get(slot);
+            if (current == fingerprint) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            slot = slot + 1 == length ? 0 : slot + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether all Bloom filter bits of the hash are set.
+     *
+     * @param hash The hash of the URL.
+     * @return True if the URL might have been added before, false if it certainly has not.
+     */
+    private boolean mightContain(long hash) {
+        long h2 = secondaryHash(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash + i * h2, bloomBits);
+            if ((bloom.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets all Bloom filter bits of the hash.
+     *
+     * @param hash The hash of the URL.
+     */
+    private void setBloomBits(long hash) {
+        long h2 = secondaryHash(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash + i * h2, bloomBits);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bloom.get(word) & mask) == 0) {
+                bloom.getAndAccumulate(word, mask, (previous, m) -> previous | m);
+            }
+        }
+    }
+
+    /**
+     * Derives the second hash of the double hashing scheme used by the Bloom filter.
+     *
+     * @param hash The hash of the URL.
+     * @return An odd second hash.
+     */
+    private static long secondaryHash(long hash) {
+        return Long.rotateLeft(hash, 32) * 0x9E3779B97F4A7C15L | 1;
+    }
+
+    /**
+     * Maps the hash onto [0, length) without a division, using the upper bits of the hash.
+     *
+     * @param hash   The hash of the URL.
+     * @param length The length of the range.
+     * @return The index in the range.
+     */
+    private static int reduce(long hash, int length) {
+        return (int) (((hash >>> 32) * length) >>> 32);
+    }
+
+    /**
+     * Gets the fingerprint the table keeps of a hash, its lower half, which is independent of the slot it is kept in.
+     * Zero is reserved for empty slots.
+     *
+     * @param hash The hash of the URL.
+     * @return The non-zero fingerprint.
+     */
+    private static int fingerprintOf(long hash) {
+        int fingerprint = (int) hash;
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    /**
+     * Computes a 64-bit hash of the URL, FNV-1a followed by the MurmurHash3 finalizer to spread the bits.
+     *
+     * @param url The URL.
+     * @return The hash.
+     */
+    static long hash(String url) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Gets the number of lookups for URLs that were already visited.
+     *
+     * @return The number of hits.
+     */
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups for URLs that were not visited before.
+     *
+     * @return The number of misses.
+     */
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of lookups the Bloom filter answered positively after the table was full, and the table could
+     * not confirm. Some of the URLs these lookups treated as visited may have been new.
+     *
+     * @return The number of overflowing lookups.
+     */
+    @Override
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Gets the number of URLs the fingerprint table can hold before falling back to the Bloom filter.
+     *
+     * @return The capacity of the fingerprint table.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.crawl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free {@link VisitedSet} backed by a concurrent hash set of the canonical URLs.
+ */
+public class ConcurrentVisitedSet implements VisitedSet {
+
+    // Member variables
+    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Marks the URL as visited.
+     *
+     * @param canonicalUrl The canonical form of the URL.
+     * @return True if the URL was not visited before, false if it is a duplicate.
+     */
+    @Override
+    public boolean add(String canonicalUrl) {
+        boolean added = visited.add(canonicalUrl);
+        (added ? misses : hits).increment();
+        return added;
+    }
+
+    /**
+     * Gets the number of lookups for URLs that were already visited.
+     *
+     * @return The number of hits.
+     */
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups for URLs that were not visited before.
+     *
+     * @return The number of misses.
+     */
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.crawl;
+
+import org.example.misc.AppConfig;
+
+import java.time.Duration;
+
+/**
+ * Represents the hard limits of a crawl: the maximum link depth of pages, the maximum number of pages, the maximum
+ * number of bytes downloaded and the maximum wall-clock time. The limits are enforced when jobs are scheduled, work that
+ * would exceed them is dropped from the frontier instead of being crawled.
+ */
+public class CrawlBudget {
+
+    /**
+     * A budget without limits.
+     */
+    public static final CrawlBudget UNLIMITED =
+            new CrawlBudget(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, null);
+
+    // Member variables
+    private final int maxDepth;
+    private final long maxPages;
+    private final long maxBytes;
+    private final Duration maxDuration;
+
+    /**
+     * Constructs a CrawlBudget instance.
+     *
+     * @param maxDepth    The maximum number of links followed from the starting URL to a page. The resources of a
+     *                    page within the depth are always crawled.
+     * @param maxPages    The maximum number of pages crawled.
+     * @param maxBytes    The number of bytes after which no further jobs are started.
+     * @param maxDuration The time after which no further jobs are started, or null for no limit.
+     */
+    public CrawlBudget(int maxDepth, long maxPages, long maxBytes, Duration maxDuration) {
+        this.maxDepth = maxDepth;
+        this.maxPages = maxPages;
+        this.maxBytes = maxBytes;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * Creates the budget configured in the application configuration, limits that are not configured are unlimited.
+     *
+     * @return The budget.
+     */
+    public static CrawlBudget fromConfig() {
+        return new CrawlBudget(AppConfig.getBudgetMaxDepth(), AppConfig.getBudgetMaxPages(),
+                AppConfig.getBudgetMaxBytes(), AppConfig.getBudgetMaxDuration());
+    }
+
+    /**
+     * Checks whether a page at the specified depth may be crawled.
+     *
+     * @param depth The link depth of the page.
+     * @return True if the depth is within the budget, false otherwise.
+     */
+    public boolean allowsDepth(int depth) {
+        return depth <= maxDepth;
+    }
+
+    /**
+     * Checks whether another page may be crawled.
+     *
+     * @param pages The number of pages crawled so far, including the one to check.
+     * @return True if the number of pages is within the budget, false otherwise.
+     */
+    public boolean allowsPages(long pages) {
+        return pages <= maxPages;
+    }
+
+    /**
+     * Checks whether the download volume or the running time of the crawl has been used up.
+     *
+     * @param bytes         The number of bytes downloaded so far.
+     * @param elapsedMillis The running time of the crawl so far.
+     * @return True if no further jobs may be started, false otherwise.
+     */
+    public boolean isExhausted(long bytes, long elapsedMillis) {
+        return bytes >= maxBytes || (maxDuration != null && elapsedMillis >= maxDuration.toMillis());
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.crawl;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The CrawlExecutor interface defines the executor services that run crawling jobs. Besides executing them, an
+ * implementation captures the exceptions thrown by the jobs, so that the crawler can control the overall execution
+ * flow.
+ */
+public interface CrawlExecutor extends ExecutorService {
+
+    /**
+     * Gets the last exception thrown by a job.
+     *
+     * @return The exception, or null if no job has failed.
+     */
+    RuntimeException getException();
+
+    /**
+     * Gets the number of jobs the executor runs at the same time.
+     *
+     * @return The parallelism of the executor.
+     */
+    int getParallelism();
+}
@@ -0,0 +1,196 @@
+package org.example.crawl;
+
+import org.example.misc.Pair;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An append-only journal of the URLs the crawler has discovered, completed and failed. Records are buffered and
+ * written in batches, and since a page's discoveries are always recorded before its completion, any prefix of the
+ * journal that survives a crash describes a consistent crawl state from which the frontier can be rebuilt.
+ * <p>
+ * Each record is a single tab separated line: {@code D <job type> <depth> <uri>}, {@code C <uri>} or {@code F <uri>}.
+ * Failed URIs are recorded for reference only, they are not treated as done and a resumed crawl retries them.
+ */
+public class CrawlJournal implements Closeable {
+
+    // Constants
+    private static final String DISCOVERED = "D";
+    private static final String COMPLETED = "C";
+    private static final String FAILED = "F";
+
+    // Member variables
+    private final FileChannel channel;
+    private final int batchSize;
+    private final boolean sync;
+    private final StringBuilder buffer = new StringBuilder();
+    private int pending;
+
+    /**
+     * Opens the journal at the specified path.
+     *
+     * @param path      The path of the journal file.
+     * @param append    True to append to an existing journal, false to truncate it.
+     * @param batchSize The number of records buffered before they are written.
+     * @param sync      True to force every batch to the storage device, protecting against power loss and not only
+     *                  against process crashes.
+     * @throws IOException If the journal cannot be opened.
+     */
+    public CrawlJournal(Path path, boolean append, int batchSize, boolean sync) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than zero");
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        this.batchSize = batchSize;
+        this.sync = sync;
+    }
+
+    /**
+     * Records that a URI has been discovered and scheduled.
+     *
+     * @param jobType The type of job scheduled for the URI.
+     * @param uri     The canonical URI.
+     * @param depth   The link depth at which the URI was discovered.
+     */
+    public void discovered(JobType jobType, URI uri, int depth) {
+        append(DISCOVERED + '\t' + jobType.name() + '\t' + depth + '\t' + uri);
+    }
+
+    /**
+     * Records that a URI has been crawled successfully.
+     *
+     * @param uri The canonical URI.
+     */
+    public void completed(URI uri) {
+        append(COMPLETED + '\t' + uri);
+    }
+
+    /**
+     * Records that crawling a URI has failed.
+     *
+     * @param uri The canonical URI.
+     */
+    public void failed(URI uri) {
+        append(FAILED + '\t' + uri);
+    }
+
+    /**
+     * Buffers a record and writes the batch once it is full.
+     *
+     * @param record The record without line terminator.
+     */
+    private synchronized void append(String record) {
+        buffer.append(record).append('\n');
+        if (++pending >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all buffered records to the journal file.
+     */
+    public synchronized void flush() {
+        if (pending == 0) {
+            return;
+        }
+        try {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(buffer.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+            buffer.setLength(0);
+            pending = 0;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Flushes the buffered records and closes the journal.
+     *
+     * @throws IOException If the journal cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Replays the journal at the specified path. A truncated last line, left behind by a crash during a write, is
+     * ignored.
+     *
+     * @param path The path of the journal file.
+     * @return The discovered URIs in discovery order, with their job type and depth, and whether they have been
+     * completed. The entries carry no priority, it is up to the scheduling policy of the resumed crawl.
+     * @throws IOException If the journal cannot be read.
+     */
+    public static Map<URI, Pair<FrontierEntry, Boolean>> replay(Path path) throws IOException {
+        Map<URI, Pair<FrontierEntry, Boolean>> state = new LinkedHashMap<>();
+        boolean lastLineComplete = endsWithNewline(path);
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            // Lag one line behind the reader, so the last line can be skipped when it is incomplete
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (next != null || lastLineComplete) {
+                    replay(line, state);
+                }
+                line = next;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Applies a single journal record to the replayed state.
+     *
+     * @param line  The record.
+     * @param state The replayed state.
+     */
+    private static void replay(String line, Map<URI, Pair<FrontierEntry, Boolean>> state) {
+        String[] fields = line.split("\t");
+        if (DISCOVERED.equals(fields[0]) && fields.length == 4) {
+            URI uri = URI.create(fields[3]);
+            int depth = Integer.parseInt(fields[2]);
+            state.putIfAbsent(uri, new Pair<>(new FrontierEntry(JobType.valueOf(fields[1]), uri, depth, 0), false));
+        } else if (COMPLETED.equals(fields[0]) && fields.length == 2) {
+            state.computeIfPresent(URI.create(fields[1]), (uri, entry) -> new Pair<>(entry.getFirst(), true));
+        }
+    }
+
+    /**
+     * Checks whether the file ends with a line terminator.
+     *
+     * @param path The path of the file.
+     * @return True if the last byte of the file is a line feed or the file is empty, false otherwise.
+     * @throws IOException If the file cannot be read.
+     */
+    private static boolean endsWithNewline(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+}
@@ -1,25 +1,49 @@
 package org.example.crawl;
 
 import org.apache.commons.io.FileUtils;
+import org.example.extract.DomLinkExtractor;
+import org.example.extract.LinkExtractor;
+import org.example.extract.LinkType;
+import org.example.http.DownloadRejectedException;
+import org.example.http.HttpStatusException;
+import org.example.metrics.CrawlMetrics;
+import org.example.metrics.Phase;
+import org.example.metrics.Stage;
+import org.example.misc.AppConfig;
 import org.example.misc.Pair;
+import org.example.read.PageContent;
 import org.example.read.PageReader;
+import org.example.robots.RobotsCache;
+import org.example.store.ValidatorStore;
+import org.example.store.Validators;
 import org.example.write.FileWriter;
-import org.jsoup.nodes.Document;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.FileAlreadyExistsException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collection;
+import java.security.MessageDigest;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * The Crawler class is responsible for recursively crawling a website, downloading and saving its pages and resources.
@@ -30,6 +54,9 @@ public class Crawler {
 
     // Constants
     private static final String WORKING_DIR = Paths.get("").toAbsolutePath().toString();
+    private static final String QUERY_SEPARATOR = "%3F";
+    private static final String QUERY_ESCAPED = "%/?:*";
+    private static final int MAX_FILE_NAME = 255;
     public static final Set<Pair<String, String>> RESOURCE_MAPPING = Set.of(
             new Pair("img[src]", "src"), new Pair("link[href]", "href"), new Pair("script[src]", "src"));
     public static final Set<Pair<String, String>> LINK_MAPPING = Set.of(new Pair("a[href]", "href"));
@@ -38,11 +65,53 @@ public class Crawler {
     private final PageReader reader;
     private final FileWriter writer;
     private final AtomicInteger persisted = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
     private final AtomicInteger jobs = new AtomicInteger();
+    private final AtomicInteger holds = new AtomicInteger();
+    private final Set<String> reserved = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger retried = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Map<URI, Integer> attempts = new ConcurrentHashMap<>();
+    private final AtomicLong pages = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
     private final URL url;
     private final URL baseURL;
+    private final UrlScope scope;
     private final String outputDirectory;
-    private final ExtendedExecutor executor;
+    private final CrawlExecutor executor;
+    private final Frontier frontier;
+    private final int dispatchWindow;
+    private final AtomicInteger dispatched = new AtomicInteger();
+    private final AtomicInteger fetchQueued = new AtomicInteger();
+    private final PipelineStage parseStage;
+    private final PipelineStage writeStage;
+    private final VisitedSet visited;
+    private final CrawlMetrics metrics = new CrawlMetrics();
+    private final CompletableFuture<Progress> completion = new CompletableFuture<>();
+    private final ScheduledExecutorService progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "crawler-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "crawler-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private SchedulingPolicy policy;
+    private CrawlBudget budget;
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private LinkExtractor extractor = new DomLinkExtractor(RESOURCE_MAPPING, LINK_MAPPING);
+    private LinkRouter router;
+    private RobotsCache robots;
+    private CrawlJournal journal;
+    private ErrorReport errors;
+    private ValidatorStore validators;
+    private Consumer<Progress> progressConsumer;
+    private long startTime;
+    private volatile RuntimeException exception;
 
     /**
      * Constructs a new Crawler.
@@ -54,22 +123,78 @@ public class Crawler {
      * @param url             The starting URL of the website to crawl.
      */
     public Crawler(PageReader reader, FileWriter writer, int threads, String outputDirectory, URL url) {
+        this(reader, writer, threads, outputDirectory, url, new ConcurrentVisitedSet());
+    }
 
-        // Validate the number of threads
-        if (threads < 1) {
-            throw new IllegalArgumentException("The number of threads must be greater than zero");
-        }
+    /**
+     * Constructs a new Crawler.
+     *
+     * @param reader          The page reader to retrieve web pages.
+     * @param writer          The file writer to save pages and resources locally.
+     * @param threads         The number of threads for parallel processing.
+     * @param outputDirectory The local directory to save downloaded content.
+     * @param url             The starting URL of the website to crawl.
+     * @param visited         The set used to drop already scheduled URLs.
+     */
+    public Crawler(PageReader reader, FileWriter writer, int threads, String outputDirectory, URL url,
+                   VisitedSet visited) {
+        this(reader, writer, createExecutor(threads), outputDirectory, url, visited);
+    }
+
+    /**
+     * Constructs a new Crawler.
+     *
+     * @param reader          The page reader to retrieve web pages.
+     * @param writer          The file writer to save pages and resources locally.
+     * @param executor        The executor running the crawling jobs, owned by the crawler from now on.
+     * @param outputDirectory The local directory to save downloaded content.
+     * @param url             The starting URL of the website to crawl.
+     * @param visited         The set used to drop already scheduled URLs.
+     */
+    public Crawler(PageReader reader, FileWriter writer, CrawlExecutor executor, String outputDirectory, URL url,
+                   VisitedSet visited) {
 
         // Ensure non-null parameters
         throwIfNull(reader, "reader");
+        throwIfNull(executor, "executor");
         throwIfNull(writer, "writer");
         throwIfNull(outputDirectory, "outputDirectory");
         throwIfNull(url, "url");
+        throwIfNull(visited, "visited");
 
         // Initialize member variables
         this.reader = reader;
         this.writer = writer;
-        this.executor = new ExtendedExecutor(threads);
+        this.visited = visited;
+        this.executor = executor;
+
+        // Keep a few jobs per worker in the executor's queue, plus the downloads in flight, which hold no worker. Everything
+        // else waits in the bounded frontier
+        int window = executor.getParallelism() * 2 + AppConfig.getWriteMaxInFlight();
+        this.metrics.setStage(Stage.FETCH, executor.getParallelism(), fetchQueued::get);
+
+        // Parse and write pages on threads of their own, so the workers only fetch. Pages in these stages still hold
+        // their slot of the window, so it grows by what the stages can hold
+        if (AppConfig.isPipelineEnabled()) {
+            int parseThreads = AppConfig.getPipelineParseThreads() > 0 ? AppConfig.getPipelineParseThreads()
+                    : Runtime.getRuntime().availableProcessors();
+            this.parseStage = new PipelineStage(Stage.PARSE, parseThreads, AppConfig.getPipelineParseQueue(), metrics);
+            this.writeStage = new PipelineStage(Stage.WRITE, AppConfig.getPipelineWriteThreads(),
+                    AppConfig.getPipelineWriteQueue(), metrics);
+            window += parseThreads + AppConfig.getPipelineParseQueue() + AppConfig.getPipelineWriteThreads()
+                    + AppConfig.getPipelineWriteQueue();
+        } else {
+            this.parseStage = null;
+            this.writeStage = null;
+        }
+        this.dispatchWindow = window;
+        this.frontier = new Frontier(Paths.get(WORKING_DIR, outputDirectory + ".frontier"),
+                AppConfig.getFrontierMemoryCapacity(), AppConfig.getFrontierSegmentSize());
+        this.metrics.setQueueDepth(frontier::size);
+        this.policy = SchedulingPolicy.valueOf(AppConfig.getSchedulingPolicy());
+        this.budget = CrawlBudget.fromConfig();
+        this.retryPolicy = RetryPolicy.fromConfig();
+        this.circuitBreaker = CircuitBreaker.fromConfig();
         this.url = url;
 
         try {
@@ -78,10 +203,26 @@ public class Crawler {
         } catch (MalformedURLException e) {
             throw new RuntimeException(e);
         }
+        this.scope = UrlScope.fromConfig(baseURL);
 
         this.outputDirectory = outputDirectory;
     }
 
+    /**
+     * Creates the default executor, a fixed pool of platform threads.
+     *
+     * @param threads The number of threads for parallel processing.
+     * @return The executor.
+     * @throws IllegalArgumentException If the number of threads is less than one.
+     */
+    private static CrawlExecutor createExecutor(int threads) {
+        // Validate the number of threads
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than zero");
+        }
+        return new ExtendedExecutor(threads);
+    }
+
     /**
      * Throws a {@link IllegalArgumentException} if the specified parameter is null.
      *
@@ -94,46 +235,370 @@ public class Crawler {
     }
 
     /**
-     * Starts the crawling process and monitors progress.
+     * Sets the order in which discovered jobs are crawled, replacing the configured policy. Must be called before the
+     * crawl is started.
+     *
+     * @param policy The scheduling policy.
+     */
+    public void setSchedulingPolicy(SchedulingPolicy policy) {
+        throwIfNull(policy, "policy");
+        this.policy = policy;
+    }
+
+    /**
+     * Sets the limits of the crawl, replacing the configured budget. Must be called before the crawl is started.
+     *
+     * @param budget The crawl budget.
+     */
+    public void setBudget(CrawlBudget budget) {
+        throwIfNull(budget, "budget");
+        this.budget = budget;
+    }
+
+    /**
+     * Sets which failed jobs are tried again and how long they wait, replacing the configured policy. Must be called
+     * before the crawl is started.
+     *
+     * @param retryPolicy The retry policy, {@link RetryPolicy#NONE} to never retry.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        throwIfNull(retryPolicy, "retryPolicy");
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Sets the circuit breaker that holds back the jobs of failing hosts, replacing the configured one. Must be called
+     * before the crawl is started.
+     *
+     * @param circuitBreaker The circuit breaker.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        throwIfNull(circuitBreaker, "circuitBreaker");
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Sets the extractor that finds the resources and links of a page, replacing the default DOM based extractor. It
+     * should select by {@link #RESOURCE_MAPPING} and {@link #LINK_MAPPING}. Must be called before the crawl is started.
+     *
+     * @param extractor The link extractor.
+     */
+    public void setLinkExtractor(LinkExtractor extractor) {
+        throwIfNull(extractor, "extractor");
+        this.extractor = extractor;
+    }
+
+    /**
+     * Sets the router that splits the crawl with other crawlers. URIs that belong to another crawler are forwarded to it
+     * instead of being crawled. Must be called before the crawl is started.
+     *
+     * @param router The link router.
+     */
+    public void setLinkRouter(LinkRouter router) {
+        throwIfNull(router, "router");
+        this.router = router;
+    }
+
+    /**
+     * Sets the robots.txt rules the crawl keeps to. Disallowed URIs are skipped, the Crawl-delay of every host is kept,
+     * and a fresh or incremental crawl is seeded with the pages of the site's sitemaps. Must be called before the crawl
+     * is started.
+     *
+     * @param robots The robots.txt cache.
+     */
+    public void setRobots(RobotsCache robots) {
+        throwIfNull(robots, "robots");
+        this.robots = robots;
+    }
+
+    /**
+     * Keeps the crawl from completing when it runs out of jobs, because more jobs may still be submitted from outside,
+     * until {@link #release()} is called.
+     */
+    public void hold() {
+        holds.incrementAndGet();
+        jobs.incrementAndGet();
+    }
+
+    /**
+     * Releases a hold, the crawl completes once it has no jobs left.
+     */
+    public void release() {
+        holds.decrementAndGet();
+        jobFinished();
+    }
+
+    /**
+     * Checks whether the crawl has no jobs waiting, running or waiting for a retry, apart from its holds.
+     *
+     * @return True if the crawl is idle.
+     */
+    public boolean isIdle() {
+        return jobs.get() == holds.get();
+    }
+
+    /**
+     * Submits a job that was discovered elsewhere, such as a link forwarded by another crawler. It is dropped like any
+     * discovered link if it has been visited already or exceeds the budget. The crawl must have been started and held.
+     *
+     * @param jobType The type of the job.
+     * @param uri     The URI.
+     * @param depth   The link depth of the job.
+     */
+    public void submit(JobType jobType, URI uri, int depth) {
+        submitJob(jobType, uri, depth);
+    }
+
+    /**
+     * Gets the metrics of the crawl, for the transport to record requests to and to be exposed over JMX.
+     *
+     * @return The metrics.
+     */
+    public CrawlMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts a fresh crawling process and monitors progress.
      *
      * @param progressConsumer A consumer to receive progress updates.
      */
     public void start(Consumer<Progress> progressConsumer) {
-        try {
-            // Delete the data directory if it exists
-            deleteDataDirectoryIfExists();
+        start(StartMode.FRESH, progressConsumer);
+    }
 
-            long start = System.currentTimeMillis();
+    /**
+     * Starts the crawling process and waits for it to complete. A fresh crawl deletes the data directory and the
+     * journal, a resumed crawl rebuilds the visited set and the remaining work from the journal of an interrupted crawl
+     * and the files already in the data directory. Without a journal a resumed crawl starts over from the starting URL.
+     * <p>
+     * Resumed and incremental crawls keep the data directory and send the validators stored by the previous crawl
+     * with every request, so content that has not changed is neither transferred nor written again.
+     * <p>
+     * A failed job does not end the crawl. Transient failures are retried as the retry policy allows, and jobs that
+     * fail for good are listed in an error report next to the data directory.
+     *
+     * @param mode             Whether to start from scratch or resume an interrupted crawl.
+     * @param progressConsumer A consumer to receive progress updates.
+     */
+    public void start(StartMode mode, Consumer<Progress> progressConsumer) {
+        try {
+            startAsync(mode, progressConsumer).join();
+        } catch (CompletionException e) {
+            // Propagate any exceptions that occur during the crawling process
+            throw new RuntimeException(e.getCause());
+        }
+    }
 
-            // Submit the initial crawling job
-            submitJob(JobType.Page, this.url.toURI());
+    /**
+     * Starts the crawling process without waiting for it, see {@link #start(StartMode, Consumer)}.
+     * <p>
+     * Progress is pushed to the consumer at the configured interval, right away when a job fails, and a final time
+     * when the crawl completes. The crawl completes as soon as the last job finishes. If the consumer throws, the crawl
+     * is aborted and the returned future completes with that exception.
+     *
+     * @param mode             Whether to start from scratch or resume an interrupted crawl.
+     * @param progressConsumer A consumer to receive progress updates, may be null.
+     * @return A future that completes with the final progress once the crawl is done.
+     */
+    public CompletableFuture<Progress> startAsync(StartMode mode, Consumer<Progress> progressConsumer) {
+        this.progressConsumer = progressConsumer;
+        Path journalPath = Paths.get(WORKING_DIR, outputDirectory + ".journal");
+        boolean resume = mode == StartMode.RESUME && journalPath.toFile().exists();
+        validators = new ValidatorStore(Paths.get(WORKING_DIR, outputDirectory + ".meta"));
+        Path errorsPath = Paths.get(WORKING_DIR, outputDirectory + ".errors");
+        errors = new ErrorReport(errorsPath, resume);
 
-            // Continue monitoring progress until the executor is terminated
-            while (!executor.isTerminated()) {
-                if (progressConsumer != null) {
-                    // Notify the progress consumer
-                    progressConsumer.accept(new Progress(persisted.get(), jobs.get(),
-                            (System.currentTimeMillis() - start) / 1000, executor.exception));
+        Map<URI, Pair<FrontierEntry, Boolean>> state = null;
+        try {
+            if (mode != StartMode.FRESH) {
+                // Load the validators of the previous crawl to make the requests conditional
+                validators.load();
+            }
+            if (resume) {
+                // Replay the journal before it is reopened for appending
+                state = CrawlJournal.replay(journalPath);
+            } else {
+                // The failures of a previous crawl would be mistaken for failures of this one
+                Files.deleteIfExists(errorsPath);
+                if (mode == StartMode.FRESH) {
+                    // Delete the data directory if it exists
+                    deleteDataDirectoryIfExists();
                 }
+            }
+            journal = new CrawlJournal(journalPath, resume,
+                    AppConfig.getJournalBatchSize(), AppConfig.isJournalSync());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-                // If the execution is done, shut down the executor if not already shut down
-                if (isExecutionDone()) {
-                    if (!executor.isShutdown()) {
-                        executor.shutdown();
-                    }
-                } else {
-                    try {
-                        // Sleep for 1 second before checking progress again
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        // Handle interruption or reassert the interrupted status
-                        Thread.currentThread().interrupt();
+        startTime = System.currentTimeMillis();
+
+        // Push progress at a fixed rate, and bound the number of journal records lost on a crash when batches fill slowly
+        long interval = AppConfig.getProgressInterval().toMillis();
+        progressScheduler.scheduleAtFixedRate(() -> {
+            journal.flush();
+            publish(exception);
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        // Hold a job of our own while seeding, so that the crawl cannot be seen as done before all seeds are scheduled
+        jobs.incrementAndGet();
+        try {
+            if (state != null) {
+                // Schedule the work that was left when the previous crawl stopped
+                resumeJobs(state);
+            } else {
+                // Submit the initial crawling job, then the pages of the sitemaps while the workers get going
+                submitJob(JobType.Page, this.url.toURI(), 0);
+                seedFromSitemaps(this.url.toURI());
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            jobFinished();
+        }
+        return completion;
+    }
+
+    /**
+     * Submits the pages listed in the sitemaps of the site as jobs, from a job of its own, so that the crawl starts
+     * on the whole site at once instead of finding it link by link. Sitemap pages are one link away from the starting
+     * URL. In a crawl split over several crawlers only the crawler the starting URL belongs to reads the sitemaps.
+     *
+     * @param start The starting URI.
+     */
+    private void seedFromSitemaps(URI start) {
+        if (robots == null || (router != null && !router.isLocal(UrlCanonicalizer.canonicalize(start)))) {
+            return;
+        }
+
+        // The seeding job keeps the crawl from completing until every sitemap has been read
+        jobs.incrementAndGet();
+        executor.submit(() -> {
+            try {
+                robots.readSitemaps(start, location -> {
+                    if (isInDomain(location)) {
+                        try {
+                            submitJob(JobType.Page, new URI(location), 1);
+                        } catch (URISyntaxException e) {
+                            // Skip locations that are not valid URIs
+                        }
                     }
-                }
+                });
+            } finally {
+                jobFinished();
             }
+        });
+    }
+
+    /**
+     * Marks a job as finished and completes the crawl when it was the last one.
+     */
+    private void jobFinished() {
+        if (jobs.decrementAndGet() == 0) {
+            complete();
+        }
+    }
+
+    /**
+     * Completes the crawl: stops the executor, persists the journal and the validators, and pushes the final progress.
+     */
+    private void complete() {
+        executor.shutdown();
+        shutdownStages(false);
+        progressScheduler.shutdown();
+        retryScheduler.shutdown();
+        try {
+            journal.close();
+            frontier.close();
+            errors.close();
+
+            // Keep the validators for the next incremental crawl
+            validators.save();
+
+            Progress progress = publish(exception);
+            completion.complete(progress);
         } catch (Exception e) {
-            // Propagate any exceptions that occur during the crawling process
-            throw new RuntimeException(e);
+            fail(e);
+        }
+    }
+
+    /**
+     * Aborts the crawl: interrupts the running jobs and completes the crawl with the exception.
+     *
+     * @param throwable The reason for aborting.
+     */
+    private void fail(Throwable throwable) {
+        executor.shutdownNow();
+        shutdownStages(true);
+        progressScheduler.shutdownNow();
+        retryScheduler.shutdownNow();
+        try {
+            journal.close();
+            frontier.close();
+            errors.close();
+        } catch (IOException e) {
+            throwable.addSuppressed(e);
+        }
+        completion.completeExceptionally(throwable);
+    }
+
+    /**
+     * Stops the parse and write stages, if the pages pass through stages of their own.
+     *
+     * @param now True to interrupt the running tasks and drop the waiting ones.
+     */
+    private void shutdownStages(boolean now) {
+        for (PipelineStage stage : new PipelineStage[]{parseStage, writeStage}) {
+            if (stage != null && now) {
+                stage.shutdownNow();
+            } else if (stage != null) {
+                stage.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Pushes a progress snapshot to the consumer. Snapshots are pushed one at a time, so the consumer does not need
+     * to be thread-safe. A consumer that throws aborts the crawl.
+     *
+     * @param exception The exception to report, or null.
+     * @return The pushed snapshot.
+     */
+    private synchronized Progress publish(RuntimeException exception) {
+        Progress progress = new Progress(persisted.get(), unchanged.get(), jobs.get() - holds.get(),
+                (System.currentTimeMillis() - startTime) / 1000, visited.getHits(), visited.getMisses(),
+                skipped.get(), downloadedBytes.get(), retried.get(), failed.get(), metrics.snapshot(), exception);
+        if (progressConsumer != null && !completion.isDone()) {
+            try {
+                progressConsumer.accept(progress);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * Rebuilds the visited set from a replayed journal and schedules every URI that was not completed, or whose
+     * content is missing from the writer's storage. Pages of the previous crawl count against the page budget.
+     *
+     * @param state The discovered URIs with their job type and depth, and whether they have been completed.
+     */
+    private void resumeJobs(Map<URI, Pair<FrontierEntry, Boolean>> state) {
+        for (Map.Entry<URI, Pair<FrontierEntry, Boolean>> entry : state.entrySet()) {
+            URI uri = entry.getKey();
+            FrontierEntry discovered = entry.getValue().getFirst();
+            visited.add(uri.toString());
+            if (discovered.getJobType() == JobType.Page) {
+                pages.incrementAndGet();
+            }
+
+            if (entry.getValue().getSecond() && writer.exists(asPath(uri))) {
+                persisted.incrementAndGet();
+            } else {
+                schedule(discovered.getJobType(), uri, discovered.getDepth());
+            }
         }
     }
 
@@ -153,83 +618,143 @@ public class Crawler {
     }
 
     /**
-     * Checks if the crawling execution is complete by inspecting the number of active jobs.
+     * Converts a URI to a local file path based on the working directory and output directory. Directory URIs, such as
+     * the canonical root "/", are stored as an index.html file inside that directory. URIs that differ in their query
+     * only are different files: the query is appended to the file name after an escaped "?", with the characters file
+     * names cannot hold escaped, or as its hash if the file name would get too long.
      *
-     * @return {@code true} if there are no active jobs, indicating that the crawling is complete;
-     * {@code false} otherwise.
+     * @param uri The URI to convert.
+     * @return The local file path.
      */
-    private boolean isExecutionDone() {
-        return jobs.get() == 0;
+    private Path asPath(URI uri) {
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        if (path.isEmpty() || path.endsWith("/")) {
+            path = path + "index.html";
+        }
+        String query = uri.getRawQuery();
+        if (query != null) {
+            String name = path.substring(path.lastIndexOf('/') + 1) + QUERY_SEPARATOR;
+            String escaped = escapeQuery(query);
+            if (name.length() + escaped.length() > MAX_FILE_NAME) {
+                MessageDigest digest = Validators.newDigest();
+                digest.update(query.getBytes(StandardCharsets.UTF_8));
+                escaped = Validators.toHex(digest);
+            }
+            path = path + QUERY_SEPARATOR + escaped;
+        }
+        return Paths.get(WORKING_DIR, outputDirectory, path);
     }
 
     /**
-     * Converts a URI to a local file path based on the working directory and output directory.
+     * Escapes the characters of a raw query that cannot be part of a file name, and the escape character itself, so
+     * that different queries never map to the same file name.
      *
-     * @param uri The URI to convert.
-     * @return The local file path.
+     * @param query The raw query.
+     * @return The escaped query.
      */
-    private Path asPath(URI uri) {
-        return Paths.get(WORKING_DIR, outputDirectory, uri.getPath());
+    private static String escapeQuery(String query) {
+        StringBuilder builder = new StringBuilder(query.length());
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (QUERY_ESCAPED.indexOf(c) >= 0) {
+                builder.append('%').append(Integer.toHexString(c).toUpperCase(Locale.ROOT));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
     }
 
     /**
-     * Performs the crawling work for a given type and URI.
+     * Performs the crawling work for a given type and URI. The URI has already been claimed in the visited set, so
+     * no other job will write the same file. Links found on a page are one level deeper than the page. A page is
+     * fetched by the worker and handed to the parse and write stages, which work on it at the same time.
+     *
+     * @return A future that completes when the work is done, a download may still be in flight or a page may still be
+     * parsed or written when this returns.
      */
-    private void doWork(JobType jobType, URI uri) {
+    private CompletableFuture<Void> doWork(JobType jobType, URI uri, int depth) {
         try {
             // Extract URI and construct local file path
             Path path = asPath(uri);
 
-            // Check if the file doesn't exist to avoid duplicate processing and infinite recursion
-            if (!path.toFile().exists()) {
-                // Create directory structure and file
-                Files.createDirectories(path.getParent());
-                Files.createFile(path);
-                persisted.incrementAndGet();
+            // The writer creates the directory structure and the file itself, if it keeps one file per path
+            persisted.incrementAndGet();
 
-                // Determine the type of job (File or Page)
-                switch (jobType) {
-
-                    case File:
-                        // For File type, use the writer to save the resource locally
-                        this.writer.write(uri, path);
-                        break;
-                    case Page:
-                        // For Page type, read the document and extract resources and links
-                        Document document = this.reader.read(uri);
-
-                        // Extract resources (images, links, scripts) in the domain
-                        Set<String> resources = extractResourceUrls(document, RESOURCE_MAPPING);
-
-                        // Submit jobs for resources
-                        for (String resource : resources) {
-                            try {
-                                submitJob(JobType.File, new URI(resource));
-                            } catch (URISyntaxException e) {
-                                throw new RuntimeException(e);
-                            }
+            // Only validate against the previous crawl if its copy is still there
+            Validators cached = validators.get(uri.toString());
+            if (cached != null && !writer.exists(path)) {
+                cached = null;
+            }
+
+            // Determine the type of job (File or Page)
+            switch (jobType) {
+
+                case File:
+                    // For File type, hand the resource to the writer, the worker is free while it is downloaded
+                    long downloadStart = System.nanoTime();
+                    metrics.downloadStarted();
+                    return this.writer.writeAsync(uri, path, cached).whenComplete((written, throwable) -> {
+                        metrics.downloadFinished();
+                        metrics.record(Phase.DOWNLOAD, downloadStart);
+                    }).thenAccept(written -> {
+                        if (written == Validators.NOT_MODIFIED) {
+                            unchanged.incrementAndGet();
+                        } else if (written != null) {
+                            long length = Math.max(written.getContentLength(), 0);
+                            downloadedBytes.addAndGet(length);
+                            metrics.addBytesIn(uri, length);
+                            metrics.addBytesOut(length);
+                            validators.put(uri.toString(), written);
                         }
+                    });
+                case Page:
+                    // For Page type, read the page once, the links are extracted from the downloaded body
+                    long fetchStart = System.nanoTime();
+                    PageContent page = this.reader.read(uri, cached);
+                    metrics.record(Phase.FETCH, fetchStart);
+                    boolean modified = !page.isNotModified();
+                    CompletableFuture<Void> parsed = CompletableFuture.completedFuture(null);
+                    if (modified) {
+                        downloadedBytes.addAndGet(page.getBody().length);
+                        metrics.addBytesIn(uri, page.getBody().length);
 
-                        // Extract links in the domain and submit jobs for pages
-                        Set<String> links = extractResourceUrls(document, LINK_MAPPING);
-                        for (String link : links) {
-                            try {
-                                submitJob(JobType.Page, new URI(link));
-                            } catch (URISyntaxException e) {
-                                throw new RuntimeException(e);
-                            }
+                        // Only HTML pages can link to further resources and pages
+                        if (page.isHtml()) {
+                            parsed = handOff(parseStage, () -> submitLinks(new ByteArrayInputStream(page.getBody()),
+                                    page.getCharset(), page.getUri(), depth + 1));
                         }
+                    } else {
+                        // Extract the links from the stored copy so that the traversal stays complete
+                        unchanged.incrementAndGet();
+                        parsed = handOff(parseStage, () -> {
+                            try (InputStream stored = writer.open(path)) {
+                                submitLinks(stored, null, uri, depth + 1);
+                            }
+                        });
+                    }
 
-                        // Save the page locally
-                        this.writer.write(uri, path);
-                        break;
-                    default:
-                        // Throw an exception for unexpected job types
-                        throw new IllegalStateException("Unexpected type " + jobType.name());
-                }
+                    // Save the already downloaded page locally, unless the stored copy is identical
+                    CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+                    if (modified && !isSameContent(cached, page.getValidators())) {
+                        written = handOff(writeStage, () -> {
+                            long writeStart = System.nanoTime();
+                            this.writer.write(page, path);
+                            metrics.record(Phase.WRITE, writeStart);
+                            metrics.addBytesOut(page.getBody().length);
+                        });
+                    }
+
+                    // Keep the validators once the page is stored
+                    return CompletableFuture.allOf(parsed, written).thenRun(() -> {
+                        if (modified && page.getValidators() != null) {
+                            validators.put(uri.toString(), page.getValidators());
+                        }
+                    });
+                default:
+                    // Throw an exception for unexpected job types
+                    throw new IllegalStateException("Unexpected type " + jobType.name());
             }
-        } catch (FileAlreadyExistsException e) {
-            // Ignore if another thread has created the file already, this is expected
         } catch (IOException e) {
             // Propagate any IOException that occurs during the crawling process
             throw new RuntimeException(e);
@@ -237,56 +762,333 @@ public class Crawler {
     }
 
     /**
-     * Extracts resource URLs from a document based on specified CSS queries and attribute keys.
+     * Hands a task on to the next stage of the pipeline, or runs it right away in the worker if the pipeline has no
+     * separate stages.
+     *
+     * @param stage The stage, or null to run the task in the calling thread.
+     * @param task  The task.
+     * @return A future that completes when the task has run.
+     */
+    private static CompletableFuture<Void> handOff(PipelineStage stage, PipelineStage.Task task) {
+        if (stage != null) {
+            return stage.submit(task);
+        }
+        try {
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Extracts the resources and links in the domain from the body of a page and submits jobs for them. Resources are
+     * submitted first, so a URL used both as a resource and as a link is crawled as a resource.
+     *
+     * @param body    The body of the page.
+     * @param charset The charset declared by the response, or null to detect it.
+     * @param base    The URI the page was read from after redirects, relative links are resolved against it.
+     * @param depth   The link depth of the extracted resources and links.
+     * @throws IOException If the body cannot be read.
+     */
+    private void submitLinks(InputStream body, String charset, URI base, int depth) throws IOException {
+        // Extract resources (images, links, scripts) and links in the domain, each only once per page
+        Set<String> resources = new LinkedHashSet<>();
+        Set<String> links = new LinkedHashSet<>();
+        long extractStart = System.nanoTime();
+        extractor.extract(body, charset, base.toString(), (type, url) -> {
+            if (isInDomain(url)) {
+                (type == LinkType.RESOURCE ? resources : links).add(url);
+            }
+        });
+        metrics.record(Phase.EXTRACT, extractStart);
+
+        // Submit jobs for resources
+        for (String resource : resources) {
+            try {
+                submitJob(JobType.File, new URI(resource), depth);
+            } catch (URISyntaxException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // Submit jobs for pages
+        for (String link : links) {
+            try {
+                submitJob(JobType.Page, new URI(link), depth);
+            } catch (URISyntaxException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Checks whether freshly downloaded content is identical to the stored copy, for servers that do not support
+     * conditional requests.
      *
-     * @param document            The document to extract resources from.
-     * @param queryAttributePairs A set of pairs representing CSS queries and attribute keys
-     *                            for extracting resource URLs.
-     * @return A set of resource URLs extracted from the document.
+     * @param cached  The validators of the stored copy, may be null.
+     * @param current The validators of the downloaded content, may be null.
+     * @return True if both hashes are known and equal, false otherwise.
      */
-    private Set<String> extractResourceUrls(Document document, Set<Pair<String, String>> queryAttributePairs) {
-        // Map each pair of CSS query and attribute key to a set of URLs and combine them into a single set
-        return queryAttributePairs.stream()
-                .map(pair -> extractUrlsInDomain(document, pair.getFirst(), pair.getSecond()))
-                .flatMap(Collection::stream)
-                .collect(Collectors.toSet());
+    private boolean isSameContent(Validators cached, Validators current) {
+        return cached != null && current != null && cached.getHash() != null
+                && cached.getHash().equals(current.getHash());
     }
 
     /**
-     * Extracts URLs from a document based on a CSS query and attribute key, filtering by the base URL.
+     * Checks whether a URL is in the domain, i.e. in the scope of the crawl, by default below the base URL of the
+     * starting URL. The URL is matched in place, without allocating.
      *
-     * @param document     The document to extract URLs from.
-     * @param cssQuery     The CSS query to select elements.
-     * @param attributeKey The attribute key containing the URL.
-     * @return A set of URLs within the domain.
+     * @param url The absolute URL.
+     * @return True if the URL is in the domain, false otherwise.
+     */
+    private boolean isInDomain(String url) {
+        return scope.contains(url);
+    }
+
+    /**
+     * Submits a crawling job to the executor, unless the canonical form of the URI has been visited already or the job
+     * exceeds the depth or page budget, or is disallowed by robots.txt. A URI that belongs to another crawler is
+     * forwarded to it.
      */
-    private Set<String> extractUrlsInDomain(Document document, String cssQuery, String attributeKey) {
-        return document.select(cssQuery)
-                .stream()
-                .map(link -> link.absUrl(attributeKey))
-                .filter(url -> url.toLowerCase().startsWith(baseURL.toString()))
-                .collect(Collectors.toSet());
+    private void submitJob(JobType jobType, URI uri, int depth) {
+        // Drop pages beyond the depth budget before they claim the URI, it may still be reached on a shorter path
+        if (jobType == JobType.Page && !budget.allowsDepth(depth)) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        // Hand URIs that belong to another crawler to it, it drops them if they are duplicates
+        URI canonical = scope.stripParams(UrlCanonicalizer.canonicalize(uri));
+        if (router != null && !router.isLocal(canonical)) {
+            router.forward(jobType, canonical, depth);
+            return;
+        }
+
+        // Drop duplicates before they take a queue slot
+        if (!visited.add(canonical.toString())) {
+            return;
+        }
+
+        // Drop what the host's robots.txt disallows, the URI is only matched once
+        if (robots != null && !robots.isAllowed(canonical)) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        // Count new pages against the page budget
+        if (jobType == JobType.Page && !budget.allowsPages(pages.incrementAndGet())) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        // Record the discovery so that the job survives a crash
+        journal.discovered(jobType, canonical, depth);
+        schedule(jobType, canonical, depth);
     }
 
     /**
-     * Submits a crawling job to the executor.
+     * Schedules a crawling job for a canonical URI that has already been claimed in the visited set. The job waits in
+     * the frontier, ordered by the scheduling policy, until the executor has room for it.
      */
-    private void submitJob(JobType jobType, URI uri) {
-        // Increment the number of active jobs
+    private void schedule(JobType jobType, URI uri, int depth) {
+        // Increment the number of active jobs, which includes the jobs waiting in the frontier
         jobs.incrementAndGet();
+        frontier.push(new FrontierEntry(jobType, uri, depth, policy.priorityOf(jobType, depth)));
+        dispatch();
+    }
+
+    /**
+     * Moves jobs from the frontier to the executor until the dispatch window is full or the frontier is empty. Once the
+     * byte or time budget is used up, the remaining jobs are drained from the frontier without being crawled.
+     */
+    private void dispatch() {
+        while (!completion.isDone()) {
+            // Claim a slot in the window before taking an entry from the frontier
+            int current = dispatched.get();
+            if (current >= dispatchWindow) {
+                return;
+            }
+            if (!dispatched.compareAndSet(current, current + 1)) {
+                continue;
+            }
+
+            FrontierEntry entry = frontier.poll();
+            if (entry == null) {
+                dispatched.decrementAndGet();
+
+                // An entry pushed while the slot was claimed would have found the window full, so look again
+                if (!frontier.hasReady()) {
+                    return;
+                }
+                continue;
+            }
+
+            if (budget.isExhausted(downloadedBytes.get(), System.currentTimeMillis() - startTime)) {
+                // Drop the job and hand the slot to the next one, the last job dropped completes the crawl
+                dispatched.decrementAndGet();
+                skipped.incrementAndGet();
+                jobFinished();
+                continue;
+            }
+
+            long held = circuitBreaker.delayOf(entry.getUri());
+            if (held > 0) {
+                // Hold the job back while the circuit of its host is open, and hand the slot to the next one
+                dispatched.decrementAndGet();
+                scheduleLater(entry, held);
+                continue;
+            }
+
+            // Keep the Crawl-delay of the host, the first job of a host whose reserved slot has come due goes ahead
+            if (robots != null && !reserved.remove(Frontier.hostOf(entry.getUri()))) {
+                long slot = robots.reserve(entry.getUri());
+                if (slot > 0) {
+                    dispatched.decrementAndGet();
+                    holdHost(entry, slot);
+                    continue;
+                }
+            }
+            execute(entry);
+        }
+    }
+
+    /**
+     * Submits a crawling job taken from the frontier to the executor. The job finishes when its work completes, which
+     * for a download is after the worker has moved on to other jobs.
+     */
+    private void execute(FrontierEntry entry) {
+        URI uri = entry.getUri();
 
         // Submit the job to the executor
+        fetchQueued.incrementAndGet();
         executor.submit(() -> {
+            CompletableFuture<Void> work;
+            fetchQueued.decrementAndGet();
+            long fetchStart = metrics.stageStarted(Stage.FETCH);
+            metrics.workerStarted();
             try {
                 // Perform the crawling work
-                doWork(jobType, uri);
+                work = doWork(entry.getJobType(), uri, entry.getDepth());
             } catch (Exception e) {
-                // Propagate any exceptions that occur during crawling
-                throw new RuntimeException(e);
+                work = CompletableFuture.failedFuture(e);
             } finally {
-                // Decrement the number of active jobs
-                jobs.decrementAndGet();
+                metrics.workerFinished();
+                metrics.stageFinished(Stage.FETCH, fetchStart);
             }
+            work.whenComplete((ignored, throwable) -> finish(entry, throwable));
         });
     }
+
+    /**
+     * Accounts for a job whose work has completed, on the thread that completed it. A transient failure schedules the
+     * job again after a backoff, unless it has no attempts left. A job that fails for good is added to the error report
+     * and the crawl goes on. A download rejected by its download limits is skipped, it would be rejected again.
+     *
+     * @param entry     The job.
+     * @param throwable The reason the job failed, or null if it succeeded.
+     */
+    private void finish(FrontierEntry entry, Throwable throwable) {
+        URI uri = entry.getUri();
+        boolean done = true;
+        try {
+            if (throwable == null) {
+                circuitBreaker.recordSuccess(uri);
+                attempts.remove(uri);
+                journal.completed(uri);
+                return;
+            }
+
+            // The host answered, it is the content that is not wanted
+            if (DownloadRejectedException.find(throwable) != null) {
+                persisted.decrementAndGet();
+                skipped.incrementAndGet();
+                circuitBreaker.recordSuccess(uri);
+                attempts.remove(uri);
+                journal.completed(uri);
+                return;
+            }
+
+            // Only failures that may pass count against the host, an error status shows that the host is up
+            Throwable cause = RetryPolicy.unwrap(throwable);
+            boolean transientFailure = retryPolicy.isTransient(cause);
+            if (transientFailure) {
+                circuitBreaker.recordFailure(uri);
+            } else if (cause instanceof HttpStatusException) {
+                circuitBreaker.recordSuccess(uri);
+            }
+
+            int attempt = attempts.merge(uri, 1, Integer::sum);
+            if (transientFailure && attempt < retryPolicy.getMaxAttempts()) {
+                // The job stays active while it waits, it is counted as persisted again when it is retried
+                done = false;
+                persisted.decrementAndGet();
+                retried.incrementAndGet();
+                scheduleLater(entry, retryPolicy.delayOf(attempt, cause).toMillis());
+                return;
+            }
+
+            // Report the failure right away, without waiting for a tick, the job is counted as failed only
+            attempts.remove(uri);
+            persisted.decrementAndGet();
+            failed.incrementAndGet();
+            journal.failed(uri);
+            errors.append(entry.getJobType(), uri, attempt, cause);
+            exception = new RuntimeException(cause);
+            publish(exception);
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            // Hand the slot to the next job, then decrement the number of active jobs, the last one completes the crawl
+            dispatched.decrementAndGet();
+            dispatch();
+            if (done) {
+                jobFinished();
+            }
+        }
+    }
+
+    /**
+     * Puts a job back into the frontier and holds its host there until its reserved slot comes due, so the jobs of a
+     * host that keeps a Crawl-delay wait in the frontier rather than on the heap. A job that raced for a host that is
+     * held already waits for the slot reserved before it, its own slot is left unused.
+     *
+     * @param entry  The job.
+     * @param millis The time in milliseconds until the reserved slot.
+     */
+    private void holdHost(FrontierEntry entry, long millis) {
+        URI uri = entry.getUri();
+        boolean holding = frontier.hold(uri);
+        frontier.push(entry);
+        if (!holding) {
+            return;
+        }
+        try {
+            retryScheduler.schedule(() -> {
+                reserved.add(Frontier.hostOf(uri));
+                frontier.release(uri);
+                dispatch();
+            }, millis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The crawl has been aborted meanwhile
+        }
+    }
+
+    /**
+     * Puts a job that is still active back into the frontier after a delay, for a retry or once the circuit of its
+     * host may be probed again.
+     *
+     * @param entry  The job.
+     * @param millis The delay in milliseconds.
+     */
+    private void scheduleLater(FrontierEntry entry, long millis) {
+        try {
+            retryScheduler.schedule(() -> {
+                frontier.push(entry);
+                dispatch();
+            }, millis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The crawl has been aborted meanwhile
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package org.example.crawl;
+
+import org.example.http.HttpStatusException;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A report of the jobs that failed for good, either with a permanent failure or after their last retry, so that a
+ * crawl can finish despite a few bad URLs and the failures can be looked at afterwards. The report is created with the
+ * first failure and holds one tab separated line per job: {@code <uri> <job type> <attempts> <reason>}, where the
+ * reason is the HTTP status, or the type and message of the exception.
+ */
+public class ErrorReport implements Closeable {
+
+    // Member variables
+    private final Path path;
+    private final boolean append;
+    private final AtomicInteger count = new AtomicInteger();
+    private BufferedWriter writer;
+
+    /**
+     * Constructs an ErrorReport written to the specified path.
+     *
+     * @param path   The path of the report.
+     * @param append True to append to an existing report of an interrupted crawl, false to replace it.
+     */
+    public ErrorReport(Path path, boolean append) {
+        if (path == null) throw new IllegalArgumentException("Parameter path is null");
+        this.path = path;
+        this.append = append;
+    }
+
+    /**
+     * Adds a failed job to the report.
+     *
+     * @param jobType  The type of the job.
+     * @param uri      The URI of the job.
+     * @param attempts The number of times the job was tried.
+     * @param cause    The failure of the last attempt.
+     * @throws IOException If the report cannot be written.
+     */
+    public synchronized void append(JobType jobType, URI uri, int attempts, Throwable cause) throws IOException {
+        if (writer == null) {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        writer.write(uri + "\t" + jobType.name() + "\t" + attempts + "\t" + reasonOf(cause));
+        writer.newLine();
+        count.incrementAndGet();
+    }
+
+    /**
+     * Describes a failure on a single line.
+     *
+     * @param cause The failure.
+     * @return The HTTP status, or the type and message of the exception.
+     */
+    private static String reasonOf(Throwable cause) {
+        if (cause instanceof HttpStatusException) {
+            return "HTTP " + ((HttpStatusException) cause).getStatusCode();
+        }
+        String reason = cause.getMessage() == null
+                ? cause.getClass().getName() : cause.getClass().getName() + ": " + cause.getMessage();
+        return reason.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * Gets the number of failed jobs reported during this run.
+     *
+     * @return The number of failed jobs.
+     */
+    public int getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the path of the report.
+     *
+     * @return The path, the file only exists if a job has failed.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Closes the report.
+     *
+     * @throws IOException If the report cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -7,10 +7,10 @@ import java.util.concurrent.*;
  * The purpose of this class is to allow access to errors thrown inside the threads, facilitating
  * the ability to capture and handle exceptions to control the overall execution flow.
  */
-public final class ExtendedExecutor extends ThreadPoolExecutor {
+public final class ExtendedExecutor extends ThreadPoolExecutor implements CrawlExecutor {
 
     // Variable to store the exception thrown by a task
-    RuntimeException exception = null;
+    volatile RuntimeException exception = null;
 
     /**
      * Constructs a new ExtendedExecutor with the specified core pool size.
@@ -33,6 +33,42 @@ public final class ExtendedExecutor extends ThreadPoolExecutor {
     protected void afterExecute(Runnable r, Throwable throwable) {
         super.afterExecute(r, throwable);
 
+        // If an exception is present, store it in the 'exception' variable
+        throwable = unwrap(r, throwable);
+        if (throwable != null) {
+            exception = new RuntimeException(throwable);
+        }
+    }
+
+    /**
+     * Gets the last exception thrown by a task.
+     *
+     * @return The exception, or null if no task has failed.
+     */
+    @Override
+    public RuntimeException getException() {
+        return exception;
+    }
+
+    /**
+     * Gets the number of tasks the executor runs at the same time.
+     *
+     * @return The number of threads in the pool.
+     */
+    @Override
+    public int getParallelism() {
+        return getCorePoolSize();
+    }
+
+    /**
+     * Determines the exception a completed task has thrown. Tasks passed to submit are wrapped in a Future that
+     * swallows their exception, so it is retrieved from the Future instead.
+     *
+     * @param r         The runnable that has completed.
+     * @param throwable The exception thrown by the runnable, or null if none.
+     * @return The exception thrown by the task, or null if none.
+     */
+    static Throwable unwrap(Runnable r, Throwable throwable) {
         // Check if the task is a Future and if it is done
         if (throwable == null && r instanceof Future<?>) {
             try {
@@ -53,10 +89,6 @@ public final class ExtendedExecutor extends ThreadPoolExecutor {
                 Thread.currentThread().interrupt();
             }
         }
-
-        // If an exception is still present, store it in the 'exception' variable
-        if (throwable != null) {
-            exception = new RuntimeException(throwable);
-        }
+        return throwable;
     }
 }
@@ -0,0 +1,301 @@
+package org.example.crawl;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * The Frontier class holds the jobs that have been discovered but not yet handed to the executor. It keeps a bounded
+ * window of entries in memory, and once that window is full further entries are appended to sequential segment files
+ * on disk and paged back in as the window drains. The memory used by the frontier is therefore flat, no matter how many
+ * links a crawl discovers.
+ * <p>
+ * The memory window hands out the entry with the lowest priority first, and entries of equal priority in the order they
+ * were pushed. Spilled entries are paged back in the order they were pushed: as long as anything is spilled, new
+ * entries are spilled too, so the priority order is exact within the memory window and approximate beyond it.
+ * <p>
+ * A host can be held, for example while it waits for its next Crawl-delay slot. The entries of a held host stay in the
+ * frontier but are passed over until the host is released, they are set aside in memory and count against the memory
+ * window, so a held host cannot make the frontier grow beyond it.
+ */
+public class Frontier implements Closeable {
+
+    // Member variables
+    private final Path spillDirectory;
+    private final int memoryCapacity;
+    private final int segmentSize;
+    private final Queue<FrontierEntry> memory = new PriorityQueue<>(
+            Comparator.comparingLong(FrontierEntry::getPriority).thenComparingLong(entry -> entry.sequence));
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Deque<FrontierEntry>> held = new HashMap<>();
+    private Segment writeSegment;
+    private BufferedWriter segmentWriter;
+    private Segment readSegment;
+    private BufferedReader segmentReader;
+    private long spilled;
+    private int heldEntries;
+    private long sequence;
+    private int segmentCounter;
+
+    /**
+     * Constructs a new Frontier.
+     *
+     * @param spillDirectory The directory for the segment files, created when the first entry is spilled.
+     * @param memoryCapacity The maximum number of entries kept in memory.
+     * @param segmentSize    The number of entries per segment file, a segment is deleted once it has been read.
+     */
+    public Frontier(Path spillDirectory, int memoryCapacity, int segmentSize) {
+        if (memoryCapacity < 1) {
+            throw new IllegalArgumentException("The memory capacity must be greater than zero");
+        }
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("The segment size must be greater than zero");
+        }
+
+        this.spillDirectory = spillDirectory;
+        this.memoryCapacity = memoryCapacity;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Adds an entry to the frontier.
+     *
+     * @param entry The entry.
+     */
+    public synchronized void push(FrontierEntry entry) {
+        if (spilled == 0 && memory.size() + heldEntries < memoryCapacity) {
+            add(entry);
+        } else {
+            spill(entry);
+        }
+    }
+
+    /**
+     * Takes the next entry of a host that is not held from the frontier, paging spilled entries back in when the memory
+     * window runs low. Entries of held hosts met on the way are set aside until their host is released.
+     *
+     * @return The next entry, or null if the frontier has no entry that may be taken now.
+     */
+    public synchronized FrontierEntry poll() {
+        while (true) {
+            if (spilled > 0 && memory.size() <= memoryCapacity / 2) {
+                refill();
+            }
+            FrontierEntry entry = memory.poll();
+            if (entry == null || held.isEmpty()) {
+                return entry;
+            }
+            Deque<FrontierEntry> waiting = held.get(hostOf(entry.getUri()));
+            if (waiting == null) {
+                return entry;
+            }
+            waiting.add(entry);
+            heldEntries++;
+        }
+    }
+
+    /**
+     * Checks whether {@link #poll()} may find an entry, which is not the case when all entries left in memory belong
+     * to held hosts and the memory window has no room to page spilled entries back in.
+     *
+     * @return True if there are entries in memory or spilled entries can be paged in, false otherwise.
+     */
+    public synchronized boolean hasReady() {
+        return !memory.isEmpty() || spilled > 0 && memory.size() + heldEntries < memoryCapacity;
+    }
+
+    /**
+     * Holds the host of a URI: its entries are passed over until it is released.
+     *
+     * @param uri A URI of the host.
+     * @return True if the host has been held, false if it was held already.
+     */
+    public synchronized boolean hold(URI uri) {
+        return held.putIfAbsent(hostOf(uri), new ArrayDeque<>()) == null;
+    }
+
+    /**
+     * Releases the host of a URI, its entries that were set aside go back into the memory window in their original
+     * order.
+     *
+     * @param uri A URI of the host.
+     */
+    public synchronized void release(URI uri) {
+        Deque<FrontierEntry> waiting = held.remove(hostOf(uri));
+        if (waiting != null) {
+            heldEntries -= waiting.size();
+            memory.addAll(waiting);
+        }
+    }
+
+    /**
+     * Checks whether the frontier is empty.
+     *
+     * @return True if there are no entries in memory, held or on disk, false otherwise.
+     */
+    public synchronized boolean isEmpty() {
+        return memory.isEmpty() && heldEntries == 0 && spilled == 0;
+    }
+
+    /**
+     * Gets the number of entries in the frontier.
+     *
+     * @return The number of entries in memory, held or on disk.
+     */
+    public synchronized long size() {
+        return memory.size() + heldEntries + spilled;
+    }
+
+    /**
+     * Gets the number of entries spilled to disk.
+     *
+     * @return The number of entries on disk.
+     */
+    public synchronized long getSpilled() {
+        return spilled;
+    }
+
+    /**
+     * Adds an entry to the memory window, behind the entries of equal priority already in it.
+     *
+     * @param entry The entry.
+     */
+    private void add(FrontierEntry entry) {
+        entry.sequence = sequence++;
+        memory.add(entry);
+    }
+
+    /**
+     * Appends an entry to the segment being written, starting a new segment when it is full.
+     *
+     * @param entry The entry.
+     */
+    private void spill(FrontierEntry entry) {
+        try {
+            if (writeSegment == null || writeSegment.entries == segmentSize) {
+                rollSegment();
+                Files.createDirectories(spillDirectory);
+                writeSegment = new Segment(spillDirectory.resolve("segment-" + segmentCounter++ + ".log"));
+                segmentWriter = Files.newBufferedWriter(writeSegment.path, StandardCharsets.UTF_8);
+            }
+            segmentWriter.write(entry.toLine());
+            segmentWriter.newLine();
+            writeSegment.entries++;
+            spilled++;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Closes the segment being written and queues it for reading.
+     *
+     * @throws IOException If the segment cannot be closed.
+     */
+    private void rollSegment() throws IOException {
+        if (writeSegment != null) {
+            segmentWriter.close();
+            segments.add(writeSegment);
+            writeSegment = null;
+            segmentWriter = null;
+        }
+    }
+
+    /**
+     * Pages spilled entries back into memory until the window is full or nothing is spilled anymore. Only closed
+     * segments are read, the segment being written is closed first when the reader catches up with it.
+     */
+    private void refill() {
+        try {
+            while (spilled > 0 && memory.size() + heldEntries < memoryCapacity) {
+                if (segmentReader == null) {
+                    if (segments.isEmpty()) {
+                        rollSegment();
+                    }
+                    readSegment = segments.poll();
+                    segmentReader = Files.newBufferedReader(readSegment.path, StandardCharsets.UTF_8);
+                }
+
+                String line = segmentReader.readLine();
+                if (line == null) {
+                    // The segment has been read completely and is not needed anymore
+                    segmentReader.close();
+                    Files.delete(readSegment.path);
+                    segmentReader = null;
+                    readSegment = null;
+                } else {
+                    add(FrontierEntry.fromLine(line));
+                    spilled--;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Discards all entries and deletes the segment files.
+     *
+     * @throws IOException If the segment files cannot be deleted.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (segmentWriter != null) {
+            segmentWriter.close();
+        }
+        if (segmentReader != null) {
+            segmentReader.close();
+        }
+        memory.clear();
+        held.clear();
+        heldEntries = 0;
+        segments.clear();
+        spilled = 0;
+        if (Files.isDirectory(spillDirectory)) {
+            FileUtils.deleteDirectory(spillDirectory.toFile());
+        }
+    }
+
+    /**
+     * Gets the host a URI is held by.
+     *
+     * @param uri The URI.
+     * @return The scheme, host and port of the URI.
+     */
+    static String hostOf(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    /**
+     * A segment file and the number of entries written to it.
+     */
+    private static final class Segment {
+
+        // Member variables
+        private final Path path;
+        private int entries;
+
+        /**
+         * Constructs a Segment.
+         *
+         * @param path The path of the segment file.
+         */
+        private Segment(Path path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.crawl;
+
+import java.net.URI;
+
+/**
+ * Represents a job waiting in the {@link Frontier}: the type of job, the canonical URI to crawl, the link depth at
+ * which the URI was discovered and the priority assigned by the {@link SchedulingPolicy}. Lower priorities are crawled
+ * first, entries of equal priority in the order they were pushed.
+ */
+public class FrontierEntry {
+
+    // Member variables
+    private final JobType jobType;
+    private final URI uri;
+    private final int depth;
+    private final long priority;
+    long sequence;
+
+    /**
+     * Constructs a FrontierEntry instance.
+     *
+     * @param jobType  The type of job.
+     * @param uri      The canonical URI to crawl.
+     * @param depth    The number of links followed from the starting URL.
+     * @param priority The priority, lower values are crawled first.
+     */
+    public FrontierEntry(JobType jobType, URI uri, int depth, long priority) {
+        this.jobType = jobType;
+        this.uri = uri;
+        this.depth = depth;
+        this.priority = priority;
+    }
+
+    /**
+     * Gets the type of job.
+     *
+     * @return The type of job.
+     */
+    public JobType getJobType() {
+        return jobType;
+    }
+
+    /**
+     * Gets the canonical URI to crawl.
+     *
+     * @return The URI.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Gets the number of links followed from the starting URL to discover the URI.
+     *
+     * @return The depth, zero for the starting URL.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the priority of the entry.
+     *
+     * @return The priority, lower values are crawled first.
+     */
+    public long getPriority() {
+        return priority;
+    }
+
+    /**
+     * Serializes the entry as a single tab separated line, without line terminator.
+     *
+     * @return The serialized entry.
+     */
+    String toLine() {
+        return jobType.name() + '\t' + depth + '\t' + priority + '\t' + uri;
+    }
+
+    /**
+     * Deserializes an entry written by {@link #toLine()}.
+     *
+     * @param line The serialized entry.
+     * @return The entry.
+     */
+    static FrontierEntry fromLine(String line) {
+        String[] fields = line.split("\t", 4);
+        return new FrontierEntry(JobType.valueOf(fields[0]), URI.create(fields[3]),
+                Integer.parseInt(fields[1]), Long.parseLong(fields[2]));
+    }
+}
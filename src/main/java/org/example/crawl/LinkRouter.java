@@ -0,0 +1,28 @@
+package org.example.crawl;
+
+import java.net.URI;
+
+/**
+ * The LinkRouter interface defines a contract for splitting a crawl over several crawlers. Every canonical URI belongs
+ * to exactly one crawler, the one that keeps it in its visited set and crawls it. Links to URIs that belong to another
+ * crawler are handed to the router instead of being scheduled. Implementations must be thread-safe.
+ */
+public interface LinkRouter {
+
+    /**
+     * Checks whether a URI belongs to this crawler.
+     *
+     * @param canonicalUri The canonical URI.
+     * @return True if this crawler crawls the URI, false if another one does.
+     */
+    boolean isLocal(URI canonicalUri);
+
+    /**
+     * Hands a discovered link to the crawler that the URI belongs to.
+     *
+     * @param jobType      The type of the job.
+     * @param canonicalUri The canonical URI.
+     * @param depth        The link depth of the job.
+     */
+    void forward(JobType jobType, URI canonicalUri, int depth);
+}
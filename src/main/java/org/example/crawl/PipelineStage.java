@@ -0,0 +1,135 @@
+package org.example.crawl;
+
+import org.example.metrics.CrawlMetrics;
+import org.example.metrics.Stage;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stage of the crawl pipeline: a fixed pool of threads behind a bounded hand-off queue. A task handed to a stage
+ * whose queue is full waits in the thread of the stage before until there is room, so a slow stage slows down the
+ * stages that feed it instead of piling up pages on the heap. The stage records its busy threads, busy time and the
+ * time it kept the stages before waiting in the {@link CrawlMetrics}.
+ */
+final class PipelineStage {
+
+    // Member variables
+    private final Stage stage;
+    private final CrawlMetrics metrics;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructs a PipelineStage. Its threads are started on the first task.
+     *
+     * @param stage    The stage, it names the threads and the metrics.
+     * @param threads  The number of threads.
+     * @param capacity The number of tasks that may wait for a thread.
+     * @param metrics  The metrics the stage records into.
+     */
+    PipelineStage(Stage stage, int threads, int capacity, CrawlMetrics metrics) {
+        if (stage == null) throw new IllegalArgumentException("Parameter stage is null");
+        if (metrics == null) throw new IllegalArgumentException("Parameter metrics is null");
+        if (threads < 1) throw new IllegalArgumentException("The number of threads must be greater than zero");
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be greater than zero");
+
+        this.stage = stage;
+        this.metrics = metrics;
+        String prefix = "crawler-" + stage.name().toLowerCase(Locale.ROOT) + "-";
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), runnable -> {
+                    Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, this::waitForRoom);
+        metrics.setStage(stage, threads, () -> executor.getQueue().size());
+    }
+
+    /**
+     * Hands a task to the stage, waiting in the calling thread while the queue of the stage is full.
+     *
+     * @param task The task.
+     * @return A future that completes when the task has run, or fails with what the task threw.
+     */
+    CompletableFuture<Void> submit(Task task) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // Record the task before completing its future, so the metrics include it once the future is done
+                long start = metrics.stageStarted(stage);
+                Throwable failure = null;
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    failure = throwable;
+                } finally {
+                    metrics.stageFinished(stage, start);
+                }
+                if (failure == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stops the stage once the tasks it has been handed have run.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Stops the stage right away, interrupting the running tasks and dropping the waiting ones.
+     */
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Puts a task the executor has rejected because its queue is full into the queue once there is room, which blocks
+     * the calling thread meanwhile. Tasks are still rejected once the stage is shut down.
+     *
+     * @param runnable The task.
+     * @param pool     The executor of the stage.
+     */
+    private void waitForRoom(Runnable runnable, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("The " + stage + " stage is shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            pool.getQueue().put(runnable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the " + stage + " stage", e);
+        } finally {
+            metrics.stageBlocked(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The work handed to a stage.
+     */
+    @FunctionalInterface
+    interface Task {
+
+        /**
+         * Runs the task.
+         *
+         * @throws Exception If the task fails.
+         */
+        void run() throws Exception;
+    }
+}
@@ -1,36 +1,68 @@
 package org.example.crawl;
 
+import org.example.metrics.MetricsSnapshot;
+
 /**
- * Represents the progress of the crawling operation, including the number of items persisted,
- * the number of scheduled tasks, the elapsed time in seconds, and any runtime exception encountered.
+ * Represents the progress of the crawling operation, including the number of items persisted and how many of
+ * them were unchanged since the previous crawl, the number of scheduled tasks, the elapsed time in seconds, the
+ * visited set hits and misses, the skipped jobs, the bytes downloaded, the retried and failed jobs, a snapshot of the
+ * metrics and the last failure.
  */
 public class Progress {
 
     // Member variables
     private final Integer persisted;
+    private final Integer unchanged;
     private final Integer scheduled;
     private final Long elapsedTimeInSeconds;
+    private final Long visitedHits;
+    private final Long visitedMisses;
+    private final Integer skipped;
+    private final Long downloadedBytes;
+    private final Integer retried;
+    private final Integer failed;
+    private final MetricsSnapshot metrics;
     private final RuntimeException exception;
 
     /**
      * Constructs a Progress instance.
      *
      * @param persisted           The number of items persisted during crawling.
+     * @param unchanged           The number of persisted items that were not modified since the previous crawl.
      * @param scheduled           The number of scheduled tasks.
      * @param elapsedTimeInSeconds The elapsed time in seconds.
-     * @param exception           Any runtime exception encountered during crawling.
+     * @param visitedHits         The number of discovered links that were already visited.
+     * @param visitedMisses       The number of discovered links that were new.
+     * @param skipped             The number of jobs dropped because they exceeded the crawl budget or robots.txt
+     *                            disallows them, or whose download was rejected by its download limits.
+     * @param downloadedBytes     The number of bytes downloaded.
+     * @param retried             The number of failed attempts that were scheduled to be tried again.
+     * @param failed              The number of jobs that failed for good and were added to the error report.
+     * @param metrics             The latencies, rates, queue depth, busy workers and stage statistics.
+     * @param exception           The failure of the last job that failed for good, or null.
      */
-    public Progress(Integer persisted, Integer scheduled, Long elapsedTimeInSeconds, RuntimeException exception) {
+    public Progress(Integer persisted, Integer unchanged, Integer scheduled, Long elapsedTimeInSeconds,
+                    Long visitedHits, Long visitedMisses, Integer skipped, Long downloadedBytes, Integer retried,
+                    Integer failed, MetricsSnapshot metrics, RuntimeException exception) {
         this.persisted = persisted;
+        this.unchanged = unchanged;
         this.scheduled = scheduled;
         this.elapsedTimeInSeconds = elapsedTimeInSeconds;
+        this.visitedHits = visitedHits;
+        this.visitedMisses = visitedMisses;
+        this.skipped = skipped;
+        this.downloadedBytes = downloadedBytes;
+        this.retried = retried;
+        this.failed = failed;
+        this.metrics = metrics;
         this.exception = exception;
     }
 
     /**
-     * Gets the runtime exception encountered during crawling, if any.
+     * Gets the failure of the last job that failed for good, if any. Failed jobs do not end the crawl, they are added
+     * to the error report.
      *
-     * @return The runtime exception, or null if no exception occurred.
+     * @return The runtime exception, or null if no job has failed.
      */
     public RuntimeException getException() {
         return exception;
@@ -45,6 +77,16 @@ public class Progress {
         return persisted;
     }
 
+    /**
+     * Gets the number of persisted items that the server reported as not modified since the previous crawl, and
+     * that were therefore neither transferred nor written again.
+     *
+     * @return The number of unchanged items.
+     */
+    public Integer getUnchanged() {
+        return unchanged;
+    }
+
     /**
      * Gets the number of scheduled tasks.
      *
@@ -62,4 +104,79 @@ public class Progress {
     public Long getElapsedTimeInSeconds() {
         return elapsedTimeInSeconds;
     }
+
+    /**
+     * Gets the number of discovered links that were dropped because they were already visited.
+     *
+     * @return The number of visited set hits.
+     */
+    public Long getVisitedHits() {
+        return visitedHits;
+    }
+
+    /**
+     * Gets the number of discovered links that were new and therefore scheduled.
+     *
+     * @return The number of visited set misses.
+     */
+    public Long getVisitedMisses() {
+        return visitedMisses;
+    }
+
+    /**
+     * Gets the number of jobs that were dropped because they exceeded the depth, page, byte or time budget or
+     * robots.txt disallows them, or whose download was rejected because it broke the download limits.
+     *
+     * @return The number of skipped jobs.
+     */
+    public Integer getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the number of bytes downloaded, as counted against the byte budget.
+     *
+     * @return The number of downloaded bytes.
+     */
+    public Long getDownloadedBytes() {
+        return downloadedBytes;
+    }
+
+    /**
+     * Gets the number of failed attempts that were scheduled to be tried again after a transient failure.
+     *
+     * @return The number of retries.
+     */
+    public Integer getRetried() {
+        return retried;
+    }
+
+    /**
+     * Gets the number of jobs that failed for good, permanently or after their last retry.
+     *
+     * @return The number of failed jobs.
+     */
+    public Integer getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the snapshot of the metrics taken with the progress: the latency of every phase, the bytes in and out per
+     * second, the depth of the frontier, the busy workers and downloads, and the statistics per stage.
+     *
+     * @return The metrics snapshot.
+     */
+    public MetricsSnapshot getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the share of discovered links that were duplicates.
+     *
+     * @return The visited set hit rate between 0 and 1, or 0 if no link has been looked up yet.
+     */
+    public double getVisitedHitRate() {
+        long lookups = visitedHits + visitedMisses;
+        return lookups == 0 ? 0 : (double) visitedHits / lookups;
+    }
 }
@@ -0,0 +1,121 @@
+package org.example.crawl;
+
+import org.example.http.HttpStatusException;
+import org.example.misc.AppConfig;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileSystemException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which failed jobs are tried again and how long they wait. Transient failures, such as timeouts, reset or
+ * refused connections and the statuses 408, 425, 429, 500, 502, 503 and 504, are retried with exponential backoff and
+ * full jitter, so that retries of many jobs spread out instead of hitting a recovering server at the same moment. A
+ * Retry-After given by the server is honored as the minimum wait. Everything else is permanent and not retried.
+ */
+public class RetryPolicy {
+
+    // Constants
+    private static final Set<Integer> TRANSIENT_STATUSES = Set.of(408, 425, 429, 500, 502, 503, 504);
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+
+    // Member variables
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    /**
+     * Constructs a RetryPolicy.
+     *
+     * @param maxAttempts    The number of times a job is tried at most, including the first attempt.
+     * @param initialBackoff The upper bound of the wait before the first retry, doubled for every further retry.
+     * @param maxBackoff     The cap of the upper bound of the wait.
+     */
+    public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("The number of attempts must be greater than zero");
+        if (initialBackoff == null) throw new IllegalArgumentException("Parameter initialBackoff is null");
+        if (maxBackoff == null) throw new IllegalArgumentException("Parameter maxBackoff is null");
+
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Creates the retry policy configured in the application configuration.
+     *
+     * @return The retry policy.
+     */
+    public static RetryPolicy fromConfig() {
+        return new RetryPolicy(AppConfig.getRetryMaxAttempts(), AppConfig.getRetryInitialBackoff(),
+                AppConfig.getRetryMaxBackoff());
+    }
+
+    /**
+     * Gets the number of times a job is tried at most.
+     *
+     * @return The maximum number of attempts, including the first.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Checks whether a failure is transient, i.e. whether the same request may succeed later.
+     *
+     * @param cause The failure, as returned by {@link #unwrap(Throwable)}.
+     * @return True if the failure is transient, false if it is permanent.
+     */
+    public boolean isTransient(Throwable cause) {
+        if (cause instanceof HttpStatusException) {
+            return TRANSIENT_STATUSES.contains(((HttpStatusException) cause).getStatusCode());
+        }
+
+        // Network failures and socket timeouts are transient, local file system failures and interruptions are not
+        return cause instanceof IOException && !(cause instanceof FileSystemException)
+                && cause.getClass() != InterruptedIOException.class;
+    }
+
+    /**
+     * Computes the wait before the next attempt of a job.
+     *
+     * @param attempt The number of attempts made so far, at least one.
+     * @param cause   The failure of the last attempt.
+     * @return The wait, a random duration below the exponential bound, or the server's Retry-After if that is longer.
+     */
+    public Duration delayOf(int attempt, Throwable cause) {
+        long bound = initialBackoff.toMillis() << Math.min(attempt - 1, 30);
+        if (bound <= 0 || bound > maxBackoff.toMillis()) {
+            bound = maxBackoff.toMillis();
+        }
+        Duration delay = Duration.ofMillis(bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0);
+
+        if (cause instanceof HttpStatusException) {
+            Duration retryAfter = ((HttpStatusException) cause).getRetryAfter();
+            if (retryAfter != null && retryAfter.compareTo(delay) > 0) {
+                return retryAfter;
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * Strips the wrappers that futures and the crawler put around the failure of a job.
+     *
+     * @param throwable The failure as it was caught.
+     * @return The underlying failure.
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                || cause.getClass() == RuntimeException.class) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
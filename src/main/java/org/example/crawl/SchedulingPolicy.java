@@ -0,0 +1,50 @@
+package org.example.crawl;
+
+/**
+ * Enumerates the orders in which the frontier hands out jobs. Each policy assigns a priority to a job, lower priorities
+ * are crawled first and jobs of equal priority in the order they were discovered.
+ */
+public enum SchedulingPolicy {
+
+    /**
+     * Crawls jobs in the order they were discovered.
+     */
+    FIFO,
+
+    /**
+     * Crawls all jobs of a link depth before any job of the next depth.
+     */
+    BREADTH_FIRST,
+
+    /**
+     * Crawls pages before resources, breadth first within each, to widen discovery early.
+     */
+    PAGES_FIRST,
+
+    /**
+     * Crawls resources before pages, breadth first within each, to complete the pages already crawled first.
+     */
+    ASSETS_FIRST;
+
+    /**
+     * Computes the priority of a job.
+     *
+     * @param jobType The type of job.
+     * @param depth   The link depth of the job.
+     * @return The priority, lower values are crawled first.
+     */
+    public long priorityOf(JobType jobType, int depth) {
+        switch (this) {
+            case FIFO:
+                return 0;
+            case BREADTH_FIRST:
+                return depth;
+            case PAGES_FIRST:
+                return ((long) (jobType == JobType.Page ? 0 : 1) << 32) | depth;
+            case ASSETS_FIRST:
+                return ((long) (jobType == JobType.File ? 0 : 1) << 32) | depth;
+            default:
+                throw new IllegalStateException("Unexpected policy " + name());
+        }
+    }
+}
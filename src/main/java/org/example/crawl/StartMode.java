@@ -0,0 +1,7 @@
+package org.example.crawl;
+
+/**
+ * Enumerates the ways a crawl can be started: from scratch, by resuming an interrupted crawl from its journal, or as an
+ * incremental re-crawl that keeps the previous output and only transfers content that has changed.
+ */
+public enum StartMode {FRESH, RESUME, INCREMENTAL}
@@ -0,0 +1,106 @@
+package org.example.crawl;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Utility class that rewrites URIs into a canonical form, so that URIs that only differ by fragment, scheme or host
+ * case, an explicit default port, dot segments or percent-encoding case are recognised as the same resource.
+ */
+public final class UrlCanonicalizer {
+
+    // Constants
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+
+    /**
+     * Private constructor, the class only exposes static helpers.
+     */
+    private UrlCanonicalizer() {
+    }
+
+    /**
+     * Canonicalizes the specified URI. Opaque URIs (e.g. mailto:) and URIs without a host are returned unchanged.
+     *
+     * @param uri The URI to canonicalize.
+     * @return The canonical URI.
+     */
+    public static URI canonicalize(URI uri) {
+        if (uri.isOpaque() || uri.getScheme() == null || uri.getHost() == null) {
+            return uri;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(uri.toString().length());
+        builder.append(scheme).append("://");
+
+        // Keep user info as is, it is case sensitive
+        if (uri.getRawUserInfo() != null) {
+            builder.append(uri.getRawUserInfo()).append('@');
+        }
+        builder.append(uri.getHost().toLowerCase(Locale.ROOT));
+
+        // Drop the port if it is the default one for the scheme
+        int port = uri.getPort();
+        if (port != -1 && !isDefaultPort(scheme, port)) {
+            builder.append(':').append(port);
+        }
+
+        // Resolve dot segments, and make sure that the root is always represented by a slash
+        String path = normalizePath(uri.normalize().getRawPath());
+        appendNormalizedEscapes(builder, path.isEmpty() ? "/" : path);
+
+        // The query is kept, the fragment is dropped as it never reaches the server
+        if (uri.getRawQuery() != null) {
+            builder.append('?');
+            appendNormalizedEscapes(builder, uri.getRawQuery());
+        }
+
+        return URI.create(builder.toString());
+    }
+
+    /**
+     * Checks whether the port is the default port of the scheme.
+     *
+     * @param scheme The lower case scheme.
+     * @param port   The port.
+     * @return True if the port is the default port of the scheme, false otherwise.
+     */
+    private static boolean isDefaultPort(String scheme, int port) {
+        return ("http".equals(scheme) && port == HTTP_PORT) || ("https".equals(scheme) && port == HTTPS_PORT);
+    }
+
+    /**
+     * Removes leading parent segments that {@link URI#normalize()} keeps when they would climb above the root.
+     *
+     * @param path The normalized raw path, may be null.
+     * @return The path without leading parent segments.
+     */
+    private static String normalizePath(String path) {
+        if (path == null) {
+            return "";
+        }
+        while (path.startsWith("/../")) {
+            path = path.substring(3);
+        }
+        return "/..".equals(path) ? "/" : path;
+    }
+
+    /**
+     * Appends the raw component to the builder, upper casing the hexadecimal digits of percent-encoded octets.
+     *
+     * @param builder The builder to append to.
+     * @param raw     The raw (still encoded) component.
+     */
+    private static void appendNormalizedEscapes(StringBuilder builder, String raw) {
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            builder.append(c);
+            if (c == '%' && i + 2 < raw.length()) {
+                builder.append(Character.toUpperCase(raw.charAt(i + 1)));
+                builder.append(Character.toUpperCase(raw.charAt(i + 2)));
+                i += 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,591 @@
+package org.example.crawl;
+
+import org.example.misc.AppConfig;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which extracted URLs belong to a crawl. A URL is in scope if it has the scheme of the starting URL, one of
+ * the hosts, a path that starts with one of the include prefixes and matches none of the exclude patterns. Hosts and
+ * paths are compared ignoring case, as the crawler always did.
+ * <p>
+ * The rules are compiled once: hosts into a trie of their reversed names, so that "*.example.com" is a prefix of the
+ * reversed name, and includes and excludes into tries of path characters, where a "*" in an exclude pattern is an edge
+ * that matches any run of characters and a trailing "$" anchors the pattern to the end of the URL. The path tries are
+ * then turned into deterministic automata, with a state for every set of trie nodes a text can lead to, so a URL is
+ * matched in a single pass over its characters, in time linear in its length however many wildcards the patterns
+ * have. Walking the trie and the automata in place allocates nothing, however many anchors a page has. The check
+ * applies to the URL as it was extracted, before canonicalization, which only pays for the URLs in scope.
+ * <p>
+ * Query parameters such as tracking parameters can be stripped from the canonical URI, so that URLs that only differ
+ * by them are crawled once.
+ */
+public final class UrlScope {
+
+    // Constants
+    private static final String ROOT = "/";
+    private static final String HTTP_PORT = ":80";
+    private static final String HTTPS_PORT = ":443";
+    private static final int MAX_STATES = 10_000;
+
+    // Member variables
+    private final String scheme;
+    private final Node hosts = new Node();
+    private final Automaton includes;
+    private final Automaton excludes;
+    private final Automaton params;
+
+    /**
+     * Constructs a UrlScope.
+     *
+     * @param scheme      The scheme of URLs in scope, such as "https".
+     * @param hosts       The hosts in scope, with a port if it is not the default one, or "*." followed by a domain for
+     *                    all of its subdomains. Must not be empty.
+     * @param includes    The path prefixes in scope, such as "/catalogue/". Must not be empty, "/" includes every path.
+     * @param excludes    The patterns of paths, including their query, that are out of scope, such as "/search" or
+     *                    "*.pdf$".
+     * @param stripParams The names of query parameters to strip, or name prefixes followed by "*", such as "utm_*".
+     * @throws IllegalArgumentException If the patterns of a kind compile to more than 10000 automaton states.
+     */
+    public UrlScope(String scheme, List<String> hosts, List<String> includes, List<String> excludes,
+                    List<String> stripParams) {
+        if (scheme == null) throw new IllegalArgumentException("Parameter scheme is null");
+        if (hosts == null || hosts.isEmpty()) throw new IllegalArgumentException("Parameter hosts is null or empty");
+        if (includes == null || includes.isEmpty()) {
+            throw new IllegalArgumentException("Parameter includes is null or empty");
+        }
+        if (excludes == null) throw new IllegalArgumentException("Parameter excludes is null");
+        if (stripParams == null) throw new IllegalArgumentException("Parameter stripParams is null");
+
+        this.scheme = scheme.toLowerCase(Locale.ROOT);
+        for (String host : hosts) {
+            // A reversed "*.example.com" is "moc.elpmaxe." followed by anything, an exact name must end there
+            String name = host.trim().toLowerCase(Locale.ROOT);
+            boolean subdomains = name.startsWith("*.");
+            Node node = this.hosts.insert(new StringBuilder(subdomains ? name.substring(1) : name).reverse());
+            if (subdomains) {
+                node.prefix = true;
+            } else {
+                node.end = true;
+            }
+        }
+        Node includeTrie = new Node();
+        for (String include : includes) {
+            includeTrie.insert(include.trim().toLowerCase(Locale.ROOT)).prefix = true;
+        }
+        this.includes = new Automaton(includeTrie);
+        this.excludes = compilePatterns(excludes);
+        this.params = compilePatterns(stripParams.stream()
+                .map(name -> name.endsWith("*") ? name.substring(0, name.length() - 1) : name + "$")
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Creates the scope configured in the application configuration. Without configured hosts the scope is the host of
+     * the base URL, and without configured includes the path of the base URL, i.e. everything below it.
+     *
+     * @param baseURL The base URL of the crawl, the directory of the starting URL.
+     * @return The scope.
+     */
+    public static UrlScope fromConfig(URL baseURL) {
+        List<String> hosts = AppConfig.getScopeHosts();
+        if (hosts.isEmpty()) {
+            String host = baseURL.getHost();
+            int port = baseURL.getPort();
+            boolean defaultPort = port == -1 || port == baseURL.getDefaultPort();
+            hosts = Collections.singletonList(defaultPort ? host : host + ":" + port);
+        }
+        List<String> includes = AppConfig.getScopeIncludes();
+        if (includes.isEmpty()) {
+            includes = Collections.singletonList(baseURL.getPath().isEmpty() ? ROOT : baseURL.getPath());
+        }
+        return new UrlScope(baseURL.getProtocol(), hosts, includes, AppConfig.getScopeExcludes(),
+                AppConfig.getScopeStripParams());
+    }
+
+    /**
+     * Compiles patterns into an automaton, every pattern matches as a prefix unless it ends with "$".
+     *
+     * @param patterns The patterns.
+     * @return The automaton.
+     */
+    private static Automaton compilePatterns(List<String> patterns) {
+        Node root = new Node();
+        for (String pattern : patterns) {
+            String trimmed = pattern.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            boolean anchored = trimmed.endsWith("$");
+            Node node = root.insert(anchored ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+            if (anchored) {
+                node.end = true;
+            } else {
+                node.prefix = true;
+            }
+        }
+        return new Automaton(root);
+    }
+
+    /**
+     * Checks whether an absolute URL is in scope, without allocating. The fragment of the URL is ignored.
+     *
+     * @param url The absolute URL as extracted.
+     * @return True if the URL is in scope.
+     */
+    public boolean contains(String url) {
+        // The scheme must be followed by "://"
+        int length = url.length();
+        int authority = scheme.length() + 3;
+        if (length < authority || !url.regionMatches(true, 0, scheme, 0, scheme.length())
+                || !url.startsWith("://", scheme.length())) {
+            return false;
+        }
+
+        // The authority ends at the path, the query or the fragment
+        int path = authority;
+        int host = authority;
+        int end = length;
+        while (path < length) {
+            char c = url.charAt(path);
+            if (c == '/' || c == '?') {
+                break;
+            }
+            if (c == '#') {
+                end = path;
+                break;
+            }
+            if (c == '@') {
+                host = path + 1;
+            }
+            path++;
+        }
+        if (!matchesHost(url, host, withoutDefaultPort(url, host, path))) {
+            return false;
+        }
+
+        // The path and query end at the fragment, an empty path is the root
+        for (int i = path; i < end; i++) {
+            if (url.charAt(i) == '#') {
+                end = i;
+                break;
+            }
+        }
+        if (path == end || url.charAt(path) == '?') {
+            return matches(includes, ROOT, 0, ROOT.length()) && !matches(excludes, ROOT, 0, ROOT.length());
+        }
+        return matches(includes, url, path, end) && !matches(excludes, url, path, end);
+    }
+
+    /**
+     * Strips the configured query parameters from a canonical URI. A URI without any of them is returned as is, which
+     * does not allocate.
+     *
+     * @param uri The canonical URI.
+     * @return The URI without the stripped parameters, and without a query if none is left.
+     */
+    public URI stripParams(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null || params.isEmpty() || !hasStrippedParam(query)) {
+            return uri;
+        }
+
+        // Keep the other parameters in their order
+        StringBuilder kept = new StringBuilder(query.length());
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end > start && !isStrippedParam(query, start, end)) {
+                if (kept.length() > 0) {
+                    kept.append('&');
+                }
+                kept.append(query, start, end);
+            }
+            start = end + 1;
+        }
+
+        String string = uri.toString();
+        String base = string.substring(0, string.indexOf('?'));
+        return URI.create(kept.length() == 0 ? base : base + "?" + kept);
+    }
+
+    /**
+     * Checks whether a query has a parameter to strip.
+     *
+     * @param query The raw query.
+     * @return True if a parameter of the query is to be stripped.
+     */
+    private boolean hasStrippedParam(String query) {
+        int start = 0;
+        while (start < query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (isStrippedParam(query, start, end)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a query parameter is to be stripped, by its name.
+     *
+     * @param query The raw query.
+     * @param start The index of the parameter.
+     * @param end   The index after the parameter.
+     * @return True if the parameter is to be stripped.
+     */
+    private boolean isStrippedParam(String query, int start, int end) {
+        int name = query.indexOf('=', start);
+        return matches(params, query, start, name < 0 || name > end ? end : name);
+    }
+
+    /**
+     * Gets the end of a host without a port that is the default one of the scheme.
+     *
+     * @param url   The URL.
+     * @param start The index of the host.
+     * @param end   The index after the host and its port.
+     * @return The index after the host and its port, unless the port is the default one.
+     */
+    private int withoutDefaultPort(String url, int start, int end) {
+        String port = "https".equals(scheme) ? HTTPS_PORT : "http".equals(scheme) ? HTTP_PORT : null;
+        if (port != null && end - start > port.length() && url.startsWith(port, end - port.length())) {
+            return end - port.length();
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether a host is in scope, walking the host trie from the last character of the host to the first.
+     *
+     * @param url   The URL.
+     * @param start The index of the host.
+     * @param end   The index after the host.
+     * @return True if the host is in scope.
+     */
+    private boolean matchesHost(String url, int start, int end) {
+        Node node = hosts;
+        for (int i = end - 1; i >= start; i--) {
+            if (node.prefix) {
+                return true;
+            }
+            node = node.child(url.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.end;
+    }
+
+    /**
+     * Checks whether a pattern of an automaton matches a range of characters, stepping through it once per character.
+     *
+     * @param automaton The automaton of the patterns.
+     * @param text      The text.
+     * @param start     The index to start matching from.
+     * @param end       The index after the range.
+     * @return True if a pattern matches.
+     */
+    private static boolean matches(Automaton automaton, String text, int start, int end) {
+        int state = Automaton.START;
+        for (int i = start; ; i++) {
+            if (automaton.prefix[state] || (automaton.end[state] && i == end)) {
+                return true;
+            }
+            if (i == end) {
+                return false;
+            }
+            state = automaton.next(state, text.charAt(i));
+            if (state == Automaton.DEAD) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * A node of a trie, the state after matching the characters on the path to it.
+     */
+    private static final class Node {
+
+        // Member variables
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Node wildcard;
+        private boolean loop;
+        private boolean prefix;
+        private boolean end;
+
+        /**
+         * Inserts the characters of a pattern below this node, a "*" becomes a wildcard edge.
+         *
+         * @param pattern The lower case pattern.
+         * @return The node of the end of the pattern.
+         */
+        private Node insert(CharSequence pattern) {
+            Node node = this;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*') {
+                    if (node.wildcard == null) {
+                        node.wildcard = new Node();
+                        node.wildcard.loop = true;
+                    }
+                    node = node.wildcard;
+                    continue;
+                }
+                Node child = node.child(c);
+                if (child == null) {
+                    child = new Node();
+                    node.keys = Arrays.copyOf(node.keys, node.keys.length + 1);
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.keys[node.keys.length - 1] = c;
+                    node.children[node.children.length - 1] = child;
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        /**
+         * Gets the child of a character, ignoring the case of ASCII letters.
+         *
+         * @param c The character.
+         * @return The child, or null if there is none.
+         */
+        private Node child(char c) {
+            char lower = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == lower) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Checks whether no pattern has been inserted below this node.
+         *
+         * @return True if the trie is empty.
+         */
+        private boolean isEmpty() {
+            return keys.length == 0 && wildcard == null && !prefix && !end;
+        }
+    }
+
+    /**
+     * A deterministic automaton compiled from a trie of patterns. Each state stands for the set of trie nodes the text
+     * read so far leads to: the children of its characters, the nodes behind a wildcard, which match no character
+     * yet, and the wildcard nodes themselves, which stay in the set on any character. A state accepts the rest of the
+     * text if one of its nodes ends a prefix pattern, and the end of the text if one ends an anchored pattern.
+     */
+    private static final class Automaton {
+
+        // Constants
+        private static final int START = 0;
+        private static final int DEAD = -1;
+
+        // Member variables
+        private final char[][] keys;
+        private final int[][] targets;
+        private final int[] others;
+        private final boolean[] prefix;
+        private final boolean[] end;
+        private final boolean empty;
+
+        /**
+         * Compiles an automaton from a trie by subset construction, following only the sets of nodes that can be
+         * reached from the root.
+         *
+         * @param root The root of the trie.
+         * @throws IllegalArgumentException If the automaton has more than 10000 states.
+         */
+        private Automaton(Node root) {
+            List<Node> nodes = new ArrayList<>();
+            number(root, nodes, new HashMap<>());
+            Map<Node, Integer> ids = new HashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                ids.put(nodes.get(i), i);
+            }
+
+            List<BitSet> sets = new ArrayList<>();
+            Map<BitSet, Integer> states = new HashMap<>();
+            List<char[]> keyList = new ArrayList<>();
+            List<int[]> targetList = new ArrayList<>();
+            List<Integer> otherList = new ArrayList<>();
+            Deque<Integer> pending = new ArrayDeque<>();
+
+            BitSet start = new BitSet();
+            close(root, start, ids);
+            stateOf(start, sets, states, pending);
+            while (!pending.isEmpty()) {
+                int state = pending.poll();
+                BitSet set = sets.get(state);
+
+                // A state that accepts every rest of the text is never left
+                TreeSet<Character> chars = new TreeSet<>();
+                BitSet loops = new BitSet();
+                boolean accepts = false;
+                for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                    Node node = nodes.get(i);
+                    accepts |= node.prefix;
+                    for (char c : node.keys) {
+                        chars.add(c);
+                    }
+                    if (node.loop) {
+                        loops.set(i);
+                    }
+                }
+                char[] stateKeys = new char[accepts ? 0 : chars.size()];
+                int[] stateTargets = new int[stateKeys.length];
+                for (int k = 0; k < stateKeys.length; k++) {
+                    char c = chars.pollFirst();
+                    BitSet next = (BitSet) loops.clone();
+                    for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                        Node child = nodes.get(i).child(c);
+                        if (child != null) {
+                            close(child, next, ids);
+                        }
+                    }
+                    stateKeys[k] = c;
+                    stateTargets[k] = stateOf(next, sets, states, pending);
+                }
+                fill(keyList, state, stateKeys);
+                fill(targetList, state, stateTargets);
+                fill(otherList, state, accepts || loops.isEmpty() ? DEAD : stateOf(loops, sets, states, pending));
+            }
+
+            int count = sets.size();
+            this.keys = keyList.toArray(new char[count][]);
+            this.targets = targetList.toArray(new int[count][]);
+            this.others = new int[count];
+            this.prefix = new boolean[count];
+            this.end = new boolean[count];
+            for (int state = 0; state < count; state++) {
+                others[state] = otherList.get(state);
+                BitSet set = sets.get(state);
+                for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                    prefix[state] |= nodes.get(i).prefix;
+                    end[state] |= nodes.get(i).end;
+                }
+            }
+            this.empty = root.isEmpty();
+        }
+
+        /**
+         * Gets the state a state leads to on a character, ignoring the case of ASCII letters.
+         *
+         * @param state The state.
+         * @param c     The character.
+         * @return The next state, or {@link #DEAD} if no pattern can match anymore.
+         */
+        private int next(int state, char c) {
+            char lower = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            int index = Arrays.binarySearch(keys[state], lower);
+            return index >= 0 ? targets[state][index] : others[state];
+        }
+
+        /**
+         * Checks whether no pattern has been compiled into the automaton.
+         *
+         * @return True if the automaton matches nothing.
+         */
+        private boolean isEmpty() {
+            return empty;
+        }
+
+        /**
+         * Lists the nodes of a trie, each once.
+         *
+         * @param node    The node to start from.
+         * @param nodes   Receives the nodes.
+         * @param visited The nodes listed so far.
+         */
+        private static void number(Node node, List<Node> nodes, Map<Node, Boolean> visited) {
+            if (visited.put(node, Boolean.TRUE) != null) {
+                return;
+            }
+            nodes.add(node);
+            for (Node child : node.children) {
+                number(child, nodes, visited);
+            }
+            if (node.wildcard != null) {
+                number(node.wildcard, nodes, visited);
+            }
+        }
+
+        /**
+         * Adds a node to a set, with the nodes behind its wildcards, which match without reading a character.
+         *
+         * @param node The node.
+         * @param set  The set of node numbers.
+         * @param ids  The numbers of the nodes.
+         */
+        private static void close(Node node, BitSet set, Map<Node, Integer> ids) {
+            for (Node current = node; current != null; current = current.wildcard) {
+                set.set(ids.get(current));
+            }
+        }
+
+        /**
+         * Gets the state of a set of nodes, adding it to the states to compile if it is new.
+         *
+         * @param set     The set of node numbers.
+         * @param sets    The sets of the states.
+         * @param states  The states by set.
+         * @param pending The states still to compile.
+         * @return The state, or {@link #DEAD} for the empty set.
+         * @throws IllegalArgumentException If there would be more than 10000 states.
+         */
+        private static int stateOf(BitSet set, List<BitSet> sets, Map<BitSet, Integer> states, Deque<Integer> pending) {
+            if (set.isEmpty()) {
+                return DEAD;
+            }
+            Integer state = states.get(set);
+            if (state != null) {
+                return state;
+            }
+            if (sets.size() == MAX_STATES) {
+                throw new IllegalArgumentException("The patterns compile to more than " + MAX_STATES + " states");
+            }
+            sets.add(set);
+            states.put(set, sets.size() - 1);
+            pending.add(sets.size() - 1);
+            return sets.size() - 1;
+        }
+
+        /**
+         * Sets an element of a list that grows along with the states.
+         *
+         * @param list    The list.
+         * @param index   The index.
+         * @param element The element.
+         * @param <T>     The type of the elements.
+         */
+        private static <T> void fill(List<T> list, int index, T element) {
+            while (list.size() <= index) {
+                list.add(null);
+            }
+            list.set(index, element);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.example.crawl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor that runs every task on its own virtual thread and caps the number of tasks that run at the same time
+ * with a semaphore. Crawling jobs spend nearly all their time blocked on network I/O, and a blocked virtual thread only
+ * costs its small heap-allocated stack, so thousands of jobs can be in flight without thousands of OS threads.
+ * <p>
+ * Exceptions thrown by tasks are captured with the same semantics as {@link ExtendedExecutor}. Virtual threads require
+ * Java 21, they are looked up at runtime so that the rest of the application still runs on older Java versions, see
+ * {@link #isSupported()}.
+ */
+public final class VirtualThreadExecutor extends AbstractExecutorService implements CrawlExecutor {
+
+    // Constants
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+
+    // Variable to store the exception thrown by a task
+    private volatile RuntimeException exception = null;
+
+    // Member variables
+    private final ThreadFactory threadFactory;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private int active;
+    private boolean shutdown;
+
+    /**
+     * Constructs a new VirtualThreadExecutor.
+     *
+     * @param maxInFlight The maximum number of tasks running at the same time.
+     * @throws UnsupportedOperationException If the Java runtime does not support virtual threads.
+     */
+    public VirtualThreadExecutor(int maxInFlight) {
+        this(maxInFlight, requireVirtualThreadFactory());
+    }
+
+    /**
+     * Constructs a new VirtualThreadExecutor that creates its threads with the specified factory.
+     *
+     * @param maxInFlight   The maximum number of tasks running at the same time.
+     * @param threadFactory The factory creating one thread per task.
+     */
+    VirtualThreadExecutor(int maxInFlight, ThreadFactory threadFactory) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The maximum number of tasks in flight must be greater than zero");
+        }
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Checks whether the Java runtime supports virtual threads.
+     *
+     * @return True on Java 21 and later, false otherwise.
+     */
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Starts a new thread for the task. The thread waits for a free slot before running the task, the caller never
+     * blocks, which matters as jobs are submitted from within other jobs.
+     *
+     * @param task The task to run.
+     * @throws RejectedExecutionException If the executor has been shut down.
+     */
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            active++;
+        }
+
+        Thread thread = threadFactory.newThread(() -> run(task));
+        threads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Runs a task within the in-flight cap and captures the exception it throws.
+     *
+     * @param task The task to run.
+     */
+    private void run(Runnable task) {
+        Throwable throwable = null;
+        try {
+            inFlight.acquire();
+            try {
+                task.run();
+            } finally {
+                inFlight.release();
+            }
+        } catch (InterruptedException e) {
+            // Interrupted by shutdownNow before the task could start
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            throwable = e;
+        } finally {
+            threads.remove(Thread.currentThread());
+
+            // If an exception is present, store it in the 'exception' variable
+            throwable = ExtendedExecutor.unwrap(task, throwable);
+            if (throwable != null) {
+                exception = new RuntimeException(throwable);
+            }
+
+            synchronized (this) {
+                if (--active == 0 && shutdown) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the last exception thrown by a task.
+     *
+     * @return The exception, or null if no task has failed.
+     */
+    @Override
+    public RuntimeException getException() {
+        return exception;
+    }
+
+    /**
+     * Gets the number of tasks the executor runs at the same time.
+     *
+     * @return The maximum number of tasks in flight.
+     */
+    @Override
+    public int getParallelism() {
+        return maxInFlight;
+    }
+
+    /**
+     * Rejects new tasks, the tasks already submitted still run.
+     */
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (active == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Rejects new tasks and interrupts the running ones.
+     *
+     * @return An empty list, tasks are never queued as every task gets its own thread right away.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        threads.forEach(Thread::interrupt);
+        return Collections.emptyList();
+    }
+
+    /**
+     * Checks whether the executor has been shut down.
+     *
+     * @return True if the executor has been shut down, false otherwise.
+     */
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Checks whether all tasks have completed after a shutdown.
+     *
+     * @return True if the executor has terminated, false otherwise.
+     */
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown && active == 0;
+    }
+
+    /**
+     * Waits until all tasks have completed after a shutdown, or the timeout elapses.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return True if the executor has terminated, false if the timeout elapsed first.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the virtual thread factory or fails if the runtime does not support virtual threads.
+     *
+     * @return The virtual thread factory.
+     */
+    private static ThreadFactory requireVirtualThreadFactory() {
+        if (VIRTUAL_THREAD_FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on Java "
+                    + System.getProperty("java.version"));
+        }
+        return VIRTUAL_THREAD_FACTORY;
+    }
+
+    /**
+     * Looks up {@code Thread.ofVirtual().name("crawler-", 0).factory()} reflectively.
+     *
+     * @return The virtual thread factory, or null if the runtime does not support virtual threads.
+     */
+    private static ThreadFactory lookupVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "crawler-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Not available, or still a preview feature that has not been enabled
+            return null;
+        }
+    }
+}
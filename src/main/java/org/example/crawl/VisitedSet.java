@@ -0,0 +1,40 @@
+package org.example.crawl;
+
+/**
+ * The VisitedSet interface defines a contract for thread-safe sets that remember which canonical URLs the crawler has
+ * already scheduled, and that keep track of how many lookups were duplicates (hits) or new URLs (misses).
+ */
+public interface VisitedSet {
+
+    /**
+     * Marks the URL as visited.
+     *
+     * @param canonicalUrl The canonical form of the URL.
+     * @return True if the URL was not visited before, false if it is a duplicate.
+     */
+    boolean add(String canonicalUrl);
+
+    /**
+     * Gets the number of lookups for URLs that were already visited.
+     *
+     * @return The number of hits.
+     */
+    long getHits();
+
+    /**
+     * Gets the number of lookups for URLs that were not visited before.
+     *
+     * @return The number of misses.
+     */
+    long getMisses();
+
+    /**
+     * Gets the number of lookups the set could not answer exactly because it ran out of memory. A URL such a lookup
+     * reported as visited may have been new and dropped from the crawl.
+     *
+     * @return The number of overflowing lookups, zero for sets that are not bounded.
+     */
+    default long getOverflows() {
+        return 0;
+    }
+}
@@ -0,0 +1,290 @@
+package org.example.distributed;
+
+import org.example.crawl.JobType;
+import org.example.crawl.Progress;
+import org.example.metrics.MetricsSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One end of the connection between the coordinator and a worker, and the protocol spoken over it. Every message is a
+ * type byte followed by its fields in {@link DataOutputStream} encoding:
+ * <ul>
+ *     <li>HELLO, worker to coordinator: registers the worker.</li>
+ *     <li>ASSIGN, coordinator to worker: partition, number of partitions, partition key, starting URL and output
+ *     directory.</li>
+ *     <li>LINKS, both ways: target partition, count and the links, each as job type, depth and canonical URI.</li>
+ *     <li>STATUS, worker to coordinator: whether the worker is idle, the number of links it has received and its
+ *     progress.</li>
+ *     <li>STOP, coordinator to worker: every worker is idle and no links are in flight, the crawl is over.</li>
+ *     <li>DONE, worker to coordinator: the final progress of the worker.</li>
+ * </ul>
+ * Sending is thread-safe, every message is written and flushed as a whole. Receiving is done by a single thread.
+ */
+class Connection implements Closeable {
+
+    // Constants
+    static final byte HELLO = 1;
+    static final byte ASSIGN = 2;
+    static final byte LINKS = 3;
+    static final byte STATUS = 4;
+    static final byte STOP = 5;
+    static final byte DONE = 6;
+
+    // Member variables
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Constructs a Connection over a connected socket.
+     *
+     * @param socket The socket.
+     * @throws IOException If the streams of the socket cannot be opened.
+     */
+    Connection(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Reads the type of the next message, blocking until it arrives.
+     *
+     * @return The message type.
+     * @throws IOException If the connection is closed or broken.
+     */
+    byte readType() throws IOException {
+        return in.readByte();
+    }
+
+    /**
+     * Gets the stream the fields of the current message are read from.
+     *
+     * @return The input stream.
+     */
+    DataInputStream input() {
+        return in;
+    }
+
+    /**
+     * Sends a message without fields.
+     *
+     * @param type The message type.
+     * @throws IOException If the message cannot be sent.
+     */
+    synchronized void send(byte type) throws IOException {
+        out.writeByte(type);
+        out.flush();
+    }
+
+    /**
+     * Sends the assignment of a partition to a worker.
+     *
+     * @param partition       The partition of the worker.
+     * @param partitioner     The partitioner shared by all workers.
+     * @param url             The starting URL of the crawl.
+     * @param outputDirectory The output directory of the crawl.
+     * @throws IOException If the message cannot be sent.
+     */
+    synchronized void sendAssign(int partition, Partitioner partitioner, String url, String outputDirectory)
+            throws IOException {
+        out.writeByte(ASSIGN);
+        out.writeInt(partition);
+        out.writeInt(partitioner.getPartitions());
+        out.writeUTF(partitioner.getKey().name());
+        out.writeUTF(url);
+        out.writeUTF(outputDirectory);
+        out.flush();
+    }
+
+    /**
+     * Sends a batch of links.
+     *
+     * @param target The partition the links belong to.
+     * @param links  The links.
+     * @throws IOException If the message cannot be sent.
+     */
+    synchronized void sendLinks(int target, List<Link> links) throws IOException {
+        out.writeByte(LINKS);
+        out.writeInt(target);
+        out.writeInt(links.size());
+        for (Link link : links) {
+            out.writeByte(link.jobType.ordinal());
+            out.writeInt(link.depth);
+            out.writeUTF(link.uri.toString());
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the fields of a LINKS message after its type.
+     *
+     * @return The target partition and the links.
+     * @throws IOException If the message cannot be read.
+     */
+    Batch readLinks() throws IOException {
+        int target = in.readInt();
+        int count = in.readInt();
+        List<Link> links = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            JobType jobType = JobType.values()[in.readByte()];
+            int depth = in.readInt();
+            links.add(new Link(jobType, URI.create(in.readUTF()), depth));
+        }
+        return new Batch(target, links);
+    }
+
+    /**
+     * Sends the state of a worker.
+     *
+     * @param idle     True if the worker has no jobs and no links waiting to be sent.
+     * @param received The number of links the worker has received and submitted.
+     * @param progress The last progress of the worker, may be null.
+     * @throws IOException If the message cannot be sent.
+     */
+    synchronized void sendStatus(boolean idle, long received, Progress progress) throws IOException {
+        out.writeByte(STATUS);
+        out.writeBoolean(idle);
+        out.writeLong(received);
+        out.writeBoolean(progress != null);
+        if (progress != null) {
+            writeProgress(progress);
+        }
+        out.flush();
+    }
+
+    /**
+     * Sends the final progress of a worker.
+     *
+     * @param progress The final progress.
+     * @throws IOException If the message cannot be sent.
+     */
+    synchronized void sendDone(Progress progress) throws IOException {
+        out.writeByte(DONE);
+        writeProgress(progress);
+        out.flush();
+    }
+
+    /**
+     * Writes a progress snapshot. The latencies and host statistics are left out, they stay with the worker.
+     *
+     * @param progress The progress.
+     * @throws IOException If the progress cannot be written.
+     */
+    private void writeProgress(Progress progress) throws IOException {
+        out.writeInt(progress.getPersisted());
+        out.writeInt(progress.getUnchanged());
+        out.writeInt(progress.getScheduled());
+        out.writeLong(progress.getElapsedTimeInSeconds());
+        out.writeLong(progress.getVisitedHits());
+        out.writeLong(progress.getVisitedMisses());
+        out.writeInt(progress.getSkipped());
+        out.writeLong(progress.getDownloadedBytes());
+        out.writeInt(progress.getRetried());
+        out.writeInt(progress.getFailed());
+        MetricsSnapshot metrics = progress.getMetrics();
+        out.writeLong(metrics.getBytesIn());
+        out.writeLong(metrics.getBytesOut());
+        out.writeDouble(metrics.getBytesInPerSecond());
+        out.writeDouble(metrics.getBytesOutPerSecond());
+        out.writeLong(metrics.getQueueDepth());
+        out.writeInt(metrics.getActiveWorkers());
+        out.writeInt(metrics.getInFlightDownloads());
+        RuntimeException exception = progress.getException();
+        out.writeBoolean(exception != null);
+        if (exception != null) {
+            out.writeUTF(String.valueOf(exception.getMessage()));
+        }
+    }
+
+    /**
+     * Reads a progress snapshot written by {@link #writeProgress(Progress)}.
+     *
+     * @return The progress, without latencies and stage statistics.
+     * @throws IOException If the progress cannot be read.
+     */
+    Progress readProgress() throws IOException {
+        int persisted = in.readInt();
+        int unchanged = in.readInt();
+        int scheduled = in.readInt();
+        long elapsed = in.readLong();
+        long visitedHits = in.readLong();
+        long visitedMisses = in.readLong();
+        int skipped = in.readInt();
+        long downloadedBytes = in.readLong();
+        int retried = in.readInt();
+        int failed = in.readInt();
+        MetricsSnapshot metrics = new MetricsSnapshot(in.readLong(), in.readLong(), in.readDouble(), in.readDouble(),
+                in.readLong(), in.readInt(), in.readInt(), Collections.emptyMap(), Collections.emptyMap());
+        RuntimeException exception = in.readBoolean() ? new RuntimeException(in.readUTF()) : null;
+        return new Progress(persisted, unchanged, scheduled, elapsed, visitedHits, visitedMisses, skipped,
+                downloadedBytes, retried, failed, metrics, exception);
+    }
+
+    /**
+     * Closes the connection, which ends a blocked read on the other side.
+     *
+     * @throws IOException If the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * A link discovered by one worker that belongs to another.
+     */
+    static final class Link {
+
+        // Member variables
+        final JobType jobType;
+        final URI uri;
+        final int depth;
+
+        /**
+         * Constructs a Link.
+         *
+         * @param jobType The type of the job.
+         * @param uri     The canonical URI.
+         * @param depth   The link depth of the job.
+         */
+        Link(JobType jobType, URI uri, int depth) {
+            this.jobType = jobType;
+            this.uri = uri;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * The links of a LINKS message and the partition they belong to.
+     */
+    static final class Batch {
+
+        // Member variables
+        final int target;
+        final List<Link> links;
+
+        /**
+         * Constructs a Batch.
+         *
+         * @param target The partition the links belong to.
+         * @param links  The links.
+         */
+        Batch(int target, List<Link> links) {
+            this.target = target;
+            this.links = links;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package org.example.distributed;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.example.crawl.Progress;
+import org.example.metrics.MetricsSnapshot;
+import org.example.misc.AppConfig;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The coordinator of a distributed crawl. It waits for a fixed number of {@link Worker} processes to register, assigns
+ * each a partition, and routes the links the workers forward to the worker of their partition. The crawl is over when
+ * every worker reports that it is idle and has received every link routed to it; the coordinator then stops the
+ * workers, collects their final progress and completes with the sum of it.
+ */
+public class Coordinator implements AutoCloseable {
+
+    // Member variables
+    private final int partitions;
+    private final URL url;
+    private final String outputDirectory;
+    private final Partitioner partitioner;
+    private final List<Connection> connections = new ArrayList<>();
+    private final boolean[] idle;
+    private final long[] received;
+    private final long[] delivered;
+    private final boolean[] reported;
+    private final Progress[] progress;
+    private final boolean[] done;
+    private final CompletableFuture<Progress> completion = new CompletableFuture<>();
+    private final ScheduledExecutorService progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coordinator-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ServerSocket server;
+    private Consumer<Progress> progressConsumer;
+    private boolean stopping;
+    private long startTime;
+
+    /**
+     * Constructs a Coordinator.
+     *
+     * @param partitions      The number of workers, one per partition.
+     * @param url             The starting URL of the crawl.
+     * @param outputDirectory The output directory, each worker writes to it with its partition appended.
+     * @param key             What the partition of a URI is derived from.
+     */
+    public Coordinator(int partitions, URL url, String outputDirectory, Partitioner.Key key) {
+        if (url == null) throw new IllegalArgumentException("Parameter url is null");
+        if (outputDirectory == null) throw new IllegalArgumentException("Parameter outputDirectory is null");
+
+        this.partitions = partitions;
+        this.url = url;
+        this.outputDirectory = outputDirectory;
+        this.partitioner = new Partitioner(partitions, key);
+        this.idle = new boolean[partitions];
+        this.received = new long[partitions];
+        this.delivered = new long[partitions];
+        this.reported = new boolean[partitions];
+        this.progress = new Progress[partitions];
+        this.done = new boolean[partitions];
+    }
+
+    /**
+     * Parses the command-line arguments, coordinates the crawl and prints its progress.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("u").hasArg().longOpt("url").argName("url").required(false)
+                .desc("The URL to start crawling from. Defaults to the configured URL.").build());
+        options.addOption(Option.builder("o").hasArg().longOpt("output").argName("directory").required(false)
+                .desc("The output directory, suffixed with the partition per worker. Defaults to the configured one.")
+                .build());
+        options.addOption(Option.builder("w").hasArg().longOpt("workers").argName("workers").required(true)
+                .desc("The number of worker processes.").build());
+        options.addOption(Option.builder("p").hasArg().longOpt("port").argName("port").required(false)
+                .desc("The port the workers connect to. Defaults to distributed.port.").build());
+        options.addOption(Option.builder("s").longOpt("spawn").required(false)
+                .desc("Starts the workers as processes on this machine.").build());
+        options.addOption(Option.builder("t").hasArg().longOpt("threads").argName("threads").required(false)
+                .desc("The number of threads of each spawned worker. Defaults to twice the number of cores.").build());
+        options.addOption(Option.builder("a").required(false)
+                .desc("Spawned workers download files asynchronously if set.").build());
+
+        List<Process> processes = new ArrayList<>();
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            int workers = Integer.parseInt(cmd.getOptionValue("w").trim());
+            int port = cmd.hasOption("p") ? Integer.parseInt(cmd.getOptionValue("p").trim())
+                    : AppConfig.getDistributedPort();
+            int threads = cmd.hasOption("t") ? Integer.parseInt(cmd.getOptionValue("t").trim())
+                    : Runtime.getRuntime().availableProcessors() * 2;
+            URL url = new URL(cmd.getOptionValue("u", AppConfig.getSourceURL()));
+            String output = cmd.getOptionValue("o", AppConfig.getOutputDirectory());
+
+            try (Coordinator coordinator = new Coordinator(workers, url, output,
+                    Partitioner.fromConfig(workers).getKey())) {
+                coordinator.setProgressConsumer(Coordinator::print);
+                int bound = coordinator.start(port);
+                System.out.println("Waiting for " + workers + " workers on port " + bound);
+                if (cmd.hasOption("s")) {
+                    for (int i = 0; i < workers; i++) {
+                        processes.add(Worker.launch("localhost", bound, threads, cmd.hasOption("a"),
+                                ProcessBuilder.Redirect.INHERIT));
+                    }
+                }
+                Progress result = coordinator.getCompletion().join();
+                System.out.println("Crawl finished, completed " + result.getPersisted() + " | Unchanged "
+                        + result.getUnchanged() + " | Failed " + result.getFailed() + " | Downloaded "
+                        + result.getDownloadedBytes() / 1024 + " KB in " + result.getElapsedTimeInSeconds() + " sec");
+            }
+        } catch (ParseException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            new HelpFormatter().printHelp("Usage:", options);
+        } catch (IOException | CompletionException e) {
+            System.out.println("The distributed crawl failed: " + e.getMessage());
+            processes.forEach(Process::destroy);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints a progress line of the whole crawl.
+     *
+     * @param progress The aggregated progress.
+     */
+    private static void print(Progress progress) {
+        System.out.println("Completed " + progress.getPersisted() + " | Scheduled " + progress.getScheduled()
+                + " | Failed " + progress.getFailed() + " | Elapsed " + progress.getElapsedTimeInSeconds() + " sec");
+    }
+
+    /**
+     * Sets a consumer for the aggregated progress, pushed at the progress interval. Must be called before the
+     * coordinator is started.
+     *
+     * @param progressConsumer The progress consumer.
+     */
+    public void setProgressConsumer(Consumer<Progress> progressConsumer) {
+        this.progressConsumer = progressConsumer;
+    }
+
+    /**
+     * Starts listening for workers. The crawl starts once all of them have registered.
+     *
+     * @param port The port to listen on, zero for any free port.
+     * @return The port listened on.
+     * @throws IOException If the port cannot be bound.
+     */
+    public int start(int port) throws IOException {
+        server = new ServerSocket(port);
+        Thread acceptor = new Thread(this::accept, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server.getLocalPort();
+    }
+
+    /**
+     * Gets the future that completes with the aggregated final progress once all workers are done, or exceptionally if
+     * a worker is lost.
+     *
+     * @return The completion future.
+     */
+    public CompletableFuture<Progress> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Accepts the workers, assigns the partitions once all have registered and starts reading from each.
+     */
+    private void accept() {
+        try {
+            while (connections.size() < partitions) {
+                Socket socket = server.accept();
+                Connection connection = new Connection(socket);
+                if (connection.readType() != Connection.HELLO) {
+                    connection.close();
+                    continue;
+                }
+                synchronized (this) {
+                    connections.add(connection);
+                }
+            }
+
+            // Every worker needs a connection to route to before the first one starts crawling
+            for (int partition = 0; partition < partitions; partition++) {
+                connections.get(partition).sendAssign(partition, partitioner, url.toString(), outputDirectory);
+            }
+            startTime = System.currentTimeMillis();
+            long interval = AppConfig.getProgressInterval().toMillis();
+            progressScheduler.scheduleAtFixedRate(this::publish, interval, interval, TimeUnit.MILLISECONDS);
+            for (int partition = 0; partition < partitions; partition++) {
+                int worker = partition;
+                Thread reader = new Thread(() -> read(worker), "coordinator-worker-" + worker);
+                reader.setDaemon(true);
+                reader.start();
+            }
+        } catch (IOException e) {
+            abort(e);
+        }
+    }
+
+    /**
+     * Reads the messages of a worker until it is done.
+     *
+     * @param worker The partition of the worker.
+     */
+    private void read(int worker) {
+        Connection connection = connections.get(worker);
+        try {
+            while (true) {
+                byte type = connection.readType();
+                if (type == Connection.LINKS) {
+                    route(connection.readLinks());
+                } else if (type == Connection.STATUS) {
+                    boolean workerIdle = connection.input().readBoolean();
+                    long workerReceived = connection.input().readLong();
+                    Progress workerProgress = connection.input().readBoolean() ? connection.readProgress() : null;
+                    status(worker, workerIdle, workerReceived, workerProgress);
+                } else if (type == Connection.DONE) {
+                    done(worker, connection.readProgress());
+                    return;
+                } else {
+                    throw new IOException("Unexpected message " + type + " from worker " + worker);
+                }
+            }
+        } catch (IOException e) {
+            abort(new IOException("Lost worker " + worker + ": " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Routes a batch of links to the worker of their partition. The links count as delivered before they are sent, so
+     * that the receiving worker cannot be taken as done before it has caught up with them.
+     *
+     * @param batch The batch.
+     * @throws IOException If the batch cannot be sent.
+     */
+    private void route(Connection.Batch batch) throws IOException {
+        synchronized (this) {
+            delivered[batch.target] += batch.links.size();
+        }
+        connections.get(batch.target).sendLinks(batch.target, batch.links);
+    }
+
+    /**
+     * Records the state of a worker and stops the crawl when no worker has anything left to do.
+     *
+     * @param worker         The partition of the worker.
+     * @param workerIdle     Whether the worker is idle.
+     * @param workerReceived The number of links the worker has received.
+     * @param workerProgress The progress of the worker, may be null.
+     * @throws IOException If the workers cannot be stopped.
+     */
+    private void status(int worker, boolean workerIdle, long workerReceived, Progress workerProgress)
+            throws IOException {
+        synchronized (this) {
+            idle[worker] = workerIdle;
+            received[worker] = workerReceived;
+            reported[worker] = true;
+            if (workerProgress != null) {
+                progress[worker] = workerProgress;
+            }
+            if (stopping) {
+                return;
+            }
+            // A worker that has sent its links and is idle stays idle unless it receives more, so no link is in flight
+            // when every worker is idle and has received what was routed to it
+            for (int i = 0; i < partitions; i++) {
+                if (!reported[i] || !idle[i] || received[i] != delivered[i]) {
+                    return;
+                }
+            }
+            stopping = true;
+        }
+        for (Connection connection : connections) {
+            connection.send(Connection.STOP);
+        }
+    }
+
+    /**
+     * Records the final progress of a worker and completes the crawl when it was the last one.
+     *
+     * @param worker         The partition of the worker.
+     * @param workerProgress The final progress of the worker.
+     */
+    private void done(int worker, Progress workerProgress) {
+        Progress result;
+        synchronized (this) {
+            progress[worker] = workerProgress;
+            done[worker] = true;
+            for (boolean workerDone : done) {
+                if (!workerDone) {
+                    return;
+                }
+            }
+            result = aggregate();
+        }
+        progressScheduler.shutdown();
+        completion.complete(result);
+    }
+
+    /**
+     * Pushes the aggregated progress to the progress consumer.
+     */
+    private void publish() {
+        Progress result;
+        synchronized (this) {
+            result = aggregate();
+        }
+        if (progressConsumer != null && !completion.isDone()) {
+            progressConsumer.accept(result);
+        }
+    }
+
+    /**
+     * Sums the last progress of every worker. The elapsed time is that of the coordinator.
+     *
+     * @return The aggregated progress.
+     */
+    private Progress aggregate() {
+        int persisted = 0;
+        int unchanged = 0;
+        int scheduled = 0;
+        long visitedHits = 0;
+        long visitedMisses = 0;
+        int skipped = 0;
+        long downloadedBytes = 0;
+        int retried = 0;
+        int failed = 0;
+        long bytesIn = 0;
+        long bytesOut = 0;
+        double bytesInPerSecond = 0;
+        double bytesOutPerSecond = 0;
+        long queueDepth = 0;
+        int activeWorkers = 0;
+        int inFlightDownloads = 0;
+        RuntimeException exception = null;
+        for (Progress part : progress) {
+            if (part == null) {
+                continue;
+            }
+            persisted += part.getPersisted();
+            unchanged += part.getUnchanged();
+            scheduled += part.getScheduled();
+            visitedHits += part.getVisitedHits();
+            visitedMisses += part.getVisitedMisses();
+            skipped += part.getSkipped();
+            downloadedBytes += part.getDownloadedBytes();
+            retried += part.getRetried();
+            failed += part.getFailed();
+            MetricsSnapshot metrics = part.getMetrics();
+            bytesIn += metrics.getBytesIn();
+            bytesOut += metrics.getBytesOut();
+            bytesInPerSecond += metrics.getBytesInPerSecond();
+            bytesOutPerSecond += metrics.getBytesOutPerSecond();
+            queueDepth += metrics.getQueueDepth();
+            activeWorkers += metrics.getActiveWorkers();
+            inFlightDownloads += metrics.getInFlightDownloads();
+            if (part.getException() != null) {
+                exception = part.getException();
+            }
+        }
+        MetricsSnapshot metrics = new MetricsSnapshot(bytesIn, bytesOut, bytesInPerSecond, bytesOutPerSecond,
+                queueDepth, activeWorkers, inFlightDownloads, Collections.emptyMap(), Collections.emptyMap());
+        return new Progress(persisted, unchanged, scheduled, (System.currentTimeMillis() - startTime) / 1000,
+                visitedHits, visitedMisses, skipped, downloadedBytes, retried, failed, metrics, exception);
+    }
+
+    /**
+     * Aborts the crawl: completes it exceptionally and closes all connections, which makes the workers give up.
+     *
+     * @param e The cause.
+     */
+    private void abort(IOException e) {
+        if (completion.completeExceptionally(e)) {
+            close();
+        }
+    }
+
+    /**
+     * Stops listening and closes the connections to the workers.
+     */
+    @Override
+    public void close() {
+        progressScheduler.shutdownNow();
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            // Closed already
+        }
+        List<Connection> open;
+        synchronized (this) {
+            open = new ArrayList<>(connections);
+        }
+        for (Connection connection : open) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // Closed already
+            }
+        }
+    }
+}
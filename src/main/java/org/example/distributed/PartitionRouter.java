@@ -0,0 +1,134 @@
+package org.example.distributed;
+
+import org.example.crawl.JobType;
+import org.example.crawl.LinkRouter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link LinkRouter} of a worker. Links of other partitions are collected per partition and sent to the coordinator
+ * in batches, once a batch is full or when the worker flushes them. A link counts as pending from the moment it is
+ * forwarded until its batch has been sent, so that the worker is not reported idle while links are on their way.
+ */
+class PartitionRouter implements LinkRouter {
+
+    // Member variables
+    private final Partitioner partitioner;
+    private final int partition;
+    private final Connection connection;
+    private final int batchSize;
+    private final List<List<Connection.Link>> batches = new ArrayList<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong forwarded = new AtomicLong();
+
+    /**
+     * Constructs a PartitionRouter.
+     *
+     * @param partitioner The partitioner shared by all workers.
+     * @param partition   The partition of this worker.
+     * @param connection  The connection to the coordinator.
+     * @param batchSize   The number of links sent in one batch.
+     */
+    PartitionRouter(Partitioner partitioner, int partition, Connection connection, int batchSize) {
+        this.partitioner = partitioner;
+        this.partition = partition;
+        this.connection = connection;
+        this.batchSize = batchSize;
+        for (int i = 0; i < partitioner.getPartitions(); i++) {
+            batches.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Checks whether a URI belongs to the partition of this worker.
+     *
+     * @param canonicalUri The canonical URI.
+     * @return True if this worker crawls the URI.
+     */
+    @Override
+    public boolean isLocal(URI canonicalUri) {
+        return partitioner.partitionOf(canonicalUri) == partition;
+    }
+
+    /**
+     * Adds a link to the batch of its partition, and sends the batch if it is full.
+     *
+     * @param jobType      The type of the job.
+     * @param canonicalUri The canonical URI.
+     * @param depth        The link depth of the job.
+     */
+    @Override
+    public void forward(JobType jobType, URI canonicalUri, int depth) {
+        int target = partitioner.partitionOf(canonicalUri);
+        pending.incrementAndGet();
+        forwarded.incrementAndGet();
+        List<Connection.Link> full = null;
+        synchronized (batches) {
+            List<Connection.Link> batch = batches.get(target);
+            batch.add(new Connection.Link(jobType, canonicalUri, depth));
+            if (batch.size() >= batchSize) {
+                full = batch;
+                batches.set(target, new ArrayList<>());
+            }
+        }
+        if (full != null) {
+            send(target, full);
+        }
+    }
+
+    /**
+     * Sends the links collected so far.
+     */
+    void flush() {
+        for (int target = 0; target < batches.size(); target++) {
+            List<Connection.Link> batch;
+            synchronized (batches) {
+                batch = batches.get(target);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                batches.set(target, new ArrayList<>());
+            }
+            send(target, batch);
+        }
+    }
+
+    /**
+     * Sends a batch to the coordinator.
+     *
+     * @param target The partition the links belong to.
+     * @param batch  The links.
+     */
+    private void send(int target, List<Connection.Link> batch) {
+        try {
+            connection.sendLinks(target, batch);
+            pending.addAndGet(-batch.size());
+        } catch (IOException e) {
+            // The crawl cannot go on without the coordinator, fail the job that found the link
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks whether every forwarded link has been sent.
+     *
+     * @return True if no link is waiting to be sent.
+     */
+    boolean isEmpty() {
+        return pending.get() == 0;
+    }
+
+    /**
+     * Gets the number of links forwarded to other partitions.
+     *
+     * @return The number of forwarded links.
+     */
+    long getForwarded() {
+        return forwarded.get();
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.distributed;
+
+import org.example.misc.AppConfig;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Assigns every canonical URI to one of a fixed number of partitions, by a hash of its host or of the whole URI.
+ * Partitioning by host keeps all requests to a host, and thereby its politeness and concurrency limits, in one worker.
+ * Partitioning by URI spreads a single large site over all workers. The hash only depends on the key, so every worker
+ * computes the same partition for the same URI.
+ */
+public class Partitioner {
+
+    /**
+     * What the partition of a URI is derived from.
+     */
+    public enum Key {
+        // The scheme, host and port
+        HOST,
+        // The whole canonical URI
+        URL
+    }
+
+    // Member variables
+    private final int partitions;
+    private final Key key;
+
+    /**
+     * Constructs a Partitioner.
+     *
+     * @param partitions The number of partitions.
+     * @param key        What the partition of a URI is derived from.
+     */
+    public Partitioner(int partitions, Key key) {
+        if (partitions < 1) throw new IllegalArgumentException("The number of partitions must be greater than zero");
+        if (key == null) throw new IllegalArgumentException("Parameter key is null");
+
+        this.partitions = partitions;
+        this.key = key;
+    }
+
+    /**
+     * Creates a partitioner with the key configured in the application configuration.
+     *
+     * @param partitions The number of partitions.
+     * @return The partitioner.
+     */
+    public static Partitioner fromConfig(int partitions) {
+        return new Partitioner(partitions, Key.valueOf(AppConfig.getDistributedPartitionBy().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Gets the partition of a URI.
+     *
+     * @param canonicalUri The canonical URI.
+     * @return The partition, from zero to the number of partitions minus one.
+     */
+    public int partitionOf(URI canonicalUri) {
+        String value = key == Key.HOST
+                ? canonicalUri.getScheme() + "://" + canonicalUri.getHost() + ":" + canonicalUri.getPort()
+                : canonicalUri.toString();
+
+        // Spread the bits of the string hash, which differ little between similar URIs
+        int hash = value.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return Math.floorMod(hash, partitions);
+    }
+
+    /**
+     * Gets the number of partitions.
+     *
+     * @return The number of partitions.
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Gets what the partition of a URI is derived from.
+     *
+     * @return The key.
+     */
+    public Key getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,283 @@
+package org.example.distributed;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.example.App;
+import org.example.crawl.Crawler;
+import org.example.crawl.Progress;
+import org.example.crawl.RetryPolicy;
+import org.example.crawl.StartMode;
+import org.example.http.HttpTransport;
+import org.example.misc.AppConfig;
+import org.example.read.HTTPPageReader;
+import org.example.robots.RobotsCache;
+import org.example.write.BlockingFileWriter;
+import org.example.write.FileWriter;
+import org.example.write.NoneBlockingFileWriter;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A worker process of a distributed crawl. It registers with the {@link Coordinator}, is assigned a partition, and
+ * crawls the URIs of that partition with a crawler of its own, with its own frontier, visited set and output directory.
+ * Links of other partitions are forwarded through the coordinator, links of this partition found by other workers are
+ * received from it. The worker reports whether it is idle until the coordinator tells it that the whole crawl is over.
+ */
+public class Worker {
+
+    /**
+     * Private constructor, the class only exposes static helpers.
+     */
+    private Worker() {
+    }
+
+    /**
+     * Parses the command-line arguments and runs the worker until the crawl is over.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("c").hasArg().longOpt("coordinator").argName("host:port").required(false)
+                .desc("The address of the coordinator. Defaults to localhost and distributed.port.").build());
+        options.addOption(Option.builder("t").hasArg().longOpt("threads").argName("threads").required(false)
+                .desc("The number of threads. Defaults to twice the number of cores available.").build());
+        options.addOption(Option.builder("a").required(false)
+                .desc("Downloads files asynchronously if set.").build());
+
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            String address = cmd.getOptionValue("c", "localhost:" + AppConfig.getDistributedPort());
+            int separator = address.lastIndexOf(':');
+            if (separator < 0) {
+                throw new ParseException("The coordinator address '" + address + "' has no port");
+            }
+            int threads = cmd.hasOption("t") ? Integer.parseInt(cmd.getOptionValue("t").trim())
+                    : Runtime.getRuntime().availableProcessors() * 2;
+
+            Progress progress = run(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)),
+                    threads, cmd.hasOption("a"));
+            System.out.println("Worker done, completed " + progress.getPersisted() + " | Failed "
+                    + progress.getFailed());
+        } catch (ParseException | NumberFormatException e) {
+            System.out.println(e.getMessage());
+            new HelpFormatter().printHelp("Usage:", options);
+        } catch (IOException e) {
+            System.out.println("The worker lost the coordinator: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts a worker as a separate process on this machine, with the class path of this process.
+     *
+     * @param host    The host of the coordinator.
+     * @param port    The port of the coordinator.
+     * @param threads The number of threads of the worker.
+     * @param async   True to download files asynchronously.
+     * @param output  Where the output and the errors of the worker go, {@link ProcessBuilder.Redirect#INHERIT} to
+     *                print them along with those of this process.
+     * @return The worker process.
+     * @throws IOException If the process cannot be started.
+     */
+    public static Process launch(String host, int port, int threads, boolean async, ProcessBuilder.Redirect output)
+            throws IOException {
+        if (output == null) throw new IllegalArgumentException("Parameter output is null");
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Worker.class.getName());
+        command.add("-c");
+        command.add(host + ":" + port);
+        command.add("-t");
+        command.add(String.valueOf(threads));
+        if (async) {
+            command.add("-a");
+        }
+        return new ProcessBuilder(command).redirectOutput(output).redirectErrorStream(true).start();
+    }
+
+    /**
+     * Registers with the coordinator and crawls the assigned partition until the coordinator ends the crawl.
+     *
+     * @param host    The host of the coordinator.
+     * @param port    The port of the coordinator.
+     * @param threads The number of threads.
+     * @param async   True to download files asynchronously.
+     * @return The final progress of the partition.
+     * @throws IOException If the connection to the coordinator fails.
+     */
+    public static Progress run(String host, int port, int threads, boolean async) throws IOException {
+        try (Connection connection = new Connection(new Socket(host, port))) {
+            connection.send(Connection.HELLO);
+
+            // Wait for the partition, which is assigned once all workers have registered
+            if (connection.readType() != Connection.ASSIGN) {
+                throw new IOException("Expected the assignment of a partition");
+            }
+            DataInputStream in = connection.input();
+            int partition = in.readInt();
+            Partitioner partitioner = new Partitioner(in.readInt(), Partitioner.Key.valueOf(in.readUTF()));
+            URL url = new URL(in.readUTF());
+            String outputDirectory = in.readUTF() + "-" + partition;
+
+            // The crawler is set up like a crawler of its own, apart from the router and the hold
+            HttpTransport transport = HttpTransport.getDefault();
+            FileWriter writer = async ? new NoneBlockingFileWriter(transport) : new BlockingFileWriter(transport);
+            Crawler crawler = new Crawler(new HTTPPageReader(transport), writer, threads, outputDirectory, url,
+                    App.createVisitedSet());
+            crawler.setLinkExtractor(App.createLinkExtractor());
+            if (AppConfig.isRobotsEnabled()) {
+                crawler.setRobots(RobotsCache.fromConfig(transport, RetryPolicy.fromConfig()));
+            }
+            transport.setMetrics(crawler.getMetrics());
+            PartitionRouter router = new PartitionRouter(partitioner, partition, connection,
+                    AppConfig.getDistributedBatchSize());
+            crawler.setLinkRouter(router);
+
+            // Every worker seeds the starting URL, the workers it does not belong to forward it
+            crawler.hold();
+            AtomicReference<Progress> last = new AtomicReference<>();
+            CompletableFuture<Progress> completion = crawler.startAsync(StartMode.FRESH, last::set);
+            completion.whenComplete((progress, throwable) -> {
+                if (throwable != null) {
+                    // A failed crawl never becomes idle, closing the connection aborts the whole crawl
+                    closeQuietly(connection);
+                }
+            });
+
+            AtomicLong received = new AtomicLong();
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "worker-status");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Status status = new Status(connection, crawler, router, received, last);
+            long interval = AppConfig.getDistributedFlushInterval().toMillis();
+            reporter.scheduleWithFixedDelay(status::report, 0, interval, TimeUnit.MILLISECONDS);
+
+            try {
+                // Submit the links of this partition found by other workers until the crawl is over
+                while (true) {
+                    byte type = connection.readType();
+                    if (type == Connection.STOP) {
+                        break;
+                    }
+                    if (type != Connection.LINKS) {
+                        throw new IOException("Unexpected message " + type);
+                    }
+                    Connection.Batch batch = connection.readLinks();
+                    for (Connection.Link link : batch.links) {
+                        crawler.submit(link.jobType, link.uri, link.depth);
+                    }
+                    received.addAndGet(batch.links.size());
+                }
+            } finally {
+                reporter.shutdownNow();
+            }
+
+            // Nothing is left anywhere, let the crawl complete and hand in the final progress
+            crawler.release();
+            Progress progress;
+            try {
+                progress = completion.join();
+            } catch (CompletionException e) {
+                throw new IOException("The crawl of partition " + partition + " failed", e.getCause());
+            }
+            connection.sendDone(progress);
+            return progress;
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring failures.
+     *
+     * @param connection The connection.
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // Closed already
+        }
+    }
+
+    /**
+     * Reports the state of the worker to the coordinator whenever it changes, and its progress at the progress
+     * interval. Pending links are sent before the state is taken, so the coordinator has routed them by the time it
+     * learns that the worker is idle.
+     */
+    private static final class Status {
+
+        // Member variables
+        private final Connection connection;
+        private final Crawler crawler;
+        private final PartitionRouter router;
+        private final AtomicLong received;
+        private final AtomicReference<Progress> last;
+        private final long progressInterval = AppConfig.getProgressInterval().toNanos();
+        private boolean idle;
+        private long reported = -1;
+        private long reportedAt;
+
+        /**
+         * Constructs a Status.
+         *
+         * @param connection The connection to the coordinator.
+         * @param crawler    The crawler.
+         * @param router     The router of the crawler.
+         * @param received   The number of links received.
+         * @param last       The last progress pushed by the crawler.
+         */
+        private Status(Connection connection, Crawler crawler, PartitionRouter router, AtomicLong received,
+                       AtomicReference<Progress> last) {
+            this.connection = connection;
+            this.crawler = crawler;
+            this.router = router;
+            this.received = received;
+            this.last = last;
+        }
+
+        /**
+         * Sends pending links, then the state of the worker if it has changed or the progress is due. The received
+         * links are counted first and the crawler is checked before the router: a job that forwards a link finishes
+         * after forwarding it, so an idle crawler cannot leave a link behind that the router has not seen.
+         */
+        private void report() {
+            try {
+                long count = received.get();
+                router.flush();
+                boolean now = crawler.isIdle() && router.isEmpty();
+                long time = System.nanoTime();
+                if (now != idle || count != reported || time - reportedAt >= progressInterval) {
+                    connection.sendStatus(now, count, last.get());
+                    idle = now;
+                    reported = count;
+                    reportedAt = time;
+                }
+            } catch (IOException | RuntimeException e) {
+                // The coordinator is gone, the reading thread finds out as well
+                closeQuietly(connection);
+            }
+        }
+    }
+}
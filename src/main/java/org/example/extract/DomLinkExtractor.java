@@ -0,0 +1,108 @@
+package org.example.extract;
+
+import org.example.misc.Pair;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.QueryParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts links by parsing the page into a Jsoup Document and visiting each of its elements once. The queries of the
+ * mapping are compiled up front: {@code tag[attribute]} queries are looked up by tag name, any other query uses the
+ * full Jsoup selector syntax and is evaluated against every element, at the cost of holding the entire document tree in
+ * memory.
+ */
+public class DomLinkExtractor implements LinkExtractor {
+
+    // Member variables
+    private final Map<String, LinkRule[]> rulesByTag = new HashMap<>();
+    private final List<LinkRule> complexRules = new ArrayList<>();
+    private final List<Evaluator> complexEvaluators = new ArrayList<>();
+
+    /**
+     * Constructs a DomLinkExtractor instance.
+     *
+     * @param resourceMapping Pairs of CSS queries and attribute keys selecting the resources of a page.
+     * @param linkMapping     Pairs of CSS queries and attribute keys selecting the links to further pages.
+     */
+    public DomLinkExtractor(Set<Pair<String, String>> resourceMapping, Set<Pair<String, String>> linkMapping) {
+        if (resourceMapping == null) throw new IllegalArgumentException("Parameter resourceMapping is null");
+        if (linkMapping == null) throw new IllegalArgumentException("Parameter linkMapping is null");
+
+        List<LinkRule> rules = new ArrayList<>(LinkRule.compile(resourceMapping, LinkType.RESOURCE));
+        rules.addAll(LinkRule.compile(linkMapping, LinkType.PAGE));
+
+        // Index the simple queries by tag, and parse all other queries once
+        Map<String, List<LinkRule>> simpleRules = new HashMap<>();
+        for (LinkRule rule : rules) {
+            if (rule.getTag() != null) {
+                simpleRules.computeIfAbsent(rule.getTag(), tag -> new ArrayList<>()).add(rule);
+            } else {
+                complexRules.add(rule);
+                complexEvaluators.add(QueryParser.parse(rule.getQuery()));
+            }
+        }
+        simpleRules.forEach((tag, tagRules) -> rulesByTag.put(tag, tagRules.toArray(new LinkRule[0])));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void extract(InputStream body, String charset, String baseUri, LinkHandler handler) throws IOException {
+        Document document = Jsoup.parse(body, charset, baseUri);
+
+        // Visit each element once, in document order
+        NodeTraversor.traverse((node, depth) -> {
+            if (node instanceof Element) {
+                visit(document, (Element) node, handler);
+            }
+        }, document);
+    }
+
+    /**
+     * Passes the URLs of the attributes an element is selected for to the handler.
+     *
+     * @param document The parsed page.
+     * @param element  The element.
+     * @param handler  The handler receiving the absolute URLs.
+     */
+    private void visit(Document document, Element element, LinkHandler handler) {
+        LinkRule[] rules = rulesByTag.get(element.normalName());
+        if (rules != null) {
+            for (LinkRule rule : rules) {
+                emit(element, rule, handler);
+            }
+        }
+        for (int i = 0; i < complexRules.size(); i++) {
+            if (complexEvaluators.get(i).matches(document, element)) {
+                emit(element, complexRules.get(i), handler);
+            }
+        }
+    }
+
+    /**
+     * Resolves the attribute of a rule and passes the absolute URL to the handler. Elements without the attribute, or
+     * whose value cannot be resolved, are skipped.
+     *
+     * @param element The element.
+     * @param rule    The rule selecting the attribute.
+     * @param handler The handler receiving the absolute URLs.
+     */
+    private void emit(Element element, LinkRule rule, LinkHandler handler) {
+        String url = element.absUrl(rule.getAttribute());
+        if (!url.isEmpty()) {
+            handler.accept(rule.getType(), url);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.extract;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Extracts the links of an HTML page, as selected by a mapping of {@code tag[attribute]} queries to the attribute
+ * holding the URL. Implementations are thread-safe, a single extractor serves all jobs of a crawl.
+ */
+public interface LinkExtractor {
+
+    /**
+     * Extracts the links from the body of a page and passes them to the handler. A link found more than once is
+     * passed more than once.
+     *
+     * @param body    The body of the page, it is read but not closed.
+     * @param charset The charset declared by the response, or null to detect it from the body.
+     * @param baseUri The URI of the page, relative links are resolved against it.
+     * @param handler The handler receiving the absolute URLs.
+     * @throws IOException If the body cannot be read.
+     */
+    void extract(InputStream body, String charset, String baseUri, LinkHandler handler) throws IOException;
+}
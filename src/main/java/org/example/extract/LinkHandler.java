@@ -0,0 +1,16 @@
+package org.example.extract;
+
+/**
+ * Receives the links found by a {@link LinkExtractor}, as they are found.
+ */
+@FunctionalInterface
+public interface LinkHandler {
+
+    /**
+     * Handles a link found on a page.
+     *
+     * @param type The kind of link.
+     * @param url  The absolute URL of the link.
+     */
+    void accept(LinkType type, String url);
+}
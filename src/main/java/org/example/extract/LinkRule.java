@@ -0,0 +1,98 @@
+package org.example.extract;
+
+import org.example.misc.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled entry of a link mapping: the query selecting elements, the attribute holding the URL and the kind of link
+ * it is. Queries of the form {@code tag[attribute]} that select the attribute holding the URL are recognised, so that
+ * extractors can match them by tag name alone.
+ */
+final class LinkRule {
+
+    // Constants
+    private static final Pattern SIMPLE_QUERY = Pattern.compile("([a-zA-Z][a-zA-Z0-9]*)\\[([^\\[\\]=\\s]+)]");
+
+    // Member variables
+    private final String query;
+    private final String tag;
+    private final String attribute;
+    private final LinkType type;
+
+    /**
+     * Constructs a LinkRule.
+     *
+     * @param query     The query selecting elements.
+     * @param tag       The lower case tag name of a simple query, or null.
+     * @param attribute The lower case attribute holding the URL.
+     * @param type      The kind of link.
+     */
+    private LinkRule(String query, String tag, String attribute, LinkType type) {
+        this.query = query;
+        this.tag = tag;
+        this.attribute = attribute;
+        this.type = type;
+    }
+
+    /**
+     * Compiles the pairs of queries and attribute keys of a mapping into rules.
+     *
+     * @param queryAttributePairs Pairs of CSS queries and attribute keys.
+     * @param type                The kind of the selected links.
+     * @return The rules.
+     */
+    static List<LinkRule> compile(Set<Pair<String, String>> queryAttributePairs, LinkType type) {
+        List<LinkRule> rules = new ArrayList<>();
+        for (Pair<String, String> pair : queryAttributePairs) {
+            String query = pair.getFirst().trim();
+            String attribute = pair.getSecond().toLowerCase(Locale.ROOT);
+            Matcher matcher = SIMPLE_QUERY.matcher(query);
+            String tag = matcher.matches() && matcher.group(2).equalsIgnoreCase(attribute)
+                    ? matcher.group(1).toLowerCase(Locale.ROOT) : null;
+            rules.add(new LinkRule(query, tag, attribute, type));
+        }
+        return rules;
+    }
+
+    /**
+     * Gets the query selecting elements.
+     *
+     * @return The query.
+     */
+    String getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets the tag name of a {@code tag[attribute]} query.
+     *
+     * @return The lower case tag name, or null if the query is not of that form.
+     */
+    String getTag() {
+        return tag;
+    }
+
+    /**
+     * Gets the attribute holding the URL.
+     *
+     * @return The lower case attribute name.
+     */
+    String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Gets the kind of link.
+     *
+     * @return The link type.
+     */
+    LinkType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.extract;
+
+/**
+ * Enumerates the kinds of links found on a page: resources the page needs to be displayed, such as images, stylesheets
+ * and scripts, and links to further pages.
+ */
+public enum LinkType {
+    RESOURCE,
+    PAGE
+}
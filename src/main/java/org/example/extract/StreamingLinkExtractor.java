@@ -0,0 +1,513 @@
+package org.example.extract;
+
+import org.example.misc.Pair;
+import org.jsoup.internal.StringUtil;
+import org.jsoup.parser.Parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts links by scanning the markup of a page as a character stream, without building a document tree. Start tags
+ * are tokenized as they are read, and the attributes selected by the mapping are passed to the handler as soon as
+ * their value is complete. The memory used per page is a fixed read buffer plus the tag and attribute being scanned,
+ * no matter how large the page is.
+ * <p>
+ * Only queries of the form {@code tag[attribute]} that select the attribute holding the URL are supported. Comments,
+ * and the content of script, style, textarea and title elements, are skipped. Attribute values are decoded and resolved
+ * the way Jsoup does it, and the first {@code <base href>} of the page changes the base URI for all links after it.
+ * Unlike a parser, the scanner cannot apply a base element to links that precede it.
+ */
+public class StreamingLinkExtractor implements LinkExtractor {
+
+    // Constants
+    private static final int BUFFER_SIZE = 8192;
+    private static final int PRESCAN_SIZE = 1024;
+    private static final int MAX_NAME_LENGTH = 64;
+    private static final int MAX_VALUE_LENGTH = 8192;
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta[^>]+charset\\s*=\\s*[\"']?([-a-zA-Z0-9_:.]+)", Pattern.CASE_INSENSITIVE);
+    private static final String BASE = "base";
+    private static final String HREF = "href";
+    private static final Set<String> RAW_TEXT_ELEMENTS = Set.of("script", "style", "textarea", "title");
+
+    // Member variables
+    private final Element[] elements;
+    private final int maxRules;
+
+    /**
+     * Constructs a StreamingLinkExtractor instance.
+     *
+     * @param resourceMapping Pairs of {@code tag[attribute]} queries and attribute keys selecting the resources of a
+     *                        page.
+     * @param linkMapping     Pairs of {@code tag[attribute]} queries and attribute keys selecting the links to further
+     *                        pages.
+     * @throws IllegalArgumentException If a query is not of the supported form.
+     */
+    public StreamingLinkExtractor(Set<Pair<String, String>> resourceMapping, Set<Pair<String, String>> linkMapping) {
+        if (resourceMapping == null) throw new IllegalArgumentException("Parameter resourceMapping is null");
+        if (linkMapping == null) throw new IllegalArgumentException("Parameter linkMapping is null");
+
+        List<LinkRule> rules = new ArrayList<>(LinkRule.compile(resourceMapping, LinkType.RESOURCE));
+        rules.addAll(LinkRule.compile(linkMapping, LinkType.PAGE));
+
+        // Group the rules by tag, the base and raw text elements are always tracked
+        Map<String, List<LinkRule>> rulesByTag = new LinkedHashMap<>();
+        for (LinkRule rule : rules) {
+            if (rule.getTag() == null) {
+                throw new IllegalArgumentException("Unsupported query " + rule.getQuery() + " for attribute "
+                        + rule.getAttribute() + ", expected tag[attribute]");
+            }
+            rulesByTag.computeIfAbsent(rule.getTag(), tag -> new ArrayList<>()).add(rule);
+        }
+        rulesByTag.putIfAbsent(BASE, new ArrayList<>());
+        RAW_TEXT_ELEMENTS.forEach(tag -> rulesByTag.putIfAbsent(tag, new ArrayList<>()));
+
+        this.elements = rulesByTag.entrySet().stream()
+                .map(entry -> new Element(entry.getKey(), entry.getValue().toArray(new LinkRule[0])))
+                .toArray(Element[]::new);
+        this.maxRules = Arrays.stream(elements).mapToInt(element -> element.rules.length).max().orElse(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void extract(InputStream body, String charset, String baseUri, LinkHandler handler) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(body, PRESCAN_SIZE);
+        Reader reader = new InputStreamReader(input, charset != null ? forName(charset) : detectCharset(input));
+
+        // Feed the page through the scanner one buffer at a time
+        Scanner scanner = new Scanner(baseUri, handler);
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                scanner.accept(buffer[i]);
+            }
+        }
+    }
+
+    /**
+     * Detects the charset of a page without a declared charset from its byte order mark or a meta element near the
+     * start of the page. The stream is reset to where it was.
+     *
+     * @param input The body of the page.
+     * @return The detected charset, or UTF-8 if none is found.
+     * @throws IOException If the body cannot be read.
+     */
+    private static Charset detectCharset(BufferedInputStream input) throws IOException {
+        // Read the start of the page, and rewind so that the reader sees it as well
+        input.mark(PRESCAN_SIZE);
+        byte[] prefix = input.readNBytes(PRESCAN_SIZE);
+        input.reset();
+
+        if (prefix.length >= 2 && (prefix[0] & 0xFF) == 0xFE && (prefix[1] & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (prefix.length >= 2 && (prefix[0] & 0xFF) == 0xFF && (prefix[1] & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        Matcher matcher = META_CHARSET.matcher(new String(prefix, StandardCharsets.ISO_8859_1));
+        return matcher.find() ? forName(matcher.group(1)) : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Looks up a charset by name.
+     *
+     * @param name The name of the charset.
+     * @return The charset, or UTF-8 if the name is unknown.
+     */
+    private static Charset forName(String name) {
+        try {
+            return Charset.isSupported(name) ? Charset.forName(name) : StandardCharsets.UTF_8;
+        } catch (IllegalCharsetNameException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * An element of interest and the rules selecting its attributes.
+     */
+    private static final class Element {
+
+        // Member variables
+        private final String tag;
+        private final LinkRule[] rules;
+        private final boolean base;
+        private final boolean rawText;
+
+        /**
+         * Constructs an Element.
+         *
+         * @param tag   The lower case tag name.
+         * @param rules The rules selecting attributes of the element.
+         */
+        private Element(String tag, LinkRule[] rules) {
+            this.tag = tag;
+            this.rules = rules;
+            this.base = BASE.equals(tag);
+            this.rawText = RAW_TEXT_ELEMENTS.contains(tag);
+        }
+    }
+
+    /**
+     * The states of the scanner.
+     */
+    private enum State {
+        TEXT, TAG_OPEN, TAG_NAME, END_TAG, MARKUP, COMMENT, BOGUS, BEFORE_ATTRIBUTE, ATTRIBUTE_NAME,
+        AFTER_ATTRIBUTE_NAME, BEFORE_VALUE, QUOTED_VALUE, UNQUOTED_VALUE, RAW_TEXT
+    }
+
+    /**
+     * Scans the characters of a single page. The buffers are sized once and reused for every tag and attribute.
+     */
+    private final class Scanner {
+
+        // Member variables
+        private final LinkHandler handler;
+        private final StringBuilder name = new StringBuilder(MAX_NAME_LENGTH);
+        private final StringBuilder value = new StringBuilder();
+        private final boolean[] seen = new boolean[Math.max(maxRules, 1)];
+        private String baseUri;
+        private boolean baseFound;
+        private State state = State.TEXT;
+        private Element element;
+        private boolean baseHrefSeen;
+        private int rule;
+        private boolean overflow;
+        private char quote;
+        private int dashes;
+        private String rawTextEnd;
+        private int rawTextMatched;
+
+        /**
+         * Constructs a Scanner.
+         *
+         * @param baseUri The URI of the page.
+         * @param handler The handler receiving the absolute URLs.
+         */
+        private Scanner(String baseUri, LinkHandler handler) {
+            this.baseUri = baseUri;
+            this.handler = handler;
+        }
+
+        /**
+         * Advances the scanner by one character.
+         *
+         * @param c The character.
+         */
+        private void accept(char c) {
+            switch (state) {
+                case TEXT:
+                    if (c == '<') {
+                        state = State.TAG_OPEN;
+                    }
+                    break;
+                case TAG_OPEN:
+                    if (isLetter(c)) {
+                        name.setLength(0);
+                        appendName(c);
+                        state = State.TAG_NAME;
+                    } else if (c == '/') {
+                        state = State.END_TAG;
+                    } else if (c == '!') {
+                        dashes = 0;
+                        state = State.MARKUP;
+                    } else if (c == '?') {
+                        state = State.BOGUS;
+                    } else if (c != '<') {
+                        state = State.TEXT;
+                    }
+                    break;
+                case TAG_NAME:
+                    if (isWhitespace(c) || c == '/') {
+                        startTag();
+                        state = State.BEFORE_ATTRIBUTE;
+                    } else if (c == '>') {
+                        startTag();
+                        endTag();
+                    } else {
+                        appendName(c);
+                    }
+                    break;
+                case END_TAG:
+                case BOGUS:
+                    if (c == '>') {
+                        state = State.TEXT;
+                    }
+                    break;
+                case MARKUP:
+                    // Only "<!--" opens a comment, any other declaration is skipped up to the next '>'
+                    if (c == '-' && ++dashes == 2) {
+                        dashes = 0;
+                        state = State.COMMENT;
+                    } else if (c != '-') {
+                        state = c == '>' ? State.TEXT : State.BOGUS;
+                    }
+                    break;
+                case COMMENT:
+                    if (c == '>' && dashes >= 2) {
+                        state = State.TEXT;
+                    } else {
+                        dashes = c == '-' ? dashes + 1 : 0;
+                    }
+                    break;
+                case BEFORE_ATTRIBUTE:
+                    if (c == '>') {
+                        endTag();
+                    } else if (!isWhitespace(c) && c != '/') {
+                        name.setLength(0);
+                        appendName(c);
+                        state = State.ATTRIBUTE_NAME;
+                    }
+                    break;
+                case ATTRIBUTE_NAME:
+                    if (isWhitespace(c)) {
+                        state = State.AFTER_ATTRIBUTE_NAME;
+                    } else if (c == '=') {
+                        startValue();
+                        state = State.BEFORE_VALUE;
+                    } else if (c == '/' || c == '>') {
+                        attributeWithoutValue();
+                        afterAttribute(c);
+                    } else {
+                        appendName(c);
+                    }
+                    break;
+                case AFTER_ATTRIBUTE_NAME:
+                    if (c == '=') {
+                        startValue();
+                        state = State.BEFORE_VALUE;
+                    } else if (c == '/' || c == '>') {
+                        attributeWithoutValue();
+                        afterAttribute(c);
+                    } else if (!isWhitespace(c)) {
+                        // A new attribute starts, the previous one had no value
+                        attributeWithoutValue();
+                        name.setLength(0);
+                        appendName(c);
+                        state = State.ATTRIBUTE_NAME;
+                    }
+                    break;
+                case BEFORE_VALUE:
+                    if (c == '"' || c == '\'') {
+                        quote = c;
+                        state = State.QUOTED_VALUE;
+                    } else if (c == '>') {
+                        attribute();
+                        endTag();
+                    } else if (!isWhitespace(c)) {
+                        appendValue(c);
+                        state = State.UNQUOTED_VALUE;
+                    }
+                    break;
+                case QUOTED_VALUE:
+                    if (c == quote) {
+                        attribute();
+                        state = State.BEFORE_ATTRIBUTE;
+                    } else {
+                        appendValue(c);
+                    }
+                    break;
+                case UNQUOTED_VALUE:
+                    if (isWhitespace(c)) {
+                        attribute();
+                        state = State.BEFORE_ATTRIBUTE;
+                    } else if (c == '>') {
+                        attribute();
+                        endTag();
+                    } else {
+                        appendValue(c);
+                    }
+                    break;
+                case RAW_TEXT:
+                    // Skip everything up to the matching end tag
+                    if (Character.toLowerCase(c) == rawTextEnd.charAt(rawTextMatched)) {
+                        if (++rawTextMatched == rawTextEnd.length()) {
+                            state = State.END_TAG;
+                        }
+                    } else {
+                        rawTextMatched = c == '<' ? 1 : 0;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected state " + state.name());
+            }
+        }
+
+        /**
+         * Looks up the element whose start tag name has just been read, without creating a string for it.
+         */
+        private void startTag() {
+            element = null;
+            for (Element candidate : elements) {
+                if (candidate.tag.contentEquals(name)) {
+                    element = candidate;
+                    break;
+                }
+            }
+            Arrays.fill(seen, false);
+            baseHrefSeen = false;
+        }
+
+        /**
+         * Completes a start tag, switching to raw text for elements whose content is not markup.
+         */
+        private void endTag() {
+            if (element != null && element.rawText) {
+                rawTextEnd = "</" + element.tag;
+                rawTextMatched = 0;
+                state = State.RAW_TEXT;
+            } else {
+                state = State.TEXT;
+            }
+            element = null;
+        }
+
+        /**
+         * Continues after an attribute that ended with a '/' or a '>'.
+         *
+         * @param c The character that ended the attribute.
+         */
+        private void afterAttribute(char c) {
+            if (c == '>') {
+                endTag();
+            } else {
+                state = State.BEFORE_ATTRIBUTE;
+            }
+        }
+
+        /**
+         * Decides whether the value of the attribute whose name has just been read is needed, and prepares the value
+         * buffer if so.
+         */
+        private void startValue() {
+            rule = -1;
+            if (element != null) {
+                for (int i = 0; i < element.rules.length; i++) {
+                    if (element.rules[i].getAttribute().contentEquals(name)) {
+                        rule = i;
+                        break;
+                    }
+                }
+            }
+            value.setLength(0);
+            overflow = false;
+        }
+
+        /**
+         * Handles an attribute without a value, which selects the attribute with an empty value.
+         */
+        private void attributeWithoutValue() {
+            startValue();
+            attribute();
+        }
+
+        /**
+         * Handles a completed attribute value, passing it to the handler if a rule selects it. Like Jsoup, only the
+         * first occurrence of an attribute within a tag counts.
+         */
+        private void attribute() {
+            if (element == null || overflow) {
+                return;
+            }
+            if (element.base && HREF.contentEquals(name) && !baseHrefSeen) {
+                baseHrefSeen = true;
+                if (!baseFound) {
+                    // The first base element with a resolvable href sets the base URI of the page
+                    String resolved = resolve(value);
+                    if (!resolved.isEmpty()) {
+                        baseUri = resolved;
+                        baseFound = true;
+                    }
+                }
+            }
+            if (rule >= 0 && !seen[rule]) {
+                seen[rule] = true;
+                String resolved = resolve(value);
+                if (!resolved.isEmpty()) {
+                    handler.accept(element.rules[rule].getType(), resolved);
+                }
+            }
+        }
+
+        /**
+         * Decodes the character references of an attribute value and resolves it against the base URI.
+         *
+         * @param raw The raw attribute value.
+         * @return The absolute URL, or an empty string if it cannot be resolved.
+         */
+        private String resolve(CharSequence raw) {
+            String decoded = raw.toString();
+            if (decoded.indexOf('&') >= 0) {
+                decoded = Parser.unescapeEntities(decoded, true);
+            }
+            // Resolve the same way Jsoup's absUrl does, so that both extractors agree
+            return StringUtil.resolve(baseUri, decoded);
+        }
+
+        /**
+         * Appends a lower case character to the tag or attribute name, ignoring characters beyond the maximum length.
+         *
+         * @param c The character.
+         */
+        private void appendName(char c) {
+            if (name.length() < MAX_NAME_LENGTH) {
+                name.append(Character.toLowerCase(c));
+            }
+        }
+
+        /**
+         * Appends a character to the attribute value if the value is needed. Values longer than the maximum length are
+         * dropped.
+         *
+         * @param c The character.
+         */
+        private void appendValue(char c) {
+            if (element == null || (rule < 0 && !element.base) || overflow) {
+                return;
+            }
+            if (value.length() == MAX_VALUE_LENGTH) {
+                overflow = true;
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        /**
+         * Checks whether a character is HTML whitespace.
+         *
+         * @param c The character.
+         * @return True if the character is a space, tab, line feed, form feed or carriage return.
+         */
+        private boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+        }
+
+        /**
+         * Checks whether a character is an ASCII letter, which starts a tag name.
+         *
+         * @param c The character.
+         * @return True if the character is an ASCII letter.
+         */
+        private boolean isLetter(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+    }
+}
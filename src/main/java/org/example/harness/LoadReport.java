@@ -0,0 +1,145 @@
+package org.example.harness;
+
+/**
+ * The outcome of a load test: how much was crawled, how fast, how slow the slowest requests were and how much heap the
+ * crawl needed.
+ */
+public class LoadReport {
+
+    // Member variables
+    private final int persisted;
+    private final long pages;
+    private final int failed;
+    private final int skipped;
+    private final double elapsedSeconds;
+    private final long bytesIn;
+    private final double p99Millis;
+    private final long peakHeapBytes;
+
+    /**
+     * Constructs a LoadReport.
+     *
+     * @param persisted      The number of pages and resources crawled.
+     * @param pages          The number of pages read.
+     * @param failed         The number of jobs that failed for good.
+     * @param skipped        The number of jobs dropped by the crawl budget.
+     * @param elapsedSeconds The wall-clock time of the crawl.
+     * @param bytesIn        The number of bytes received.
+     * @param p99Millis      The 99th percentile of the time to first byte of all requests.
+     * @param peakHeapBytes  The peak heap usage during the crawl.
+     */
+    public LoadReport(int persisted, long pages, int failed, int skipped, double elapsedSeconds, long bytesIn,
+                      double p99Millis, long peakHeapBytes) {
+        this.persisted = persisted;
+        this.pages = pages;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.elapsedSeconds = elapsedSeconds;
+        this.bytesIn = bytesIn;
+        this.p99Millis = p99Millis;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    /**
+     * Gets the number of pages and resources crawled.
+     *
+     * @return The number of jobs completed.
+     */
+    public int getPersisted() {
+        return persisted;
+    }
+
+    /**
+     * Gets the number of pages read.
+     *
+     * @return The number of pages.
+     */
+    public long getPages() {
+        return pages;
+    }
+
+    /**
+     * Gets the number of jobs that failed for good.
+     *
+     * @return The number of failed jobs.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the number of jobs dropped by the crawl budget.
+     *
+     * @return The number of skipped jobs.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the wall-clock time of the crawl.
+     *
+     * @return The elapsed time in seconds.
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Gets the number of bytes received.
+     *
+     * @return The bytes in.
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Gets the number of pages read per second.
+     *
+     * @return The page throughput.
+     */
+    public double getPagesPerSecond() {
+        return elapsedSeconds > 0 ? pages / elapsedSeconds : 0;
+    }
+
+    /**
+     * Gets the number of megabytes received per second.
+     *
+     * @return The byte throughput in MB/s.
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedSeconds > 0 ? bytesIn / 1_000_000.0 / elapsedSeconds : 0;
+    }
+
+    /**
+     * Gets the 99th percentile of the time to first byte of all requests.
+     *
+     * @return The p99 latency in milliseconds.
+     */
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    /**
+     * Gets the peak heap usage during the crawl, the sum of the peaks of the heap pools, which is an upper bound.
+     *
+     * @return The peak heap in bytes.
+     */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /**
+     * Formats the report as a single line.
+     *
+     * @return The report.
+     */
+    @Override
+    public String toString() {
+        return String.format("Crawled %d (%d page(s)) in %.1f s | %.1f pages/s | %.1f MB/s | p99 %.1f ms | "
+                        + "Peak heap %d MB | Failed %d | Skipped %d", persisted, pages, elapsedSeconds,
+                getPagesPerSecond(), getMegabytesPerSecond(), p99Millis, peakHeapBytes / (1024 * 1024), failed,
+                skipped);
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.harness;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.example.crawl.CrawlBudget;
+import org.example.crawl.Crawler;
+import org.example.crawl.Progress;
+import org.example.crawl.RetryPolicy;
+import org.example.crawl.StartMode;
+import org.example.http.HttpTransport;
+import org.example.metrics.MetricsSnapshot;
+import org.example.metrics.Phase;
+import org.example.misc.AppConfig;
+import org.example.read.HTTPPageReader;
+import org.example.robots.RobotsCache;
+import org.example.write.BlockingFileWriter;
+import org.example.write.FileWriter;
+import org.example.write.NoneBlockingFileWriter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Drives the crawler against a {@link SyntheticSite} and reports pages/s, MB/s, the p99 time to first byte and the
+ * peak heap. The site and the crawl are set on the command line, the transport, retries and everything else come from
+ * the application configuration, so the numbers show the crawler as it is configured.
+ */
+public class LoadRunner {
+
+    // Constants
+    private static final String OUTPUT_DIRECTORY = "harness";
+
+    /**
+     * Private constructor, the class only exposes static helpers.
+     */
+    private LoadRunner() {
+    }
+
+    /**
+     * Parses the command-line arguments, starts the site, crawls it and prints the report.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(option("p", "pages", "The number of pages. Defaults to 1000."));
+        options.addOption(option("f", "fan-out", "The number of links to other pages on every page. Defaults to 10."));
+        options.addOption(option("n", "assets", "The number of assets referenced by every page. Defaults to 5."));
+        options.addOption(option("s", "asset-size", "The size of every asset in bytes. Defaults to 16384."));
+        options.addOption(option("d", "duplicates", "The number of duplicate links on every page. Defaults to 2."));
+        options.addOption(option("l", "latency", "The latency of every answer in milliseconds. Defaults to 0."));
+        options.addOption(option("e", "error-rate", "The share of requests answered with 503. Defaults to 0."));
+        options.addOption(Option.builder("x").longOpt("trap").required(false)
+                .desc("Adds an endless calendar to every page, requires --max-depth or --max-pages.").build());
+        options.addOption(Option.builder("r").longOpt("robots").required(false)
+                .desc("Serves a robots.txt that disallows the calendar and a gzipped sitemap of every page.").build());
+        options.addOption(option("D", "max-depth", "The maximum link depth of the crawl. Unlimited by default."));
+        options.addOption(option("m", "max-pages", "The maximum number of pages of the crawl. Unlimited by default."));
+        options.addOption(option("t", "threads", "The number of threads. Defaults to twice the number of cores."));
+        options.addOption(Option.builder("a").required(false)
+                .desc("Downloads files asynchronously if set.").build());
+
+        HelpFormatter helper = new HelpFormatter();
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+
+            SyntheticSite site = new SyntheticSite(intOf(cmd, "p", 1000), intOf(cmd, "f", 10));
+            site.setAssets(intOf(cmd, "n", 5), intOf(cmd, "s", 16384));
+            site.setDuplicateLinks(intOf(cmd, "d", 2));
+            site.setLatency(Duration.ofMillis(intOf(cmd, "l", 0)));
+            site.setErrorRate(Double.parseDouble(cmd.getOptionValue("e", "0")));
+            site.setTrap(cmd.hasOption("x"));
+            site.setRobots(cmd.hasOption("r"));
+
+            // The trap never ends, only the budget can end the crawl
+            int maxDepth = intOf(cmd, "D", Integer.MAX_VALUE);
+            int maxPages = intOf(cmd, "m", Integer.MAX_VALUE);
+            if (cmd.hasOption("x") && maxDepth == Integer.MAX_VALUE && maxPages == Integer.MAX_VALUE) {
+                throw new ParseException("The crawl trap requires --max-depth or --max-pages");
+            }
+            CrawlBudget budget = new CrawlBudget(maxDepth, maxPages, Long.MAX_VALUE, null);
+            int threads = intOf(cmd, "t", Runtime.getRuntime().availableProcessors() * 2);
+
+            site.start();
+            try {
+                System.out.println("Crawling " + site.getUrlCount() + " URL(s) at " + site.getBaseUrl() + " using "
+                        + threads + " thread(s)");
+                LoadReport report = run(site, OUTPUT_DIRECTORY, threads, cmd.hasOption("a"), budget,
+                        RetryPolicy.fromConfig());
+                System.out.println(report);
+                System.out.println("Requests " + site.getRequests() + " | Injected errors " + site.getErrors()
+                        + " | Trap requests " + site.getTrapRequests());
+            } finally {
+                site.close();
+            }
+        } catch (ParseException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            helper.printHelp("Usage:", options);
+        } catch (IOException e) {
+            System.out.println("The site cannot be served: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Crawls a started site with a fresh crawler into the output directory, which is replaced.
+     *
+     * @param site            The site, started.
+     * @param outputDirectory The local directory to save the crawled content.
+     * @param threads         The number of threads.
+     * @param async           True for the asynchronous writer, false for the synchronous writer.
+     * @param budget          The budget of the crawl.
+     * @param retryPolicy     The retry policy.
+     * @return The report of the crawl.
+     * @throws IOException If the starting URL is invalid.
+     */
+    public static LoadReport run(SyntheticSite site, String outputDirectory, int threads, boolean async,
+                                 CrawlBudget budget, RetryPolicy retryPolicy) throws IOException {
+        // The site speaks HTTP/1.1 only, everything else is configured as for a real crawl
+        HttpTransport transport = new HttpTransport(HttpClient.Version.HTTP_1_1, AppConfig.getHttpConnectTimeout(),
+                AppConfig.getHttpReadTimeout(), AppConfig.isHttpAdaptiveConcurrency(),
+                AppConfig.getHttpMaxConnectionsPerHost(), AppConfig.getHttpMaxConnections());
+        FileWriter writer = async ? new NoneBlockingFileWriter(transport) : new BlockingFileWriter(transport);
+        Crawler crawler = new Crawler(new HTTPPageReader(transport), writer, threads, outputDirectory,
+                new URL(site.getBaseUrl() + "index.html"));
+        crawler.setBudget(budget);
+        crawler.setRetryPolicy(retryPolicy);
+        if (AppConfig.isRobotsEnabled()) {
+            crawler.setRobots(RobotsCache.fromConfig(transport, retryPolicy));
+        }
+        transport.setMetrics(crawler.getMetrics());
+
+        // Measure the peak heap of the crawl only
+        List<MemoryPoolMXBean> heap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .collect(Collectors.toList());
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        Progress progress = crawler.startAsync(StartMode.FRESH, null).join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        MetricsSnapshot metrics = progress.getMetrics();
+        long peakHeap = heap.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new LoadReport(progress.getPersisted(), metrics.getLatency(Phase.FETCH).getCount(),
+                progress.getFailed(), progress.getSkipped(), elapsed, metrics.getBytesIn(),
+                metrics.getLatency(Phase.TTFB).getP99Millis(), peakHeap);
+    }
+
+    /**
+     * Creates an option with a value.
+     *
+     * @param name        The short name.
+     * @param longName    The long name.
+     * @param description The description.
+     * @return The option.
+     */
+    private static Option option(String name, String longName, String description) {
+        return Option.builder(name).hasArg().longOpt(longName).argName(longName).required(false).desc(description)
+                .build();
+    }
+
+    /**
+     * Gets the value of an option as a number.
+     *
+     * @param cmd          The parsed command line.
+     * @param name         The short name of the option.
+     * @param defaultValue The value if the option is not present.
+     * @return The value.
+     * @throws ParseException If the value is not a number.
+     */
+    private static int intOf(CommandLine cmd, String name, int defaultValue) throws ParseException {
+        if (!cmd.hasOption(name)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(cmd.getOptionValue(name).trim());
+        } catch (NumberFormatException e) {
+            throw new ParseException("The value '" + cmd.getOptionValue(name).trim() + "' for -" + name
+                    + " cannot be parsed to a number");
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package org.example.harness;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A generated web site served from memory on the loopback interface, a repeatable and offline target for load tests
+ * and benchmarks of the crawler. Page {@code i} is {@code /page<i>.html}, page 0 is also {@code /index.html}. Every
+ * page links to the next pages and references assets, {@code /static/asset<i>.png}, so every page and asset is
+ * reachable from the index and every crawl sees the same links.
+ * <p>
+ * The site can be made harder to crawl: duplicate links that only differ by fragment or dot segments, a latency added
+ * to every answer, a share of answers replaced by 503 Service Unavailable, and a crawl trap. The trap is an endless
+ * calendar, {@code /calendar/<n>.html} links to the next month and to a copy of itself with a fresh session id, so it
+ * only ends where the crawl budget ends it. The settings must be made before the site is started.
+ * <p>
+ * The site can also serve a robots.txt that disallows the calendar and lists a sitemap index, which refers to a
+ * gzipped sitemap of every page. The robots.txt and the sitemaps are never answered with an injected error.
+ */
+public class SyntheticSite implements AutoCloseable {
+
+    // Constants
+    private static final String EXTERNAL_URL = "https://www.example.com/";
+    private static final String[] DUPLICATE_FORMS = {"%s#top", "./%s", "/%s", "static/../%s"};
+
+    // Member variables
+    private final int pages;
+    private final int fanOut;
+    private int assets;
+    private byte[] asset = new byte[0];
+    private int duplicateLinks;
+    private long latencyMillis;
+    private double errorRate;
+    private boolean trap;
+    private boolean robots;
+    private byte[] sitemap;
+    private byte[][] bodies;
+    private ExecutorService executor;
+    private HttpServer server;
+    private final AtomicLong sessions = new AtomicLong();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder trapRequests = new LongAdder();
+
+    /**
+     * Constructs a SyntheticSite without assets, duplicates, latency, errors or trap.
+     *
+     * @param pages  The number of pages.
+     * @param fanOut The number of links to other pages on every page.
+     */
+    public SyntheticSite(int pages, int fanOut) {
+        if (pages < 1) throw new IllegalArgumentException("The number of pages must be greater than zero");
+        if (fanOut < 0) throw new IllegalArgumentException("The fan-out must not be negative");
+
+        this.pages = pages;
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * Sets the assets every page references.
+     *
+     * @param perPage The number of assets per page.
+     * @param size    The size of every asset in bytes.
+     */
+    public void setAssets(int perPage, int size) {
+        if (perPage < 0) throw new IllegalArgumentException("The number of assets must not be negative");
+        if (size < 0) throw new IllegalArgumentException("The asset size must not be negative");
+
+        this.assets = perPage;
+        this.asset = new byte[size];
+        Arrays.fill(asset, (byte) 'x');
+    }
+
+    /**
+     * Sets the number of duplicate links on every page, links to the pages it already links to in another form.
+     *
+     * @param perPage The number of duplicate links per page.
+     */
+    public void setDuplicateLinks(int perPage) {
+        if (perPage < 0) throw new IllegalArgumentException("The number of duplicate links must not be negative");
+        this.duplicateLinks = perPage;
+    }
+
+    /**
+     * Sets the time every answer is delayed by, like the round trip and processing time of a remote server.
+     *
+     * @param latency The latency.
+     */
+    public void setLatency(Duration latency) {
+        if (latency == null) throw new IllegalArgumentException("Parameter latency is null");
+        this.latencyMillis = latency.toMillis();
+    }
+
+    /**
+     * Sets the share of requests answered with 503 Service Unavailable, at random.
+     *
+     * @param errorRate The share between 0 and 1.
+     */
+    public void setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("The error rate must be between 0 and 1");
+        }
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Sets whether every page links into the endless calendar.
+     *
+     * @param trap True to add the crawl trap.
+     */
+    public void setTrap(boolean trap) {
+        this.trap = trap;
+    }
+
+    /**
+     * Sets whether the site serves a robots.txt and sitemaps of its pages.
+     *
+     * @param robots True to serve robots.txt and sitemaps.
+     */
+    public void setRobots(boolean robots) {
+        this.robots = robots;
+    }
+
+    /**
+     * Renders the pages and starts serving the site.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    public void start() throws IOException {
+        // Render the pages once, so the server only copies bytes
+        bodies = new byte[pages][];
+        for (int i = 0; i < pages; i++) {
+            bodies[i] = page(i).getBytes(StandardCharsets.UTF_8);
+        }
+
+        // Without TCP_NODELAY small answers wait for the delayed acknowledgement of the client. The latency is slept
+        // on the server's threads, so they are not pooled
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        if (robots) {
+            // The sitemap holds absolute locations, so it is rendered once the port is known
+            sitemap = sitemap();
+        }
+        server.start();
+    }
+
+    /**
+     * Renders a page: a header with style sheets and scripts, images, links to the next pages, duplicate links, a link
+     * outside the site and the entrance of the crawl trap.
+     *
+     * @param index The number of the page.
+     * @return The markup of the page.
+     */
+    public String page(int index) {
+        StringBuilder html = new StringBuilder(256 + (fanOut + assets + duplicateLinks) * 160);
+        html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n<title>Page ")
+                .append(index).append("</title>\n");
+
+        // Spread the assets over the head and the body, the way real pages do
+        for (int i = 0; i < assets; i++) {
+            int number = (index * assets + i) % pages;
+            if (i % 3 == 0) {
+                html.append("<link rel=\"stylesheet\" href=\"static/asset").append(number).append(".png\">\n");
+            } else if (i % 3 == 1) {
+                html.append("<script src=\"/static/asset").append(number).append(".png\"></script>\n");
+            }
+        }
+        html.append("</head>\n<body>\n<div class=\"content\">\n");
+        for (int i = 2; i < assets; i += 3) {
+            int number = (index * assets + i) % pages;
+            html.append("<img src=\"static/asset").append(number).append(".png\" alt=\"Asset ").append(number)
+                    .append("\">\n");
+        }
+
+        // Links to the next pages reach every page, the links of neighbouring pages overlap
+        html.append("<ul>\n");
+        for (int i = 1; i <= fanOut; i++) {
+            int number = (index + i) % pages;
+            html.append("<li><a href=\"page").append(number).append(".html\">Page ").append(number)
+                    .append("</a> <span class=\"teaser\">Lorem ipsum dolor sit amet.</span></li>\n");
+        }
+        for (int i = 0; i < duplicateLinks; i++) {
+            String link = "page" + (index + 1 + i % Math.max(fanOut, 1)) % pages + ".html";
+            html.append("<li><a href=\"").append(String.format(DUPLICATE_FORMS[i % DUPLICATE_FORMS.length], link))
+                    .append("\">Again</a></li>\n");
+        }
+        html.append("</ul>\n<p><a href=\"").append(EXTERNAL_URL).append("\">Elsewhere</a></p>\n");
+        if (trap) {
+            html.append("<p><a href=\"/calendar/1.html\">Calendar</a></p>\n");
+        }
+        html.append("</div>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    /**
+     * Renders the gzipped sitemap of every page.
+     *
+     * @return The compressed sitemap.
+     * @throws IOException If the sitemap cannot be compressed.
+     */
+    private byte[] sitemap() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+            for (int i = 0; i < pages; i++) {
+                out.write("<url><loc>" + getBaseUrl() + "page" + i + ".html</loc></url>\n");
+            }
+            out.write("</urlset>\n");
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Renders a month of the endless calendar. Only the canonical month links to a session copy of itself, so the trap
+     * grows by two pages per link followed instead of exponentially.
+     *
+     * @param month   The number of the month.
+     * @param session True if the page is a session copy.
+     * @return The markup of the page.
+     */
+    private String calendar(long month, boolean session) {
+        StringBuilder html = new StringBuilder(256);
+        html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<title>Month ").append(month)
+                .append("</title>\n</head>\n<body>\n");
+        html.append("<a href=\"/calendar/").append(month + 1).append(".html\">Next</a>\n");
+        if (!session) {
+            html.append("<a href=\"/calendar/").append(month).append(".html?sid=").append(sessions.incrementAndGet())
+                    .append("\">Refresh</a>\n");
+        }
+        html.append("</body>\n</html>\n");
+        return html.toString();
+    }
+
+    /**
+     * Answers a request with a page, an asset, a month of the calendar, 503 or 404.
+     *
+     * @param exchange The exchange.
+     * @throws IOException If the answer cannot be sent.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (robots && serveRobots(exchange, path)) {
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            byte[] body = null;
+            String type = "text/html; charset=utf-8";
+            if (path.equals("/index.html") || path.equals("/")) {
+                body = bodies[0];
+            } else if (path.startsWith("/page") && path.endsWith(".html")) {
+                long number = parse(path.substring(5, path.length() - 5));
+                body = number >= 0 && number < pages ? bodies[(int) number] : null;
+            } else if (path.startsWith("/static/asset")) {
+                body = asset;
+                type = "image/png";
+            } else if (trap && path.startsWith("/calendar/") && path.endsWith(".html")) {
+                long month = parse(path.substring(10, path.length() - 5));
+                if (month >= 0) {
+                    trapRequests.increment();
+                    body = calendar(month, exchange.getRequestURI().getQuery() != null)
+                            .getBytes(StandardCharsets.UTF_8);
+                }
+            }
+
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", type);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers a request for the robots.txt, the sitemap index or the sitemap of the pages.
+     *
+     * @param exchange The exchange.
+     * @param path     The requested path.
+     * @return True if the request has been answered.
+     * @throws IOException If the answer cannot be sent.
+     */
+    private boolean serveRobots(HttpExchange exchange, String path) throws IOException {
+        byte[] body;
+        String type;
+        if (path.equals("/robots.txt")) {
+            body = ("User-agent: *\nDisallow: /calendar/\n\nSitemap: " + getBaseUrl() + "sitemap_index.xml\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            type = "text/plain";
+        } else if (path.equals("/sitemap_index.xml")) {
+            body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n"
+                    + "<sitemap><loc>" + getBaseUrl() + "sitemap-pages.xml.gz</loc></sitemap>\n</sitemapindex>\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            type = "application/xml";
+        } else if (path.equals("/sitemap-pages.xml.gz")) {
+            body = sitemap;
+            type = "application/gzip";
+        } else {
+            return false;
+        }
+        exchange.getResponseHeaders().add("Content-Type", type);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        return true;
+    }
+
+    /**
+     * Parses the number in a path.
+     *
+     * @param number The number as text.
+     * @return The number, or -1 if it is not a number.
+     */
+    private static long parse(String number) {
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the base URL of the site.
+     *
+     * @return The base URL, ending with a slash.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Gets the number of distinct URLs a complete crawl from the index downloads outside the trap: the index, every
+     * page and, since the asset numbers of consecutive pages follow each other, as many assets as pages.
+     *
+     * @return The number of URLs of the site.
+     */
+    public int getUrlCount() {
+        return 1 + pages + (assets > 0 ? pages : 0);
+    }
+
+    /**
+     * Gets the number of requests received.
+     *
+     * @return The number of requests.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with an injected 503.
+     *
+     * @return The number of errors.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Gets the number of months of the calendar served.
+     *
+     * @return The number of requests caught in the trap.
+     */
+    public long getTrapRequests() {
+        return trapRequests.sum();
+    }
+
+    /**
+     * Stops serving the site.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.http;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An adaptive limit on concurrent requests, tuned at runtime by additive increase and multiplicative decrease (AIMD).
+ * Every completed request reports its latency and outcome. While requests succeed at a latency close to the lowest seen,
+ * the limit grows by about one request per round trip. A request the server was overloaded by, such as a timeout, a
+ * refused connection or a 429 or 503 answer, halves the limit, and a latency far above the lowest seen shrinks it
+ * gently, since it shows that requests are queueing at the server or on the network. The limit never leaves the range
+ * given at construction, a limiter with equal bounds is a plain fixed limit.
+ * <p>
+ * Like {@link org.example.misc.AsyncSemaphore}, acquiring never blocks: it returns a future that completes once a request
+ * may start, on the thread that releases the previous one.
+ */
+public class ConcurrencyLimiter {
+
+    // Constants
+    private static final double OVERLOAD_DECREASE = 0.5;
+    private static final double LATENCY_DECREASE = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_DRIFT = 0.01;
+
+    /**
+     * What a completed request says about the load of the server.
+     */
+    public enum Outcome {
+        // The server answered, its latency tells how loaded it is
+        SUCCESS,
+        // The server or the network could not keep up
+        OVERLOAD,
+        // The request says nothing about the load, e.g. because it was cancelled
+        IGNORE
+    }
+
+    // Member variables
+    private final int minLimit;
+    private final int maxLimit;
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double baselineNanos;
+    private long lastDecrease = System.nanoTime();
+
+    /**
+     * Constructs a ConcurrencyLimiter.
+     *
+     * @param initialLimit The limit to start with.
+     * @param minLimit     The lowest the limit may shrink to.
+     * @param maxLimit     The highest the limit may grow to.
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1) throw new IllegalArgumentException("The minimum limit must be greater than zero");
+        if (maxLimit < minLimit) throw new IllegalArgumentException("The maximum limit must not be below the minimum");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Constructs a ConcurrencyLimiter with a fixed limit.
+     *
+     * @param limit The limit.
+     * @return The limiter.
+     */
+    public static ConcurrencyLimiter fixed(int limit) {
+        return new ConcurrencyLimiter(limit, limit, limit);
+    }
+
+    /**
+     * Acquires a slot for a request.
+     *
+     * @return A future that completes once the request may start, already completed if the limit allows it right away.
+     */
+    public CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * Releases the slot of a completed request, adjusts the limit by its latency and outcome, and lets as many waiting
+     * requests start as the new limit allows.
+     *
+     * @param startNanos   The {@link System#nanoTime()} at which the request was sent.
+     * @param latencyNanos The time the server took to answer, or to fail.
+     * @param outcome      What the request says about the load of the server.
+     */
+    public void release(long startNanos, long latencyNanos, Outcome outcome) {
+        List<CompletableFuture<Void>> started = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            adjust(startNanos, latencyNanos, outcome);
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                started.add(waiters.poll());
+                inFlight++;
+            }
+        }
+
+        // Complete outside the lock, the waiters run their work on this thread. A cancelled waiter returns its slot
+        for (CompletableFuture<Void> waiter : started) {
+            if (!waiter.complete(null)) {
+                release(startNanos, latencyNanos, Outcome.IGNORE);
+            }
+        }
+    }
+
+    /**
+     * Adjusts the limit by the latency and outcome of a completed request. The limit shrinks at most once per round
+     * trip, requests that were sent before the last decrease cannot have seen its effect and do not shrink it again.
+     *
+     * @param startNanos   The time at which the request was sent.
+     * @param latencyNanos The time the server took to answer, or to fail.
+     * @param outcome      What the request says about the load of the server.
+     */
+    private void adjust(long startNanos, long latencyNanos, Outcome outcome) {
+        if (outcome == Outcome.IGNORE || minLimit == maxLimit) {
+            return;
+        }
+        if (outcome == Outcome.OVERLOAD) {
+            decrease(startNanos, OVERLOAD_DECREASE);
+            return;
+        }
+
+        // Track the lowest latency, letting it drift up slowly in case the server has become slower for good
+        if (baselineNanos == 0 || latencyNanos < baselineNanos) {
+            baselineNanos = latencyNanos;
+        } else {
+            baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DRIFT;
+        }
+
+        if (latencyNanos > baselineNanos * LATENCY_TOLERANCE) {
+            decrease(startNanos, LATENCY_DECREASE);
+        } else if (inFlight + 1 >= (int) limit / 2) {
+            // Only grow a limit that is actually used, by one request per round trip of the whole window
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Shrinks the limit, unless it has already been shrunk after the request was sent.
+     *
+     * @param startNanos The time at which the request was sent.
+     * @param factor     The factor to multiply the limit with.
+     */
+    private void decrease(long startNanos, double factor) {
+        if (startNanos - lastDecrease < 0) {
+            return;
+        }
+        limit = Math.max(minLimit, limit * factor);
+        lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return The number of requests that may be in flight at the same time.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of requests in flight.
+     *
+     * @return The number of requests in flight.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Gets the number of requests waiting for a slot.
+     *
+     * @return The number of waiting requests.
+     */
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+}
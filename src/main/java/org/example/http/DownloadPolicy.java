@@ -0,0 +1,342 @@
+package org.example.http;
+
+import org.example.misc.AppConfig;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits what a response may be to be downloaded: its media type, its size and the time its body takes to arrive. The
+ * type and the declared Content-Length are checked against the response headers, before any of the body is read.
+ * Bodies without a Content-Length, or longer than declared, are counted as they arrive and aborted as soon as they
+ * exceed the size, and bodies that take too long are aborted when their time is up. An aborted body cancels the
+ * request, which closes or resets its connection instead of draining it, and the reader of the body gets a
+ * {@link DownloadRejectedException}.
+ */
+public class DownloadPolicy {
+
+    // Constants
+    public static final DownloadPolicy UNLIMITED = new DownloadPolicy(Collections.emptyList(), Long.MAX_VALUE, null);
+
+    // Aborts the bodies that are out of time, its thread is idle unless a download takes too long
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    // Member variables
+    private final String[] types;
+    private final long maxBytes;
+    private final long maxNanos;
+
+    /**
+     * Constructs a DownloadPolicy.
+     *
+     * @param types       The allowed media types, such as "text/html", or all types of a kind, such as "image/*".
+     *                    Empty to allow every type. Responses without a Content-Type are always allowed.
+     * @param maxBytes    The maximum size of a body in bytes.
+     * @param maxDuration The maximum time from the response headers to the end of the body, or null for no limit.
+     */
+    public DownloadPolicy(List<String> types, long maxBytes, Duration maxDuration) {
+        if (types == null) throw new IllegalArgumentException("Parameter types is null");
+        if (maxBytes < 0) throw new IllegalArgumentException("The maximum size must not be negative");
+
+        this.types = types.stream()
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .map(type -> type.endsWith("/*") ? type.substring(0, type.length() - 1) : type)
+                .toArray(String[]::new);
+        this.maxBytes = maxBytes;
+        this.maxNanos = maxDuration == null ? Long.MAX_VALUE : maxDuration.toNanos();
+    }
+
+    /**
+     * Creates the policy of pages configured in the application configuration.
+     *
+     * @return The policy of pages.
+     */
+    public static DownloadPolicy pagesFromConfig() {
+        return new DownloadPolicy(AppConfig.getPageDownloadTypes(), AppConfig.getPageDownloadMaxBytes(),
+                AppConfig.getPageDownloadMaxDuration());
+    }
+
+    /**
+     * Creates the policy of resources configured in the application configuration.
+     *
+     * @return The policy of resources.
+     */
+    public static DownloadPolicy filesFromConfig() {
+        return new DownloadPolicy(AppConfig.getFileDownloadTypes(), AppConfig.getFileDownloadMaxBytes(),
+                AppConfig.getFileDownloadMaxDuration());
+    }
+
+    /**
+     * Creates the timer thread, a daemon thread that drops the timeouts of completed bodies right away.
+     *
+     * @return The timer.
+     */
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "download-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * Checks whether a media type is allowed.
+     *
+     * @param mediaType The lower case media type without parameters, or null if the response has none.
+     * @return True if the type is allowed.
+     */
+    public boolean isAllowedType(String mediaType) {
+        if (types.length == 0 || mediaType == null) {
+            return true;
+        }
+        for (String type : types) {
+            if (type.endsWith("/") ? mediaType.startsWith(type) : mediaType.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wraps a body handler so that successful responses are checked against the policy before their body is read,
+     * and their body is limited while it is read. Other responses are handed to the handler as they are.
+     *
+     * @param uri     The requested URI.
+     * @param handler The body handler.
+     * @param <T>     The type of the body.
+     * @return The guarded body handler.
+     */
+    <T> HttpResponse.BodyHandler<T> guard(URI uri, HttpResponse.BodyHandler<T> handler) {
+        if (this == UNLIMITED) {
+            return handler;
+        }
+        return info -> {
+            if (info.statusCode() < 200 || info.statusCode() >= 300) {
+                return handler.apply(info);
+            }
+
+            // Reject on the headers alone, the body is never subscribed to
+            String type = info.headers().firstValue("Content-Type")
+                    .map(value -> value.split(";")[0].trim().toLowerCase(Locale.ROOT))
+                    .orElse(null);
+            if (!isAllowedType(type)) {
+                return new RejectedSubscriber<>(new DownloadRejectedException(uri,
+                        "Content type " + type + " is not allowed"));
+            }
+            long length = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (length > maxBytes) {
+                return new RejectedSubscriber<>(new DownloadRejectedException(uri,
+                        "Content length " + length + " exceeds " + maxBytes + " bytes"));
+            }
+            return new LimitedSubscriber<>(uri, handler.apply(info));
+        };
+    }
+
+    /**
+     * A body subscriber that passes the body on to another one while it stays within the size and time of the policy,
+     * and aborts it once it does not. Signals to the downstream subscriber are serialized, since the timeout is
+     * signalled from the timer thread.
+     *
+     * @param <T> The type of the body.
+     */
+    private final class LimitedSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        // Member variables
+        private final URI uri;
+        private final HttpResponse.BodySubscriber<T> downstream;
+        private final long start = System.nanoTime();
+        private Flow.Subscription subscription;
+        private ScheduledFuture<?> timeout;
+        private long received;
+        private boolean done;
+
+        /**
+         * Constructs a LimitedSubscriber.
+         *
+         * @param uri        The requested URI.
+         * @param downstream The subscriber the body is passed on to.
+         */
+        private LimitedSubscriber(URI uri, HttpResponse.BodySubscriber<T> downstream) {
+            this.uri = uri;
+            this.downstream = downstream;
+        }
+
+        /**
+         * Passes the subscription on and starts the timeout of the body.
+         *
+         * @param subscription The subscription to the body.
+         */
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(subscription);
+            if (maxNanos != Long.MAX_VALUE && !done) {
+                timeout = TIMER.schedule(() -> abort("Transfer took longer than " + maxNanos / 1_000_000 + " ms"),
+                        maxNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Counts a chunk of the body and passes it on, or aborts the body if it exceeds the size or time.
+         *
+         * @param buffers The buffers of the chunk.
+         */
+        @Override
+        public synchronized void onNext(List<ByteBuffer> buffers) {
+            if (done) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                received += buffer.remaining();
+            }
+            if (received > maxBytes) {
+                abort("Body exceeds " + maxBytes + " bytes");
+            } else if (System.nanoTime() - start > maxNanos) {
+                abort("Transfer took longer than " + maxNanos / 1_000_000 + " ms");
+            } else {
+                downstream.onNext(buffers);
+            }
+        }
+
+        /**
+         * Passes the failure of the body on, unless it has been aborted.
+         *
+         * @param throwable The reason the body could not be received.
+         */
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                cancelTimeout();
+                downstream.onError(throwable);
+            }
+        }
+
+        /**
+         * Passes the end of the body on, unless it has been aborted.
+         */
+        @Override
+        public synchronized void onComplete() {
+            if (!done) {
+                done = true;
+                cancelTimeout();
+                downstream.onComplete();
+            }
+        }
+
+        /**
+         * Gets the body of the downstream subscriber.
+         *
+         * @return The stage of the body.
+         */
+        @Override
+        public CompletionStage<T> getBody() {
+            return downstream.getBody();
+        }
+
+        /**
+         * Cancels the body, which releases its connection, and fails the downstream subscriber with a rejection.
+         *
+         * @param reason Why the body is aborted.
+         */
+        private synchronized void abort(String reason) {
+            if (done) {
+                return;
+            }
+            done = true;
+            cancelTimeout();
+            subscription.cancel();
+            downstream.onError(new DownloadRejectedException(uri, reason));
+        }
+
+        /**
+         * Cancels the timeout of the body, if it has one.
+         */
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A body subscriber that cancels the body right away and fails with a rejection.
+     *
+     * @param <T> The type of the body.
+     */
+    private static final class RejectedSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        // Member variables
+        private final CompletableFuture<T> body;
+
+        /**
+         * Constructs a RejectedSubscriber.
+         *
+         * @param rejection The rejection the body fails with.
+         */
+        private RejectedSubscriber(DownloadRejectedException rejection) {
+            this.body = CompletableFuture.failedFuture(rejection);
+        }
+
+        /**
+         * Cancels the body, nothing of it is read.
+         *
+         * @param subscription The subscription to the body.
+         */
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+        }
+
+        /**
+         * Ignores a chunk, none is requested.
+         *
+         * @param buffers The buffers of the chunk.
+         */
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            // Nothing is requested
+        }
+
+        /**
+         * Ignores the failure of the body, it has failed already.
+         *
+         * @param throwable The reason the body could not be received.
+         */
+        @Override
+        public void onError(Throwable throwable) {
+            // The body has failed already
+        }
+
+        /**
+         * Ignores the end of the body, it has failed already.
+         */
+        @Override
+        public void onComplete() {
+            // The body has failed already
+        }
+
+        /**
+         * Gets the failed body.
+         *
+         * @return The stage of the body, failed with the rejection.
+         */
+        @Override
+        public CompletionStage<T> getBody() {
+            return body;
+        }
+    }
+}
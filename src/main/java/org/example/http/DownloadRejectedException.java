@@ -0,0 +1,53 @@
+package org.example.http;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Signals that a response was not downloaded, or its download was aborted, because it broke the
+ * {@link DownloadPolicy} of the request: its content type is not wanted, or it is too large or too slow.
+ */
+public class DownloadRejectedException extends IOException {
+
+    // Constants
+    private static final long serialVersionUID = 1L;
+
+    // Member variables
+    private final URI uri;
+
+    /**
+     * Constructs a DownloadRejectedException.
+     *
+     * @param uri    The requested URI.
+     * @param reason Why the response was rejected.
+     */
+    public DownloadRejectedException(URI uri, String reason) {
+        super(reason + " for " + uri);
+        this.uri = uri;
+    }
+
+    /**
+     * Gets the requested URI.
+     *
+     * @return The URI.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Finds a rejection among the causes of a failure. Streams of a response body report a rejection mid-stream as
+     * the cause of the I/O error of the read that noticed it.
+     *
+     * @param throwable The failure.
+     * @return The rejection, or null if the failure was not caused by one.
+     */
+    public static DownloadRejectedException find(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DownloadRejectedException) {
+                return (DownloadRejectedException) cause;
+            }
+        }
+        return null;
+    }
+}
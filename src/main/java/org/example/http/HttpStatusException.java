@@ -0,0 +1,70 @@
+package org.example.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Signals that a server answered a request with an error status code.
+ */
+public class HttpStatusException extends IOException {
+
+    // Constants
+    private static final long serialVersionUID = 1L;
+
+    // Member variables
+    private final int statusCode;
+    private final URI uri;
+    private final Duration retryAfter;
+
+    /**
+     * Constructs an HttpStatusException.
+     *
+     * @param statusCode The status code of the response.
+     * @param uri        The requested URI.
+     */
+    public HttpStatusException(int statusCode, URI uri) {
+        this(statusCode, uri, null);
+    }
+
+    /**
+     * Constructs an HttpStatusException.
+     *
+     * @param statusCode The status code of the response.
+     * @param uri        The requested URI.
+     * @param retryAfter The time the server asked to wait before retrying, or null if it did not say.
+     */
+    public HttpStatusException(int statusCode, URI uri, Duration retryAfter) {
+        super("HTTP " + statusCode + " for " + uri);
+        this.statusCode = statusCode;
+        this.uri = uri;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets the status code of the response.
+     *
+     * @return The status code.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Gets the requested URI.
+     *
+     * @return The URI.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Gets the time the server asked to wait before retrying, from its Retry-After header.
+     *
+     * @return The time to wait, or null if the server did not say.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
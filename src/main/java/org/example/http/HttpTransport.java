@@ -0,0 +1,572 @@
+package org.example.http;
+
+import org.example.metrics.CrawlMetrics;
+import org.example.misc.AppConfig;
+import org.example.store.Validators;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The HttpTransport class is the single HTTP layer shared by all page readers and file writers. It wraps one
+ * {@link HttpClient}, so every request draws from the same keep-alive connection pool and is multiplexed over HTTP/2
+ * where the server supports it, and it limits the number of concurrent requests per host and over all hosts. The
+ * limits are either fixed or adapt to the latency and failures of the requests, see {@link ConcurrencyLimiter}, so
+ * the crawl finds the concurrency each server copes with on its own.
+ * <p>
+ * A request holds its host's permit until the response body is closed, so callers must always close the body stream,
+ * also for responses without a body such as 304 Not Modified.
+ */
+public class HttpTransport {
+
+    // Constants
+    private static final int NOT_MODIFIED = 304;
+    private static final int FIRST_ERROR_STATUS = 400;
+    private static final Set<Integer> OVERLOAD_STATUSES = Set.of(429, 502, 503, 504);
+
+    // The transport used by readers and writers that are not given one explicitly
+    private static volatile HttpTransport defaultTransport;
+
+    // Member variables
+    private final HttpClient client;
+    private final boolean adaptive;
+    private final int maxConnectionsPerHost;
+    private final Duration readTimeout;
+    private final ConcurrencyLimiter globalLimiter;
+    private final Map<String, ConcurrencyLimiter> hostLimiters = new ConcurrentHashMap<>();
+    private volatile CrawlMetrics metrics;
+
+    /**
+     * Constructs a new HttpTransport with a fixed limit per host and no limit over all hosts.
+     *
+     * @param version               The preferred HTTP version, HTTP/2 falls back to HTTP/1.1 if the server needs it.
+     * @param maxConnectionsPerHost The maximum number of concurrent requests per host.
+     * @param connectTimeout        The timeout for establishing a connection.
+     * @param readTimeout           The timeout for receiving the response headers of a request.
+     */
+    public HttpTransport(HttpClient.Version version, int maxConnectionsPerHost, Duration connectTimeout,
+                         Duration readTimeout) {
+        this(version, connectTimeout, readTimeout, false, maxConnectionsPerHost, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new HttpTransport. Adaptive limits start at a quarter of the maximum per host and at the maximum
+     * over all hosts, and never shrink the limit over all hosts below the maximum of a single host, so that one
+     * struggling host cannot slow down the others.
+     *
+     * @param version               The preferred HTTP version, HTTP/2 falls back to HTTP/1.1 if the server needs it.
+     * @param connectTimeout        The timeout for establishing a connection.
+     * @param readTimeout           The timeout for receiving the response headers of a request.
+     * @param adaptive              Whether the limits adapt to the latency and failures of the requests.
+     * @param maxConnectionsPerHost The maximum number of concurrent requests per host.
+     * @param maxConnections        The maximum number of concurrent requests over all hosts.
+     */
+    public HttpTransport(HttpClient.Version version, Duration connectTimeout, Duration readTimeout, boolean adaptive,
+                         int maxConnectionsPerHost, int maxConnections) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("The maximum number of connections per host must be greater than zero");
+        }
+        if (maxConnections < maxConnectionsPerHost) {
+            throw new IllegalArgumentException("The maximum number of connections must not be below the maximum per host");
+        }
+
+        this.client = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.adaptive = adaptive;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.readTimeout = readTimeout;
+        this.globalLimiter = adaptive
+                ? new ConcurrencyLimiter(maxConnections, maxConnectionsPerHost, maxConnections)
+                : ConcurrencyLimiter.fixed(maxConnections);
+    }
+
+    /**
+     * Gets the transport configured in the application configuration, creating it on first use.
+     *
+     * @return The default transport.
+     */
+    public static HttpTransport getDefault() {
+        if (defaultTransport == null) {
+            synchronized (HttpTransport.class) {
+                if (defaultTransport == null) {
+                    defaultTransport = fromConfig();
+                }
+            }
+        }
+        return defaultTransport;
+    }
+
+    /**
+     * Creates a transport from the application configuration.
+     *
+     * @return The transport.
+     */
+    private static HttpTransport fromConfig() {
+        // The idle timeout of pooled connections is a system wide setting of the JDK client
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout",
+                    Long.toString(AppConfig.getHttpKeepAliveTimeout().toSeconds()));
+        }
+        return new HttpTransport(HttpClient.Version.valueOf(AppConfig.getHttpVersion()),
+                AppConfig.getHttpConnectTimeout(), AppConfig.getHttpReadTimeout(),
+                AppConfig.isHttpAdaptiveConcurrency(), AppConfig.getHttpMaxConnectionsPerHost(),
+                AppConfig.getHttpMaxConnections());
+    }
+
+    /**
+     * Sets the metrics that the time to first byte and the errors of every request are recorded to.
+     *
+     * @param metrics The metrics of the running crawl, or null to stop recording.
+     */
+    public void setMetrics(CrawlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sends a GET request and waits for the response headers.
+     *
+     * @param uri        The URI to request.
+     * @param validators The validators of a previous download to make the request conditional, or null.
+     * @return The response, its body stream must be closed by the caller.
+     * @throws IOException If the request fails or the server answers with an error status.
+     */
+    public HttpResponse<InputStream> get(URI uri, Validators validators) throws IOException {
+        return get(uri, validators, DownloadPolicy.UNLIMITED);
+    }
+
+    /**
+     * Sends a GET request and waits for the response headers. A response that breaks the policy is rejected on its
+     * headers, or its body stream fails once it does.
+     *
+     * @param uri        The URI to request.
+     * @param validators The validators of a previous download to make the request conditional, or null.
+     * @param policy     The limits of the download.
+     * @return The response, its body stream must be closed by the caller.
+     * @throws IOException If the request fails, the server answers with an error status or the response is rejected
+     *                     with a {@link DownloadRejectedException}.
+     */
+    public HttpResponse<InputStream> get(URI uri, Validators validators, DownloadPolicy policy) throws IOException {
+        CompletableFuture<HttpResponse<InputStream>> future = getAsync(uri, validators, policy);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            // Nobody will read the response, close it when it arrives to return the permit
+            future.thenAccept(response -> closeQuietly(response.body()));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while requesting " + uri);
+        }
+    }
+
+    /**
+     * Sends a GET request asynchronously. No thread is blocked while waiting for the limits to allow the request.
+     *
+     * @param uri        The URI to request.
+     * @param validators The validators of a previous download to make the request conditional, or null.
+     * @return A future of the response, its body stream must be closed by the caller. It completes exceptionally with
+     * an {@link HttpStatusException} if the server answers with an error status.
+     */
+    public CompletableFuture<HttpResponse<InputStream>> getAsync(URI uri, Validators validators) {
+        return getAsync(uri, validators, DownloadPolicy.UNLIMITED);
+    }
+
+    /**
+     * Sends a GET request asynchronously, see {@link #getAsync(URI, Validators)}. A response that breaks the policy is
+     * rejected on its headers, or its body stream fails once it does, in both cases with a
+     * {@link DownloadRejectedException}.
+     *
+     * @param uri        The URI to request.
+     * @param validators The validators of a previous download to make the request conditional, or null.
+     * @param policy     The limits of the download.
+     * @return A future of the response, its body stream must be closed by the caller.
+     */
+    public CompletableFuture<HttpResponse<InputStream>> getAsync(URI uri, Validators validators,
+                                                                 DownloadPolicy policy) {
+        HttpRequest request = request(uri, validators);
+        HttpResponse.BodyHandler<InputStream> stream = policy.guard(uri, info -> HttpResponse.BodySubscribers
+                .ofInputStream());
+
+        return acquire(uri)
+                .thenCompose(permit -> {
+                    // The permit travels with the body stream
+                    HttpResponse.BodyHandler<InputStream> handler = info -> {
+                        permit.answered(info.statusCode());
+                        return HttpResponse.BodySubscribers.mapping(stream.apply(info),
+                                body -> new PermitInputStream(body, permit));
+                    };
+                    return client.sendAsync(request, handler)
+                            .whenComplete((response, throwable) -> {
+                                // Without a response there is no body stream that could release the permit
+                                if (throwable != null) {
+                                    permit.failed(throwable);
+                                    permit.release();
+                                }
+                            });
+                })
+                .thenApply(response -> {
+                    int status = response.statusCode();
+                    if (status >= FIRST_ERROR_STATUS) {
+                        closeQuietly(response.body());
+                        throw new CompletionException(new HttpStatusException(status, uri, retryAfterOf(response)));
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * Sends a GET request asynchronously and hands the body to the given handler, which consumes it as it arrives.
+     * The permit of the request is held until the handler has received the whole body. The body of an error status is
+     * discarded without calling the handler.
+     *
+     * @param uri        The URI to request.
+     * @param validators The validators of a previous download to make the request conditional, or null.
+     * @param handler    The handler of the body, it must complete its body only once it has consumed all of it.
+     * @param <T>        The type of the body.
+     * @return A future of the response, complete with its body. It completes exceptionally with an
+     * {@link HttpStatusException} if the server answers with an error status.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> getAsync(URI uri, Validators validators,
+                                                           HttpResponse.BodyHandler<T> handler) {
+        return getAsync(uri, validators, DownloadPolicy.UNLIMITED, handler);
+    }
+
+    /**
+     * Sends a GET request asynchronously and hands the body to the given handler, see
+     * {@link #getAsync(URI, Validators, HttpResponse.BodyHandler)}. A response that breaks the policy is rejected on
+     * its headers without calling the handler, or the body of the handler fails once it does, in both cases with a
+     * {@link DownloadRejectedException}.
+     *
+     * @param uri        The URI to request.
+     * @param validators The validators of a previous download to make the request conditional, or null.
+     * @param policy     The limits of the download.
+     * @param handler    The handler of the body, it must complete its body only once it has consumed all of it.
+     * @param <T>        The type of the body.
+     * @return A future of the response, complete with its body.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> getAsync(URI uri, Validators validators, DownloadPolicy policy,
+                                                           HttpResponse.BodyHandler<T> handler) {
+        HttpRequest request = request(uri, validators);
+        HttpResponse.BodyHandler<T> guarded = policy.guard(uri, handler);
+
+        return acquire(uri)
+                .thenCompose(permit -> {
+                    HttpResponse.BodyHandler<T> checked = info -> {
+                        permit.answered(info.statusCode());
+                        return info.statusCode() >= FIRST_ERROR_STATUS
+                                ? HttpResponse.BodySubscribers.replacing(null) : guarded.apply(info);
+                    };
+                    return client.sendAsync(request, checked)
+                            .whenComplete((response, throwable) -> {
+                                if (throwable != null) {
+                                    permit.failed(throwable);
+                                }
+                                permit.release();
+                            });
+                })
+                .thenApply(response -> {
+                    int status = response.statusCode();
+                    if (status >= FIRST_ERROR_STATUS) {
+                        throw new CompletionException(new HttpStatusException(status, uri, retryAfterOf(response)));
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * Builds a GET request, conditional if there are validators.
+     *
+     * @param uri        The URI to request.
+     * @param validators The validators of a previous download, or null.
+     * @return The request.
+     */
+    private HttpRequest request(URI uri, Validators validators) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(readTimeout).GET();
+        if (validators != null) {
+            validators.getConditionalHeaders().forEach(builder::header);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Waits, without blocking, until both the limit of the URI's host and the limit over all hosts allow a request.
+     * The host's slot is taken first, so that requests to a host at its limit do not hold slots the other hosts could
+     * use.
+     *
+     * @param uri The URI to request.
+     * @return A future of the permit of the request, which starts timing it.
+     */
+    private CompletableFuture<Permit> acquire(URI uri) {
+        ConcurrencyLimiter host = getLimiter(uri);
+        return host.acquire()
+                .thenCompose(ignored -> globalLimiter.acquire())
+                .thenApply(ignored -> new Permit(host, uri));
+    }
+
+    /**
+     * Gets the concurrency limiter of the URI's host.
+     *
+     * @param uri The URI.
+     * @return The limiter of the host.
+     */
+    public ConcurrencyLimiter getLimiter(URI uri) {
+        return hostLimiters.computeIfAbsent(hostKey(uri), key -> adaptive
+                ? new ConcurrencyLimiter(Math.max(1, maxConnectionsPerHost / 4), 1, maxConnectionsPerHost)
+                : ConcurrencyLimiter.fixed(maxConnectionsPerHost));
+    }
+
+    /**
+     * Gets the concurrency limiter over all hosts.
+     *
+     * @return The global limiter.
+     */
+    public ConcurrencyLimiter getGlobalLimiter() {
+        return globalLimiter;
+    }
+
+    /**
+     * Checks whether the response is a 304 Not Modified answer to a conditional request.
+     *
+     * @param response The response.
+     * @return True if the content was not modified, false otherwise.
+     */
+    public static boolean isNotModified(HttpResponse<?> response) {
+        return response.statusCode() == NOT_MODIFIED;
+    }
+
+    /**
+     * Checks whether the response headers are a 304 Not Modified answer to a conditional request.
+     *
+     * @param info The status and headers of the response.
+     * @return True if the content was not modified, false otherwise.
+     */
+    public static boolean isNotModified(HttpResponse.ResponseInfo info) {
+        return info.statusCode() == NOT_MODIFIED;
+    }
+
+    /**
+     * Reads the validators of a downloaded response.
+     *
+     * @param response      The response.
+     * @param contentLength The number of bytes received.
+     * @param hash          The hexadecimal hash of the body.
+     * @return The validators.
+     */
+    public static Validators validatorsOf(HttpResponse<?> response, long contentLength, String hash) {
+        return new Validators(response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null), contentLength, hash);
+    }
+
+    /**
+     * Reads the Retry-After header of the response, given either as a number of seconds or as an HTTP date.
+     *
+     * @param response The response.
+     * @return The time to wait before retrying, or null if the header is missing or cannot be parsed.
+     */
+    public static Duration retryAfterOf(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").map(String::trim).orElse(null);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (Character.isDigit(value.charAt(0))) {
+                return Duration.ofSeconds(Long.parseLong(value));
+            }
+            Duration wait = Duration.between(Instant.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+            return wait.isNegative() ? Duration.ZERO : wait;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the charset declared in the Content-Type header of the response.
+     *
+     * @param response The response.
+     * @return The charset, or null if none is declared.
+     */
+    public static String charsetOf(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                return trimmed.substring("charset=".length()).replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the media type of the Content-Type header of the response, without parameters.
+     *
+     * @param response The response.
+     * @return The lower case media type, or null if the response has no Content-Type.
+     */
+    public static String contentTypeOf(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type")
+                .map(value -> value.split(";")[0].trim().toLowerCase(Locale.ROOT))
+                .orElse(null);
+    }
+
+    /**
+     * Derives the key that connections are limited by, the scheme, host and port of the URI.
+     *
+     * @param uri The URI.
+     * @return The host key.
+     */
+    private static String hostKey(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    /**
+     * Closes the stream, ignoring any error.
+     *
+     * @param stream The stream to close.
+     */
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Nothing left to do with a stream that is being discarded
+        }
+    }
+
+    /**
+     * The slots a request holds in the limiter of its host and the limiter over all hosts, with the latency and
+     * outcome reported to both when the slots are released.
+     */
+    private final class Permit {
+
+        // Member variables
+        private final ConcurrencyLimiter host;
+        private final URI uri;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long latency = -1;
+        private volatile ConcurrencyLimiter.Outcome outcome = ConcurrencyLimiter.Outcome.IGNORE;
+
+        /**
+         * Constructs a Permit holding a slot of the host and a slot over all hosts.
+         *
+         * @param host The limiter of the host.
+         * @param uri  The requested URI.
+         */
+        private Permit(ConcurrencyLimiter host, URI uri) {
+            this.host = host;
+            this.uri = uri;
+        }
+
+        /**
+         * Records the time to the response headers, and whether the status shows that the server is overloaded.
+         *
+         * @param status The status of the response.
+         */
+        private void answered(int status) {
+            latency = System.nanoTime() - start;
+            outcome = OVERLOAD_STATUSES.contains(status)
+                    ? ConcurrencyLimiter.Outcome.OVERLOAD : ConcurrencyLimiter.Outcome.SUCCESS;
+            record(status >= FIRST_ERROR_STATUS);
+        }
+
+        /**
+         * Records a request that failed before its headers arrived. Timeouts and connection failures show that the
+         * server or the network could not keep up.
+         *
+         * @param throwable The reason the request failed.
+         */
+        private void failed(Throwable throwable) {
+            if (latency >= 0) {
+                return;
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            latency = System.nanoTime() - start;
+            outcome = cause instanceof IOException
+                    ? ConcurrencyLimiter.Outcome.OVERLOAD : ConcurrencyLimiter.Outcome.IGNORE;
+            record(true);
+        }
+
+        /**
+         * Records the time to first byte of the request to the metrics, if any are set.
+         *
+         * @param error True if the request failed or was answered with an error status.
+         */
+        private void record(boolean error) {
+            CrawlMetrics current = metrics;
+            if (current != null) {
+                current.recordResponse(uri, latency, error, host.getLimit());
+            }
+        }
+
+        /**
+         * Releases both slots, once.
+         */
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                long measured = latency >= 0 ? latency : System.nanoTime() - start;
+                host.release(start, measured, outcome);
+                globalLimiter.release(start, measured, outcome);
+            }
+        }
+    }
+
+    /**
+     * A body stream that releases the permit of its request when it is closed.
+     */
+    private static final class PermitInputStream extends FilterInputStream {
+
+        // Member variables
+        private final Permit permit;
+
+        /**
+         * Constructs a PermitInputStream.
+         *
+         * @param in     The body stream.
+         * @param permit The permit of the request.
+         */
+        private PermitInputStream(InputStream in, Permit permit) {
+            super(in);
+            this.permit = permit;
+        }
+
+        /**
+         * Closes the body stream and releases the permit, once.
+         *
+         * @throws IOException If the body stream cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                permit.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package org.example.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * The metrics of a crawl: latency histograms per {@link Phase}, bytes received and written, the depth of the frontier,
+ * the busy workers and downloads, the utilization of every {@link Stage} of the pipeline, and the requests, errors,
+ * bytes and time to first byte per host. Everything is recorded without locks into {@link LongAdder}s and
+ * {@link LatencyHistogram}s, so the metrics can stay on in production. They are read as a {@link MetricsSnapshot}, or
+ * over JMX once {@link #register()} has been called.
+ * <p>
+ * Only a limited number of hosts is tracked one by one, the hosts first seen beyond it share a single entry, so the
+ * metrics do not grow with the number of hosts a crawl reaches. The host statistics are not part of the snapshot taken
+ * with every progress report, they are only collected when {@link #getHosts()} is read.
+ */
+public class CrawlMetrics implements CrawlMetricsMXBean {
+
+    // Constants
+    public static final String OBJECT_NAME = "org.example:type=CrawlMetrics";
+    public static final String OTHER_HOSTS = "other";
+    private static final int DEFAULT_MAX_HOSTS = 256;
+
+    // Member variables
+    private final long startNanos = System.nanoTime();
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicInteger inFlightDownloads = new AtomicInteger();
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+    private final int maxHosts;
+    private final Map<Stage, StageCounters> stages = new EnumMap<>(Stage.class);
+    private volatile LongSupplier queueDepth = () -> 0;
+
+    /**
+     * Constructs empty CrawlMetrics that track up to 256 hosts one by one.
+     */
+    public CrawlMetrics() {
+        this(DEFAULT_MAX_HOSTS);
+    }
+
+    /**
+     * Constructs empty CrawlMetrics.
+     *
+     * @param maxHosts The number of hosts tracked one by one, further hosts share the {@link #OTHER_HOSTS} entry.
+     */
+    public CrawlMetrics(int maxHosts) {
+        if (maxHosts < 1) throw new IllegalArgumentException("The maximum number of hosts must be greater than zero");
+
+        this.maxHosts = maxHosts;
+        for (Phase phase : Phase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+        }
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new StageCounters());
+        }
+    }
+
+    /**
+     * Sets the number of threads of a stage and where the number of its waiting tasks is read from. Stages without
+     * threads, which run in the thread of the stage before, are not reported.
+     *
+     * @param stage   The stage.
+     * @param threads The number of threads of the stage.
+     * @param queued  The supplier of the number of tasks waiting for a thread of the stage.
+     */
+    public void setStage(Stage stage, int threads, IntSupplier queued) {
+        if (queued == null) throw new IllegalArgumentException("Parameter queued is null");
+        StageCounters counters = stages.get(stage);
+        counters.threads = threads;
+        counters.queued = queued;
+    }
+
+    /**
+     * Counts a thread of a stage that starts running a task.
+     *
+     * @param stage The stage.
+     * @return The {@link System#nanoTime()} at the start of the task, to pass to {@link #stageFinished}.
+     */
+    public long stageStarted(Stage stage) {
+        stages.get(stage).busy.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Counts a thread of a stage that is done with its task, and adds the time of the task to the busy time of the
+     * stage.
+     *
+     * @param stage      The stage.
+     * @param startNanos The {@link System#nanoTime()} at the start of the task.
+     */
+    public void stageFinished(Stage stage, long startNanos) {
+        StageCounters counters = stages.get(stage);
+        counters.busyNanos.add(System.nanoTime() - startNanos);
+        counters.tasks.increment();
+        counters.busy.decrementAndGet();
+    }
+
+    /**
+     * Adds the time a task waited for room in the queue of a stage.
+     *
+     * @param stage The stage.
+     * @param nanos The time waited in nanoseconds.
+     */
+    public void stageBlocked(Stage stage, long nanos) {
+        stages.get(stage).blockedNanos.add(nanos);
+    }
+
+    /**
+     * Sets where the depth of the frontier is read from.
+     *
+     * @param queueDepth The supplier of the number of waiting jobs.
+     */
+    public void setQueueDepth(LongSupplier queueDepth) {
+        if (queueDepth == null) throw new IllegalArgumentException("Parameter queueDepth is null");
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Records the latency of a phase that started at the given time and ends now.
+     *
+     * @param phase      The phase.
+     * @param startNanos The {@link System#nanoTime()} at the start of the phase.
+     */
+    public void record(Phase phase, long startNanos) {
+        latencies.get(phase).recordSince(startNanos);
+    }
+
+    /**
+     * Records the response headers, or the failure, of a request, as the time to first byte of its host.
+     *
+     * @param uri              The requested URI.
+     * @param ttfbNanos        The time from sending the request to receiving the headers, or to the failure.
+     * @param error            True if the request failed or was answered with an error status.
+     * @param concurrencyLimit The current limit of concurrent requests to the host.
+     */
+    public void recordResponse(URI uri, long ttfbNanos, boolean error, int concurrencyLimit) {
+        latencies.get(Phase.TTFB).record(ttfbNanos);
+        Host host = hostOf(uri);
+        host.requests.increment();
+        if (error) {
+            host.errors.increment();
+        }
+        host.ttfb.record(ttfbNanos);
+        host.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * Adds bytes received from the host of a URI.
+     *
+     * @param uri   The URI the bytes were received from.
+     * @param bytes The number of bytes.
+     */
+    public void addBytesIn(URI uri, long bytes) {
+        bytesIn.add(bytes);
+        hostOf(uri).bytes.add(bytes);
+    }
+
+    /**
+     * Adds bytes written to storage.
+     *
+     * @param bytes The number of bytes.
+     */
+    public void addBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    /**
+     * Counts a worker that starts running a job.
+     */
+    public void workerStarted() {
+        activeWorkers.incrementAndGet();
+    }
+
+    /**
+     * Counts a worker that is done with its job.
+     */
+    public void workerFinished() {
+        activeWorkers.decrementAndGet();
+    }
+
+    /**
+     * Counts a download that has been handed off.
+     */
+    public void downloadStarted() {
+        inFlightDownloads.incrementAndGet();
+    }
+
+    /**
+     * Counts a download that has completed or failed.
+     */
+    public void downloadFinished() {
+        inFlightDownloads.decrementAndGet();
+    }
+
+    /**
+     * Gets the statistics of the host of a URI, creating them on first use. Once the maximum number of hosts is
+     * tracked, a host that is not tracked yet gets the statistics shared by all further hosts.
+     *
+     * @param uri The URI.
+     * @return The statistics of the host.
+     */
+    private Host hostOf(URI uri) {
+        String key = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+        Host host = hosts.get(key);
+        if (host != null) {
+            return host;
+        }
+        return hosts.computeIfAbsent(hosts.size() < maxHosts ? key : OTHER_HOSTS, ignored -> new Host());
+    }
+
+    /**
+     * Takes a snapshot of the metrics, without the statistics per host, which are read with {@link #getHosts()}.
+     *
+     * @return The snapshot.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Phase, LatencyHistogram.Snapshot> phases = new EnumMap<>(Phase.class);
+        latencies.forEach((phase, histogram) -> phases.put(phase, histogram.snapshot()));
+        Map<Stage, StageStats> stageStats = new EnumMap<>(Stage.class);
+        stages.forEach((stage, counters) -> {
+            if (counters.threads > 0) {
+                stageStats.put(stage, counters.snapshot());
+            }
+        });
+        return new MetricsSnapshot(getBytesIn(), getBytesOut(), getBytesInPerSecond(), getBytesOutPerSecond(),
+                getQueueDepth(), getActiveWorkers(), getInFlightDownloads(), phases, stageStats);
+    }
+
+    /**
+     * Gets the number of bytes received.
+     *
+     * @return The bytes in.
+     */
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * Gets the number of bytes written to storage.
+     *
+     * @return The bytes out.
+     */
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Gets the average rate at which bytes are received since the crawl started.
+     *
+     * @return The bytes in per second.
+     */
+    @Override
+    public double getBytesInPerSecond() {
+        return perSecond(bytesIn.sum());
+    }
+
+    /**
+     * Gets the average rate at which bytes are written since the crawl started.
+     *
+     * @return The bytes out per second.
+     */
+    @Override
+    public double getBytesOutPerSecond() {
+        return perSecond(bytesOut.sum());
+    }
+
+    /**
+     * Divides an amount by the time elapsed since the metrics were created.
+     *
+     * @param amount The amount.
+     * @return The amount per second.
+     */
+    private double perSecond(long amount) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : amount * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Gets the number of jobs waiting in the frontier.
+     *
+     * @return The queue depth.
+     */
+    @Override
+    public long getQueueDepth() {
+        return queueDepth.getAsLong();
+    }
+
+    /**
+     * Gets the number of workers running a job.
+     *
+     * @return The number of active workers.
+     */
+    @Override
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    /**
+     * Gets the number of downloads in flight, which hold no worker.
+     *
+     * @return The number of downloads in flight.
+     */
+    @Override
+    public int getInFlightDownloads() {
+        return inFlightDownloads.get();
+    }
+
+    /**
+     * Gets the latencies of the phases of the crawl.
+     *
+     * @return The latency snapshot per phase name.
+     */
+    @Override
+    public Map<String, LatencyHistogram.Snapshot> getLatencies() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        latencies.forEach((phase, histogram) -> snapshots.put(phase.name(), histogram.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Gets the statistics of the stages of the pipeline that have threads of their own.
+     *
+     * @return The statistics per stage name.
+     */
+    @Override
+    public Map<String, StageStats> getStages() {
+        Map<String, StageStats> snapshots = new TreeMap<>();
+        stages.forEach((stage, counters) -> {
+            if (counters.threads > 0) {
+                snapshots.put(stage.name(), counters.snapshot());
+            }
+        });
+        return snapshots;
+    }
+
+    /**
+     * Gets the statistics of the requests per host, collected when they are read.
+     *
+     * @return The statistics per host, keyed by scheme, host and port, the hosts beyond the tracked ones under
+     * {@link #OTHER_HOSTS}.
+     */
+    @Override
+    public Map<String, HostStats> getHosts() {
+        Map<String, HostStats> snapshots = new TreeMap<>();
+        hosts.forEach((key, host) -> snapshots.put(key, new HostStats(host.requests.sum(), host.errors.sum(),
+                host.bytes.sum(), host.concurrencyLimit, host.ttfb.snapshot())));
+        return snapshots;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing the metrics of an earlier crawl.
+     *
+     * @throws JMException If the metrics cannot be registered.
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName();
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server, if they are registered.
+     *
+     * @throws JMException If the metrics cannot be unregistered.
+     */
+    public void unregister() throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName());
+        } catch (InstanceNotFoundException e) {
+            // Not registered, nothing to do
+        }
+    }
+
+    /**
+     * Gets the name the metrics are registered under.
+     *
+     * @return The object name.
+     * @throws MalformedObjectNameException Never, the name is a constant.
+     */
+    private static ObjectName objectName() throws MalformedObjectNameException {
+        return new ObjectName(OBJECT_NAME);
+    }
+
+    /**
+     * The counters of a single host.
+     */
+    private static final class Host {
+
+        // Member variables
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LatencyHistogram ttfb = new LatencyHistogram();
+        private volatile int concurrencyLimit;
+    }
+
+    /**
+     * The counters of a single stage.
+     */
+    private final class StageCounters {
+
+        // Member variables
+        private final AtomicInteger busy = new AtomicInteger();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder blockedNanos = new LongAdder();
+        private final LongAdder tasks = new LongAdder();
+        private volatile int threads;
+        private volatile IntSupplier queued = () -> 0;
+
+        /**
+         * Takes a snapshot of the counters. The utilization is the busy time of the completed tasks divided by the
+         * thread time since the metrics were created.
+         *
+         * @return The statistics of the stage.
+         */
+        private StageStats snapshot() {
+            long elapsed = System.nanoTime() - startNanos;
+            double utilization = elapsed <= 0 ? 0 : Math.min(1, busyNanos.sum() / ((double) elapsed * threads));
+            return new StageStats(threads, busy.get(), queued.getAsInt(), tasks.sum(), utilization,
+                    TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum()));
+        }
+    }
+}
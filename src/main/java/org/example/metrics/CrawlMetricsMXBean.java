@@ -0,0 +1,81 @@
+package org.example.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics of a running crawl, registered with the platform MBean server under
+ * {@link CrawlMetrics#OBJECT_NAME} so that a crawl can be watched with JConsole, VisualVM or any JMX client.
+ */
+public interface CrawlMetricsMXBean {
+
+    /**
+     * Gets the number of bytes received.
+     *
+     * @return The bytes in.
+     */
+    long getBytesIn();
+
+    /**
+     * Gets the number of bytes written to storage.
+     *
+     * @return The bytes out.
+     */
+    long getBytesOut();
+
+    /**
+     * Gets the average rate at which bytes are received since the crawl started.
+     *
+     * @return The bytes in per second.
+     */
+    double getBytesInPerSecond();
+
+    /**
+     * Gets the average rate at which bytes are written since the crawl started.
+     *
+     * @return The bytes out per second.
+     */
+    double getBytesOutPerSecond();
+
+    /**
+     * Gets the number of jobs waiting in the frontier.
+     *
+     * @return The queue depth.
+     */
+    long getQueueDepth();
+
+    /**
+     * Gets the number of workers running a job.
+     *
+     * @return The number of active workers.
+     */
+    int getActiveWorkers();
+
+    /**
+     * Gets the number of downloads in flight, which hold no worker.
+     *
+     * @return The number of downloads in flight.
+     */
+    int getInFlightDownloads();
+
+    /**
+     * Gets the latencies of the phases of the crawl.
+     *
+     * @return The latency snapshot per phase name.
+     */
+    Map<String, LatencyHistogram.Snapshot> getLatencies();
+
+    /**
+     * Gets the statistics of the stages of the pipeline that have threads of their own.
+     *
+     * @return The statistics per stage name.
+     */
+    Map<String, StageStats> getStages();
+
+    /**
+     * Gets the statistics of the requests per host.
+     *
+     * @return The statistics per host, keyed by scheme, host and port, the hosts beyond the tracked ones under
+     * {@link CrawlMetrics#OTHER_HOSTS}.
+     */
+    Map<String, HostStats> getHosts();
+}
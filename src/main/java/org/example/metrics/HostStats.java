@@ -0,0 +1,80 @@
+package org.example.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * An immutable view of the requests to a single host: how many were sent and failed, the bytes received, the
+ * concurrency limit of the host and the time to the response headers.
+ */
+public final class HostStats {
+
+    // Member variables
+    private final long requests;
+    private final long errors;
+    private final long bytes;
+    private final int concurrencyLimit;
+    private final LatencyHistogram.Snapshot ttfb;
+
+    /**
+     * Constructs a HostStats.
+     *
+     * @param requests         The number of requests sent to the host.
+     * @param errors           The number of requests that failed or were answered with an error status.
+     * @param bytes            The number of bytes received from the host.
+     * @param concurrencyLimit The current limit of concurrent requests to the host, or 0 if unknown.
+     * @param ttfb             The time to the response headers.
+     */
+    @ConstructorParameters({"requests", "errors", "bytes", "concurrencyLimit", "ttfb"})
+    public HostStats(long requests, long errors, long bytes, int concurrencyLimit, LatencyHistogram.Snapshot ttfb) {
+        this.requests = requests;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.concurrencyLimit = concurrencyLimit;
+        this.ttfb = ttfb;
+    }
+
+    /**
+     * Gets the number of requests sent to the host.
+     *
+     * @return The number of requests.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Gets the number of requests that failed or were answered with an error status.
+     *
+     * @return The number of errors.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the number of bytes received from the host.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the current limit of concurrent requests to the host.
+     *
+     * @return The concurrency limit, or 0 if unknown.
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Gets the time to the response headers.
+     *
+     * @return The latency snapshot.
+     */
+    public LatencyHistogram.Snapshot getTtfb() {
+        return ttfb;
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.metrics;
+
+import javax.management.ConstructorParameters;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies. Values are counted in logarithmic buckets with eight linear steps per power of
+ * two, which keeps the error of a percentile below 12.5% at a fixed size of a few hundred counters. Counters are
+ * {@link LongAdder}s, so concurrent recorders do not contend on a shared cache line, and recording costs about as
+ * much as reading the clock.
+ */
+public class LatencyHistogram {
+
+    // Constants
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    // Member variables
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructs an empty LatencyHistogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency. Negative values are recorded as zero, values beyond about two hours in the last bucket.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[indexOf(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time elapsed since a start time.
+     *
+     * @param startNanos The {@link System#nanoTime()} at the start.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Finds the bucket of a value: values below the number of steps per power of two have a bucket each, larger values
+     * share a bucket with the values of the same power of two and the same leading bits.
+     *
+     * @param value The non-negative value.
+     * @return The index of the bucket.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the highest value counted in a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The upper bound of the bucket.
+     */
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+
+    /**
+     * Takes a snapshot of the histogram. Recording goes on meanwhile, so the snapshot may be off by the values recorded
+     * while it is taken.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        long samples = count.sum();
+        return new Snapshot(samples, samples == 0 ? 0 : toMillis(sum.sum()) / samples,
+                toMillis(percentile(counts, total, 0.5)), toMillis(percentile(counts, total, 0.9)),
+                toMillis(percentile(counts, total, 0.99)), toMillis(max.get()));
+    }
+
+    /**
+     * Finds the value below which the given share of the counted values lie.
+     *
+     * @param counts   The counts of the buckets.
+     * @param total    The sum of the counts.
+     * @param quantile The share between 0 and 1.
+     * @return The upper bound of the bucket holding the quantile, or 0 if nothing was recorded.
+     */
+    private static long percentile(long[] counts, long total, double quantile) {
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return upperBoundOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Converts nanoseconds to fractional milliseconds.
+     *
+     * @param nanos The nanoseconds.
+     * @return The milliseconds.
+     */
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * An immutable view of a histogram, in milliseconds.
+     */
+    public static final class Snapshot {
+
+        // Member variables
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        /**
+         * Constructs a Snapshot.
+         *
+         * @param count      The number of recorded values.
+         * @param meanMillis The mean.
+         * @param p50Millis  The median.
+         * @param p90Millis  The 90th percentile.
+         * @param p99Millis  The 99th percentile.
+         * @param maxMillis  The largest recorded value.
+         */
+        @ConstructorParameters({"count", "meanMillis", "p50Millis", "p90Millis", "p99Millis", "maxMillis"})
+        public Snapshot(long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+                        double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        /**
+         * Gets the number of recorded values.
+         *
+         * @return The count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the mean of the recorded values.
+         *
+         * @return The mean in milliseconds.
+         */
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        /**
+         * Gets the median of the recorded values.
+         *
+         * @return The median in milliseconds.
+         */
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        /**
+         * Gets the 90th percentile of the recorded values.
+         *
+         * @return The 90th percentile in milliseconds.
+         */
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        /**
+         * Gets the 99th percentile of the recorded values.
+         *
+         * @return The 99th percentile in milliseconds.
+         */
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        /**
+         * Gets the largest recorded value.
+         *
+         * @return The maximum in milliseconds.
+         */
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable view of the metrics of a crawl at a point in time: bytes and rates, queue depth, busy workers and
+ * downloads, the latencies of every phase and the statistics of every stage. The statistics per host are read from
+ * {@link CrawlMetrics#getHosts()} instead, they are too many to collect for every snapshot.
+ */
+public final class MetricsSnapshot {
+
+    // Member variables
+    private final long bytesIn;
+    private final long bytesOut;
+    private final double bytesInPerSecond;
+    private final double bytesOutPerSecond;
+    private final long queueDepth;
+    private final int activeWorkers;
+    private final int inFlightDownloads;
+    private final Map<Phase, LatencyHistogram.Snapshot> latencies;
+    private final Map<Stage, StageStats> stages;
+
+    /**
+     * Constructs a MetricsSnapshot.
+     *
+     * @param bytesIn           The number of bytes received.
+     * @param bytesOut          The number of bytes written to storage.
+     * @param bytesInPerSecond  The average rate at which bytes are received.
+     * @param bytesOutPerSecond The average rate at which bytes are written.
+     * @param queueDepth        The number of jobs waiting in the frontier.
+     * @param activeWorkers     The number of workers running a job.
+     * @param inFlightDownloads The number of downloads in flight.
+     * @param latencies         The latencies per phase.
+     * @param stages            The statistics of the stages that have threads of their own.
+     */
+    public MetricsSnapshot(long bytesIn, long bytesOut, double bytesInPerSecond, double bytesOutPerSecond,
+                           long queueDepth, int activeWorkers, int inFlightDownloads,
+                           Map<Phase, LatencyHistogram.Snapshot> latencies, Map<Stage, StageStats> stages) {
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.bytesInPerSecond = bytesInPerSecond;
+        this.bytesOutPerSecond = bytesOutPerSecond;
+        this.queueDepth = queueDepth;
+        this.activeWorkers = activeWorkers;
+        this.inFlightDownloads = inFlightDownloads;
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.stages = Collections.unmodifiableMap(stages);
+    }
+
+    /**
+     * Gets the number of bytes received.
+     *
+     * @return The bytes in.
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Gets the number of bytes written to storage.
+     *
+     * @return The bytes out.
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Gets the average rate at which bytes are received since the crawl started.
+     *
+     * @return The bytes in per second.
+     */
+    public double getBytesInPerSecond() {
+        return bytesInPerSecond;
+    }
+
+    /**
+     * Gets the average rate at which bytes are written since the crawl started.
+     *
+     * @return The bytes out per second.
+     */
+    public double getBytesOutPerSecond() {
+        return bytesOutPerSecond;
+    }
+
+    /**
+     * Gets the number of jobs waiting in the frontier.
+     *
+     * @return The queue depth.
+     */
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Gets the number of workers running a job.
+     *
+     * @return The number of active workers.
+     */
+    public int getActiveWorkers() {
+        return activeWorkers;
+    }
+
+    /**
+     * Gets the number of downloads in flight, which hold no worker.
+     *
+     * @return The number of downloads in flight.
+     */
+    public int getInFlightDownloads() {
+        return inFlightDownloads;
+    }
+
+    /**
+     * Gets the latency of a phase.
+     *
+     * @param phase The phase.
+     * @return The latency snapshot.
+     */
+    public LatencyHistogram.Snapshot getLatency(Phase phase) {
+        return latencies.get(phase);
+    }
+
+    /**
+     * Gets the statistics of the stages of the pipeline.
+     *
+     * @return The statistics of the stages that have threads of their own.
+     */
+    public Map<Stage, StageStats> getStages() {
+        return stages;
+    }
+}
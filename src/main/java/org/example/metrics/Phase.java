@@ -0,0 +1,17 @@
+package org.example.metrics;
+
+/**
+ * The phases of a crawl whose latencies are recorded, to tell where a slow crawl spends its time.
+ */
+public enum Phase {
+    // Time from sending a request to receiving the response headers, including name resolution and connecting
+    TTFB,
+    // Reading a page, from sending the request to having the whole body
+    FETCH,
+    // Parsing a page and extracting its resources and links, a single pass in every extractor
+    EXTRACT,
+    // Writing a page that has been read to storage
+    WRITE,
+    // Downloading a resource, which is streamed to storage while it is received
+    DOWNLOAD
+}
@@ -0,0 +1,13 @@
+package org.example.metrics;
+
+/**
+ * The stages of the crawl pipeline, each run by its own pool of threads, to tell which resource a crawl is bound by.
+ */
+public enum Stage {
+    // Fetching pages and handing off downloads, bound by the network, run by the crawl executor
+    FETCH,
+    // Parsing pages and extracting their resources and links, bound by the CPU
+    PARSE,
+    // Writing pages to storage, bound by the disk
+    WRITE
+}
@@ -0,0 +1,94 @@
+package org.example.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * An immutable view of a stage of the crawl pipeline: its threads, how many of them are busy, the tasks waiting for
+ * one, the tasks completed, how much of its thread time it has been busy and how long other stages waited for room in
+ * its queue.
+ */
+public final class StageStats {
+
+    // Member variables
+    private final int threads;
+    private final int busy;
+    private final int queued;
+    private final long tasks;
+    private final double utilization;
+    private final long blockedMillis;
+
+    /**
+     * Constructs a StageStats.
+     *
+     * @param threads       The number of threads of the stage.
+     * @param busy          The number of threads running a task.
+     * @param queued        The number of tasks waiting for a thread.
+     * @param tasks         The number of tasks completed.
+     * @param utilization   The share of the thread time of the stage spent running tasks since the crawl started.
+     * @param blockedMillis The time other stages waited for room in the queue of the stage, in milliseconds.
+     */
+    @ConstructorParameters({"threads", "busy", "queued", "tasks", "utilization", "blockedMillis"})
+    public StageStats(int threads, int busy, int queued, long tasks, double utilization, long blockedMillis) {
+        this.threads = threads;
+        this.busy = busy;
+        this.queued = queued;
+        this.tasks = tasks;
+        this.utilization = utilization;
+        this.blockedMillis = blockedMillis;
+    }
+
+    /**
+     * Gets the number of threads of the stage.
+     *
+     * @return The number of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Gets the number of threads running a task.
+     *
+     * @return The number of busy threads.
+     */
+    public int getBusy() {
+        return busy;
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread.
+     *
+     * @return The number of queued tasks.
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Gets the number of tasks completed.
+     *
+     * @return The number of tasks.
+     */
+    public long getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Gets the share of the thread time of the stage spent running tasks since the crawl started. A stage close to 1
+     * is the bottleneck of the crawl.
+     *
+     * @return The utilization, between 0 and 1.
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Gets the time other stages waited for room in the queue of the stage.
+     *
+     * @return The blocked time in milliseconds.
+     */
+    public long getBlockedMillis() {
+        return blockedMillis;
+    }
+}
@@ -3,6 +3,9 @@ package org.example.misc;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Utility class for accessing application configuration properties.
  */
@@ -27,4 +30,483 @@ public class AppConfig {
     public static String getSourceURL() {
         return config.getString("sourceUrl");
     }
+
+    /**
+     * Gets the type of visited set from the configuration, either "exact" or "compact".
+     *
+     * @return The visited set type.
+     */
+    public static String getVisitedSetType() {
+        return config.getString("visitedSet.type");
+    }
+
+    /**
+     * Gets the memory budget of the compact visited set from the configuration.
+     *
+     * @return The memory budget in bytes.
+     */
+    public static long getVisitedSetMemoryBudget() {
+        return config.getBytes("visitedSet.memoryBudget");
+    }
+
+    /**
+     * Gets the number of journal records written per batch from the configuration.
+     *
+     * @return The journal batch size.
+     */
+    public static int getJournalBatchSize() {
+        return config.getInt("journal.batchSize");
+    }
+
+    /**
+     * Gets whether every journal batch is forced to the storage device from the configuration.
+     *
+     * @return True if journal batches are synced, false otherwise.
+     */
+    public static boolean isJournalSync() {
+        return config.getBoolean("journal.sync");
+    }
+
+    /**
+     * Gets the preferred HTTP version from the configuration, either "HTTP_2" or "HTTP_1_1".
+     *
+     * @return The HTTP version.
+     */
+    public static String getHttpVersion() {
+        return config.getString("http.version");
+    }
+
+    /**
+     * Gets the maximum number of concurrent requests per host from the configuration.
+     *
+     * @return The maximum number of connections per host.
+     */
+    public static int getHttpMaxConnectionsPerHost() {
+        return config.getInt("http.maxConnectionsPerHost");
+    }
+
+    /**
+     * Gets the maximum number of concurrent requests over all hosts from the configuration.
+     *
+     * @return The maximum number of connections.
+     */
+    public static int getHttpMaxConnections() {
+        return config.getInt("http.maxConnections");
+    }
+
+    /**
+     * Gets whether the connection limits adapt to the latency and failures of the requests from the configuration.
+     *
+     * @return True if the limits are adaptive, false if they are fixed.
+     */
+    public static boolean isHttpAdaptiveConcurrency() {
+        return config.getBoolean("http.adaptiveConcurrency");
+    }
+
+    /**
+     * Gets the timeout for establishing a connection from the configuration.
+     *
+     * @return The connect timeout.
+     */
+    public static Duration getHttpConnectTimeout() {
+        return config.getDuration("http.connectTimeout");
+    }
+
+    /**
+     * Gets the timeout for receiving the response headers of a request from the configuration.
+     *
+     * @return The read timeout.
+     */
+    public static Duration getHttpReadTimeout() {
+        return config.getDuration("http.readTimeout");
+    }
+
+    /**
+     * Gets how long idle connections are kept in the pool from the configuration.
+     *
+     * @return The keep-alive timeout.
+     */
+    public static Duration getHttpKeepAliveTimeout() {
+        return config.getDuration("http.keepAliveTimeout");
+    }
+
+    /**
+     * Gets the default maximum number of jobs in flight when running on virtual threads from the configuration.
+     *
+     * @return The maximum number of jobs in flight.
+     */
+    public static int getVirtualThreadsMaxInFlight() {
+        return config.getInt("virtualThreads.maxInFlight");
+    }
+
+    /**
+     * Gets the maximum number of downloads the asynchronous writer has in flight from the configuration.
+     *
+     * @return The maximum number of downloads in flight.
+     */
+    public static int getWriteMaxInFlight() {
+        return config.getInt("write.maxInFlight");
+    }
+
+    /**
+     * Checks whether pages are parsed and written by stages with their own threads from the configuration.
+     *
+     * @return True if the pipeline has separate stages.
+     */
+    public static boolean isPipelineEnabled() {
+        return config.getBoolean("pipeline.enabled");
+    }
+
+    /**
+     * Gets the number of threads that parse pages from the configuration.
+     *
+     * @return The number of parse threads, zero for one per core.
+     */
+    public static int getPipelineParseThreads() {
+        return config.getInt("pipeline.parseThreads");
+    }
+
+    /**
+     * Gets the number of pages that may wait for a parse thread from the configuration.
+     *
+     * @return The capacity of the parse queue.
+     */
+    public static int getPipelineParseQueue() {
+        return config.getInt("pipeline.parseQueue");
+    }
+
+    /**
+     * Gets the number of threads that write pages from the configuration.
+     *
+     * @return The number of write threads.
+     */
+    public static int getPipelineWriteThreads() {
+        return config.getInt("pipeline.writeThreads");
+    }
+
+    /**
+     * Gets the number of pages that may wait for a write thread from the configuration.
+     *
+     * @return The capacity of the write queue.
+     */
+    public static int getPipelineWriteQueue() {
+        return config.getInt("pipeline.writeQueue");
+    }
+
+    /**
+     * Gets the interval at which progress is pushed to the progress consumer from the configuration.
+     *
+     * @return The progress interval.
+     */
+    public static Duration getProgressInterval() {
+        return config.getDuration("progress.interval");
+    }
+
+    /**
+     * Gets the maximum number of frontier entries kept in memory from the configuration.
+     *
+     * @return The frontier memory capacity.
+     */
+    public static int getFrontierMemoryCapacity() {
+        return config.getInt("frontier.memoryCapacity");
+    }
+
+    /**
+     * Gets the number of entries per spilled frontier segment file from the configuration.
+     *
+     * @return The frontier segment size.
+     */
+    public static int getFrontierSegmentSize() {
+        return config.getInt("frontier.segmentSize");
+    }
+
+    /**
+     * Gets the scheduling policy of the frontier from the configuration.
+     *
+     * @return The name of the scheduling policy.
+     */
+    public static String getSchedulingPolicy() {
+        return config.getString("frontier.policy");
+    }
+
+    /**
+     * Gets the maximum link depth of crawled pages from the configuration.
+     *
+     * @return The maximum depth, or {@link Integer#MAX_VALUE} if not configured.
+     */
+    public static int getBudgetMaxDepth() {
+        return config.hasPath("budget.maxDepth") ? config.getInt("budget.maxDepth") : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the maximum number of crawled pages from the configuration.
+     *
+     * @return The maximum number of pages, or {@link Long#MAX_VALUE} if not configured.
+     */
+    public static long getBudgetMaxPages() {
+        return config.hasPath("budget.maxPages") ? config.getLong("budget.maxPages") : Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the maximum number of downloaded bytes from the configuration.
+     *
+     * @return The maximum number of bytes, or {@link Long#MAX_VALUE} if not configured.
+     */
+    public static long getBudgetMaxBytes() {
+        return config.hasPath("budget.maxBytes") ? config.getBytes("budget.maxBytes") : Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the maximum running time of a crawl from the configuration.
+     *
+     * @return The maximum running time, or null if not configured.
+     */
+    public static Duration getBudgetMaxDuration() {
+        return config.hasPath("budget.maxDuration") ? config.getDuration("budget.maxDuration") : null;
+    }
+
+    /**
+     * Gets the link extraction mode from the configuration.
+     *
+     * @return The name of the extraction mode.
+     */
+    public static String getExtractionMode() {
+        return config.getString("extraction.mode");
+    }
+
+    /**
+     * Checks whether content-addressed storage with deduplication is enabled in the configuration.
+     *
+     * @return True if identical content is stored only once, false otherwise.
+     */
+    public static boolean isDedupEnabled() {
+        return config.getBoolean("dedup.enabled");
+    }
+
+    /**
+     * Gets the largest Content-Length of a download that is hashed in memory before it is stored, when
+     * content-addressed storage is enabled, from the configuration.
+     *
+     * @return The buffer limit in bytes.
+     */
+    public static long getDedupBufferLimit() {
+        return config.getBytes("dedup.bufferLimit");
+    }
+
+    /**
+     * Checks whether crawled content is appended to archive segments instead of written as a file per URL, from the
+     * configuration.
+     *
+     * @return True if archiving is enabled, false otherwise.
+     */
+    public static boolean isArchiveEnabled() {
+        return config.getBoolean("archive.enabled");
+    }
+
+    /**
+     * Gets the size after which an archive segment is rolled over from the configuration.
+     *
+     * @return The archive segment size in bytes.
+     */
+    public static long getArchiveSegmentSize() {
+        return config.getBytes("archive.segmentSize");
+    }
+
+    /**
+     * Gets the number of times a job is tried at most, including the first attempt, from the configuration.
+     *
+     * @return The maximum number of attempts.
+     */
+    public static int getRetryMaxAttempts() {
+        return config.getInt("retry.maxAttempts");
+    }
+
+    /**
+     * Gets the upper bound of the wait before the first retry from the configuration.
+     *
+     * @return The initial backoff.
+     */
+    public static Duration getRetryInitialBackoff() {
+        return config.getDuration("retry.initialBackoff");
+    }
+
+    /**
+     * Gets the cap of the wait between retries from the configuration.
+     *
+     * @return The maximum backoff.
+     */
+    public static Duration getRetryMaxBackoff() {
+        return config.getDuration("retry.maxBackoff");
+    }
+
+    /**
+     * Gets the number of consecutive transient failures that open the circuit of a host from the configuration.
+     *
+     * @return The failure threshold.
+     */
+    public static int getCircuitBreakerFailureThreshold() {
+        return config.getInt("retry.circuitBreaker.failureThreshold");
+    }
+
+    /**
+     * Gets how long the circuit of a host stays open before a probe is let through from the configuration.
+     *
+     * @return The open duration.
+     */
+    public static Duration getCircuitBreakerOpenDuration() {
+        return config.getDuration("retry.circuitBreaker.openDuration");
+    }
+
+    /**
+     * Gets what URLs are partitioned by in a distributed crawl from the configuration, "host" or "url".
+     *
+     * @return The partition key.
+     */
+    public static String getDistributedPartitionBy() {
+        return config.getString("distributed.partitionBy");
+    }
+
+    /**
+     * Gets the number of forwarded links sent in one batch from the configuration.
+     *
+     * @return The batch size.
+     */
+    public static int getDistributedBatchSize() {
+        return config.getInt("distributed.batchSize");
+    }
+
+    /**
+     * Gets the interval at which incomplete batches are sent and workers report their state from the configuration.
+     *
+     * @return The flush interval.
+     */
+    public static Duration getDistributedFlushInterval() {
+        return config.getDuration("distributed.flushInterval");
+    }
+
+    /**
+     * Gets the port the coordinator of a distributed crawl listens on from the configuration.
+     *
+     * @return The port.
+     */
+    public static int getDistributedPort() {
+        return config.getInt("distributed.port");
+    }
+
+    /**
+     * Checks whether robots.txt files are honored and sitemaps are read from the configuration.
+     *
+     * @return True if robots.txt files are honored.
+     */
+    public static boolean isRobotsEnabled() {
+        return config.getBoolean("robots.enabled");
+    }
+
+    /**
+     * Gets the product token the rules of robots.txt files are selected by from the configuration.
+     *
+     * @return The user agent.
+     */
+    public static String getRobotsUserAgent() {
+        return config.getString("robots.userAgent");
+    }
+
+    /**
+     * Gets the maximum number of sitemaps read to seed a crawl from the configuration.
+     *
+     * @return The maximum number of sitemaps, zero to not read sitemaps.
+     */
+    public static int getRobotsMaxSitemaps() {
+        return config.getInt("robots.maxSitemaps");
+    }
+
+    /**
+     * Gets the media types of pages that are downloaded from the configuration.
+     *
+     * @return The allowed media types, empty to allow every type.
+     */
+    public static List<String> getPageDownloadTypes() {
+        return config.getStringList("download.page.types");
+    }
+
+    /**
+     * Gets the maximum size of a page that is downloaded from the configuration.
+     *
+     * @return The maximum size in bytes.
+     */
+    public static long getPageDownloadMaxBytes() {
+        return config.getBytes("download.page.maxBytes");
+    }
+
+    /**
+     * Gets the maximum time the body of a page may take to arrive from the configuration.
+     *
+     * @return The maximum transfer time.
+     */
+    public static Duration getPageDownloadMaxDuration() {
+        return config.getDuration("download.page.maxDuration");
+    }
+
+    /**
+     * Gets the media types of resources that are downloaded from the configuration.
+     *
+     * @return The allowed media types, empty to allow every type.
+     */
+    public static List<String> getFileDownloadTypes() {
+        return config.getStringList("download.file.types");
+    }
+
+    /**
+     * Gets the maximum size of a resource that is downloaded from the configuration.
+     *
+     * @return The maximum size in bytes.
+     */
+    public static long getFileDownloadMaxBytes() {
+        return config.getBytes("download.file.maxBytes");
+    }
+
+    /**
+     * Gets the maximum time the body of a resource may take to arrive from the configuration.
+     *
+     * @return The maximum transfer time.
+     */
+    public static Duration getFileDownloadMaxDuration() {
+        return config.getDuration("download.file.maxDuration");
+    }
+
+    /**
+     * Gets the hosts in scope of a crawl from the configuration.
+     *
+     * @return The hosts, empty for the host of the starting URL.
+     */
+    public static List<String> getScopeHosts() {
+        return config.getStringList("scope.hosts");
+    }
+
+    /**
+     * Gets the path prefixes in scope of a crawl from the configuration.
+     *
+     * @return The path prefixes, empty for the directory of the starting URL.
+     */
+    public static List<String> getScopeIncludes() {
+        return config.getStringList("scope.includes");
+    }
+
+    /**
+     * Gets the patterns of paths out of scope of a crawl from the configuration.
+     *
+     * @return The exclude patterns.
+     */
+    public static List<String> getScopeExcludes() {
+        return config.getStringList("scope.excludes");
+    }
+
+    /**
+     * Gets the names of the query parameters stripped from crawled URLs from the configuration.
+     *
+     * @return The parameter names or name prefixes.
+     */
+    public static List<String> getScopeStripParams() {
+        return config.getStringList("scope.stripParams");
+    }
 }
@@ -0,0 +1,86 @@
+package org.example.misc;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A counting semaphore that never blocks the acquiring thread. Acquiring returns a future that completes once a permit
+ * is available, so callers compose the guarded work onto it instead of parking a thread while they wait. Waiters are
+ * served in the order they arrived.
+ * <p>
+ * The future of a waiter completes on the thread that releases the permit, so the work composed onto it should not
+ * block.
+ */
+public class AsyncSemaphore {
+
+    // Member variables
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available;
+
+    /**
+     * Constructs an AsyncSemaphore.
+     *
+     * @param permits The number of permits.
+     */
+    public AsyncSemaphore(int permits) {
+        if (permits < 1) throw new IllegalArgumentException("The number of permits must be greater than zero");
+        this.available = permits;
+    }
+
+    /**
+     * Acquires a permit.
+     *
+     * @return A future that completes once the permit has been acquired, already completed if one was available.
+     */
+    public CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * Releases a permit, handing it to the longest waiting acquirer if there is one.
+     */
+    public void release() {
+        while (true) {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                waiter = waiters.poll();
+                if (waiter == null) {
+                    available++;
+                    return;
+                }
+            }
+
+            // Complete outside the lock, the waiter runs its work on this thread. A cancelled waiter passes the permit on
+            if (waiter.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of permits that are currently available.
+     *
+     * @return The number of available permits.
+     */
+    public synchronized int getAvailable() {
+        return available;
+    }
+
+    /**
+     * Gets the number of acquirers waiting for a permit.
+     *
+     * @return The number of waiters.
+     */
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+}
@@ -1,25 +1,81 @@
 /**
  * HTTPPageReader is an implementation of the PageReader interface that reads a web page
- * from the specified URI using Jsoup library.
+ * from the specified URI using the shared HTTP transport.
  */
 package org.example.read;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.example.http.DownloadPolicy;
+import org.example.http.HttpTransport;
+import org.example.store.Validators;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.http.HttpResponse;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 public class HTTPPageReader implements PageReader {
 
+    // Member variables
+    private final HttpTransport transport;
+    private final DownloadPolicy policy;
+
+    /**
+     * Constructs an HTTPPageReader that uses the default transport.
+     */
+    public HTTPPageReader() {
+        this(HttpTransport.getDefault());
+    }
+
+    /**
+     * Constructs an HTTPPageReader with the configured download limits of pages.
+     *
+     * @param transport The HTTP transport shared with the other readers and writers.
+     */
+    public HTTPPageReader(HttpTransport transport) {
+        this(transport, DownloadPolicy.pagesFromConfig());
+    }
+
     /**
-     * Reads a web page from the given URI using Jsoup library.
+     * Constructs an HTTPPageReader.
      *
-     * @param uri The URI of the web page to read.
-     * @return A Jsoup Document representing the parsed web page.
-     * @throws IOException If an I/O error occurs during the page retrieval.
+     * @param transport The HTTP transport shared with the other readers and writers.
+     * @param policy    The limits of a page download, a page that breaks them is not read.
+     */
+    public HTTPPageReader(HttpTransport transport, DownloadPolicy policy) {
+        if (transport == null) throw new IllegalArgumentException("Parameter transport is null");
+        if (policy == null) throw new IllegalArgumentException("Parameter policy is null");
+        this.transport = transport;
+        this.policy = policy;
+    }
+
+    /**
+     * Reads a web page from the given URI. The whole body is buffered so that it can be parsed and written to disk
+     * as is. The content carries the URI the page was read from after redirects.
+     *
+     * @param uri        The URI of the web page to read.
+     * @param validators The validators of the previous crawl of the page, or null to read it unconditionally.
+     * @return The content of the web page, see {@link PageContent#isNotModified()}.
+     * @throws IOException If an I/O error occurs during the page retrieval, or a
+     *                     {@link org.example.http.DownloadRejectedException} if the page breaks the download limits.
      */
     @Override
-    public Document read(URI uri) throws IOException {
-        return Jsoup.connect(uri.toURL().toString()).get();
+    public PageContent read(URI uri, Validators validators) throws IOException {
+        HttpResponse<InputStream> response = transport.get(uri, validators, policy);
+
+        MessageDigest digest = Validators.newDigest();
+        try (InputStream body = new DigestInputStream(response.body(), digest)) {
+            if (HttpTransport.isNotModified(response)) {
+                return PageContent.notModified(uri);
+            }
+
+            // Keep the validators of the response to make the next crawl conditional
+            byte[] bytes = body.readAllBytes();
+            Validators current = HttpTransport.validatorsOf(response, bytes.length, Validators.toHex(digest));
+
+            // Links are relative to where redirects ended, not to the requested URI
+            return new PageContent(response.uri(), bytes, HttpTransport.charsetOf(response),
+                    HttpTransport.contentTypeOf(response), current);
+        }
     }
 }
@@ -0,0 +1,125 @@
+/**
+ * The PageContent class holds the raw response body of a fetched web page together with the information needed to
+ * parse it. The body is downloaded once by a {@link PageReader} and can then be both scanned for links and written to
+ * disk without another network round trip. When the server answered 304 Not Modified there is no body,
+ * see {@link #notModified(URI)}.
+ */
+package org.example.read;
+
+import org.example.store.Validators;
+
+import java.net.URI;
+
+public class PageContent {
+
+    // Member variables
+    private final URI uri;
+    private final byte[] body;
+    private final String charset;
+    private final String contentType;
+    private final Validators validators;
+
+    /**
+     * Constructs a PageContent instance.
+     *
+     * @param uri     The URI the page was fetched from, also used as the base URI when parsing.
+     * @param body    The raw response body.
+     * @param charset The charset declared by the response, or null to let the parser detect it.
+     */
+    public PageContent(URI uri, byte[] body, String charset) {
+        this(uri, body, charset, null, null);
+    }
+
+    /**
+     * Constructs a PageContent instance.
+     *
+     * @param uri         The URI the page was fetched from, also used as the base URI when parsing.
+     * @param body        The raw response body.
+     * @param charset     The charset declared by the response, or null to let the parser detect it.
+     * @param contentType The lower case media type of the response, or null if unknown.
+     * @param validators  The cache validators of the response, or null if unknown.
+     */
+    public PageContent(URI uri, byte[] body, String charset, String contentType, Validators validators) {
+        if (uri == null) throw new IllegalArgumentException("Parameter uri is null");
+        if (body == null) throw new IllegalArgumentException("Parameter body is null");
+
+        this.uri = uri;
+        this.body = body;
+        this.charset = charset;
+        this.contentType = contentType;
+        this.validators = validators;
+    }
+
+    /**
+     * Creates the content of a page the server reported as not modified since the last crawl. It has no body.
+     *
+     * @param uri The URI of the page.
+     * @return The content of the page, with the {@link Validators#NOT_MODIFIED} marker as validators.
+     */
+    public static PageContent notModified(URI uri) {
+        return new PageContent(uri, new byte[0], null, null, Validators.NOT_MODIFIED);
+    }
+
+    /**
+     * Checks whether the server reported the page as not modified, in which case the body is empty.
+     *
+     * @return True if the page was not modified since the last crawl, false otherwise.
+     */
+    public boolean isNotModified() {
+        return validators == Validators.NOT_MODIFIED;
+    }
+
+    /**
+     * Gets the cache validators of the response.
+     *
+     * @return The validators, or null if unknown.
+     */
+    public Validators getValidators() {
+        return validators;
+    }
+
+    /**
+     * Gets the URI the page was fetched from.
+     *
+     * @return The URI of the page.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Gets the raw response body. The returned array is shared and must not be modified.
+     *
+     * @return The raw response body.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Gets the charset declared by the response.
+     *
+     * @return The charset, or null if none was declared.
+     */
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * Gets the media type of the response.
+     *
+     * @return The lower case media type, or null if unknown.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Checks whether the content can be parsed for links. Content without a declared type is assumed to be HTML.
+     *
+     * @return True if the content is HTML or XML, false otherwise.
+     */
+    public boolean isHtml() {
+        return contentType == null || contentType.startsWith("text/") || contentType.contains("xml");
+    }
+}
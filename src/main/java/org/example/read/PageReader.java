@@ -1,10 +1,10 @@
 /**
  * The PageReader interface defines a contract for classes that read web pages from a URI
- * and return a Jsoup Document representing the parsed content.
+ * and return the raw response body, which is both scanned for links and written to disk.
  */
 package org.example.read;
 
-import org.jsoup.nodes.Document;
+import org.example.store.Validators;
 
 import java.io.IOException;
 import java.net.URI;
@@ -12,11 +12,14 @@ import java.net.URI;
 public interface PageReader {
 
     /**
-     * Reads a web page from the specified URI and returns a Jsoup Document.
+     * Reads a web page from the specified URI and returns its content. The page is fetched exactly once; the
+     * returned content can be parsed and written to disk without downloading it again. When validators from a
+     * previous crawl are given the request is conditional, and an unchanged page is returned without a body.
      *
-     * @param uri The URI of the web page to read.
-     * @return A Jsoup Document representing the parsed web page.
+     * @param uri        The URI of the web page to read.
+     * @param validators The validators of the previous crawl of the page, or null to read it unconditionally.
+     * @return The content of the web page, see {@link PageContent#isNotModified()}.
      * @throws IOException If an I/O error occurs during the page retrieval.
      */
-    Document read(URI uri) throws IOException;
+    PageContent read(URI uri, Validators validators) throws IOException;
 }
@@ -0,0 +1,231 @@
+package org.example.robots;
+
+import org.example.crawl.RetryPolicy;
+import org.example.http.HttpStatusException;
+import org.example.http.HttpTransport;
+import org.example.misc.AppConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The robots.txt rules of every host of a crawl. The file of a host is fetched once, on the first lookup for the host,
+ * and compiled into {@link RobotsRules}; concurrent lookups wait for that one fetch and later lookups only match. A
+ * host without a robots.txt (4xx) or that cannot be reached is crawled without restrictions, a host whose robots.txt
+ * fails with a server error (5xx) is not crawled at all, as RFC 9309 asks. Transient failures, such as a 503, are
+ * retried with the {@link RetryPolicy} of the crawl before the host is given up on.
+ * <p>
+ * The Crawl-delay of a host is enforced by handing out request slots: every request to the host reserves the next slot,
+ * at least the delay after the previous one. The cache also reads the sitemaps of a site, to seed a crawl with all of
+ * its pages at once instead of finding them link by link.
+ */
+public class RobotsCache {
+
+    // Constants
+    private static final int MAX_ROBOTS_BYTES = 500 * 1024;
+
+    // Member variables
+    private final HttpTransport transport;
+    private final String userAgent;
+    private final int maxSitemaps;
+    private final RetryPolicy retryPolicy;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a RobotsCache.
+     *
+     * @param transport   The transport robots.txt files and sitemaps are fetched with.
+     * @param userAgent   The product token the rules are selected by.
+     * @param maxSitemaps The maximum number of sitemaps read for a site, including those listed in sitemap indexes,
+     *                    zero to not read sitemaps.
+     * @param retryPolicy The policy a robots.txt that fails transiently is fetched again by.
+     */
+    public RobotsCache(HttpTransport transport, String userAgent, int maxSitemaps, RetryPolicy retryPolicy) {
+        if (transport == null) throw new IllegalArgumentException("Parameter transport is null");
+        if (userAgent == null) throw new IllegalArgumentException("Parameter userAgent is null");
+        if (maxSitemaps < 0) throw new IllegalArgumentException("The maximum number of sitemaps must not be negative");
+        if (retryPolicy == null) throw new IllegalArgumentException("Parameter retryPolicy is null");
+
+        this.transport = transport;
+        this.userAgent = userAgent;
+        this.maxSitemaps = maxSitemaps;
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Creates the cache configured in the application configuration.
+     *
+     * @param transport   The transport robots.txt files and sitemaps are fetched with.
+     * @param retryPolicy The policy a robots.txt that fails transiently is fetched again by.
+     * @return The cache.
+     */
+    public static RobotsCache fromConfig(HttpTransport transport, RetryPolicy retryPolicy) {
+        return new RobotsCache(transport, AppConfig.getRobotsUserAgent(), AppConfig.getRobotsMaxSitemaps(),
+                retryPolicy);
+    }
+
+    /**
+     * Gets the rules of the URI's host, fetching its robots.txt if this is the first lookup for the host.
+     *
+     * @param uri The URI.
+     * @return The compiled rules.
+     */
+    public RobotsRules rulesOf(URI uri) {
+        return hostOf(uri).rules.join();
+    }
+
+    /**
+     * Checks whether the rules of the URI's host allow to crawl it, fetching its robots.txt if this is the first
+     * lookup for the host.
+     *
+     * @param uri The canonical URI.
+     * @return True if the URI may be crawled.
+     */
+    public boolean isAllowed(URI uri) {
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        return rulesOf(uri).isAllowed(uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery());
+    }
+
+    /**
+     * Reserves the next request slot of the URI's host. Without a Crawl-delay, or while the host's robots.txt is still
+     * being fetched, the request may be sent right away.
+     *
+     * @param uri The URI to request.
+     * @return The time in milliseconds until the reserved slot, zero to send the request now.
+     */
+    public long reserve(URI uri) {
+        Host host = hosts.get(hostKey(uri));
+        RobotsRules rules = host == null ? null : host.rules.getNow(null);
+        if (rules == null || rules.getCrawlDelayMillis() == 0) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long previous = host.nextSlot.getAndAccumulate(now,
+                (next, current) -> Math.max(next, current) + rules.getCrawlDelayMillis());
+        return Math.max(previous - now, 0);
+    }
+
+    /**
+     * Reads the sitemaps of a site and hands on the location of every page listed, as it is read. The sitemaps are
+     * those listed in the robots.txt of the site's host, or /sitemap.xml if it lists none. Sitemap indexes are
+     * followed up to the maximum number of sitemaps. Sitemaps that cannot be fetched or parsed are skipped.
+     *
+     * @param site  A URI of the site.
+     * @param pages Receives the location of every page.
+     * @return The number of sitemaps read.
+     */
+    public int readSitemaps(URI site, Consumer<String> pages) {
+        Deque<String> pending = new ArrayDeque<>(rulesOf(site).getSitemaps());
+        if (pending.isEmpty()) {
+            pending.add(site.resolve("/sitemap.xml").toString());
+        }
+
+        // An index may list a sitemap twice, or itself
+        Set<String> seen = new HashSet<>();
+        int read = 0;
+        while (!pending.isEmpty() && seen.size() < maxSitemaps) {
+            String location = pending.poll();
+            if (!seen.add(location)) {
+                continue;
+            }
+            try {
+                HttpResponse<InputStream> response = transport.get(URI.create(location), null);
+                try (InputStream body = response.body()) {
+                    SitemapParser.parse(body, pages, pending::add);
+                }
+                read++;
+            } catch (IOException | IllegalArgumentException e) {
+                // A missing or broken sitemap only means fewer seeds, the links are still followed
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Gets the entry of the URI's host, fetching its robots.txt in the calling thread if there is none yet.
+     *
+     * @param uri The URI.
+     * @return The entry of the host.
+     */
+    private Host hostOf(URI uri) {
+        String key = hostKey(uri);
+        Host host = hosts.get(key);
+        if (host != null) {
+            return host;
+        }
+        Host created = new Host();
+        host = hosts.putIfAbsent(key, created);
+        if (host != null) {
+            return host;
+        }
+        created.rules.complete(fetch(URI.create(key + "/robots.txt")));
+        return created;
+    }
+
+    /**
+     * Fetches and compiles a robots.txt file, trying again after transient failures in the calling thread. Only the
+     * first 500 KiB are read, as RFC 9309 allows.
+     *
+     * @param robotsUri The URI of the file.
+     * @return The compiled rules.
+     */
+    private RobotsRules fetch(URI robotsUri) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                HttpResponse<InputStream> response = transport.get(robotsUri, null);
+                byte[] content;
+                try (InputStream body = response.body()) {
+                    content = body.readNBytes(MAX_ROBOTS_BYTES);
+                }
+                return RobotsRules.parse(new String(content, StandardCharsets.UTF_8), userAgent);
+            } catch (IOException | RuntimeException e) {
+                if (attempt < retryPolicy.getMaxAttempts() && retryPolicy.isTransient(e)) {
+                    try {
+                        Thread.sleep(retryPolicy.delayOf(attempt, e).toMillis());
+                        continue;
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                // The pages of an unreachable host fail on their own and are reported
+                return e instanceof HttpStatusException && ((HttpStatusException) e).getStatusCode() >= 500
+                        ? RobotsRules.DISALLOW_ALL : RobotsRules.ALLOW_ALL;
+            }
+        }
+    }
+
+    /**
+     * Derives the key that rules are kept by, the scheme, host and port of the URI.
+     *
+     * @param uri The URI.
+     * @return The host key.
+     */
+    private static String hostKey(URI uri) {
+        return uri.getPort() < 0
+                ? uri.getScheme() + "://" + uri.getHost()
+                : uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    /**
+     * The rules of a host and its next free request slot.
+     */
+    private static final class Host {
+
+        // Member variables
+        private final CompletableFuture<RobotsRules> rules = new CompletableFuture<>();
+        private final AtomicLong nextSlot = new AtomicLong();
+    }
+}
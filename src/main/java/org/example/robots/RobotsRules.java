@@ -0,0 +1,257 @@
+package org.example.robots;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The rules of a robots.txt file (RFC 9309) that apply to one user agent, compiled once into a matcher. Only the
+ * groups naming the user agent apply, or the groups of "*" if none does. Of the allow and disallow rules matching a
+ * path the longest one wins, allow on a tie; paths no rule matches are allowed. Rules may use "*" for any characters
+ * and end with "$" to match the end of the path.
+ * <p>
+ * The rules are kept ordered by length, so the first matching rule decides, and a rule is matched against the path in
+ * place, piece by piece between its wildcards, without allocating. Besides the rules, the Crawl-delay of the matching
+ * groups and the sitemaps listed anywhere in the file are kept.
+ */
+public class RobotsRules {
+
+    // Constants
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    // Rules that allow everything, for hosts without a robots.txt
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(Collections.emptyList(), 0, Collections.emptyList());
+
+    // Rules that disallow everything, for hosts whose robots.txt could not be read because of a server error
+    public static final RobotsRules DISALLOW_ALL = new RobotsRules(
+            Collections.singletonList(new Rule(false, "/")), 0, Collections.emptyList());
+
+    // Member variables
+    private final Rule[] rules;
+    private final long crawlDelayMillis;
+    private final List<String> sitemaps;
+
+    /**
+     * Constructs RobotsRules.
+     *
+     * @param rules            The allow and disallow rules.
+     * @param crawlDelayMillis The minimum time between two requests in milliseconds, zero for none.
+     * @param sitemaps         The URLs of the sitemaps.
+     */
+    private RobotsRules(List<Rule> rules, long crawlDelayMillis, List<String> sitemaps) {
+        List<Rule> ordered = new ArrayList<>(rules);
+        ordered.sort(Comparator.comparingInt((Rule rule) -> rule.pattern.length()).reversed()
+                .thenComparing(rule -> !rule.allow));
+        this.rules = ordered.toArray(new Rule[0]);
+        this.crawlDelayMillis = crawlDelayMillis;
+        this.sitemaps = Collections.unmodifiableList(sitemaps);
+    }
+
+    /**
+     * Parses a robots.txt file and compiles the rules that apply to a user agent.
+     *
+     * @param content   The content of the file.
+     * @param userAgent The product token of the crawler, matched against the User-agent lines ignoring case.
+     * @return The compiled rules.
+     */
+    public static RobotsRules parse(String content, String userAgent) {
+        if (content == null) throw new IllegalArgumentException("Parameter content is null");
+        if (userAgent == null) throw new IllegalArgumentException("Parameter userAgent is null");
+
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        List<Rule> specific = new ArrayList<>();
+        List<Rule> wildcard = new ArrayList<>();
+        long specificDelay = -1;
+        long wildcardDelay = -1;
+        boolean specificFound = false;
+        List<String> sitemaps = new ArrayList<>();
+
+        // The groups a rule line belongs to: the User-agent lines right above it
+        boolean inAgents = false;
+        boolean forAgent = false;
+        boolean forWildcard = false;
+
+        for (String rawLine : content.split("\r\n|\r|\n")) {
+            String line = rawLine.length() > MAX_LINE_LENGTH ? rawLine.substring(0, MAX_LINE_LENGTH) : rawLine;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (key) {
+                case "user-agent":
+                    // A User-agent line after rules starts a new group
+                    if (!inAgents) {
+                        forAgent = false;
+                        forWildcard = false;
+                        inAgents = true;
+                    }
+                    String name = value.toLowerCase(Locale.ROOT);
+                    if (name.equals("*")) {
+                        forWildcard = true;
+                    } else if (!name.isEmpty() && agent.contains(name)) {
+                        forAgent = true;
+                        specificFound = true;
+                    }
+                    break;
+                case "allow":
+                case "disallow":
+                    inAgents = false;
+                    // An empty disallow allows everything, like no rule at all
+                    if (value.isEmpty()) {
+                        break;
+                    }
+                    Rule rule = new Rule(key.equals("allow"), value);
+                    if (forAgent) {
+                        specific.add(rule);
+                    }
+                    if (forWildcard) {
+                        wildcard.add(rule);
+                    }
+                    break;
+                case "crawl-delay":
+                    inAgents = false;
+                    long delay = parseDelay(value);
+                    if (forAgent && delay >= 0) {
+                        specificDelay = Math.max(specificDelay, delay);
+                    }
+                    if (forWildcard && delay >= 0) {
+                        wildcardDelay = Math.max(wildcardDelay, delay);
+                    }
+                    break;
+                case "sitemap":
+                    // Sitemaps do not belong to a group
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                    break;
+                default:
+                    inAgents = false;
+                    break;
+            }
+        }
+
+        return specificFound
+                ? new RobotsRules(specific, Math.max(specificDelay, 0), sitemaps)
+                : new RobotsRules(wildcard, Math.max(wildcardDelay, 0), sitemaps);
+    }
+
+    /**
+     * Parses a Crawl-delay in seconds, which may have a fraction.
+     *
+     * @param value The value.
+     * @return The delay in milliseconds, or -1 if the value is not a non-negative number.
+     */
+    private static long parseDelay(String value) {
+        try {
+            double seconds = Double.parseDouble(value);
+            return seconds >= 0 && !Double.isInfinite(seconds) ? Math.round(seconds * 1000) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Checks whether the crawler may request a path. The robots.txt file itself is always allowed.
+     *
+     * @param path The path of the URI with its query, as sent in the request.
+     * @return True if the path is allowed, false otherwise.
+     */
+    public boolean isAllowed(String path) {
+        if (path.isEmpty()) {
+            path = "/";
+        }
+        if (path.equals("/robots.txt")) {
+            return true;
+        }
+        for (Rule rule : rules) {
+            if (rule.matches(path)) {
+                return rule.allow;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the minimum time between two requests to the host.
+     *
+     * @return The crawl delay in milliseconds, zero for none.
+     */
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    /**
+     * Gets the sitemaps listed in the file.
+     *
+     * @return The URLs of the sitemaps.
+     */
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    /**
+     * An allow or disallow rule, split at its wildcards.
+     */
+    private static final class Rule {
+
+        // Member variables
+        private final boolean allow;
+        private final String pattern;
+        private final String[] pieces;
+        private final boolean anchored;
+
+        /**
+         * Constructs a Rule.
+         *
+         * @param allow   True for an allow rule, false for a disallow rule.
+         * @param pattern The path pattern.
+         */
+        private Rule(boolean allow, String pattern) {
+            this.allow = allow;
+            this.pattern = pattern;
+            this.anchored = pattern.endsWith("$");
+            String body = anchored ? pattern.substring(0, pattern.length() - 1) : pattern;
+            this.pieces = body.split("\\*", -1);
+        }
+
+        /**
+         * Matches the rule against a path: the first piece is a prefix of the path, every further piece follows at
+         * its earliest position after the previous one, and an anchored rule ends where the path ends.
+         *
+         * @param path The path.
+         * @return True if the rule matches the path.
+         */
+        private boolean matches(String path) {
+            if (!path.startsWith(pieces[0])) {
+                return false;
+            }
+            if (pieces.length == 1) {
+                return !anchored || path.length() == pieces[0].length();
+            }
+            int position = pieces[0].length();
+            for (int i = 1; i < pieces.length - 1; i++) {
+                int found = path.indexOf(pieces[i], position);
+                if (found < 0) {
+                    return false;
+                }
+                position = found + pieces[i].length();
+            }
+
+            // After the last wildcard, an anchored rule must match the end of the path
+            String last = pieces[pieces.length - 1];
+            if (anchored) {
+                return path.length() - last.length() >= position && path.endsWith(last);
+            }
+            return path.indexOf(last, position) >= 0;
+        }
+    }
+}
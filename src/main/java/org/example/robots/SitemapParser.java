@@ -0,0 +1,109 @@
+package org.example.robots;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A streaming parser of XML sitemaps (sitemaps.org), plain or gzipped. The document is read with StAX one element at
+ * a time, so sitemaps of any size are parsed in constant memory and every location is handed on as soon as it is read.
+ * A sitemap index lists further sitemaps instead of pages. Document type declarations and external entities are not
+ * supported, a sitemap cannot make the parser read anything but its own stream.
+ */
+public final class SitemapParser {
+
+    // Constants
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    /**
+     * Private constructor, the class only exposes static helpers.
+     */
+    private SitemapParser() {
+    }
+
+    /**
+     * Creates the StAX factory, with document type declarations and external entities disabled.
+     *
+     * @return The factory.
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Parses a sitemap or sitemap index. A gzipped stream is recognized by its magic number and decompressed on the
+     * fly.
+     *
+     * @param in       The sitemap, it is not closed.
+     * @param pages    Receives the location of every page of a sitemap.
+     * @param sitemaps Receives the location of every sitemap of a sitemap index.
+     * @throws IOException If the stream cannot be read or is not a well-formed XML document.
+     */
+    public static void parse(InputStream in, Consumer<String> pages, Consumer<String> sitemaps) throws IOException {
+        if (in == null) throw new IllegalArgumentException("Parameter in is null");
+        if (pages == null) throw new IllegalArgumentException("Parameter pages is null");
+        if (sitemaps == null) throw new IllegalArgumentException("Parameter sitemaps is null");
+
+        InputStream source = decompress(in);
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(source);
+            boolean inSitemap = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (name.equals("sitemap")) {
+                        inSitemap = true;
+                    } else if (name.equals("loc")) {
+                        // A location directly inside a sitemap entry names a sitemap, otherwise a page
+                        String location = reader.getElementText().trim();
+                        if (!location.isEmpty()) {
+                            (inSitemap ? sitemaps : pages).accept(location);
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("sitemap")) {
+                    inSitemap = false;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed sitemap: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // The stream itself is closed by the caller
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps a gzipped stream in a decompressing stream, leaving other streams as they are.
+     *
+     * @param in The stream.
+     * @return The stream to parse.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        return first >= 0 && second >= 0 && (first | second << 8) == GZIP_MAGIC
+                ? new GZIPInputStream(buffered) : buffered;
+    }
+}
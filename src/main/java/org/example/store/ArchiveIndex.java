@@ -0,0 +1,215 @@
+package org.example.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The offset index of an archive: for every stored path, the segment file holding its record and the position and
+ * length of the payload within it. The index is kept in memory and appended to a tab separated file next to the
+ * segments, one line per record: {@code <path> <segment> <record offset> <payload offset> <payload length> <uri>}.
+ * When a path is archived more than once, the last record wins.
+ */
+public class ArchiveIndex implements Closeable {
+
+    // Constants
+    public static final String FILE_NAME = "archive.index";
+
+    // Member variables
+    private final Path path;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    /**
+     * Constructs an empty ArchiveIndex persisted at the specified path.
+     *
+     * @param path The path of the index file.
+     */
+    public ArchiveIndex(Path path) {
+        if (path == null) throw new IllegalArgumentException("Parameter path is null");
+        this.path = path;
+    }
+
+    /**
+     * Loads the entries of the index file, if it exists. Lines that cannot be parsed, such as a line torn by a crash,
+     * are ignored.
+     *
+     * @throws IOException If the index file exists but cannot be read.
+     */
+    public void load() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 6);
+                if (fields.length == 6) {
+                    try {
+                        entries.put(fields[0], new Entry(fields[0], fields[5], fields[1], Long.parseLong(fields[2]),
+                                Long.parseLong(fields[3]), Long.parseLong(fields[4])));
+                    } catch (NumberFormatException e) {
+                        // Skip the torn line
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to the index and appends it to the index file.
+     *
+     * @param entry The entry.
+     * @throws IOException If the index file cannot be written.
+     */
+    public synchronized void append(Entry entry) throws IOException {
+        if (writer == null) {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        writer.write(entry.path + '\t' + entry.segment + '\t' + entry.recordOffset + '\t' + entry.payloadOffset + '\t'
+                + entry.payloadLength + '\t' + entry.uri);
+        writer.newLine();
+        entries.put(entry.path, entry);
+    }
+
+    /**
+     * Gets the entry of a path.
+     *
+     * @param path The path relative to the archive directory, with '/' as separator.
+     * @return The entry, or null if the path is not archived.
+     */
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Gets all entries of the index.
+     *
+     * @return An unmodifiable view of the entries.
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Writes the buffered entries to the index file.
+     *
+     * @throws IOException If the index file cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Closes the index file.
+     *
+     * @throws IOException If the index file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * The location of a single archived payload.
+     */
+    public static final class Entry {
+
+        // Member variables
+        private final String path;
+        private final String uri;
+        private final String segment;
+        private final long recordOffset;
+        private final long payloadOffset;
+        private final long payloadLength;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param path          The path relative to the archive directory, with '/' as separator.
+         * @param uri           The URI the payload was downloaded from.
+         * @param segment       The file name of the segment holding the record.
+         * @param recordOffset  The position of the record in the segment.
+         * @param payloadOffset The position of the payload in the segment.
+         * @param payloadLength The length of the payload.
+         */
+        public Entry(String path, String uri, String segment, long recordOffset, long payloadOffset,
+                     long payloadLength) {
+            this.path = path;
+            this.uri = uri;
+            this.segment = segment;
+            this.recordOffset = recordOffset;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+        }
+
+        /**
+         * Gets the path relative to the archive directory.
+         *
+         * @return The path, with '/' as separator.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Gets the URI the payload was downloaded from.
+         *
+         * @return The URI.
+         */
+        public String getUri() {
+            return uri;
+        }
+
+        /**
+         * Gets the file name of the segment holding the record.
+         *
+         * @return The segment file name.
+         */
+        public String getSegment() {
+            return segment;
+        }
+
+        /**
+         * Gets the position of the record in the segment.
+         *
+         * @return The record offset.
+         */
+        public long getRecordOffset() {
+            return recordOffset;
+        }
+
+        /**
+         * Gets the position of the payload in the segment.
+         *
+         * @return The payload offset.
+         */
+        public long getPayloadOffset() {
+            return payloadOffset;
+        }
+
+        /**
+         * Gets the length of the payload.
+         *
+         * @return The payload length.
+         */
+        public long getPayloadLength() {
+            return payloadLength;
+        }
+    }
+}
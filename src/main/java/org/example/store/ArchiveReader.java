@@ -0,0 +1,131 @@
+package org.example.store;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the payloads of an archive written by the archive writer, by path through the offset index, and restores the
+ * directory layout of a crawl from it on demand. Run it as
+ * {@code java -cp web-crawler.jar org.example.store.ArchiveReader <archive directory> <target directory>}.
+ */
+public class ArchiveReader {
+
+    // Member variables
+    private final Path directory;
+    private final ArchiveIndex index;
+
+    /**
+     * Opens the archive in the specified directory.
+     *
+     * @param directory The directory holding the segments and the index.
+     * @throws IOException If the index cannot be read.
+     */
+    public ArchiveReader(Path directory) throws IOException {
+        if (directory == null) throw new IllegalArgumentException("Parameter directory is null");
+
+        this.directory = directory;
+        this.index = new ArchiveIndex(directory.resolve(ArchiveIndex.FILE_NAME));
+        this.index.load();
+    }
+
+    /**
+     * Restores the archive to a directory, as a file per path.
+     *
+     * @param args The archive directory and the target directory.
+     * @throws IOException If the archive cannot be read or a file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: ArchiveReader <archive directory> <target directory>");
+            return;
+        }
+        long restored = new ArchiveReader(Paths.get(args[0])).restore(Paths.get(args[1]));
+        System.out.println("Restored " + restored + " file(s) to " + args[1]);
+    }
+
+    /**
+     * Opens the payload of an index entry.
+     *
+     * @param directory The directory holding the segments.
+     * @param entry     The index entry.
+     * @return A stream of the payload, to be closed by the caller.
+     * @throws IOException If the segment cannot be opened.
+     */
+    public static InputStream open(Path directory, ArchiveIndex.Entry entry) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(entry.getSegment()), StandardOpenOption.READ);
+        channel.position(entry.getPayloadOffset());
+        return new BoundedInputStream(Channels.newInputStream(channel), entry.getPayloadLength());
+    }
+
+    /**
+     * Checks whether a path is archived.
+     *
+     * @param path The path relative to the archive directory, with '/' as separator.
+     * @return True if the path is archived, false otherwise.
+     */
+    public boolean contains(String path) {
+        return index.get(path) != null;
+    }
+
+    /**
+     * Opens the payload archived for a path.
+     *
+     * @param path The path relative to the archive directory, with '/' as separator.
+     * @return A stream of the payload, to be closed by the caller.
+     * @throws IOException If the path is not archived or the segment cannot be opened.
+     */
+    public InputStream open(String path) throws IOException {
+        ArchiveIndex.Entry entry = index.get(path);
+        if (entry == null) {
+            throw new NoSuchFileException(path);
+        }
+        return open(directory, entry);
+    }
+
+    /**
+     * Restores every archived path as a file below the target directory.
+     *
+     * @param target The target directory.
+     * @return The number of files restored.
+     * @throws IOException If a segment cannot be read or a file cannot be written.
+     */
+    public long restore(Path target) throws IOException {
+        long restored = 0;
+        for (ArchiveIndex.Entry entry : index.getEntries()) {
+            Path path = target.resolve(entry.getPath()).normalize();
+            if (!path.startsWith(target.normalize())) {
+                // Never write outside the target directory
+                continue;
+            }
+            Files.createDirectories(path.getParent());
+
+            // Copy the payload from the segment without passing it through the heap
+            Path segmentPath = directory.resolve(entry.getSegment());
+            try (FileChannel segment = FileChannel.open(segmentPath, StandardOpenOption.READ);
+                 FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = entry.getPayloadOffset();
+                long end = position + entry.getPayloadLength();
+                while (position < end) {
+                    long transferred = segment.transferTo(position, end - position, file);
+                    if (transferred == 0) {
+                        throw new EOFException("Truncated record for " + entry.getPath() + " in " + entry.getSegment());
+                    }
+                    position += transferred;
+                }
+            }
+            restored++;
+        }
+        return restored;
+    }
+}
@@ -0,0 +1,261 @@
+package org.example.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A content-addressed store that keeps a single blob per distinct content hash, so that identical downloads served
+ * under different URLs take disk space and write I/O only once. Every crawled path is exposed as a hard link to its
+ * blob. On file systems without hard links the path is recorded in a manifest instead, from which {@link #restore()}
+ * can materialize the files.
+ * <p>
+ * The store is laid out as {@code blobs/<first two hex digits>/<hash>}, {@code tmp/} for downloads in progress and a
+ * tab separated {@code manifest} of paths and hashes. Blobs are kept between crawls, so later crawls link to content
+ * that is already stored.
+ */
+public class ContentStore implements Closeable {
+
+    // Member variables
+    private final Path blobs;
+    private final Path temporary;
+    private final Path manifest;
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private volatile boolean linksSupported = true;
+    private BufferedWriter manifestWriter;
+
+    /**
+     * Constructs a ContentStore in the specified directory, which is created when the first blob is stored. It should
+     * be on the same file system as the output directory for the paths to be hard linked.
+     *
+     * @param directory The directory of the store.
+     */
+    public ContentStore(Path directory) {
+        if (directory == null) throw new IllegalArgumentException("Parameter directory is null");
+
+        this.blobs = directory.resolve("blobs");
+        this.temporary = directory.resolve("tmp");
+        this.manifest = directory.resolve("manifest");
+    }
+
+    /**
+     * Creates an empty temporary file in the store, for content to be downloaded into before it is committed.
+     *
+     * @return The path of the temporary file.
+     * @throws IOException If the file cannot be created.
+     */
+    public Path newTemporaryFile() throws IOException {
+        Files.createDirectories(temporary);
+        return Files.createTempFile(temporary, "download", ".tmp");
+    }
+
+    /**
+     * Exposes the blob of a hash at the specified path, if the store holds it.
+     *
+     * @param hash The hexadecimal content hash.
+     * @param path The path to expose the content at.
+     * @return True if the blob was present and the path now refers to it, false if nothing was done.
+     * @throws IOException If the path cannot be linked.
+     */
+    public boolean linkIfPresent(String hash, Path path) throws IOException {
+        if (!Files.exists(blobPath(hash))) {
+            return false;
+        }
+        deduplicated.incrementAndGet();
+        link(hash, path);
+        return true;
+    }
+
+    /**
+     * Moves a downloaded temporary file into the store as the blob of its hash, unless the store already holds that
+     * content, and exposes it at the specified path.
+     *
+     * @param file The temporary file, it no longer exists afterwards.
+     * @param hash The hexadecimal hash of the content of the file.
+     * @param path The path to expose the content at.
+     * @throws IOException If the blob cannot be stored or the path cannot be linked.
+     */
+    public void commit(Path file, String hash, Path path) throws IOException {
+        Path blob = blobPath(hash);
+        Files.createDirectories(blob.getParent());
+
+        if (publish(file, blob)) {
+            stored.incrementAndGet();
+        } else {
+            deduplicated.incrementAndGet();
+        }
+        link(hash, path);
+    }
+
+    /**
+     * Stores content held in memory as the blob of its hash and exposes it at the specified path. The content is only
+     * written if the store does not hold it yet, identical content is linked without any write I/O.
+     *
+     * @param content The content.
+     * @param hash    The hexadecimal hash of the content.
+     * @param path    The path to expose the content at.
+     * @throws IOException If the blob cannot be stored or the path cannot be linked.
+     */
+    public void commit(byte[] content, String hash, Path path) throws IOException {
+        if (linkIfPresent(hash, path)) {
+            return;
+        }
+        Path file = newTemporaryFile();
+        try {
+            Files.write(file, content);
+            commit(file, hash, path);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Publishes a temporary file as a blob. Linking fails atomically if the blob exists, so concurrent downloads of
+     * the same content agree on a single blob.
+     *
+     * @param file The temporary file, it no longer exists afterwards.
+     * @param blob The path of the blob.
+     * @return True if the file became the blob, false if the blob existed already.
+     * @throws IOException If the blob cannot be stored.
+     */
+    private boolean publish(Path file, Path blob) throws IOException {
+        try {
+            Files.createLink(blob, file);
+            Files.delete(file);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            Files.delete(file);
+            return false;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // Without hard links, fall back to a move, which may race with a concurrent commit of the same content
+            if (Files.exists(blob)) {
+                Files.delete(file);
+                return false;
+            }
+            Files.move(file, blob, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        }
+    }
+
+    /**
+     * Exposes the blob of a hash at the specified path as a hard link, or records it in the manifest if the file
+     * system does not support hard links. Any previous file at the path is replaced, never written through, since it
+     * may be a link to another blob.
+     *
+     * @param hash The hexadecimal content hash.
+     * @param path The path to expose the content at.
+     * @throws IOException If the path cannot be linked or recorded.
+     */
+    private void link(String hash, Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        if (linksSupported) {
+            try {
+                Files.createLink(path, blobPath(hash));
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                linksSupported = false;
+            }
+        }
+        appendManifest(path, hash);
+    }
+
+    /**
+     * Appends an entry to the manifest.
+     *
+     * @param path The path exposing the content.
+     * @param hash The hexadecimal content hash.
+     * @throws IOException If the manifest cannot be written.
+     */
+    private synchronized void appendManifest(Path path, String hash) throws IOException {
+        if (manifestWriter == null) {
+            Files.createDirectories(manifest.getParent());
+            manifestWriter = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        manifestWriter.write(path.toAbsolutePath() + "\t" + hash);
+        manifestWriter.newLine();
+    }
+
+    /**
+     * Materializes the paths recorded in the manifest as copies of their blobs, for file systems without hard links.
+     *
+     * @return The number of files restored.
+     * @throws IOException If the manifest or a blob cannot be read, or a file cannot be written.
+     */
+    public synchronized long restore() throws IOException {
+        if (manifestWriter != null) {
+            manifestWriter.flush();
+        }
+        if (!Files.exists(manifest)) {
+            return 0;
+        }
+
+        long restored = 0;
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('\t');
+                if (separator > 0) {
+                    Path path = Paths.get(line.substring(0, separator));
+                    Files.createDirectories(path.getParent());
+                    Files.copy(blobPath(line.substring(separator + 1)), path, StandardCopyOption.REPLACE_EXISTING);
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Gets the path of the blob of a hash.
+     *
+     * @param hash The hexadecimal content hash.
+     * @return The path of the blob.
+     */
+    private Path blobPath(String hash) {
+        return blobs.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Gets the number of distinct contents stored during this run.
+     *
+     * @return The number of new blobs.
+     */
+    public long getStored() {
+        return stored.get();
+    }
+
+    /**
+     * Gets the number of contents that were already stored and only linked during this run.
+     *
+     * @return The number of deduplicated contents.
+     */
+    public long getDeduplicated() {
+        return deduplicated.get();
+    }
+
+    /**
+     * Closes the manifest.
+     *
+     * @throws IOException If the manifest cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (manifestWriter != null) {
+            manifestWriter.close();
+            manifestWriter = null;
+        }
+    }
+}
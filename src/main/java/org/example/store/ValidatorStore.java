@@ -0,0 +1,112 @@
+package org.example.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A local metadata store that keeps the {@link Validators} of every crawled URL between runs. The store is kept in
+ * memory during a crawl and persisted as a tab separated file next to the output directory.
+ */
+public class ValidatorStore {
+
+    // Member variables
+    private final Path path;
+    private final Map<String, Validators> validators = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty ValidatorStore persisted at the specified path.
+     *
+     * @param path The path of the metadata file.
+     */
+    public ValidatorStore(Path path) {
+        if (path == null) throw new IllegalArgumentException("Parameter path is null");
+        this.path = path;
+    }
+
+    /**
+     * Loads the validators persisted by a previous crawl, if any.
+     *
+     * @throws IOException If the metadata file exists but cannot be read.
+     */
+    public void load() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 5) {
+                    validators.put(fields[0], new Validators(emptyToNull(fields[1]), emptyToNull(fields[2]),
+                            Long.parseLong(fields[3]), emptyToNull(fields[4])));
+                }
+            }
+        }
+    }
+
+    /**
+     * Persists the validators. The file is replaced atomically so that a crash cannot leave a partial store behind.
+     *
+     * @throws IOException If the metadata file cannot be written.
+     */
+    public void save() throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Validators> entry : validators.entrySet()) {
+                Validators value = entry.getValue();
+                writer.write(entry.getKey() + '\t' + nullToEmpty(value.getEtag()) + '\t'
+                        + nullToEmpty(value.getLastModified()) + '\t' + value.getContentLength() + '\t'
+                        + nullToEmpty(value.getHash()));
+                writer.newLine();
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets the validators of a URL.
+     *
+     * @param uri The canonical URL.
+     * @return The validators, or null if the URL has not been crawled before.
+     */
+    public Validators get(String uri) {
+        return validators.get(uri);
+    }
+
+    /**
+     * Stores the validators of a URL.
+     *
+     * @param uri        The canonical URL.
+     * @param validators The validators.
+     */
+    public void put(String uri, Validators validators) {
+        this.validators.put(uri, validators);
+    }
+
+    /**
+     * Converts an empty field to null.
+     *
+     * @param value The field.
+     * @return The field, or null if it is empty.
+     */
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Converts null to an empty field.
+     *
+     * @param value The value.
+     * @return The value, or an empty string if it is null.
+     */
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
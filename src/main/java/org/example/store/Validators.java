@@ -0,0 +1,160 @@
+package org.example.store;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Represents the cache validators of a downloaded resource: the ETag and Last-Modified response headers, the content
+ * length and a SHA-256 hash of the body. They are sent back as If-None-Match and If-Modified-Since headers on a re-crawl
+ * so that the server can answer 304 Not Modified instead of sending the body again.
+ */
+public class Validators {
+
+    /**
+     * Marker returned by readers and writers when the server answered 304 Not Modified.
+     */
+    public static final Validators NOT_MODIFIED = new Validators(null, null, -1, null);
+
+    // Constants
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Member variables
+    private final String etag;
+    private final String lastModified;
+    private final long contentLength;
+    private final String hash;
+
+    /**
+     * Constructs a Validators instance.
+     *
+     * @param etag          The ETag header, or null if the response had none.
+     * @param lastModified  The Last-Modified header, or null if the response had none.
+     * @param contentLength The length of the body in bytes, or -1 if unknown.
+     * @param hash          The hexadecimal SHA-256 hash of the body, or null if unknown.
+     */
+    public Validators(String etag, String lastModified, long contentLength, String hash) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.contentLength = contentLength;
+        this.hash = hash;
+    }
+
+    /**
+     * Checks whether this is the {@link #NOT_MODIFIED} marker.
+     *
+     * @return True if the server answered 304 Not Modified, false otherwise.
+     */
+    public boolean isNotModified() {
+        return this == NOT_MODIFIED;
+    }
+
+    /**
+     * Gets the conditional request headers matching these validators.
+     *
+     * @return The If-None-Match and If-Modified-Since headers, empty if there is nothing to validate against.
+     */
+    public Map<String, String> getConditionalHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (etag != null) {
+            headers.put("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            headers.put("If-Modified-Since", lastModified);
+        }
+        return headers;
+    }
+
+    /**
+     * Gets the ETag header.
+     *
+     * @return The ETag, or null if the response had none.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Gets the Last-Modified header.
+     *
+     * @return The Last-Modified date, or null if the response had none.
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gets the length of the body.
+     *
+     * @return The length in bytes, or -1 if unknown.
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Gets the hash of the body.
+     *
+     * @return The hexadecimal SHA-256 hash, or null if unknown.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Creates a new SHA-256 digest for hashing bodies.
+     *
+     * @return The digest.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Completes the digest and formats the hash as a hexadecimal string.
+     *
+     * @param digest The digest.
+     * @return The hexadecimal hash.
+     */
+    public static String toHex(MessageDigest digest) {
+        byte[] bytes = digest.digest();
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Checks if these validators are equal to another object.
+     *
+     * @param o The object to compare.
+     * @return True if the objects are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Validators)) return false;
+        Validators that = (Validators) o;
+        return contentLength == that.contentLength && Objects.equals(etag, that.etag)
+                && Objects.equals(lastModified, that.lastModified) && Objects.equals(hash, that.hash);
+    }
+
+    /**
+     * Computes the hash code of these validators.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(etag, lastModified, contentLength, hash);
+    }
+}
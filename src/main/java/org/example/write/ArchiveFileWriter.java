@@ -0,0 +1,436 @@
+/**
+ * The ArchiveFileWriter class implements the FileWriter interface by appending every download as a WARC style response
+ * record (URL, HTTP headers and body) to large rolling segment files, instead of creating a file and its directories
+ * per URL. An offset index next to the segments maps each crawled path to its payload, which serves lookups during
+ * resumed and incremental crawls, and {@link ArchiveReader} restores the directory layout from it on demand.
+ * <p>
+ * Bodies are downloaded without holding the segment, small ones into memory and large ones into a spool file, and then
+ * appended in one go, so concurrent jobs never interleave within a record.
+ */
+package org.example.write;
+
+import org.example.http.DownloadPolicy;
+import org.example.http.HttpTransport;
+import org.example.read.PageContent;
+import org.example.store.ArchiveIndex;
+import org.example.store.ArchiveReader;
+import org.example.store.Validators;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+public class ArchiveFileWriter implements FileWriter, Closeable {
+
+    // Constants
+    private static final int SPOOL_THRESHOLD = 1024 * 1024;
+    private static final String CRLF = "\r\n";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.warc");
+
+    // Member variables
+    private final HttpTransport transport;
+    private final Path directory;
+    private final long segmentSize;
+    private final DownloadPolicy policy;
+    private volatile ArchiveIndex index;
+    private FileChannel segment;
+    private String segmentName;
+    private int segmentCounter;
+
+    /**
+     * Constructs an ArchiveFileWriter. The directory is read and created on first use, so that a fresh crawl can still
+     * delete it before.
+     *
+     * @param transport   The HTTP transport shared with the other readers and writers.
+     * @param directory   The directory of the segments and the index, the crawled paths are relative to it.
+     * @param segmentSize The size after which a segment is closed and the next one started.
+     */
+    public ArchiveFileWriter(HttpTransport transport, Path directory, long segmentSize) {
+        this(transport, directory, segmentSize, DownloadPolicy.filesFromConfig());
+    }
+
+    /**
+     * Constructs an ArchiveFileWriter. The directory is read and created on first use, so that a fresh crawl can still
+     * delete it before.
+     *
+     * @param transport   The HTTP transport shared with the other readers and writers.
+     * @param directory   The directory of the segments and the index, the crawled paths are relative to it.
+     * @param segmentSize The size after which a segment is closed and the next one started.
+     * @param policy      The limits of a download, a download that breaks them is not archived.
+     */
+    public ArchiveFileWriter(HttpTransport transport, Path directory, long segmentSize, DownloadPolicy policy) {
+        if (transport == null) throw new IllegalArgumentException("Parameter transport is null");
+        if (directory == null) throw new IllegalArgumentException("Parameter directory is null");
+        if (policy == null) throw new IllegalArgumentException("Parameter policy is null");
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("The segment size must be greater than zero");
+        }
+
+        this.transport = transport;
+        this.directory = directory.toAbsolutePath();
+        this.segmentSize = segmentSize;
+        this.policy = policy;
+    }
+
+    /**
+     * Downloads content from the specified URI and appends it to the archive under the given path. The body is hashed
+     * while it is downloaded, and spooled before it is appended, so a download aborted part way leaves no record.
+     *
+     * @param uri        The URI of the content to be written.
+     * @param path       The local path the content is archived under.
+     * @param validators The validators of the previous crawl of the content, or null to download it unconditionally.
+     * @return The validators of the downloaded content, or {@link Validators#NOT_MODIFIED} if it was not modified.
+     * @throws IOException If an I/O error occurs during the writing process.
+     */
+    @Override
+    public Validators write(URI uri, Path path, Validators validators) throws IOException {
+        HttpResponse<InputStream> response = transport.get(uri, validators, policy);
+
+        MessageDigest digest = Validators.newDigest();
+        try (InputStream inputStream = new DigestInputStream(response.body(), digest)) {
+            // A 304 has no body, there is nothing to transfer or archive
+            if (HttpTransport.isNotModified(response)) {
+                return Validators.NOT_MODIFIED;
+            }
+
+            try (Payload payload = spool(inputStream)) {
+                String hash = Validators.toHex(digest);
+                append(uri, path, responseHeaders(response), payload, hash);
+                return HttpTransport.validatorsOf(response, payload.length, hash);
+            }
+        }
+    }
+
+    /**
+     * Appends the already downloaded content of a page to the archive under the given path.
+     *
+     * @param page The content of the page to be written.
+     * @param path The local path the content is archived under.
+     * @throws IOException If an I/O error occurs during the writing process.
+     */
+    @Override
+    public void write(PageContent page, Path path) throws IOException {
+        String hash = page.getValidators() != null ? page.getValidators().getHash() : null;
+        if (hash == null) {
+            MessageDigest digest = Validators.newDigest();
+            digest.update(page.getBody());
+            hash = Validators.toHex(digest);
+        }
+        try (Payload payload = new Payload(page.getBody(), null, page.getBody().length)) {
+            append(page.getUri(), path, pageHeaders(page), payload, hash);
+        }
+    }
+
+    /**
+     * Checks whether content has been archived under the given path, by this or a previous crawl.
+     *
+     * @param path The local path of the content.
+     * @return True if the path is in the index, false otherwise.
+     */
+    @Override
+    public boolean exists(Path path) {
+        try {
+            return index().get(key(path)) != null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Opens the content archived under the given path.
+     *
+     * @param path The local path of the content.
+     * @return A stream of the archived payload, to be closed by the caller.
+     * @throws IOException If the path is not archived or the segment cannot be read.
+     */
+    @Override
+    public InputStream open(Path path) throws IOException {
+        ArchiveIndex.Entry entry = index().get(key(path));
+        if (entry == null) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return ArchiveReader.open(directory, entry);
+    }
+
+    /**
+     * Closes the current segment and the index.
+     *
+     * @throws IOException If the segment or the index cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    /**
+     * Gets the index, loading it and preparing the directory on first use. New records always go to a new segment, a
+     * segment of a previous run is never appended to.
+     *
+     * @return The index.
+     * @throws IOException If the directory or the index cannot be read.
+     */
+    private ArchiveIndex index() throws IOException {
+        ArchiveIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    Files.createDirectories(directory);
+                    try (Stream<Path> files = Files.list(directory)) {
+                        files.forEach(file -> {
+                            Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                            if (matcher.matches()) {
+                                segmentCounter = Math.max(segmentCounter, Integer.parseInt(matcher.group(1)) + 1);
+                            }
+                        });
+                    }
+                    current = new ArchiveIndex(directory.resolve(ArchiveIndex.FILE_NAME));
+                    current.load();
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Converts a local path into the key of the index.
+     *
+     * @param path The local path.
+     * @return The path relative to the archive directory, with '/' as separator.
+     */
+    private String key(Path path) {
+        return directory.relativize(path.toAbsolutePath()).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Reads a body into memory, or into a spool file once it exceeds the spool threshold.
+     *
+     * @param inputStream The body.
+     * @return The payload.
+     * @throws IOException If the body cannot be read or spooled.
+     */
+    private Payload spool(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            memory.write(buffer, 0, read);
+            if (memory.size() > SPOOL_THRESHOLD) {
+                // Continue in a spool file next to the segments
+                index();
+                Path file = Files.createTempFile(directory, "spool", ".tmp");
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    memory.writeTo(out);
+                    long length = memory.size() + inputStream.transferTo(out);
+                    return new Payload(null, file, length);
+                } catch (IOException e) {
+                    Files.deleteIfExists(file);
+                    throw e;
+                }
+            }
+        }
+        return new Payload(memory.toByteArray(), null, memory.size());
+    }
+
+    /**
+     * Appends a response record to the current segment and its location to the index, starting a new segment when the
+     * current one is full.
+     *
+     * @param uri         The URI the content was downloaded from.
+     * @param path        The local path the content is archived under.
+     * @param httpHeaders The HTTP status line and headers, terminated by an empty line.
+     * @param payload     The body.
+     * @param hash        The hexadecimal SHA-256 hash of the body.
+     * @throws IOException If the record cannot be written.
+     */
+    private synchronized void append(URI uri, Path path, String httpHeaders, Payload payload, String hash)
+            throws IOException {
+        ArchiveIndex archiveIndex = index();
+        if (segment == null || segment.position() >= segmentSize) {
+            rollSegment();
+        }
+
+        String key = key(path);
+        byte[] http = httpHeaders.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] header = ("WARC/1.1" + CRLF
+                + "WARC-Type: response" + CRLF
+                + "WARC-Record-ID: <urn:uuid:" + UUID.randomUUID() + ">" + CRLF
+                + "WARC-Date: " + Instant.now().truncatedTo(ChronoUnit.SECONDS) + CRLF
+                + "WARC-Target-URI: " + uri + CRLF
+                + "WARC-Payload-Digest: sha-256:" + hash + CRLF
+                + "WARC-Local-Path: " + key + CRLF
+                + "Content-Type: application/http;msgtype=response" + CRLF
+                + "Content-Length: " + (http.length + payload.length) + CRLF
+                + CRLF).getBytes(StandardCharsets.UTF_8);
+
+        long recordOffset = segment.position();
+        writeFully(ByteBuffer.wrap(header));
+        writeFully(ByteBuffer.wrap(http));
+        long payloadOffset = segment.position();
+        payload.transferTo(segment);
+        writeFully(ByteBuffer.wrap((CRLF + CRLF).getBytes(StandardCharsets.US_ASCII)));
+
+        archiveIndex.append(new ArchiveIndex.Entry(key, uri.toString(), segmentName, recordOffset, payloadOffset,
+                payload.length));
+    }
+
+    /**
+     * Closes the current segment and starts the next one.
+     *
+     * @throws IOException If a segment cannot be closed or created.
+     */
+    private void rollSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+            index.flush();
+        }
+        segmentName = String.format("segment-%05d.warc", segmentCounter++);
+        segment = FileChannel.open(directory.resolve(segmentName),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes a buffer to the current segment completely.
+     *
+     * @param buffer The buffer.
+     * @throws IOException If the segment cannot be written.
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+    }
+
+    /**
+     * Formats the status line and headers of a response.
+     *
+     * @param response The response.
+     * @return The HTTP header block, terminated by an empty line.
+     */
+    private static String responseHeaders(HttpResponse<?> response) {
+        StringBuilder builder = new StringBuilder("HTTP/1.1 ").append(response.statusCode()).append(CRLF);
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            // HTTP/2 pseudo headers have no HTTP/1.1 representation
+            if (header.getKey().startsWith(":")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.append(header.getKey()).append(": ").append(value).append(CRLF);
+            }
+        }
+        return builder.append(CRLF).toString();
+    }
+
+    /**
+     * Formats the headers known for the content of an already downloaded page.
+     *
+     * @param page The content of the page.
+     * @return The HTTP header block, terminated by an empty line.
+     */
+    private static String pageHeaders(PageContent page) {
+        StringBuilder builder = new StringBuilder("HTTP/1.1 200 OK").append(CRLF);
+        if (page.getContentType() != null) {
+            builder.append("Content-Type: ").append(page.getContentType());
+            if (page.getCharset() != null) {
+                builder.append("; charset=").append(page.getCharset());
+            }
+            builder.append(CRLF);
+        }
+        Validators validators = page.getValidators();
+        if (validators != null && validators.getEtag() != null) {
+            builder.append("ETag: ").append(validators.getEtag()).append(CRLF);
+        }
+        if (validators != null && validators.getLastModified() != null) {
+            builder.append("Last-Modified: ").append(validators.getLastModified()).append(CRLF);
+        }
+        builder.append("Content-Length: ").append(page.getBody().length).append(CRLF);
+        return builder.append(CRLF).toString();
+    }
+
+    /**
+     * A downloaded body, held in memory or in a spool file that is deleted when the payload is closed.
+     */
+    private static final class Payload implements Closeable {
+
+        // Member variables
+        private final byte[] bytes;
+        private final Path file;
+        private final long length;
+
+        /**
+         * Constructs a Payload.
+         *
+         * @param bytes  The body held in memory, or null.
+         * @param file   The spool file holding the body, or null.
+         * @param length The length of the body.
+         */
+        private Payload(byte[] bytes, Path file, long length) {
+            this.bytes = bytes;
+            this.file = file;
+            this.length = length;
+        }
+
+        /**
+         * Appends the body to a channel at its current position.
+         *
+         * @param target The channel.
+         * @throws IOException If the body cannot be read or written.
+         */
+        private void transferTo(FileChannel target) throws IOException {
+            if (bytes != null) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                return;
+            }
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < length) {
+                    position += source.transferTo(position, length - position, target);
+                }
+            }
+        }
+
+        /**
+         * Deletes the spool file, if any.
+         *
+         * @throws IOException If the spool file cannot be deleted.
+         */
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
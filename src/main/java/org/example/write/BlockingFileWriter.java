@@ -1,35 +1,122 @@
 /**
  * The HTTPFileWriter class implements the FileWriter interface and is responsible for writing content from a specified
- * URI to a local file using HTTP connections. It utilizes InputStream, ReadableByteChannel, FileOutputStream, and
- * FileChannel for efficient data transfer.
+ * URI to a local file using the shared HTTP transport. It utilizes InputStream, ReadableByteChannel, FileOutputStream,
+ * and FileChannel for efficient data transfer.
  */
 package org.example.write;
 
+import org.example.http.DownloadPolicy;
+import org.example.http.HttpTransport;
+import org.example.read.PageContent;
+import org.example.store.Validators;
+
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 public class BlockingFileWriter implements FileWriter {
 
+    // Member variables
+    private final HttpTransport transport;
+    private final DownloadPolicy policy;
+
+    /**
+     * Constructs a BlockingFileWriter that uses the default transport.
+     */
+    public BlockingFileWriter() {
+        this(HttpTransport.getDefault());
+    }
+
+    /**
+     * Constructs a BlockingFileWriter with the configured download limits of resources.
+     *
+     * @param transport The HTTP transport shared with the other readers and writers.
+     */
+    public BlockingFileWriter(HttpTransport transport) {
+        this(transport, DownloadPolicy.filesFromConfig());
+    }
+
+    /**
+     * Constructs a BlockingFileWriter.
+     *
+     * @param transport The HTTP transport shared with the other readers and writers.
+     * @param policy    The limits of a download, a download that breaks them is not written.
+     */
+    public BlockingFileWriter(HttpTransport transport, DownloadPolicy policy) {
+        if (transport == null) throw new IllegalArgumentException("Parameter transport is null");
+        if (policy == null) throw new IllegalArgumentException("Parameter policy is null");
+        this.transport = transport;
+        this.policy = policy;
+    }
+
+    /**
+     * Writes content from the specified URI to the local file at the given path. The body is hashed while it is
+     * transferred. A previous file at the path is replaced, never written through, and a file whose download fails or
+     * is aborted part way is deleted.
+     *
+     * @param uri        The URI of the content to be written.
+     * @param path       The local path where the content should be saved.
+     * @param validators The validators of the previous crawl of the content, or null to download it unconditionally.
+     * @return The validators of the downloaded content, or {@link Validators#NOT_MODIFIED} if it was not modified.
+     * @throws IOException If an I/O error occurs during the writing process.
+     */
+    @Override
+    public Validators write(URI uri, Path path, Validators validators) throws IOException {
+        HttpResponse<InputStream> response = transport.get(uri, validators, policy);
+
+        MessageDigest digest = Validators.newDigest();
+        long length;
+        try (InputStream inputStream = new DigestInputStream(response.body(), digest)) {
+            // A 304 has no body, there is nothing to transfer or write
+            if (HttpTransport.isNotModified(response)) {
+                return Validators.NOT_MODIFIED;
+            }
+
+            // Replace the file instead of writing through it, it may be a link to a blob of the content store
+            Files.createDirectories(path.getParent());
+            Files.deleteIfExists(path);
+            try (ReadableByteChannel readableByteChannel = Channels.newChannel(inputStream);
+                 FileOutputStream fileOutputStream = new FileOutputStream(path.toFile());
+                 FileChannel fileChannel = fileOutputStream.getChannel()) {
+                length = fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+            } catch (IOException e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
+        }
+
+        return HttpTransport.validatorsOf(response, length, Validators.toHex(digest));
+    }
+
     /**
-     * Writes content from the specified URI to the local file at the given path using HTTP connections.
+     * Writes the already downloaded content of a page to the local file at the given path, replacing any previous
+     * file at the path.
      *
-     * @param uri  The URI of the content to be written.
+     * @param page The content of the page to be written.
      * @param path The local path where the content should be saved.
      * @throws IOException If an I/O error occurs during the writing process.
      */
     @Override
-    public void write(URI uri, Path path) throws IOException {
-        try (InputStream inputStream = uri.toURL().openStream();
-             ReadableByteChannel readableByteChannel = Channels.newChannel(inputStream);
-             FileOutputStream fileOutputStream = new FileOutputStream(path.toFile());
-             FileChannel fileChannel = fileOutputStream.getChannel()) {
-            fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+    public void write(PageContent page, Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        try (FileChannel fileChannel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(page.getBody());
+            while (buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
         }
     }
 }
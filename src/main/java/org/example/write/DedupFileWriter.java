@@ -0,0 +1,229 @@
+/**
+ * The DedupFileWriter class implements the FileWriter interface on top of a content-addressed {@link ContentStore}, so
+ * identical content served under many URLs is stored once and every path links to the same blob. Downloads are hashed
+ * while they arrive. A body whose Content-Length is within the buffer limit is kept in memory and only written if its
+ * hash is not stored yet, so write I/O scales with unique content. A larger body, or one of unknown length, streams
+ * into a temporary file that is committed to the store, or dropped if the store holds its content already. Page
+ * content is in memory already and is only written if its hash is new.
+ */
+package org.example.write;
+
+import org.example.http.DownloadPolicy;
+import org.example.http.HttpTransport;
+import org.example.misc.AppConfig;
+import org.example.read.PageContent;
+import org.example.store.ContentStore;
+import org.example.store.Validators;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DedupFileWriter implements FileWriter {
+
+    // Member variables
+    private final HttpTransport transport;
+    private final DownloadPolicy policy;
+    private final ContentStore store;
+    private final long bufferLimit;
+
+    /**
+     * Constructs a DedupFileWriter with the configured download limits of resources and buffer limit.
+     *
+     * @param transport The HTTP transport shared with the other readers and writers.
+     * @param store     The store keeping one blob per content hash.
+     */
+    public DedupFileWriter(HttpTransport transport, ContentStore store) {
+        this(transport, DownloadPolicy.filesFromConfig(), store, AppConfig.getDedupBufferLimit());
+    }
+
+    /**
+     * Constructs a DedupFileWriter.
+     *
+     * @param transport   The HTTP transport shared with the other readers and writers.
+     * @param policy      The limits of a download, a download that breaks them is not stored.
+     * @param store       The store keeping one blob per content hash.
+     * @param bufferLimit The largest Content-Length in bytes of a body that is kept in memory rather than streamed into
+     *                    a temporary file, zero to stream every body.
+     */
+    public DedupFileWriter(HttpTransport transport, DownloadPolicy policy, ContentStore store, long bufferLimit) {
+        if (transport == null) throw new IllegalArgumentException("Parameter transport is null");
+        if (policy == null) throw new IllegalArgumentException("Parameter policy is null");
+        if (store == null) throw new IllegalArgumentException("Parameter store is null");
+        if (bufferLimit < 0) throw new IllegalArgumentException("The buffer limit must not be negative");
+
+        this.transport = transport;
+        this.policy = policy;
+        this.store = store;
+        this.bufferLimit = bufferLimit;
+    }
+
+    /**
+     * Downloads content from the specified URI into the store and exposes it at the given path, waiting for it.
+     *
+     * @param uri        The URI of the content to be written.
+     * @param path       The local path where the content should be exposed.
+     * @param validators The validators of the previous crawl of the content, or null to download it unconditionally.
+     * @return The validators of the downloaded content, or {@link Validators#NOT_MODIFIED} if it was not modified.
+     * @throws IOException If an I/O error occurs during the writing process.
+     */
+    @Override
+    public Validators write(URI uri, Path path, Validators validators) throws IOException {
+        try {
+            return writeAsync(uri, path, validators).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + uri);
+        }
+    }
+
+    /**
+     * Downloads content from the specified URI into the store and exposes it at the given path without waiting for
+     * it. The body is kept in memory if its Content-Length is within the buffer limit, and streamed into a temporary
+     * file otherwise.
+     *
+     * @param uri        The URI of the content to be written.
+     * @param path       The local path where the content should be exposed.
+     * @param validators The validators of the previous crawl of the content, or null to download it unconditionally.
+     * @return A future of the validators of the downloaded content, or of {@link Validators#NOT_MODIFIED} if it was
+     * not modified.
+     */
+    @Override
+    public CompletableFuture<Validators> writeAsync(URI uri, Path path, Validators validators) {
+        MessageDigest digest = Validators.newDigest();
+        AtomicReference<Path> temporary = new AtomicReference<>();
+
+        HttpResponse.BodyHandler<Body> handler = info -> {
+            // A 304 has no body, there is nothing to store
+            if (HttpTransport.isNotModified(info)) {
+                return HttpResponse.BodySubscribers.replacing(null);
+            }
+            long length = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (length >= 0 && length <= bufferLimit) {
+                return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(),
+                        content -> new Body(content, content.length));
+            }
+            try {
+                temporary.set(store.newTemporaryFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return HttpResponse.BodySubscribers.mapping(new FileBodySubscriber(temporary.get(), digest),
+                    written -> new Body(null, written));
+        };
+
+        return transport.getAsync(uri, validators, policy, handler)
+                .thenApply(response -> {
+                    try {
+                        return publish(response, digest, temporary.get(), path);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .whenComplete((written, throwable) -> deleteQuietly(temporary.get()));
+    }
+
+    /**
+     * Commits a download to the store and exposes it at the given path, unless it was not modified.
+     *
+     * @param response  The response, with the body kept in memory or the number of bytes streamed into the file.
+     * @param digest    The digest the streamed body was hashed into.
+     * @param temporary The temporary file the body was streamed into, or null if it was kept in memory.
+     * @param path      The local path where the content should be exposed.
+     * @return The validators of the downloaded content, or {@link Validators#NOT_MODIFIED} if it was not modified.
+     * @throws IOException If the content cannot be committed or exposed.
+     */
+    private Validators publish(HttpResponse<Body> response, MessageDigest digest, Path temporary, Path path)
+            throws IOException {
+        if (HttpTransport.isNotModified(response)) {
+            return Validators.NOT_MODIFIED;
+        }
+
+        Body body = response.body();
+        if (body.content != null) {
+            String hash = hash(body.content);
+            store.commit(body.content, hash, path);
+            return HttpTransport.validatorsOf(response, body.length, hash);
+        }
+        String hash = Validators.toHex(digest);
+        store.commit(temporary, hash, path);
+        return HttpTransport.validatorsOf(response, body.length, hash);
+    }
+
+    /**
+     * Exposes the already downloaded content of a page at the given path, writing it to the store only if its hash
+     * is not stored yet.
+     *
+     * @param page The content of the page to be written.
+     * @param path The local path where the content should be exposed.
+     * @throws IOException If an I/O error occurs during the writing process.
+     */
+    @Override
+    public void write(PageContent page, Path path) throws IOException {
+        String hash = page.getValidators() != null ? page.getValidators().getHash() : null;
+        store.commit(page.getBody(), hash != null ? hash : hash(page.getBody()), path);
+    }
+
+    /**
+     * Hashes content held in memory.
+     *
+     * @param content The content.
+     * @return The hexadecimal hash.
+     */
+    private static String hash(byte[] content) {
+        MessageDigest digest = Validators.newDigest();
+        digest.update(content);
+        return Validators.toHex(digest);
+    }
+
+    /**
+     * Deletes a temporary file if it is left, ignoring any error.
+     *
+     * @param temporary The temporary file, or null if there is none.
+     */
+    private static void deleteQuietly(Path temporary) {
+        if (temporary == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            // A stale temporary file only takes space, it is never read
+        }
+    }
+
+    /**
+     * A downloaded body, either kept in memory or streamed into a temporary file.
+     */
+    private static final class Body {
+
+        // Member variables
+        private final byte[] content;
+        private final long length;
+
+        /**
+         * Constructs a Body.
+         *
+         * @param content The content, or null if it was streamed into a temporary file.
+         * @param length  The number of bytes received.
+         */
+        private Body(byte[] content, long length) {
+            this.content = content;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * The FileBodySubscriber class streams a response body into a file through an {@link AsynchronousFileChannel}, hashing
+ * it on the way. Each chunk received from the HTTP client is written before the next one is requested, so no thread
+ * waits for the network or the disk, and a slow disk slows down the transfer instead of buffering the body on the
+ * heap.
+ */
+package org.example.write;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+final class FileBodySubscriber implements HttpResponse.BodySubscriber<Long> {
+
+    // Member variables
+    private final Path path;
+    private final MessageDigest digest;
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private AsynchronousFileChannel channel;
+    private long position;
+    private boolean writing;
+    private boolean terminated;
+    private Throwable error;
+
+    /**
+     * Constructs a FileBodySubscriber.
+     *
+     * @param path   The file to write the body to, a previous file is replaced once the body starts.
+     * @param digest The digest the body is hashed into.
+     */
+    FileBodySubscriber(Path path, MessageDigest digest) {
+        this.path = path;
+        this.digest = digest;
+    }
+
+    /**
+     * Opens the file and requests the first chunk of the body.
+     *
+     * @param subscription The subscription to the body.
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+
+        try {
+            // Replace the file instead of writing through it, it may be a link to a blob of the content store
+            Files.deleteIfExists(path);
+            channel = AsynchronousFileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            subscription.cancel();
+            result.completeExceptionally(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    /**
+     * Hashes a chunk of the body and starts writing it. The next chunk is requested once it is written.
+     *
+     * @param buffers The buffers of the chunk.
+     */
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        synchronized (this) {
+            writing = true;
+        }
+        for (ByteBuffer buffer : buffers) {
+            digest.update(buffer.duplicate());
+        }
+        new Chunk(buffers.iterator()).writeNext();
+    }
+
+    /**
+     * Completes the body once the last chunk has been written.
+     */
+    @Override
+    public void onComplete() {
+        terminate(null);
+    }
+
+    /**
+     * Fails the body once the chunk being written, if any, has been written.
+     *
+     * @param throwable The reason the body could not be received.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        terminate(throwable);
+    }
+
+    /**
+     * Gets the number of bytes written, available once the whole body has been written to the file.
+     *
+     * @return The stage of the number of bytes written.
+     */
+    @Override
+    public CompletionStage<Long> getBody() {
+        return result;
+    }
+
+    /**
+     * Records the end of the body, and finishes right away unless a chunk is still being written. The end of the body
+     * may be signalled before the last chunk is written, since it needs no demand.
+     *
+     * @param throwable The reason the body could not be received, or null if it was received completely.
+     */
+    private void terminate(Throwable throwable) {
+        boolean idle;
+        synchronized (this) {
+            terminated = true;
+            error = throwable;
+            idle = !writing;
+        }
+        if (idle) {
+            finish(throwable);
+        }
+    }
+
+    /**
+     * Requests the next chunk once a chunk has been written, or finishes if the end of the body has been signalled
+     * meanwhile.
+     */
+    private void chunkWritten() {
+        boolean done;
+        Throwable throwable;
+        synchronized (this) {
+            writing = false;
+            done = terminated;
+            throwable = error;
+        }
+        if (done) {
+            finish(throwable);
+        } else {
+            subscription.request(1);
+        }
+    }
+
+    /**
+     * Closes the file and completes the body. The file of a failed body is deleted, so that no partial download is
+     * left behind.
+     *
+     * @param throwable The reason of the failure, or null on success.
+     */
+    private void finish(Throwable throwable) {
+        try {
+            if (channel != null) {
+                channel.close();
+                if (throwable != null) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            if (throwable == null) {
+                throwable = e;
+            } else {
+                throwable.addSuppressed(e);
+            }
+        }
+
+        if (throwable == null) {
+            result.complete(position);
+        } else {
+            result.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * The buffers of one chunk, written one after the other. A single write may be partial, so each buffer is written
+     * until it has no bytes remaining.
+     */
+    private final class Chunk implements CompletionHandler<Integer, Void> {
+
+        // Member variables
+        private final Iterator<ByteBuffer> buffers;
+        private ByteBuffer current;
+
+        /**
+         * Constructs a Chunk.
+         *
+         * @param buffers The buffers of the chunk.
+         */
+        private Chunk(Iterator<ByteBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        /**
+         * Starts writing the remaining bytes of the chunk, or reports the chunk as written if there are none.
+         */
+        private void writeNext() {
+            while (current == null || !current.hasRemaining()) {
+                if (!buffers.hasNext()) {
+                    chunkWritten();
+                    return;
+                }
+                current = buffers.next();
+            }
+            channel.write(current, position, null, this);
+        }
+
+        /**
+         * Advances the file position and continues with the remaining bytes.
+         *
+         * @param written    The number of bytes written.
+         * @param attachment Unused.
+         */
+        @Override
+        public void completed(Integer written, Void attachment) {
+            position += written;
+            writeNext();
+        }
+
+        /**
+         * Stops the transfer and fails the body.
+         *
+         * @param throwable  The reason the write failed.
+         * @param attachment Unused.
+         */
+        @Override
+        public void failed(Throwable throwable, Void attachment) {
+            synchronized (FileBodySubscriber.this) {
+                writing = false;
+                terminated = true;
+            }
+            subscription.cancel();
+            finish(throwable);
+        }
+    }
+}
@@ -1,22 +1,82 @@
 /**
  * The FileWriter interface defines a contract for classes responsible for writing content from a specified URI
  * to a local file at the given path. Implementing classes should handle the process of downloading and saving
- * content to the local filesystem.
+ * content to the local filesystem, including the creation of missing parent directories. Writers that do not keep one
+ * file per path override {@link #exists(Path)} and {@link #open(Path)} to look up what they have stored.
  */
 package org.example.write;
 
+import org.example.read.PageContent;
+import org.example.store.Validators;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 public interface FileWriter {
 
     /**
-     * Writes content from the specified URI to the local file at the given path.
+     * Writes content from the specified URI to the local file at the given path. When validators from a previous
+     * crawl are given the request is conditional, and nothing is transferred or written if the content is unchanged.
+     *
+     * @param uri        The URI of the content to be written.
+     * @param path       The local path where the content should be saved.
+     * @param validators The validators of the previous crawl of the content, or null to download it unconditionally.
+     * @return The validators of the downloaded content, or {@link Validators#NOT_MODIFIED} if it was not modified.
+     * @throws IOException If an I/O error occurs during the writing process.
+     */
+    Validators write(URI uri, Path path, Validators validators) throws IOException;
+
+    /**
+     * Writes content from the specified URI to the local file at the given path without waiting for it, see
+     * {@link #write(URI, Path, Validators)}. Writers that cannot stream asynchronously perform the write right away on
+     * the calling thread and return a completed future.
+     *
+     * @param uri        The URI of the content to be written.
+     * @param path       The local path where the content should be saved.
+     * @param validators The validators of the previous crawl of the content, or null to download it unconditionally.
+     * @return A future of the validators of the downloaded content, or of {@link Validators#NOT_MODIFIED} if it was
+     * not modified. It completes exceptionally if the content cannot be downloaded or written.
+     */
+    default CompletableFuture<Validators> writeAsync(URI uri, Path path, Validators validators) {
+        try {
+            return CompletableFuture.completedFuture(write(uri, path, validators));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Writes the already downloaded content of a page to the local file at the given path, without fetching it
+     * again.
      *
-     * @param uri  The URI of the content to be written.
+     * @param page The content of the page to be written.
      * @param path The local path where the content should be saved.
      * @throws IOException If an I/O error occurs during the writing process.
      */
-    void write(URI uri, Path path) throws IOException;
+    void write(PageContent page, Path path) throws IOException;
+
+    /**
+     * Checks whether content has been written for the given path, by this or a previous crawl.
+     *
+     * @param path The local path of the content.
+     * @return True if the content is stored, false otherwise.
+     */
+    default boolean exists(Path path) {
+        return Files.exists(path);
+    }
+
+    /**
+     * Opens the content written for the given path, by this or a previous crawl.
+     *
+     * @param path The local path of the content.
+     * @return A stream of the stored content, to be closed by the caller.
+     * @throws IOException If the content is not stored or cannot be read.
+     */
+    default InputStream open(Path path) throws IOException {
+        return Files.newInputStream(path);
+    }
 }
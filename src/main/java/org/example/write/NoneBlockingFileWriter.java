@@ -1,42 +1,169 @@
 /**
  * The AsyncHTTPFileWriter class implements the FileWriter interface and is responsible for asynchronously
- * downloading a file from a given URI and writing it to the specified local path.
+ * downloading a file from a given URI, using the shared HTTP transport, and writing it to the specified local path.
+ * Downloads stream into the file as the body arrives and hold no thread, the number of downloads in flight at the same
+ * time is capped.
  */
 package org.example.write;
 
-import java.io.FileOutputStream;
+import org.example.http.DownloadPolicy;
+import org.example.http.HttpTransport;
+import org.example.misc.AppConfig;
+import org.example.misc.AsyncSemaphore;
+import org.example.read.PageContent;
+import org.example.store.Validators;
+
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class NoneBlockingFileWriter implements FileWriter {
 
-    // HttpClient instance for handling HTTP requests
-    private final HttpClient client = HttpClient.newHttpClient();
+    // Transport instance for handling HTTP requests
+    private final HttpTransport transport;
+
+    // Permits of the downloads that may be in flight at the same time
+    private final AsyncSemaphore inFlight;
+
+    // Limits of a download
+    private final DownloadPolicy policy;
+
+    /**
+     * Constructs a NoneBlockingFileWriter that uses the default transport.
+     */
+    public NoneBlockingFileWriter() {
+        this(HttpTransport.getDefault());
+    }
+
+    /**
+     * Constructs a NoneBlockingFileWriter with the configured cap on downloads in flight.
+     *
+     * @param transport The HTTP transport shared with the other readers and writers.
+     */
+    public NoneBlockingFileWriter(HttpTransport transport) {
+        this(transport, AppConfig.getWriteMaxInFlight());
+    }
+
+    /**
+     * Constructs a NoneBlockingFileWriter with the configured download limits of resources.
+     *
+     * @param transport   The HTTP transport shared with the other readers and writers.
+     * @param maxInFlight The maximum number of downloads in flight, further downloads wait for one to complete.
+     */
+    public NoneBlockingFileWriter(HttpTransport transport, int maxInFlight) {
+        this(transport, maxInFlight, DownloadPolicy.filesFromConfig());
+    }
 
     /**
-     * Downloads a file from the specified URI asynchronously and writes it to the specified local path.
+     * Constructs a NoneBlockingFileWriter.
      *
-     * @param uri  The URI of the file to download.
-     * @param path The local path to save the downloaded file.
+     * @param transport   The HTTP transport shared with the other readers and writers.
+     * @param maxInFlight The maximum number of downloads in flight, further downloads wait for one to complete.
+     * @param policy      The limits of a download, a download that breaks them is not written.
+     */
+    public NoneBlockingFileWriter(HttpTransport transport, int maxInFlight, DownloadPolicy policy) {
+        if (transport == null) throw new IllegalArgumentException("Parameter transport is null");
+        if (policy == null) throw new IllegalArgumentException("Parameter policy is null");
+        this.transport = transport;
+        this.inFlight = new AsyncSemaphore(maxInFlight);
+        this.policy = policy;
+    }
+
+    /**
+     * Downloads a file from the specified URI and writes it to the specified local path, waiting for the download to
+     * complete. See {@link #writeAsync(URI, Path, Validators)}.
+     *
+     * @param uri        The URI of the file to download.
+     * @param path       The local path to save the downloaded file.
+     * @param validators The validators of the previous crawl of the file, or null to download it unconditionally.
+     * @return The validators of the downloaded file, or {@link Validators#NOT_MODIFIED} if it was not modified.
      * @throws IOException If an I/O error occurs during the download or file writing process.
      */
     @Override
-    public void write(URI uri, Path path) throws IOException {
-        // Build an HTTP GET request for the specified URI
-        HttpRequest request = HttpRequest.newBuilder().uri(uri).GET().build();
-
-        // Asynchronously send the HTTP request and handle the response
-        try (InputStream is = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
-                .thenApply(HttpResponse::body).join()) {
-            // Write the downloaded file content to the local file
-            try (FileOutputStream out = new FileOutputStream(path.toFile())) {
-                is.transferTo(out);
+    public Validators write(URI uri, Path path, Validators validators) throws IOException {
+        try {
+            return writeAsync(uri, path, validators).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + uri);
+        }
+    }
+
+    /**
+     * Downloads a file from the specified URI and writes it to the specified local path without blocking a thread.
+     * The body is streamed chunk by chunk into an asynchronous file channel and hashed while it is written. If the
+     * maximum number of downloads is in flight, the download starts as soon as another one completes. A file whose
+     * download fails or is aborted part way is deleted.
+     *
+     * @param uri        The URI of the file to download.
+     * @param path       The local path to save the downloaded file.
+     * @param validators The validators of the previous crawl of the file, or null to download it unconditionally.
+     * @return A future of the validators of the downloaded file, or of {@link Validators#NOT_MODIFIED} if it was not
+     * modified.
+     */
+    @Override
+    public CompletableFuture<Validators> writeAsync(URI uri, Path path, Validators validators) {
+        MessageDigest digest = Validators.newDigest();
+
+        // A 304 has no body, there is nothing to write
+        HttpResponse.BodyHandler<Long> handler = info -> HttpTransport.isNotModified(info)
+                ? HttpResponse.BodySubscribers.replacing(0L) : new FileBodySubscriber(path, digest);
+
+        return inFlight.acquire()
+                .thenCompose(ignored -> {
+                    try {
+                        Files.createDirectories(path.getParent());
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    return transport.getAsync(uri, validators, policy, handler);
+                })
+                .whenComplete((response, throwable) -> inFlight.release())
+                .thenApply(response -> HttpTransport.isNotModified(response) ? Validators.NOT_MODIFIED
+                        : HttpTransport.validatorsOf(response, response.body(), Validators.toHex(digest)));
+    }
+
+    /**
+     * Writes the already downloaded content of a page asynchronously to the specified local path and waits for the
+     * write to complete. Any previous file at the path is replaced.
+     *
+     * @param page The content of the page to be written.
+     * @param path The local path to save the content.
+     * @throws IOException If an I/O error occurs during the file writing process.
+     */
+    @Override
+    public void write(PageContent page, Path path) throws IOException {
+        // Replace the file instead of writing through it, it may be a link to a blob of the content store
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(page.getBody());
+
+            // A single write may be partial, continue from the current position until everything is written
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position()).get();
             }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing " + path);
         }
     }
 }
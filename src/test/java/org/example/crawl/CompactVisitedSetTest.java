@@ -0,0 +1,56 @@
+package org.example.crawl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the CompactVisitedSet class.
+ */
+class CompactVisitedSetTest {
+
+    /**
+     * Validates that URLs are reported as new exactly once while the table has room.
+     */
+    @Test
+    void add() {
+        CompactVisitedSet visited = new CompactVisitedSet(1024 * 1024);
+
+        for (int i = 0; i < visited.getCapacity(); i++) {
+            assertTrue(visited.add("https://books.toscrape.com/catalogue/page-" + i + ".html"));
+        }
+        for (int i = 0; i < visited.getCapacity(); i++) {
+            assertFalse(visited.add("https://books.toscrape.com/catalogue/page-" + i + ".html"));
+        }
+
+        assertEquals(visited.getCapacity(), visited.getMisses());
+        assertEquals(visited.getCapacity(), visited.getHits());
+        assertEquals(0, visited.getOverflows());
+
+        // A few bytes per URL
+        assertTrue(1024 * 1024 / visited.getCapacity() < 8);
+    }
+
+    /**
+     * Validates that a full table keeps answering from the Bloom filter instead of growing.
+     */
+    @Test
+    void addBeyondCapacity() {
+        CompactVisitedSet visited = new CompactVisitedSet(1024);
+
+        for (int i = 0; i < visited.getCapacity(); i++) {
+            visited.add("https://books.toscrape.com/" + i);
+        }
+
+        // Known URLs are still confirmed by the table and new ones pass the Bloom filter, neither overflows
+        assertFalse(visited.add("https://books.toscrape.com/0"));
+        assertTrue(visited.add("https://books.toscrape.com/new"));
+        assertEquals(0, visited.getOverflows());
+
+        // A new URL is only recorded in the Bloom filter, which the table cannot confirm the next time
+        assertFalse(visited.add("https://books.toscrape.com/new"));
+        assertEquals(1, visited.getOverflows());
+    }
+}
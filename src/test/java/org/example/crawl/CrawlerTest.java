@@ -1,18 +1,34 @@
 package org.example.crawl;
 
+import org.apache.commons.io.FileUtils;
+import org.example.http.HttpStatusException;
+import org.example.read.PageContent;
 import org.example.read.PageReader;
+import org.example.robots.RobotsCache;
 import org.example.utils.Resources;
 import org.example.write.FileWriter;
-import org.jsoup.Jsoup;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -43,11 +59,33 @@ class CrawlerTest {
         pageReaderMock = mock(PageReader.class);
         fileWriterMock = mock(FileWriter.class);
 
-        // Set up the base URI for the mock HTML document
-        String baseUri = "https://books.toscrape.com/";
+        // Stored content is looked up on disk and downloads complete right away, like the synchronous writers do
+        when(fileWriterMock.exists(any(Path.class))).thenCallRealMethod();
+        when(fileWriterMock.open(any(Path.class))).thenCallRealMethod();
+        when(fileWriterMock.writeAsync(any(URI.class), any(Path.class), any())).thenCallRealMethod();
 
-        // When reading the index page URI, return a mock HTML document
-        when(pageReaderMock.read(INDEX_PAGE.toURI())).thenReturn(Jsoup.parse(Resources.getIndexPage(), baseUri));
+        // The linked pages are not found, like pages that have gone missing since they were linked
+        doAnswer(invocation -> {
+            throw new HttpStatusException(404, invocation.getArgument(0));
+        }).when(pageReaderMock).read(any(), any());
+
+        // When reading the index page URI, return the content of a mock HTML document
+        byte[] body = Resources.getIndexPage().getBytes(StandardCharsets.UTF_8);
+        doReturn(new PageContent(INDEX_PAGE.toURI(), body, StandardCharsets.UTF_8.name()))
+                .when(pageReaderMock).read(eq(INDEX_PAGE.toURI()), any());
+    }
+
+    /**
+     * Deletes the output directory of the tests that crawl into "test-data" and the state files next to it.
+     *
+     * @throws IOException If the output directory cannot be deleted.
+     */
+    @AfterEach
+    void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File("test-data"));
+        for (String suffix : new String[]{".journal", ".meta", ".errors", ".frontier"}) {
+            FileUtils.deleteQuietly(new File("test-data" + suffix));
+        }
     }
 
     /**
@@ -64,7 +102,258 @@ class CrawlerTest {
         // Start the crawler with a progress consumer that does nothing
         crawler.start(progress -> {});
 
-        // Verify that the write method of FileWriter is called 29 times
-        verify(fileWriterMock, times(29)).write(any(), any());
+        // Verify that the 28 resources are downloaded and the index page is written from the content already read
+        verify(fileWriterMock, times(28)).write(any(URI.class), any(Path.class), any());
+        verify(fileWriterMock, times(1)).write(any(PageContent.class), any(Path.class));
+    }
+
+    /**
+     * Test the startAsync method of the Crawler class.
+     * Validates that the returned future completes with the final progress once the last job has finished.
+     */
+    @Test
+    void startAsync() {
+        Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-data", INDEX_PAGE);
+
+        Progress progress = crawler.startAsync(StartMode.FRESH, null).join();
+
+        // The index page and its 28 resources are stored, the 72 linked pages are not found, nothing is left scheduled
+        assertEquals(29, progress.getPersisted());
+        assertEquals(72, progress.getFailed());
+        assertEquals(0, progress.getScheduled());
+    }
+
+    /**
+     * Test a crawl of a starting page that the server redirected.
+     * Validates that the relative links of the page are resolved against the URI the redirect ended at.
+     *
+     * @throws IOException        If an I/O error occurs during the test.
+     * @throws URISyntaxException If there is an error in the URI syntax.
+     */
+    @Test
+    void resolvesLinksAfterRedirect() throws IOException, URISyntaxException {
+        URI redirected = URI.create("https://books.toscrape.com/catalogue/index.html");
+        byte[] body = "<html><body><img src=\"cover.jpg\"><a href=\"page-2.html\">Next</a></body></html>"
+                .getBytes(StandardCharsets.UTF_8);
+        doReturn(new PageContent(redirected, body, StandardCharsets.UTF_8.name()))
+                .when(pageReaderMock).read(eq(INDEX_PAGE.toURI()), any());
+
+        Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-data", INDEX_PAGE);
+        crawler.startAsync(StartMode.FRESH, null).join();
+
+        verify(fileWriterMock, times(1))
+                .write(eq(URI.create("https://books.toscrape.com/catalogue/cover.jpg")), any(Path.class), any());
+        verify(pageReaderMock, times(1))
+                .read(eq(URI.create("https://books.toscrape.com/catalogue/page-2.html")), any());
+        verify(pageReaderMock, never()).read(eq(URI.create("https://books.toscrape.com/page-2.html")), any());
+    }
+
+    /**
+     * Test a crawl of pages that differ in their query only.
+     * Validates that each page is written to a file of its own, with the query escaped into the file name.
+     *
+     * @throws IOException        If an I/O error occurs during the test.
+     * @throws URISyntaxException If there is an error in the URI syntax.
+     */
+    @Test
+    void writesQueriesToOwnFiles() throws IOException, URISyntaxException {
+        byte[] body = "<a href=\"a.html\">A</a><a href=\"a.html?x=1\">A1</a><a href=\"a.html?x=a/b\">A2</a>"
+                .getBytes(StandardCharsets.UTF_8);
+        doReturn(new PageContent(INDEX_PAGE.toURI(), body, StandardCharsets.UTF_8.name()))
+                .when(pageReaderMock).read(eq(INDEX_PAGE.toURI()), any());
+        for (String link : new String[]{"a.html", "a.html?x=1", "a.html?x=a/b"}) {
+            URI uri = INDEX_PAGE.toURI().resolve(link);
+            doReturn(new PageContent(uri, new byte[0], StandardCharsets.UTF_8.name()))
+                    .when(pageReaderMock).read(eq(uri), any());
+        }
+
+        Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-data", INDEX_PAGE);
+        Progress progress = crawler.startAsync(StartMode.FRESH, null).join();
+
+        assertEquals(4, progress.getPersisted());
+        assertEquals(0, progress.getFailed());
+        Path output = Paths.get("test-data").toAbsolutePath();
+        for (String file : new String[]{"a.html", "a.html%3Fx=1", "a.html%3Fx=a%2Fb"}) {
+            verify(fileWriterMock, times(1)).write(any(PageContent.class), eq(output.resolve(file)));
+        }
+    }
+
+    /**
+     * Test a crawl of a host with a Crawl-delay.
+     * Validates that the pages of the host are read one slot after the other, each waiting in the frontier for its
+     * slot.
+     *
+     * @throws IOException        If an I/O error occurs during the test.
+     * @throws URISyntaxException If there is an error in the URI syntax.
+     */
+    @Test
+    void keepsCrawlDelay() throws IOException, URISyntaxException {
+        long delay = 40;
+        AtomicLong nextSlot = new AtomicLong();
+        RobotsCache robots = mock(RobotsCache.class);
+        when(robots.isAllowed(any())).thenReturn(true);
+        when(robots.reserve(any())).thenAnswer(invocation -> {
+            long now = System.currentTimeMillis();
+            long previous = nextSlot.getAndAccumulate(now, (next, current) -> Math.max(next, current) + delay);
+            return Math.max(previous - now, 0);
+        });
+
+        List<Long> reads = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            reads.add(System.currentTimeMillis());
+            throw new HttpStatusException(404, invocation.getArgument(0));
+        }).when(pageReaderMock).read(any(), any());
+        byte[] body = "<a href=\"a.html\">A</a><a href=\"b.html\">B</a><a href=\"c.html\">C</a>"
+                .getBytes(StandardCharsets.UTF_8);
+        PageContent index = new PageContent(INDEX_PAGE.toURI(), body, StandardCharsets.UTF_8.name());
+        doAnswer(invocation -> {
+            reads.add(System.currentTimeMillis());
+            return index;
+        }).when(pageReaderMock).read(eq(INDEX_PAGE.toURI()), any());
+
+        Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-data", INDEX_PAGE);
+        crawler.setRobots(robots);
+        long start = System.currentTimeMillis();
+        Progress progress = crawler.startAsync(StartMode.FRESH, null).join();
+
+        // Every read takes a slot of its own, a read may come late but never before its slot
+        assertEquals(3, progress.getFailed());
+        assertEquals(4, reads.size());
+        List<Long> sorted = new ArrayList<>(reads);
+        Collections.sort(sorted);
+        for (int read = 1; read < sorted.size(); read++) {
+            assertTrue(sorted.get(read) >= start + read * delay - 2);
+        }
+    }
+
+    /**
+     * Test a crawl limited by a depth budget.
+     * Validates that the resources of the starting page are crawled, and that the pages it links to are skipped.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void depthBudget() throws IOException {
+        Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-data", INDEX_PAGE);
+        crawler.setBudget(new CrawlBudget(0, Long.MAX_VALUE, Long.MAX_VALUE, null));
+
+        Progress progress = crawler.startAsync(StartMode.FRESH, null).join();
+
+        // Only the index page and its 28 resources are crawled
+        assertEquals(29, progress.getPersisted());
+        assertTrue(progress.getSkipped() > 0);
+        verify(pageReaderMock, times(1)).read(any(), any());
+        verify(fileWriterMock, times(28)).write(any(URI.class), any(Path.class), any());
+    }
+
+    /**
+     * Test a crawl with failing downloads.
+     * Validates that a transient failure is retried, that a permanent failure is not, and that both the permanent
+     * failure and the pages that are not found end up in the error report instead of ending the crawl.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void retriesTransientFailures() throws IOException {
+        URI styles = URI.create("https://books.toscrape.com/static/oscar/css/styles.css");
+        URI favicon = URI.create("https://books.toscrape.com/static/oscar/favicon.ico");
+        Path report = Paths.get("test-retry.errors");
+        try {
+            when(fileWriterMock.write(eq(styles), any(Path.class), any()))
+                    .thenThrow(new HttpStatusException(503, styles)).thenReturn(null);
+            when(fileWriterMock.write(eq(favicon), any(Path.class), any()))
+                    .thenThrow(new HttpStatusException(404, favicon));
+
+            Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-retry", INDEX_PAGE);
+            crawler.setRetryPolicy(new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5)));
+            Progress progress = crawler.startAsync(StartMode.FRESH, null).join();
+
+            // The 72 linked pages that are not found fail for good, like the missing favicon
+            verify(fileWriterMock, times(2)).write(eq(styles), any(Path.class), any());
+            verify(fileWriterMock, times(1)).write(eq(favicon), any(Path.class), any());
+            assertEquals(1, progress.getRetried());
+            assertEquals(73, progress.getFailed());
+
+            // Every one of the 101 jobs is counted once, a failed job is not counted as persisted
+            assertEquals(28, progress.getPersisted());
+            assertEquals(101, progress.getPersisted() + progress.getFailed());
+            assertTrue(Files.readString(report).contains(favicon + "\tFile\t1\tHTTP 404"));
+        } finally {
+            FileUtils.deleteDirectory(Paths.get("test-retry").toFile());
+            Files.deleteIfExists(Paths.get("test-retry.journal"));
+            Files.deleteIfExists(Paths.get("test-retry.meta"));
+            Files.deleteIfExists(report);
+        }
+    }
+
+    /**
+     * Test resuming an interrupted crawl.
+     * Validates that completed jobs are skipped, that unfinished jobs are scheduled again and that a torn last journal
+     * record is ignored.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void resume() throws IOException {
+        Path output = Paths.get("test-resume");
+        Path journal = Paths.get("test-resume.journal");
+        try {
+            // The stylesheet a.css was completed and written before the crawl was interrupted
+            Files.createDirectories(output.resolve("static"));
+            Files.createFile(output.resolve("static/a.css"));
+            Files.writeString(journal, "D\tPage\t0\thttps://books.toscrape.com/index.html\n"
+                    + "D\tFile\t1\thttps://books.toscrape.com/static/a.css\n"
+                    + "D\tFile\t1\thttps://books.toscrape.com/static/b.css\n"
+                    + "C\thttps://books.toscrape.com/static/a.css\n"
+                    + "D\tFile\t1\thttps://books.toscrape.com/static/c.c");
+
+            Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-resume", INDEX_PAGE);
+            crawler.start(StartMode.RESUME, progress -> {});
+
+            // The index page and its 28 resources are crawled again, together with the unfinished b.css
+            verify(fileWriterMock, times(1)).write(any(PageContent.class), any(Path.class));
+            verify(fileWriterMock, times(29)).write(any(URI.class), any(Path.class), any());
+            verify(fileWriterMock, never()).write(eq(URI.create("https://books.toscrape.com/static/a.css")), any(), any());
+            verify(fileWriterMock, never()).write(eq(URI.create("https://books.toscrape.com/static/c.c")), any(), any());
+        } finally {
+            FileUtils.deleteDirectory(output.toFile());
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(Paths.get("test-resume.meta"));
+            Files.deleteIfExists(Paths.get("test-resume.errors"));
+        }
+    }
+
+    /**
+     * Test an incremental re-crawl of a page that has not been modified.
+     * Validates that the stored validators are sent, that the page is not written again and that its links are
+     * extracted from the stored copy.
+     *
+     * @throws IOException        If an I/O error occurs during the test.
+     * @throws URISyntaxException If there is an error in the URI syntax.
+     */
+    @Test
+    void incremental() throws IOException, URISyntaxException {
+        Path output = Paths.get("test-incremental");
+        try {
+            // The index page and its validators are left behind by the previous crawl
+            Files.createDirectories(output);
+            Files.writeString(output.resolve("index.html"), Resources.getIndexPage());
+            Files.writeString(Paths.get("test-incremental.meta"),
+                    "https://books.toscrape.com/index.html\t\"v1\"\t\t51294\t\n");
+            doReturn(PageContent.notModified(INDEX_PAGE.toURI())).when(pageReaderMock)
+                    .read(eq(INDEX_PAGE.toURI()), argThat(v -> v != null && "\"v1\"".equals(v.getEtag())));
+
+            Crawler crawler = new Crawler(pageReaderMock, fileWriterMock, 20, "test-incremental", INDEX_PAGE);
+            crawler.start(StartMode.INCREMENTAL, progress -> {});
+
+            // The resources are still discovered from the stored copy, the page itself is not written
+            verify(fileWriterMock, never()).write(any(PageContent.class), any(Path.class));
+            verify(fileWriterMock, times(28)).write(any(URI.class), any(Path.class), any());
+        } finally {
+            FileUtils.deleteDirectory(output.toFile());
+            Files.deleteIfExists(Paths.get("test-incremental.journal"));
+            Files.deleteIfExists(Paths.get("test-incremental.meta"));
+            Files.deleteIfExists(Paths.get("test-incremental.errors"));
+        }
     }
 }
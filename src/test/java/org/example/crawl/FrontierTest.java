@@ -0,0 +1,146 @@
+package org.example.crawl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the Frontier class.
+ */
+class FrontierTest {
+
+    /**
+     * Validates that entries beyond the memory capacity are spilled to disk and returned in the order they were pushed,
+     * also when pushes and polls are interleaved, and that the segment files are removed afterwards.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void spillsAndPagesBackInOrder() throws IOException {
+        Path spillDirectory = Paths.get("test-frontier");
+        try (Frontier frontier = new Frontier(spillDirectory, 10, 7)) {
+            int pushed = 0;
+            int polled = 0;
+
+            for (; pushed < 100; pushed++) {
+                frontier.push(entry(pushed));
+            }
+            assertEquals(90, frontier.getSpilled());
+            assertTrue(Files.isDirectory(spillDirectory));
+
+            // Interleave pushes with polls, which page the spilled entries back in
+            for (; polled < 50; polled++) {
+                assertEquals(entry(polled).getUri(), frontier.poll().getUri());
+                frontier.push(entry(pushed++));
+            }
+            while (!frontier.isEmpty()) {
+                assertEquals(entry(polled++).getUri(), frontier.poll().getUri());
+            }
+
+            assertEquals(pushed, polled);
+            assertNull(frontier.poll());
+        }
+        assertFalse(Files.exists(spillDirectory));
+    }
+
+    /**
+     * Validates that the memory window returns entries by priority, and entries of equal priority in the order they
+     * were pushed, and that spilled entries keep their depth and priority.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void ordersByPriority() throws IOException {
+        Path spillDirectory = Paths.get("test-frontier");
+        try (Frontier frontier = new Frontier(spillDirectory, 4, 2)) {
+            SchedulingPolicy policy = SchedulingPolicy.PAGES_FIRST;
+            frontier.push(entry(JobType.File, 0, 1, policy));
+            frontier.push(entry(JobType.Page, 1, 2, policy));
+            frontier.push(entry(JobType.Page, 2, 1, policy));
+            frontier.push(entry(JobType.Page, 3, 1, policy));
+            frontier.push(entry(JobType.File, 4, 3, policy));
+
+            // Pages before resources, shallow before deep, and the spilled resource is paged back in last
+            assertEquals(entry(2).getUri(), frontier.poll().getUri());
+            assertEquals(entry(3).getUri(), frontier.poll().getUri());
+            assertEquals(entry(1).getUri(), frontier.poll().getUri());
+            assertEquals(entry(0).getUri(), frontier.poll().getUri());
+
+            FrontierEntry spilled = frontier.poll();
+            assertEquals(entry(4).getUri(), spilled.getUri());
+            assertEquals(JobType.File, spilled.getJobType());
+            assertEquals(3, spilled.getDepth());
+            assertEquals(policy.priorityOf(JobType.File, 3), spilled.getPriority());
+            assertTrue(frontier.isEmpty());
+        }
+    }
+
+    /**
+     * Validates that the entries of a held host are passed over and count against the memory window, so that nothing
+     * is paged back in for them, and that they are returned in their original order once the host is released.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void passesOverHeldHosts() throws IOException {
+        Path spillDirectory = Paths.get("test-frontier");
+        try (Frontier frontier = new Frontier(spillDirectory, 4, 2)) {
+            FrontierEntry other = new FrontierEntry(JobType.Page, URI.create("https://quotes.toscrape.com/"), 0, 0);
+            frontier.push(entry(0));
+            frontier.push(entry(1));
+            frontier.push(other);
+
+            assertTrue(frontier.hold(entry(0).getUri()));
+            assertFalse(frontier.hold(entry(1).getUri()));
+            assertEquals(other.getUri(), frontier.poll().getUri());
+            assertNull(frontier.poll());
+
+            // The held entries leave room for two more in memory, the rest is spilled and stays there
+            for (int index = 2; index < 5; index++) {
+                frontier.push(entry(index));
+            }
+            assertEquals(1, frontier.getSpilled());
+            assertNull(frontier.poll());
+            assertFalse(frontier.hasReady());
+            assertEquals(5, frontier.size());
+
+            frontier.release(entry(0).getUri());
+            for (int index = 0; index < 5; index++) {
+                assertEquals(entry(index).getUri(), frontier.poll().getUri());
+            }
+            assertTrue(frontier.isEmpty());
+        }
+    }
+
+    /**
+     * Creates a test entry with a policy assigned priority.
+     *
+     * @param jobType The type of job.
+     * @param index   The index of the entry.
+     * @param depth   The depth of the entry.
+     * @param policy  The policy assigning the priority.
+     * @return The entry.
+     */
+    private FrontierEntry entry(JobType jobType, int index, int depth, SchedulingPolicy policy) {
+        return new FrontierEntry(jobType, entry(index).getUri(), depth, policy.priorityOf(jobType, depth));
+    }
+
+    /**
+     * Creates a test entry.
+     *
+     * @param index The index of the entry.
+     * @return The entry.
+     */
+    private FrontierEntry entry(int index) {
+        return new FrontierEntry(JobType.Page, URI.create("https://books.toscrape.com/page-" + index + ".html"), 0, 0);
+    }
+}
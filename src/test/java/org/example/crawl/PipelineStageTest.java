@@ -0,0 +1,80 @@
+package org.example.crawl;
+
+import org.example.metrics.CrawlMetrics;
+import org.example.metrics.Stage;
+import org.example.metrics.StageStats;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the PipelineStage class.
+ */
+class PipelineStageTest {
+
+    /**
+     * Validates that a producer waits while the queue of a stage is full, that it goes on once there is room, and that
+     * the stage reports its tasks, utilization and the time the producer waited.
+     *
+     * @throws Exception If a task fails unexpectedly.
+     */
+    @Test
+    void blocksProducerWhileFull() throws Exception {
+        CrawlMetrics metrics = new CrawlMetrics();
+        PipelineStage stage = new PipelineStage(Stage.PARSE, 1, 1, metrics);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // One task holds the thread, the next one fills the queue
+            CompletableFuture<Void> running = stage.submit(release::await);
+            CompletableFuture<Void> queued = stage.submit(() -> Thread.sleep(10));
+
+            CompletableFuture<CompletableFuture<Void>> producer = CompletableFuture.supplyAsync(
+                    () -> stage.submit(() -> Thread.sleep(10)));
+            Thread.sleep(200);
+            assertFalse(producer.isDone());
+            assertEquals(1, metrics.getStages().get("PARSE").getQueued());
+
+            // Once the thread is free the producer hands its task off
+            release.countDown();
+            producer.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+            running.get(5, TimeUnit.SECONDS);
+            queued.get(5, TimeUnit.SECONDS);
+
+            StageStats stats = metrics.snapshot().getStages().get(Stage.PARSE);
+            assertEquals(1, stats.getThreads());
+            assertEquals(3, stats.getTasks());
+            assertEquals(0, stats.getBusy());
+            assertTrue(stats.getUtilization() > 0 && stats.getUtilization() <= 1);
+            assertTrue(stats.getBlockedMillis() >= 100);
+        } finally {
+            release.countDown();
+            stage.shutdown();
+        }
+    }
+
+    /**
+     * Validates that a failing task fails its future, and that a stage that has been shut down rejects tasks.
+     */
+    @Test
+    void reportsFailures() {
+        PipelineStage stage = new PipelineStage(Stage.WRITE, 2, 4, new CrawlMetrics());
+
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> stage.submit(() -> {
+            throw new IOException("disk full");
+        }).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failed.getCause());
+
+        stage.shutdown();
+        assertTrue(stage.submit(() -> { }).isCompletedExceptionally());
+    }
+}
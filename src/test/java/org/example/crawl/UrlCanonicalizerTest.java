@@ -0,0 +1,48 @@
+package org.example.crawl;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test for the UrlCanonicalizer class.
+ */
+class UrlCanonicalizerTest {
+
+    /**
+     * Validates that URIs which only differ in ways that do not change the requested resource share one canonical form.
+     */
+    @Test
+    void canonicalize() {
+        String expected = "https://books.toscrape.com/catalogue/page-2.html";
+
+        assertEquals(expected, canonical("https://books.toscrape.com/catalogue/page-2.html#content"));
+        assertEquals(expected, canonical("HTTPS://Books.ToScrape.com/catalogue/page-2.html"));
+        assertEquals(expected, canonical("https://books.toscrape.com:443/catalogue/page-2.html"));
+        assertEquals(expected, canonical("https://books.toscrape.com/./catalogue/../catalogue/page-2.html"));
+        assertEquals(expected, canonical("https://books.toscrape.com/../catalogue/page-2.html"));
+    }
+
+    /**
+     * Validates that the parts of a URI which identify a different resource are preserved.
+     */
+    @Test
+    void canonicalizeKeepsSignificantParts() {
+        assertEquals("https://books.toscrape.com/", canonical("https://books.toscrape.com"));
+        assertEquals("http://books.toscrape.com:8080/Index.html?page=2",
+                canonical("http://books.toscrape.com:8080/Index.html?page=2"));
+        assertEquals("https://books.toscrape.com/a%2Fb", canonical("https://books.toscrape.com/a%2fb"));
+    }
+
+    /**
+     * Canonicalizes the URI represented by the string.
+     *
+     * @param uri The URI to canonicalize.
+     * @return The canonical URI as a string.
+     */
+    private String canonical(String uri) {
+        return UrlCanonicalizer.canonicalize(URI.create(uri)).toString();
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.crawl;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the UrlScope class.
+ */
+class UrlScopeTest {
+
+    /**
+     * Validates that a scope of one host and one directory behaves like a prefix of the base URL, ignoring case, the
+     * default port and the fragment.
+     */
+    @Test
+    void containsBelowBaseUrl() {
+        UrlScope scope = new UrlScope("https", List.of("books.toscrape.com"), List.of("/catalogue/"),
+                Collections.emptyList(), Collections.emptyList());
+
+        assertTrue(scope.contains("https://books.toscrape.com/catalogue/page-2.html"));
+        assertTrue(scope.contains("HTTPS://Books.ToScrape.com/Catalogue/page-2.html#content"));
+        assertTrue(scope.contains("https://books.toscrape.com:443/catalogue/"));
+        assertFalse(scope.contains("https://books.toscrape.com/static/a.css"));
+        assertFalse(scope.contains("https://books.toscrape.com/catalogue"));
+        assertFalse(scope.contains("http://books.toscrape.com/catalogue/page-2.html"));
+        assertFalse(scope.contains("https://books.toscrape.com:8443/catalogue/page-2.html"));
+        assertFalse(scope.contains("https://books.toscrape.com.evil.com/catalogue/page-2.html"));
+        assertFalse(scope.contains("https://evil.com#https://books.toscrape.com/catalogue/"));
+        assertFalse(scope.contains("mailto:someone@books.toscrape.com"));
+    }
+
+    /**
+     * Validates hosts with ports and subdomains, several include prefixes and exclude patterns with wildcards and
+     * anchors.
+     */
+    @Test
+    void containsByRules() {
+        UrlScope scope = new UrlScope("http", List.of("localhost:8080", "*.example.com"), List.of("/docs/", "/blog"),
+                List.of("/docs/private/", "*.pdf$", "/blog/*/comments"), Collections.emptyList());
+
+        assertTrue(scope.contains("http://localhost:8080/docs/index.html"));
+        assertTrue(scope.contains("http://www.example.com/blog"));
+        assertTrue(scope.contains("http://user@a.b.example.com/blog/2024/"));
+        assertFalse(scope.contains("http://example.com/blog"));
+        assertFalse(scope.contains("http://localhost/docs/index.html"));
+        assertFalse(scope.contains("http://www.example.com/"));
+
+        assertFalse(scope.contains("http://localhost:8080/docs/private/key.html"));
+        assertFalse(scope.contains("http://localhost:8080/docs/manual.PDF"));
+        assertTrue(scope.contains("http://localhost:8080/docs/manual.pdf?download=1"));
+        assertFalse(scope.contains("http://www.example.com/blog/2024/post/comments?page=2"));
+        assertTrue(scope.contains("http://www.example.com/blog/2024/post/"));
+    }
+
+    /**
+     * Validates that patterns with many wildcards are matched in one pass over a URL, where trying every split of the
+     * URL among the wildcards would take time exponential in their number, and that patterns too large to compile
+     * are rejected.
+     */
+    @Test
+    void matchesWildcardsInLinearTime() {
+        UrlScope scope = new UrlScope("https", List.of("example.com"), List.of("/"),
+                List.of("*a*a*a*a*a*a*a*a*a*a*a*a*b$", "/x*y*z"), Collections.emptyList());
+        String run = "https://example.com/" + "a".repeat(5_000);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertTrue(scope.contains(run));
+            assertFalse(scope.contains(run + "b"));
+            assertTrue(scope.contains(run + "bc"));
+        });
+        assertFalse(scope.contains("https://example.com/x/yy/z/"));
+        assertTrue(scope.contains("https://example.com/x/z/y"));
+
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            many.add("*" + i + "/" + "x".repeat(60));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new UrlScope("https", List.of("example.com"), List.of("/"),
+                many, Collections.emptyList()));
+    }
+
+    /**
+     * Validates that tracking parameters are stripped by name or name prefix, keeping the other parameters in their
+     * order, and that a URI without them is returned as is.
+     */
+    @Test
+    void stripsParams() {
+        UrlScope scope = new UrlScope("https", List.of("example.com"), List.of("/"), Collections.emptyList(),
+                Arrays.asList("utm_*", "gclid"));
+
+        assertEquals("https://example.com/a?page=2&sort=asc",
+                scope.stripParams(URI.create("https://example.com/a?utm_source=x&page=2&gclid=1&sort=asc")).toString());
+        assertEquals("https://example.com/a",
+                scope.stripParams(URI.create("https://example.com/a?utm_medium=mail&utm_campaign")).toString());
+        assertEquals("https://example.com/a?gclid_extra=1",
+                scope.stripParams(URI.create("https://example.com/a?gclid_extra=1")).toString());
+
+        URI unchanged = URI.create("https://example.com/a?page=2");
+        assertSame(unchanged, scope.stripParams(unchanged));
+    }
+
+    /**
+     * Validates that matching a URL allocates nothing, by the bytes the thread allocates over many checks.
+     */
+    @Test
+    void containsWithoutAllocating() {
+        UrlScope scope = new UrlScope("https", List.of("books.toscrape.com", "*.toscrape.com"), List.of("/catalogue/"),
+                List.of("*/reviews", "*.jpg$"), Collections.emptyList());
+        String[] urls = {
+                "https://books.toscrape.com/catalogue/book_1/index.html",
+                "https://Books.ToScrape.com/catalogue/book_1/reviews#top",
+                "https://quotes.toscrape.com/catalogue/cover.jpg",
+                "https://www.example.com/catalogue/book_1/index.html"
+        };
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int matched = 0;
+        for (int i = 0; i < 10_000; i++) {
+            matched += scope.contains(urls[i % urls.length]) ? 1 : 0;
+        }
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100_000; i++) {
+            matched += scope.contains(urls[i % urls.length]) ? 1 : 0;
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertEquals(27_500, matched);
+        assertTrue(allocated < 100_000, "Allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.crawl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the VirtualThreadExecutor class. Platform threads stand in for virtual threads, so the test also runs
+ * on Java versions without virtual threads.
+ */
+class VirtualThreadExecutorTest {
+
+    /**
+     * Validates that no more tasks than the cap run at the same time and that the executor terminates once they are
+     * done.
+     *
+     * @throws InterruptedException If interrupted while waiting for termination.
+     */
+    @Test
+    void capsTasksInFlight() throws InterruptedException {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(4, Executors.defaultThreadFactory());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        for (int i = 0; i < 50; i++) {
+            executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return null;
+            });
+        }
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 4);
+        assertNull(executor.getException());
+    }
+
+    /**
+     * Validates that an exception thrown by a submitted task is captured like in the ExtendedExecutor.
+     *
+     * @throws InterruptedException If interrupted while waiting for termination.
+     */
+    @Test
+    void capturesExceptions() throws InterruptedException {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(4, Executors.defaultThreadFactory());
+        IllegalStateException thrown = new IllegalStateException("failed");
+
+        executor.submit(() -> {
+            throw thrown;
+        });
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(thrown, executor.getException().getCause());
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.distributed;
+
+import org.apache.commons.io.FileUtils;
+import org.example.crawl.Progress;
+import org.example.harness.SyntheticSite;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration test of a distributed crawl, with the coordinator in this JVM and the workers as separate processes.
+ */
+class CoordinatorTest {
+
+    // Constants
+    private static final String OUTPUT_DIRECTORY = "test-distributed";
+    private static final int WORKERS = 3;
+
+    /**
+     * Validates that the workers split the crawl of a site, forward links to each other until the site is crawled,
+     * are stopped once all of them are idle, and that their progress adds up to every page and asset crawled once.
+     *
+     * @throws Exception If the site cannot be served or the crawl fails.
+     */
+    @Test
+    void crawlsSiteWithWorkerProcesses() throws Exception {
+        SyntheticSite site = new SyntheticSite(60, 4);
+        site.setAssets(2, 1024);
+        site.start();
+
+        List<Process> processes = new ArrayList<>();
+        try (Coordinator coordinator = new Coordinator(WORKERS, new URL(site.getBaseUrl()), OUTPUT_DIRECTORY,
+                Partitioner.Key.URL)) {
+            int port = coordinator.start(0);
+            for (int i = 0; i < WORKERS; i++) {
+                processes.add(Worker.launch("localhost", port, 4, false, ProcessBuilder.Redirect.DISCARD));
+            }
+
+            Progress progress = coordinator.getCompletion().get(2, TimeUnit.MINUTES);
+
+            // Every URL is crawled by exactly one worker
+            assertEquals(0, progress.getFailed());
+            assertEquals(site.getUrlCount(), progress.getPersisted());
+            for (int partition = 0; partition < WORKERS; partition++) {
+                String[] files = new File(OUTPUT_DIRECTORY + "-" + partition).list();
+                assertNotNull(files);
+                assertTrue(files.length > 0);
+            }
+
+            // The workers exit once they have handed in their progress
+            for (Process process : processes) {
+                assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+                assertEquals(0, process.exitValue());
+            }
+        } finally {
+            processes.forEach(Process::destroyForcibly);
+            site.close();
+            for (int partition = 0; partition < WORKERS; partition++) {
+                String directory = OUTPUT_DIRECTORY + "-" + partition;
+                FileUtils.deleteDirectory(new File(directory));
+                for (String suffix : new String[]{".journal", ".meta", ".errors", ".frontier"}) {
+                    FileUtils.deleteQuietly(new File(directory + suffix));
+                }
+            }
+        }
+    }
+}
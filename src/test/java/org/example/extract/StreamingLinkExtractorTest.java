@@ -0,0 +1,93 @@
+package org.example.extract;
+
+import org.example.crawl.Crawler;
+import org.example.misc.Pair;
+import org.example.utils.Resources;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for the StreamingLinkExtractor class.
+ */
+class StreamingLinkExtractorTest {
+
+    // Base URI of the test pages
+    private static final String BASE_URI = "https://books.toscrape.com/index.html";
+
+    /**
+     * Validates that the streaming extractor finds the same resources and links on the index page as the DOM based
+     * extractor.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void matchesDomExtractor() throws IOException {
+        String page = Resources.getIndexPage();
+
+        List<String> streamed = extract(new StreamingLinkExtractor(Crawler.RESOURCE_MAPPING, Crawler.LINK_MAPPING), page);
+        List<String> parsed = extract(new DomLinkExtractor(Crawler.RESOURCE_MAPPING, Crawler.LINK_MAPPING), page);
+
+        assertEquals(new HashSet<>(parsed), new HashSet<>(streamed));
+        assertEquals(parsed.size(), streamed.size());
+    }
+
+    /**
+     * Validates the handling of comments, raw text, character references, unquoted and duplicate attributes, upper
+     * case markup and the base element.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void scansMarkup() throws IOException {
+        String page = "<!DOCTYPE html><html><head><BASE HREF=\"/catalogue/\">"
+                + "<!-- <a href=\"commented.html\"> -->"
+                + "<script>var s = '<a href=\"scripted.html\">';</script >"
+                + "<LINK rel=stylesheet HREF=style.css></head><body>"
+                + "<a href=\"a.html?x=1&amp;y=2\" href=\"ignored.html\">A</a>"
+                + "<a data-x='>' href='b.html'/><a>no link</a><img src=\"\">"
+                + "<a href=c.html>C</a></body></html>";
+
+        List<String> links = extract(new StreamingLinkExtractor(Crawler.RESOURCE_MAPPING, Crawler.LINK_MAPPING), page);
+
+        assertEquals(List.of(
+                "RESOURCE https://books.toscrape.com/catalogue/style.css",
+                "PAGE https://books.toscrape.com/catalogue/a.html?x=1&y=2",
+                "PAGE https://books.toscrape.com/catalogue/b.html",
+                "RESOURCE https://books.toscrape.com/catalogue/",
+                "PAGE https://books.toscrape.com/catalogue/c.html"), links);
+    }
+
+    /**
+     * Validates that queries other than tag[attribute] are rejected.
+     */
+    @Test
+    void rejectsUnsupportedQueries() {
+        Set<Pair<String, String>> mapping = Set.of(new Pair<>("div > a[href]", "href"));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingLinkExtractor(mapping, Set.of()));
+    }
+
+    /**
+     * Extracts the links of a page.
+     *
+     * @param extractor The extractor.
+     * @param page      The page.
+     * @return The links as "type url" in the order they were found.
+     * @throws IOException If an I/O error occurs during the extraction.
+     */
+    private List<String> extract(LinkExtractor extractor, String page) throws IOException {
+        List<String> links = new ArrayList<>();
+        extractor.extract(new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8)), null, BASE_URI,
+                (type, url) -> links.add(type.name() + " " + url));
+        return links;
+    }
+}
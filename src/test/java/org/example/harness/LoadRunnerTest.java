@@ -0,0 +1,104 @@
+package org.example.harness;
+
+import org.apache.commons.io.FileUtils;
+import org.example.crawl.CrawlBudget;
+import org.example.crawl.RetryPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration test of the crawler against a synthetic site, driven by the LoadRunner.
+ */
+class LoadRunnerTest {
+
+    // Constants
+    private static final String OUTPUT_DIRECTORY = "test-harness";
+
+    /**
+     * Validates that a crawl of a site with duplicate links, latency, injected errors and a crawl trap downloads every
+     * page and asset once, retries the errors, is held in the trap by the depth budget, and is reported.
+     *
+     * @throws Exception If the site cannot be served or the crawl fails.
+     */
+    @Test
+    void crawlsSyntheticSite() throws Exception {
+        SyntheticSite site = new SyntheticSite(60, 4);
+        site.setAssets(2, 4096);
+        site.setDuplicateLinks(3);
+        site.setLatency(Duration.ofMillis(2));
+        site.setErrorRate(0.1);
+        site.setTrap(true);
+        site.start();
+
+        try {
+            // Page 60 is 15 links deep, the trap grows by two months per link followed
+            LoadReport report = LoadRunner.run(site, OUTPUT_DIRECTORY, 4, true,
+                    new CrawlBudget(20, Long.MAX_VALUE, Long.MAX_VALUE, null),
+                    new RetryPolicy(8, Duration.ofMillis(10), Duration.ofMillis(50)));
+
+            // Every page and asset, plus the months of the trap within the depth
+            assertEquals(0, report.getFailed());
+            assertTrue(site.getErrors() > 0);
+            assertTrue(site.getTrapRequests() > 0 && site.getTrapRequests() <= 40);
+            assertTrue(report.getSkipped() > 0);
+            assertEquals(site.getUrlCount() + site.getTrapRequests(), report.getPersisted());
+            assertEquals(61 + site.getTrapRequests(), report.getPages());
+
+            // The report is computed from what was crawled
+            assertTrue(report.getBytesIn() >= 60 * 4096);
+            assertTrue(report.getPagesPerSecond() > 0 && report.getMegabytesPerSecond() > 0);
+            assertTrue(report.getP99Millis() >= 1);
+            assertTrue(report.getPeakHeapBytes() > 0);
+        } finally {
+            site.close();
+            cleanUp();
+        }
+    }
+
+    /**
+     * Validates that a crawl of a site with a robots.txt is seeded with every page of its gzipped sitemap, reached
+     * through the sitemap index the robots.txt lists, and keeps out of the calendar the robots.txt disallows.
+     *
+     * @throws Exception If the site cannot be served or the crawl fails.
+     */
+    @Test
+    void seedsFromSitemapAndHonorsRobots() throws Exception {
+        SyntheticSite site = new SyntheticSite(60, 1);
+        site.setAssets(2, 1024);
+        site.setTrap(true);
+        site.setRobots(true);
+        site.start();
+
+        try {
+            // A single link per page would take 60 hops, the sitemap hands out every page at the first
+            LoadReport report = LoadRunner.run(site, OUTPUT_DIRECTORY, 4, false,
+                    new CrawlBudget(3, Long.MAX_VALUE, Long.MAX_VALUE, null), RetryPolicy.NONE);
+
+            assertEquals(0, report.getFailed());
+            assertEquals(0, site.getTrapRequests());
+            assertEquals(site.getUrlCount(), report.getPersisted());
+            assertTrue(report.getSkipped() > 0);
+        } finally {
+            site.close();
+            cleanUp();
+        }
+    }
+
+    /**
+     * Deletes the output directory and the state files next to it.
+     *
+     * @throws IOException If the output directory cannot be deleted.
+     */
+    private void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(new File(OUTPUT_DIRECTORY));
+        for (String suffix : new String[]{".journal", ".meta", ".errors", ".frontier"}) {
+            FileUtils.deleteQuietly(new File(OUTPUT_DIRECTORY + suffix));
+        }
+    }
+}
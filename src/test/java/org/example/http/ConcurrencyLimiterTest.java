@@ -0,0 +1,79 @@
+package org.example.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the ConcurrencyLimiter class.
+ */
+class ConcurrencyLimiterTest {
+
+    /**
+     * Validates that the limit grows while requests succeed at a steady latency, halves on overload and shrinks on a
+     * latency far above the lowest seen, within its bounds.
+     */
+    @Test
+    void adaptsLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 8);
+
+        // Keep the window full of fast requests until the limit reaches its maximum
+        for (int i = 0; i < 200; i++) {
+            run(limiter, ConcurrencyLimiter.Outcome.SUCCESS, 1_000_000);
+        }
+        assertEquals(8, limiter.getLimit());
+
+        // One overload halves the limit, requests sent before the decrease do not shrink it again
+        long before = System.nanoTime();
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(System.nanoTime(), 1_000_000, ConcurrencyLimiter.Outcome.OVERLOAD);
+        limiter.release(before, 1_000_000, ConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(4, limiter.getLimit());
+
+        // A latency far above the lowest seen shrinks the limit gently
+        run(limiter, ConcurrencyLimiter.Outcome.SUCCESS, 50_000_000);
+        assertEquals(3, limiter.getLimit());
+    }
+
+    /**
+     * Validates that a request over the limit waits without blocking and starts once a slot is released.
+     */
+    @Test
+    void queuesOverLimit() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.fixed(1);
+        assertTrue(limiter.acquire().isDone());
+
+        CompletableFuture<Void> waiting = limiter.acquire();
+        assertFalse(waiting.isDone());
+        assertEquals(1, limiter.getQueued());
+
+        // A fixed limit ignores overload, and hands the released slot to the waiting request
+        limiter.release(System.nanoTime(), 1_000_000, ConcurrencyLimiter.Outcome.OVERLOAD);
+        assertTrue(waiting.isDone());
+        assertEquals(1, limiter.getLimit());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    /**
+     * Fills the limiter's window with requests and completes them all with the same latency and outcome.
+     *
+     * @param limiter The limiter.
+     * @param outcome The outcome of the requests.
+     * @param latency The latency of the requests in nanoseconds.
+     */
+    private static void run(ConcurrencyLimiter limiter, ConcurrencyLimiter.Outcome outcome, long latency) {
+        int window = limiter.getLimit();
+        long start = System.nanoTime();
+        for (int i = 0; i < window; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < window; i++) {
+            limiter.release(start, latency, outcome);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the DownloadPolicy class, against a local server through a transport with a single connection per
+ * host, so that a download that is not released would hold up the next one.
+ */
+class DownloadPolicyTest {
+
+    // Constants
+    private static final int CHUNK = 1024;
+
+    // Member variables
+    private HttpServer server;
+    private HttpTransport transport;
+    private String base;
+
+    /**
+     * Starts a server with a page, a PDF, a large file with a Content-Length, an endless stream without one and a
+     * stream that trickles.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/page.html", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            send(exchange, CHUNK, 1, 0);
+        });
+        server.createContext("/file.pdf", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/pdf");
+            send(exchange, CHUNK, 1, 0);
+        });
+        server.createContext("/large.png", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "image/png");
+            send(exchange, 64 * CHUNK, 1, 0);
+        });
+        server.createContext("/endless", exchange -> send(exchange, 0, Integer.MAX_VALUE, 0));
+        server.createContext("/trickle", exchange -> send(exchange, 0, Integer.MAX_VALUE, 50));
+        server.start();
+
+        transport = new HttpTransport(HttpClient.Version.HTTP_1_1, 1, Duration.ofSeconds(5), Duration.ofSeconds(30));
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Validates that media types are matched exactly or by kind, and that responses without a type are allowed.
+     */
+    @Test
+    void matchesTypes() {
+        DownloadPolicy policy = new DownloadPolicy(Arrays.asList("text/html", "Image/*"), CHUNK, null);
+
+        assertTrue(policy.isAllowedType("text/html"));
+        assertTrue(policy.isAllowedType("image/webp"));
+        assertTrue(policy.isAllowedType(null));
+        assertFalse(policy.isAllowedType("text/css"));
+        assertFalse(policy.isAllowedType("application/pdf"));
+        assertTrue(DownloadPolicy.UNLIMITED.isAllowedType("application/pdf"));
+    }
+
+    /**
+     * Validates that a response of an unwanted type, or with a Content-Length over the limit, is rejected on its
+     * headers, and that its connection is free for the next request.
+     *
+     * @throws Exception If a request fails unexpectedly.
+     */
+    @Test
+    void rejectsOnHeaders() throws Exception {
+        DownloadPolicy policy = new DownloadPolicy(Arrays.asList("text/html", "image/*"), 16 * CHUNK, null);
+
+        assertThrows(DownloadRejectedException.class, () -> transport.get(uri("/file.pdf"), null, policy));
+        assertThrows(DownloadRejectedException.class, () -> transport.get(uri("/large.png"), null, policy));
+
+        assertEquals(CHUNK, readAll(uri("/page.html"), policy));
+    }
+
+    /**
+     * Validates that a body without a Content-Length is aborted once it exceeds the size, both as a stream and as the
+     * body of a handler, and that its connection is released.
+     *
+     * @throws Exception If a request fails unexpectedly.
+     */
+    @Test
+    void abortsOversizedBody() throws Exception {
+        DownloadPolicy policy = new DownloadPolicy(Collections.emptyList(), 16 * CHUNK, null);
+
+        IOException streamed = assertThrows(IOException.class, () -> readAll(uri("/endless"), policy));
+        assertNotNull(DownloadRejectedException.find(streamed));
+
+        ExecutionException handled = assertThrows(ExecutionException.class, () -> transport
+                .getAsync(uri("/endless"), null, policy, HttpResponse.BodyHandlers.ofByteArray())
+                .get(10, TimeUnit.SECONDS));
+        assertNotNull(DownloadRejectedException.find(handled));
+
+        assertEquals(CHUNK, readAll(uri("/page.html"), policy));
+    }
+
+    /**
+     * Validates that a body that is still arriving when its time is up is aborted, and that its connection is
+     * released.
+     *
+     * @throws Exception If a request fails unexpectedly.
+     */
+    @Test
+    void abortsSlowBody() throws Exception {
+        DownloadPolicy policy = new DownloadPolicy(Collections.emptyList(), Long.MAX_VALUE, Duration.ofMillis(300));
+
+        long start = System.nanoTime();
+        ExecutionException handled = assertThrows(ExecutionException.class, () -> transport
+                .getAsync(uri("/trickle"), null, policy, HttpResponse.BodyHandlers.ofByteArray())
+                .get(10, TimeUnit.SECONDS));
+        assertNotNull(DownloadRejectedException.find(handled));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        assertEquals(CHUNK, readAll(uri("/page.html"), policy));
+    }
+
+    /**
+     * Resolves a path against the server.
+     *
+     * @param path The path.
+     * @return The URI.
+     */
+    private URI uri(String path) {
+        return URI.create(base + path);
+    }
+
+    /**
+     * Reads a whole response body as a stream.
+     *
+     * @param uri    The URI to request.
+     * @param policy The limits of the download.
+     * @return The number of bytes read.
+     * @throws IOException If the request or the read fails.
+     */
+    private long readAll(URI uri, DownloadPolicy policy) throws IOException {
+        HttpResponse<InputStream> response = transport.get(uri, null, policy);
+        try (InputStream body = response.body()) {
+            return body.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Answers a request with chunks of zeros, with a Content-Length if the size is known, until the client goes away.
+     *
+     * @param exchange The exchange.
+     * @param length   The Content-Length, or zero to send the body chunked.
+     * @param chunks   The number of chunks, of the Content-Length if one is given, otherwise of 1 KiB.
+     * @param pause    The pause after every chunk in milliseconds.
+     * @throws IOException If the response headers cannot be sent.
+     */
+    private static void send(HttpExchange exchange, int length, int chunks, long pause) throws IOException {
+        exchange.sendResponseHeaders(200, length);
+        byte[] chunk = new byte[length > 0 ? length : CHUNK];
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < chunks; i++) {
+                out.write(chunk);
+                out.flush();
+                if (pause > 0) {
+                    Thread.sleep(pause);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // The client aborted the body
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit test for the CrawlMetrics and LatencyHistogram classes.
+ */
+class CrawlMetricsTest {
+
+    /**
+     * Validates that the percentiles of a histogram are within the precision of its buckets.
+     */
+    @Test
+    void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMeanMillis(), 0.001);
+        assertEquals(500, snapshot.getP50Millis(), 500 * 0.125);
+        assertEquals(990, snapshot.getP99Millis(), 990 * 0.125);
+        assertEquals(1000, snapshot.getMaxMillis(), 0.001);
+    }
+
+    /**
+     * Validates that recorded metrics are visible in a snapshot and as attributes of the registered MXBean.
+     *
+     * @throws JMException If the metrics cannot be registered or read.
+     */
+    @Test
+    void exposesOverJmx() throws JMException {
+        CrawlMetrics metrics = new CrawlMetrics();
+        metrics.setQueueDepth(() -> 42);
+        URI uri = URI.create("https://books.toscrape.com/index.html");
+        metrics.recordResponse(uri, TimeUnit.MILLISECONDS.toNanos(20), false, 4);
+        metrics.recordResponse(uri, TimeUnit.MILLISECONDS.toNanos(30), true, 4);
+        metrics.addBytesIn(uri, 1000);
+        metrics.record(Phase.FETCH, System.nanoTime());
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1000, snapshot.getBytesIn());
+        assertEquals(42, snapshot.getQueueDepth());
+        assertEquals(2, snapshot.getLatency(Phase.TTFB).getCount());
+        assertEquals(1, snapshot.getLatency(Phase.FETCH).getCount());
+        HostStats host = metrics.getHosts().get("https://books.toscrape.com:-1");
+        assertEquals(2, host.getRequests());
+        assertEquals(1, host.getErrors());
+        assertEquals(4, host.getConcurrencyLimit());
+
+        metrics.register();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(CrawlMetrics.OBJECT_NAME);
+            assertEquals(42L, server.getAttribute(name, "QueueDepth"));
+            TabularData latencies = (TabularData) server.getAttribute(name, "Latencies");
+            CompositeData ttfb = (CompositeData) latencies.get(new Object[]{"TTFB"}).get("value");
+            assertEquals(2L, ttfb.get("count"));
+            assertEquals(1, ((TabularData) server.getAttribute(name, "Hosts")).size());
+        } finally {
+            metrics.unregister();
+        }
+    }
+
+    /**
+     * Validates that the hosts beyond the maximum share a single entry, and that tracked hosts keep their own.
+     */
+    @Test
+    void capsTrackedHosts() {
+        CrawlMetrics metrics = new CrawlMetrics(2);
+        for (int i = 0; i < 5; i++) {
+            URI uri = URI.create("https://host-" + i + ".toscrape.com/index.html");
+            metrics.recordResponse(uri, TimeUnit.MILLISECONDS.toNanos(10), false, 4);
+            metrics.recordResponse(uri, TimeUnit.MILLISECONDS.toNanos(10), false, 4);
+        }
+
+        Map<String, HostStats> hosts = metrics.getHosts();
+        assertEquals(3, hosts.size());
+        assertEquals(2, hosts.get("https://host-0.toscrape.com:-1").getRequests());
+        assertEquals(2, hosts.get("https://host-1.toscrape.com:-1").getRequests());
+        assertEquals(6, hosts.get(CrawlMetrics.OTHER_HOSTS).getRequests());
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.robots;
+
+import com.sun.net.httpserver.HttpServer;
+import org.example.crawl.RetryPolicy;
+import org.example.http.HttpTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the RobotsCache class, against a local server whose robots.txt fails a given number of times.
+ */
+class RobotsCacheTest {
+
+    // Constants
+    private static final byte[] ROBOTS = "User-agent: *\nDisallow: /private/\n".getBytes(StandardCharsets.UTF_8);
+    private static final RetryPolicy RETRY = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5));
+
+    // Member variables
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private RobotsCache cache;
+    private int failures;
+    private int failureStatus;
+
+    /**
+     * Starts a server that answers the robots.txt with the failure status until it has failed the given number of
+     * times, and with the rules afterwards.
+     *
+     * @throws IOException If the server cannot be started.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/robots.txt", exchange -> {
+            if (requests.incrementAndGet() <= failures) {
+                exchange.sendResponseHeaders(failureStatus, -1);
+            } else {
+                exchange.sendResponseHeaders(200, ROBOTS.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(ROBOTS);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        HttpTransport transport = new HttpTransport(HttpClient.Version.HTTP_1_1, 1, Duration.ofSeconds(5),
+                Duration.ofSeconds(30));
+        cache = new RobotsCache(transport, "test-bot", 0, RETRY);
+    }
+
+    /**
+     * Stops the server.
+     */
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Validates that a robots.txt that is unavailable for a moment is fetched again, and its rules apply.
+     */
+    @Test
+    void retriesTransientFailures() {
+        failures = 2;
+        failureStatus = 503;
+
+        assertTrue(cache.isAllowed(uri("/index.html")));
+        assertFalse(cache.isAllowed(uri("/private/key.html")));
+        assertEquals(3, requests.get());
+    }
+
+    /**
+     * Validates that a host whose robots.txt keeps failing with a server error is not crawled, once the attempts are
+     * used up.
+     */
+    @Test
+    void disallowsAfterLastAttempt() {
+        failures = Integer.MAX_VALUE;
+        failureStatus = 503;
+
+        assertFalse(cache.isAllowed(uri("/index.html")));
+        assertEquals(RETRY.getMaxAttempts(), requests.get());
+    }
+
+    /**
+     * Validates that a missing robots.txt allows everything without being fetched again.
+     */
+    @Test
+    void allowsWithoutRobots() {
+        failures = Integer.MAX_VALUE;
+        failureStatus = 404;
+
+        assertTrue(cache.isAllowed(uri("/private/key.html")));
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Resolves a path against the server.
+     *
+     * @param path The path.
+     * @return The URI.
+     */
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.robots;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the RobotsRules class.
+ */
+class RobotsRulesTest {
+
+    // Constants
+    private static final String ROBOTS = "# Rules for everybody\n"
+            + "User-agent: *\n"
+            + "Disallow: /private/\n"
+            + "Allow: /private/public.html\n"
+            + "Disallow: /*.pdf$\n"
+            + "Disallow: /search*q=\n"
+            + "Crawl-delay: 2\n"
+            + "\n"
+            + "User-agent: Other-Bot\n"
+            + "User-agent: WEB-CRAWLER\n"
+            + "Disallow: /catalogue/ # no catalogue\n"
+            + "Disallow:\n"
+            + "Crawl-delay: 0.5\n"
+            + "\n"
+            + "Sitemap: https://books.toscrape.com/sitemap.xml\n"
+            + "Sitemap: https://books.toscrape.com/sitemap-2.xml.gz\n";
+
+    /**
+     * Validates that only the group naming the user agent applies, and that its rules and Crawl-delay are kept.
+     */
+    @Test
+    void selectsGroupOfUserAgent() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "web-crawler/1.0");
+
+        assertFalse(rules.isAllowed("/catalogue/page-2.html"));
+        assertTrue(rules.isAllowed("/private/index.html"));
+        assertTrue(rules.isAllowed("/"));
+        assertEquals(500, rules.getCrawlDelayMillis());
+    }
+
+    /**
+     * Validates the rules of the wildcard group: the longest match wins, allow wins a tie, "*" matches any characters
+     * and "$" the end of the path.
+     */
+    @Test
+    void matchesWildcardGroup() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "another-crawler");
+
+        assertFalse(rules.isAllowed("/private/index.html"));
+        assertTrue(rules.isAllowed("/private/public.html"));
+        assertFalse(rules.isAllowed("/docs/manual.pdf"));
+        assertTrue(rules.isAllowed("/docs/manual.pdf?download=1"));
+        assertFalse(rules.isAllowed("/search?lang=en&q=books"));
+        assertTrue(rules.isAllowed("/search?lang=en"));
+        assertTrue(rules.isAllowed("/robots.txt"));
+        assertEquals(2000, rules.getCrawlDelayMillis());
+
+        RobotsRules tie = RobotsRules.parse("User-agent: *\nDisallow: /page\nAllow: /page\n", "web-crawler");
+        assertTrue(tie.isAllowed("/page.html"));
+    }
+
+    /**
+     * Validates that the sitemaps are kept for every user agent, and that a file without rules allows everything.
+     */
+    @Test
+    void keepsSitemaps() {
+        assertEquals(Arrays.asList("https://books.toscrape.com/sitemap.xml",
+                        "https://books.toscrape.com/sitemap-2.xml.gz"),
+                RobotsRules.parse(ROBOTS, "web-crawler").getSitemaps());
+
+        RobotsRules empty = RobotsRules.parse("", "web-crawler");
+        assertTrue(empty.isAllowed("/anything"));
+        assertEquals(0, empty.getCrawlDelayMillis());
+        assertFalse(RobotsRules.DISALLOW_ALL.isAllowed("/index.html"));
+    }
+}
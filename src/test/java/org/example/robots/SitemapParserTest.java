@@ -0,0 +1,105 @@
+package org.example.robots;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for the SitemapParser class.
+ */
+class SitemapParserTest {
+
+    // Constants
+    private static final String URLSET = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n"
+            + "  <url><loc>https://books.toscrape.com/index.html</loc><priority>1.0</priority></url>\n"
+            + "  <url>\n    <loc>\n      https://books.toscrape.com/catalogue/page-2.html?a=1&amp;b=2\n    </loc>\n"
+            + "  </url>\n"
+            + "</urlset>\n";
+    private static final String INDEX = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n"
+            + "  <sitemap><loc>https://books.toscrape.com/sitemap-1.xml.gz</loc><lastmod>2024-01-01</lastmod></sitemap>\n"
+            + "</sitemapindex>\n";
+
+    /**
+     * Validates that the pages of a plain and of a gzipped sitemap are read, with entities decoded and whitespace
+     * trimmed.
+     *
+     * @throws IOException If the sitemap cannot be parsed.
+     */
+    @Test
+    void parsesPlainAndGzippedSitemap() throws IOException {
+        List<String> expected = Arrays.asList("https://books.toscrape.com/index.html",
+                "https://books.toscrape.com/catalogue/page-2.html?a=1&b=2");
+
+        assertEquals(expected, pages(new ByteArrayInputStream(URLSET.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(expected, pages(new ByteArrayInputStream(gzip(URLSET))));
+    }
+
+    /**
+     * Validates that a sitemap index lists sitemaps and no pages.
+     *
+     * @throws IOException If the sitemap cannot be parsed.
+     */
+    @Test
+    void parsesSitemapIndex() throws IOException {
+        List<String> pages = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        SitemapParser.parse(new ByteArrayInputStream(INDEX.getBytes(StandardCharsets.UTF_8)), pages::add,
+                sitemaps::add);
+
+        assertEquals(Collections.emptyList(), pages);
+        assertEquals(Collections.singletonList("https://books.toscrape.com/sitemap-1.xml.gz"), sitemaps);
+    }
+
+    /**
+     * Validates that a document type declaration is rejected rather than resolved.
+     */
+    @Test
+    void rejectsExternalEntities() {
+        String xxe = "<?xml version=\"1.0\"?>\n<!DOCTYPE urlset [<!ENTITY e SYSTEM \"file:///etc/passwd\">]>\n"
+                + "<urlset><url><loc>&e;</loc></url></urlset>\n";
+
+        assertThrows(IOException.class, () -> pages(new ByteArrayInputStream(xxe.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Parses a sitemap and collects its pages.
+     *
+     * @param in The sitemap.
+     * @return The locations of the pages.
+     * @throws IOException If the sitemap cannot be parsed.
+     */
+    private List<String> pages(InputStream in) throws IOException {
+        List<String> pages = new ArrayList<>();
+        SitemapParser.parse(in, pages::add, sitemap -> { });
+        return pages;
+    }
+
+    /**
+     * Compresses a text with gzip.
+     *
+     * @param text The text.
+     * @return The compressed bytes.
+     * @throws IOException If the text cannot be compressed.
+     */
+    private byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.write;
+
+import org.apache.commons.io.FileUtils;
+import org.example.http.HttpTransport;
+import org.example.read.PageContent;
+import org.example.store.ArchiveReader;
+import org.example.store.Validators;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test for the ArchiveFileWriter class.
+ */
+class ArchiveFileWriterTest {
+
+    /**
+     * Validates that downloads and pages are appended to rolling segments, that they can be looked up through the
+     * index by the writer and, after a restart, by a new writer, and that the reader restores the directory layout.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void archivesAndRestores() throws IOException {
+        Path output = Paths.get("test-archive");
+        Path restored = Paths.get("test-archive-restored");
+        try {
+            HttpTransport transport = mock(HttpTransport.class);
+            stub(transport, "https://books.toscrape.com/static/a.css", "body { }");
+            stub(transport, "https://books.toscrape.com/media/b.jpg", "jpeg");
+
+            // A tiny segment size rolls over to a new segment for every record
+            try (ArchiveFileWriter writer = new ArchiveFileWriter(transport, output, 1)) {
+                Validators written = writer.write(URI.create("https://books.toscrape.com/static/a.css"),
+                        output.resolve("static/a.css"), null);
+                writer.write(URI.create("https://books.toscrape.com/media/b.jpg"), output.resolve("media/b.jpg"), null);
+                writer.write(new PageContent(URI.create("https://books.toscrape.com/"), bytes("<html></html>"),
+                        "UTF-8", "text/html", null), output.resolve("index.html"));
+
+                assertEquals(8, written.getContentLength());
+                assertTrue(writer.exists(output.resolve("static/a.css")));
+                assertFalse(writer.exists(output.resolve("static/c.css")));
+                assertFalse(Files.exists(output.resolve("static")));
+                try (InputStream in = writer.open(output.resolve("index.html"))) {
+                    assertArrayEquals(bytes("<html></html>"), in.readAllBytes());
+                }
+            }
+            assertTrue(Files.readString(output.resolve("segment-00000.warc"), StandardCharsets.ISO_8859_1)
+                    .startsWith("WARC/1.1\r\nWARC-Type: response\r\n"));
+            assertTrue(Files.exists(output.resolve("segment-00002.warc")));
+
+            // A new writer finds the records of the previous run and continues with a new segment
+            try (ArchiveFileWriter writer = new ArchiveFileWriter(transport, output, 1)) {
+                assertTrue(writer.exists(output.resolve("media/b.jpg")));
+                writer.write(URI.create("https://books.toscrape.com/static/a.css"),
+                        output.resolve("static/a.css"), null);
+            }
+            assertTrue(Files.exists(output.resolve("segment-00003.warc")));
+
+            assertEquals(3, new ArchiveReader(output).restore(restored));
+            assertArrayEquals(bytes("body { }"), Files.readAllBytes(restored.resolve("static/a.css")));
+            assertArrayEquals(bytes("jpeg"), Files.readAllBytes(restored.resolve("media/b.jpg")));
+            assertArrayEquals(bytes("<html></html>"), Files.readAllBytes(restored.resolve("index.html")));
+        } finally {
+            FileUtils.deleteDirectory(output.toFile());
+            FileUtils.deleteDirectory(restored.toFile());
+        }
+    }
+
+    /**
+     * Stubs a successful download on a mocked transport.
+     *
+     * @param transport The mocked transport.
+     * @param uri       The URI of the download.
+     * @param body      The body of the response.
+     * @throws IOException Never, declared by the stubbed method.
+     */
+    @SuppressWarnings("unchecked")
+    private static void stub(HttpTransport transport, String uri, String body) throws IOException {
+        HttpResponse<InputStream> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(200);
+        when(response.headers()).thenReturn(HttpHeaders.of(
+                Map.of("Content-Type", List.of("text/plain"), ":status", List.of("200")), (name, value) -> true));
+        when(response.body()).thenAnswer(invocation -> new ByteArrayInputStream(bytes(body)));
+        when(transport.get(eq(URI.create(uri)), any(), any())).thenReturn(response);
+    }
+
+    /**
+     * Encodes a string as UTF-8.
+     *
+     * @param content The string.
+     * @return The bytes.
+     */
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.write;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.example.http.DownloadPolicy;
+import org.example.http.HttpTransport;
+import org.example.read.PageContent;
+import org.example.store.ContentStore;
+import org.example.store.Validators;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test for the DedupFileWriter class.
+ */
+class DedupFileWriterTest {
+
+    /**
+     * Validates that identical downloads under different URLs are stored once and linked from every path, that small
+     * bodies are hashed in memory so that only new content is written, that bodies above the buffer limit or without a
+     * Content-Length stream through a temporary file, and that different content gets its own blob.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void storesIdenticalContentOnce() throws IOException {
+        Path output = Paths.get("test-dedup");
+        Path blobs = Paths.get("test-dedup.blobs");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String name = exchange.getRequestURI().getPath();
+            byte[] body = name.contains("other") ? bytes("b") : name.contains("large") ? bytes("large") : bytes("a");
+            exchange.sendResponseHeaders(200, name.contains("chunked") ? 0 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try (ContentStore store = spy(new ContentStore(blobs))) {
+            Files.createDirectories(output);
+            HttpTransport transport = new HttpTransport(HttpClient.Version.HTTP_1_1, 1, Duration.ofSeconds(5),
+                    Duration.ofSeconds(30));
+            FileWriter writer = new DedupFileWriter(transport, DownloadPolicy.UNLIMITED, store, 4);
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+            writer.write(URI.create(base + "/a.css?v=1"), output.resolve("a1.css"), null);
+            writer.write(URI.create(base + "/a.css?v=2"), output.resolve("a2.css"), null);
+            writer.write(URI.create(base + "/other.css"), output.resolve("b.css"), null);
+            writer.write(new PageContent(URI.create(base + "/a.html"), bytes("a"), null), output.resolve("a.html"));
+            writer.writeAsync(URI.create(base + "/large.js"), output.resolve("large1.js"), null).join();
+            writer.writeAsync(URI.create(base + "/large.js?v=2"), output.resolve("large2.js"), null).join();
+            Validators chunked = writer.write(URI.create(base + "/chunked.css"), output.resolve("c.css"), null);
+
+            // Three blobs for the three distinct contents, every path links to the blob of its content
+            assertEquals(3, store.getStored());
+            assertEquals(4, store.getDeduplicated());
+            assertTrue(Files.isSameFile(output.resolve("a1.css"), output.resolve("a2.css")));
+            assertTrue(Files.isSameFile(output.resolve("a1.css"), output.resolve("a.html")));
+            assertTrue(Files.isSameFile(output.resolve("a1.css"), output.resolve("c.css")));
+            assertTrue(Files.isSameFile(output.resolve("large1.js"), output.resolve("large2.js")));
+            assertFalse(Files.isSameFile(output.resolve("a1.css"), output.resolve("b.css")));
+            assertArrayEquals(bytes("b"), Files.readAllBytes(output.resolve("b.css")));
+            assertArrayEquals(bytes("large"), Files.readAllBytes(output.resolve("large2.js")));
+            assertEquals(hash(bytes("a")), chunked.getHash());
+
+            // Only the two new small contents were written, the large and the chunked bodies were streamed
+            verify(store, times(5)).newTemporaryFile();
+            try (Stream<Path> temporary = Files.list(blobs.resolve("tmp"))) {
+                assertEquals(0, temporary.count());
+            }
+        } finally {
+            server.stop(0);
+            FileUtils.deleteDirectory(output.toFile());
+            FileUtils.deleteDirectory(blobs.toFile());
+        }
+    }
+
+    /**
+     * Validates that a later crawl without the content store replaces a linked path instead of writing through the
+     * link, so that the other paths linked to the same blob keep their content.
+     *
+     * @throws IOException If an I/O error occurs during the test.
+     */
+    @Test
+    void replacesLinkedPaths() throws IOException {
+        Path output = Paths.get("test-relink");
+        Path blobs = Paths.get("test-relink.blobs");
+        try (ContentStore store = new ContentStore(blobs)) {
+            Files.createDirectories(output);
+            HttpTransport transport = mock(HttpTransport.class);
+            FileWriter writer = new DedupFileWriter(transport, DownloadPolicy.UNLIMITED, store, 0);
+            for (String name : new String[]{"a.html", "b.html", "c.html"}) {
+                writer.write(new PageContent(URI.create("https://books.toscrape.com/" + name), bytes("a"), null),
+                        output.resolve(name));
+            }
+
+            // Both writers replace their path, the page that was not crawled again still has the stored content
+            assertTrue(Files.isSameFile(output.resolve("a.html"), output.resolve("c.html")));
+            new BlockingFileWriter(transport, DownloadPolicy.UNLIMITED).write(
+                    new PageContent(URI.create("https://books.toscrape.com/a.html"), bytes("x"), null),
+                    output.resolve("a.html"));
+            new NoneBlockingFileWriter(transport, 1, DownloadPolicy.UNLIMITED).write(
+                    new PageContent(URI.create("https://books.toscrape.com/b.html"), bytes("y"), null),
+                    output.resolve("b.html"));
+
+            assertArrayEquals(bytes("x"), Files.readAllBytes(output.resolve("a.html")));
+            assertArrayEquals(bytes("y"), Files.readAllBytes(output.resolve("b.html")));
+            assertArrayEquals(bytes("a"), Files.readAllBytes(output.resolve("c.html")));
+        } finally {
+            FileUtils.deleteDirectory(output.toFile());
+            FileUtils.deleteDirectory(blobs.toFile());
+        }
+    }
+
+    /**
+     * Encodes a string as UTF-8.
+     *
+     * @param content The string.
+     * @return The bytes.
+     */
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hashes content the way the writers do.
+     *
+     * @param body The content.
+     * @return The hexadecimal hash.
+     */
+    private static String hash(byte[] body) {
+        MessageDigest digest = Validators.newDigest();
+        digest.update(body);
+        return Validators.toHex(digest);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.write;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.example.http.HttpTransport;
+import org.example.store.Validators;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test for the NoneBlockingFileWriter class.
+ */
+class NoneBlockingFileWriterTest {
+
+    /**
+     * Validates that concurrent downloads are streamed completely into their files and hashed, that no more than the
+     * maximum number of downloads is in flight at the same time, and that a 304 answer writes nothing.
+     *
+     * @throws Exception If the server cannot be started or a download fails.
+     */
+    @Test
+    void streamsDownloads() throws Exception {
+        byte[] body = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(body);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.createContext("/", exchange -> {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                if (exchange.getRequestHeaders().containsKey("If-None-Match")) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+            } finally {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+
+        Path output = Paths.get("test-async");
+        try {
+            HttpTransport transport = new HttpTransport(HttpClient.Version.HTTP_1_1, 8, Duration.ofSeconds(5),
+                    Duration.ofSeconds(30));
+            NoneBlockingFileWriter writer = new NoneBlockingFileWriter(transport, 2);
+            String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+            List<CompletableFuture<Validators>> downloads = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                downloads.add(writer.writeAsync(URI.create(base + "file" + i), output.resolve("dir/file" + i), null));
+            }
+
+            String hash = Validators.toHex(digestOf(body));
+            for (int i = 0; i < 6; i++) {
+                Validators written = downloads.get(i).join();
+                assertEquals(body.length, written.getContentLength());
+                assertEquals("\"v1\"", written.getEtag());
+                assertEquals(hash, written.getHash());
+                assertArrayEquals(body, Files.readAllBytes(output.resolve("dir/file" + i)));
+            }
+            assertTrue(peak.get() <= 2);
+
+            // A conditional request for unchanged content neither creates nor touches the file
+            Validators cached = new Validators("\"v1\"", null, body.length, hash);
+            assertEquals(Validators.NOT_MODIFIED, writer.write(URI.create(base + "other"), output.resolve("other"), cached));
+            assertTrue(Files.notExists(output.resolve("other")));
+        } finally {
+            server.stop(0);
+            FileUtils.deleteDirectory(output.toFile());
+        }
+    }
+
+    /**
+     * Hashes a byte array with the digest used for validators.
+     *
+     * @param bytes The bytes.
+     * @return The digest after the update.
+     */
+    private static MessageDigest digestOf(byte[] bytes) {
+        MessageDigest digest = Validators.newDigest();
+        digest.update(bytes);
+        return digest;
+    }
+}